@@ -29,6 +29,7 @@ import com.isahl.chess.bishop.protocol.mqtt.ctrl.X111_QttConnect;
 import com.isahl.chess.bishop.protocol.mqtt.ctrl.X11C_QttPingreq;
 import com.isahl.chess.bishop.protocol.ws.ctrl.X103_Ping;
 import com.isahl.chess.bishop.protocol.zchat.zcrypto.Encryptor;
+import com.isahl.chess.bishop.protocol.zchat.zcrypto.KeyPairPool;
 import com.isahl.chess.bishop.sort.ZSortHolder;
 import com.isahl.chess.king.base.cron.ScheduleHandler;
 import com.isahl.chess.king.base.cron.TimeWheel;
@@ -103,7 +104,9 @@ public class ClientPool
         _TimeWheel = _ClientCore.getTimeWheel();
         _FactoryMap = new HashMap<>();
         _ChannelGroup = AsynchronousChannelGroup.withFixedThreadPool(ioCount, _ClientCore.getWorkerThreadFactory());
-        _ClientCore.build(slot->new ClientHandler(new Health(slot), ClientPool.this), Encryptor::new);
+        KeyPairPool keyPairPool = new KeyPairPool(KeyPairPool.DEFAULT_CAPACITY, KeyPairPool.DEFAULT_GENERATORS);
+        keyPairPool.start();
+        _ClientCore.build(slot->new ClientHandler(new Health(slot), ClientPool.this), ()->new Encryptor(keyPairPool));
         _Logger.debug("device consumer created");
     }
 
@@ -310,5 +313,11 @@ public class ClientPool
     {
         throw new UnsupportedOperationException("client unsupported exchange,no routing");
     }
+
+    @Override
+    public void exchange(IProtocol body, List<Target> targets, int factory, List<ITriple> load)
+    {
+        throw new UnsupportedOperationException("client unsupported exchange,no routing");
+    }
 }
 
@@ -23,7 +23,6 @@
 
 package com.isahl.chess.audience.client.config;
 
-import com.isahl.chess.king.base.exception.ZException;
 import com.isahl.chess.queen.config.ISocketConfig;
 import org.springframework.util.unit.DataSize;
 
@@ -54,6 +53,10 @@ public class SocketConfig
     private TrustManager[] trustManagers;
     private int            sslPacketBufferSize;
     private int            sslAppBufferSize;
+    private String[]       sslProtocols        = { "TLSv1.2" };
+    private int            sslSessionCacheSize = 20480;
+    private Duration       sslSessionTimeout   = Duration.ofHours(24);
+    private SSLContext     sslContext;
     private boolean        clientAuth;
 
     @Override
@@ -217,19 +220,56 @@ public class SocketConfig
     }
 
     @Override
-    public void init()
-    {
-        try {
-            SSLContext sslCtx = SSLContext.getInstance("TLSv1.2");
-            sslCtx.init(getKeyManagers(), getTrustManagers(), null);
-            SSLSession sslSession = sslCtx.createSSLEngine()
-                                          .getSession();
-            sslPacketBufferSize = sslSession.getPacketBufferSize();
-            sslAppBufferSize = sslSession.getApplicationBufferSize();
-        }
-        catch(NoSuchAlgorithmException | KeyManagementException e) {
-            throw new ZException(e, "ssl static init failed");
+    public synchronized void init()
+    {
+        if(sslContext != null) {
+            return;
         }
+        sslContext = buildSslContext();
+        SSLEngine sslEngine = sslContext.createSSLEngine();
+        sslEngine.setEnabledProtocols(getSslProtocols());
+        SSLSession sslSession = sslEngine.getSession();
+        sslPacketBufferSize = sslSession.getPacketBufferSize();
+        sslAppBufferSize = sslSession.getApplicationBufferSize();
+    }
+
+    @Override
+    public SSLContext getSslContext()
+    {
+        return sslContext;
+    }
+
+    @Override
+    public String[] getSslProtocols()
+    {
+        return sslProtocols;
+    }
+
+    public void setSslProtocols(String[] sslProtocols)
+    {
+        this.sslProtocols = sslProtocols;
+    }
+
+    @Override
+    public int getSslSessionCacheSize()
+    {
+        return sslSessionCacheSize;
+    }
+
+    public void setSslSessionCacheSize(int sslSessionCacheSize)
+    {
+        this.sslSessionCacheSize = sslSessionCacheSize;
+    }
+
+    @Override
+    public Duration getSslSessionTimeout()
+    {
+        return sslSessionTimeout;
+    }
+
+    public void setSslSessionTimeout(Duration sslSessionTimeout)
+    {
+        this.sslSessionTimeout = sslSessionTimeout;
     }
 
     @Override
@@ -24,10 +24,10 @@
 package com.isahl.chess.bishop.io.ssl;
 
 import com.isahl.chess.king.base.content.ByteBuf;
-import com.isahl.chess.king.base.util.Pair;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.session.IPContext;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 import com.isahl.chess.queen.io.core.net.socket.AioFilterChain;
 import com.isahl.chess.queen.io.core.net.socket.AioPacket;
 
@@ -51,7 +51,9 @@ public class SSLFilter<A extends IPContext>
     public IPacket encode(SSLZContext<A> context, IPacket output)
     {
         if(output.outIdempotent(getLeftIdempotentBit())) {
-            return new AioPacket(context.doWrap(output.getBuffer()));
+            IPacket wrapped = new AioPacket(context.doWrap(output.getBuffer()));
+            output.recycle();
+            return wrapped;
         }
         return output;
     }
@@ -63,7 +65,7 @@ public class SSLFilter<A extends IPContext>
     }
 
     @Override
-    public <O extends IProtocol> Pair<ResultType, IPContext> pipeSeek(IPContext context, O output)
+    public <O extends IProtocol> PipeCursor pipeSeek(IPContext context, O output, PipeCursor cursor)
     {
         if(checkType(output, IProtocol.IO_QUEEN_PACKET_SERIAL) && context.isProxy() &&
            context instanceof SSLZContext ssl_ctx && output instanceof IPacket out_packet)
@@ -82,15 +84,15 @@ public class SSLFilter<A extends IPContext>
                 else {
                     break NEXT_STEP;
                 }
-                return Pair.of(ResultType.NEXT_STEP, ssl_ctx);
+                return cursor.of(ResultType.NEXT_STEP, ssl_ctx);
             }
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
     @SuppressWarnings("unchecked")
-    public <I extends IProtocol> Pair<ResultType, IPContext> pipePeek(IPContext context, I input)
+    public <I extends IProtocol> PipeCursor pipePeek(IPContext context, I input, PipeCursor cursor)
     {
         if(checkType(input, IProtocol.IO_QUEEN_PACKET_SERIAL) && context.isProxy() && context.isInConvert() &&
            context instanceof SSLZContext ssl_ctx && input instanceof IPacket in_packet)
@@ -117,12 +119,12 @@ public class SSLFilter<A extends IPContext>
                 }
                 if(appInBuffer != null) {
                     ssl_ctx.setCarrier(new AioPacket(appInBuffer));
-                    return Pair.of(ResultType.NEXT_STEP, ssl_ctx);
+                    return cursor.of(ResultType.NEXT_STEP, ssl_ctx);
                 }
             }
-            return Pair.of(ResultType.NEED_DATA, ssl_ctx);
+            return cursor.of(ResultType.NEED_DATA, ssl_ctx);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
@@ -34,8 +34,6 @@ import com.isahl.chess.queen.io.core.features.model.session.ssl.ISslOption;
 
 import javax.net.ssl.*;
 import java.nio.ByteBuffer;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
 
 /**
  * @author william.d.zk
@@ -44,25 +42,29 @@ public class SSLZContext<A extends IPContext>
         extends ProtocolContext<IPacket>
         implements IProxyContext<A>
 {
+    /**
+     * wrap/unwrap 的中转缓冲按线程复用，编解码都在同一线程内同步完成，
+     * 结果按实际产出长度拷贝，避免每次都分配 packet/app 大小的缓冲
+     */
+    private final static ThreadLocal<ByteBuffer> _NetScratch = new ThreadLocal<>();
+    private final static ThreadLocal<ByteBuffer> _AppScratch = new ThreadLocal<>();
+
     private final SSLEngine  _SslEngine;
     private final SSLContext _SslContext;
     private final SSLSession _SslSession;
     private final A          _ActingContext;
     private final int        _AppInBufferSize;
 
-    public SSLZContext(ISslOption option, ISort.Mode mode, ISort.Type type, A acting) throws NoSuchAlgorithmException
+    public SSLZContext(ISslOption option, ISort.Mode mode, ISort.Type type, A acting)
     {
         super(option, mode, type);
         _ActingContext = acting;
-        _SslContext = SSLContext.getInstance("TLSv1.2");
-        try {
-            _SslContext.init(option.getKeyManagers(), option.getTrustManagers(), null);
-        }
-        catch(KeyManagementException e) {
-            throw new ZException(e, "ssl context init failed");
+        _SslContext = option.getSslContext();
+        if(_SslContext == null) {
+            throw new ZException("ssl context not initialized");
         }
         _SslEngine = _SslContext.createSSLEngine();
-        _SslEngine.setEnabledProtocols(new String[]{ "TLSv1.2" });
+        _SslEngine.setEnabledProtocols(option.getSslProtocols());
         _SslEngine.setUseClientMode(type == ISort.Type.CLIENT);
         _SslEngine.setNeedClientAuth(type == ISort.Type.SERVER && option.isSslClientAuth());
         _SslSession = _SslEngine.getSession();
@@ -102,6 +104,12 @@ public class SSLZContext<A extends IPContext>
         return true;
     }
 
+    @Override
+    public boolean isOutOrdered()
+    {
+        return true;
+    }
+
     @Override
     public void ready()
     {
@@ -130,20 +138,49 @@ public class SSLZContext<A extends IPContext>
         return _SslEngine.getHandshakeStatus();
     }
 
+    private static ByteBuffer scratch(ThreadLocal<ByteBuffer> local, int size)
+    {
+        ByteBuffer scratch = local.get();
+        if(scratch == null || scratch.capacity() < size) {
+            local.set(scratch = ByteBuffer.allocate(size));
+        }
+        return scratch.clear();
+    }
+
+    private static ByteBuf drain(ByteBuffer scratch)
+    {
+        ByteBuf out = ByteBuf.allocate(scratch.position());
+        out.put(scratch.array(), 0, scratch.position());
+        return out;
+    }
+
     public ByteBuf doWrap(ByteBuf output)
     {
         try {
-            ByteBuf netOutBuffer = ByteBuf.allocate(_SslSession.getPacketBufferSize());
-            SSLEngineResult result = _SslEngine.wrap(output.toReadBuffer(), netOutBuffer.toWriteBuffer());
-            int produced = result.bytesProduced();
-            switch(result.getStatus()) {
-                case OK, BUFFER_UNDERFLOW -> {
-                    doTask();
-                    return netOutBuffer.seek(produced);
+            ByteBuffer inputBuffer = output.toReadBuffer();
+            ByteBuf netOutBuffer = null;
+            do {
+                ByteBuffer netScratch = scratch(_NetScratch, _SslSession.getPacketBufferSize());
+                SSLEngineResult result = _SslEngine.wrap(inputBuffer, netScratch);
+                switch(result.getStatus()) {
+                    case OK, BUFFER_UNDERFLOW -> doTask();
+                    case CLOSED, BUFFER_OVERFLOW -> throw new ZException("ssl wrap error:%s", result.getStatus());
+                }
+                if(result.bytesProduced() > 0) {
+                    if(netOutBuffer == null) {
+                        netOutBuffer = drain(netScratch);
+                    }
+                    else {
+                        netOutBuffer.append(drain(netScratch));
+                    }
+                }
+                if(result.bytesConsumed() == 0) {
+                    break;
                 }
-                case CLOSED, BUFFER_OVERFLOW -> throw new ZException("ssl wrap error:%s", result.getStatus());
             }
-            return null;
+            // 超过单个 record 的明文需要多次 wrap
+            while(inputBuffer.hasRemaining());
+            return netOutBuffer == null ? ByteBuf.allocate(_SslSession.getPacketBufferSize()) : netOutBuffer;
         }
         catch(SSLException e) {
             throw new ZException(e, "ssl wrap error");
@@ -153,9 +190,9 @@ public class SSLZContext<A extends IPContext>
     public ByteBuf doUnwrap(ByteBuf netInBuffer)
     {
         try {
-            ByteBuf appInBuffer = ByteBuf.allocate(_AppInBufferSize);
+            ByteBuffer appScratch = scratch(_AppScratch, Math.max(_AppInBufferSize, _SslSession.getApplicationBufferSize()));
             ByteBuffer inputBuffer = netInBuffer.toReadBuffer();
-            SSLEngineResult result = _SslEngine.unwrap(inputBuffer, appInBuffer.toWriteBuffer());
+            SSLEngineResult result = _SslEngine.unwrap(inputBuffer, appScratch);
             int consumed = result.bytesConsumed();
             int produced = result.bytesProduced();
             switch(result.getStatus()) {
@@ -171,7 +208,7 @@ public class SSLZContext<A extends IPContext>
                 case BUFFER_OVERFLOW -> throw new ZException("ssl unwrap overflow");
             }
             netInBuffer.skip(consumed);
-            return produced > 0 ? appInBuffer.seek(produced) : null;
+            return produced > 0 ? drain(appScratch) : null;
         }
         catch(SSLException e) {
             throw new ZException(e, "ssl unwrap error");
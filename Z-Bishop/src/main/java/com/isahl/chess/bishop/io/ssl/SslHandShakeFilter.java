@@ -25,11 +25,11 @@ package com.isahl.chess.bishop.io.ssl;
 
 import com.isahl.chess.bishop.protocol.zchat.model.ctrl.X07_SslHandShake;
 import com.isahl.chess.king.base.content.ByteBuf;
-import com.isahl.chess.king.base.util.Pair;
 import com.isahl.chess.queen.io.core.features.model.content.IControl;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.session.IPContext;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 import com.isahl.chess.queen.io.core.net.socket.AioFilterChain;
 import com.isahl.chess.queen.io.core.net.socket.AioPacket;
 
@@ -85,7 +85,7 @@ public class SslHandShakeFilter<A extends IPContext>
     }
 
     @Override
-    public <O extends IProtocol> Pair<ResultType, IPContext> pipeSeek(IPContext context, O output)
+    public <O extends IProtocol> PipeCursor pipeSeek(IPContext context, O output, PipeCursor cursor)
     {
         if(checkType(output, IProtocol.PROTOCOL_BISHOP_CONTROL_SERIAL) && context.isProxy() &&
            context instanceof SSLZContext ssl_ctx && context.isOutFrame())
@@ -104,21 +104,21 @@ public class SslHandShakeFilter<A extends IPContext>
                         loop = true;
                     }
                     case NEED_WRAP -> {
-                        return new Pair<>(ResultType.HANDLED, ssl_ctx);
+                        return cursor.of(ResultType.HANDLED, ssl_ctx);
                     }
                     case NEED_UNWRAP, NEED_UNWRAP_AGAIN -> {
-                        return new Pair<>(ResultType.NEED_DATA, ssl_ctx);
+                        return cursor.of(ResultType.NEED_DATA, ssl_ctx);
                     }
                 }
             }
             while(loop);
         }
-        return new Pair<>(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
     @SuppressWarnings("unchecked")
-    public <I extends IProtocol> Pair<ResultType, IPContext> pipePeek(IPContext context, I input)
+    public <I extends IProtocol> PipeCursor pipePeek(IPContext context, I input, PipeCursor cursor)
     {
         if(checkType(input, IProtocol.IO_QUEEN_PACKET_SERIAL) && context.isProxy() &&
            context instanceof SSLZContext ssl_ctx && context.isInFrame() && input instanceof IPacket in_packet)
@@ -132,13 +132,13 @@ public class SslHandShakeFilter<A extends IPContext>
                     case NOT_HANDSHAKING, FINISHED -> {
                         context.promotionIn();
                         _Logger.info("SSL ready to read");
-                        return new Pair<>(ResultType.IGNORE, ssl_ctx);
+                        return cursor.of(ResultType.IGNORE, ssl_ctx);
                     }
                     case NEED_WRAP -> {
                         if(appInBuffer != null) {
                             ssl_ctx.setCarrier(new AioPacket(appInBuffer));
                         }
-                        return new Pair<>(ResultType.HANDLED, ssl_ctx);
+                        return cursor.of(ResultType.HANDLED, ssl_ctx);
                     }
                     case NEED_TASK -> handshakeStatus = ssl_ctx.doTask();
                     case NEED_UNWRAP, NEED_UNWRAP_AGAIN -> {
@@ -149,9 +149,9 @@ public class SslHandShakeFilter<A extends IPContext>
                     }
                 }
             }
-            return new Pair<>(ResultType.NEED_DATA, context);
+            return cursor.of(ResultType.NEED_DATA, context);
         }
-        return new Pair<>(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
@@ -60,7 +60,7 @@ public abstract class ModbusRtuProtocol
         output.put(mAddress)
               .put(mCtrl)
               .put(mPayload)
-              .putShort(mCrc = CryptoUtil.crc16_modbus(output.array(), output.writerMark(), output.writerIdx() - output.writerMark()));
+              .putShort(mCrc = CryptoUtil.crc16_modbus(output, output.writerMark(), output.writerIdx() - output.writerMark()));
         return output;
     }
 
@@ -79,8 +79,10 @@ public abstract class ModbusRtuProtocol
         if(remain > 0) {
             mPayload = new byte[remain - 2];
             input.get(mPayload);
-            mCrc = input.getUnsignedShort();
-            if(CryptoUtil.crc16_modbus(input.array(), input.readerMark(), input.readerIdx() - input.readerMark()) != mCrc) {
+            // crc 不参与自身的计算
+            if(CryptoUtil.crc16_modbus(input, input.readerMark(), input.readerIdx() - input.readerMark()) !=
+               (mCrc = input.getUnsignedShort()))
+            {
                 throw new ZException("modbus crc error");
             }
 
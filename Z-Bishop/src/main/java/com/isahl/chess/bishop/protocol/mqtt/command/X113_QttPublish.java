@@ -27,7 +27,6 @@ import com.isahl.chess.bishop.protocol.mqtt.model.QttType;
 import com.isahl.chess.board.annotation.ISerialGenerator;
 import com.isahl.chess.board.base.ISerial;
 import com.isahl.chess.king.base.content.ByteBuf;
-import com.isahl.chess.king.base.util.IoUtil;
 import com.isahl.chess.queen.io.core.features.model.routes.IRoutable;
 
 import java.nio.charset.StandardCharsets;
@@ -53,11 +52,59 @@ public class X113_QttPublish
 
     private String mTopic;
     private long   mTarget;
+    /*
+     * fan-out 时由 duplicate 共享，topic 与 payload 只编码一次
+     */
+    private Shared mShared;
+
+    /**
+     * 同一条 PUBLISH 在所有订阅者间共享的只读部分。
+     * 完整 frame 按是否携带 msg-id 各缓存一份模板，订阅者之间只有 header 与 msg-id 不同。
+     */
+    private final static class Shared
+    {
+        private final byte[] _Topic;
+        private final byte[] _Payload;
+
+        private volatile byte[] vFrame;
+        private volatile byte[] vFrameWithId;
+
+        private Shared(String topic, byte[] payload)
+        {
+            _Topic = topic.getBytes(StandardCharsets.UTF_8);
+            _Payload = payload;
+        }
+
+        private byte[] frame(boolean withId)
+        {
+            byte[] frame = withId ? vFrameWithId : vFrame;
+            if(frame == null) {
+                // 并发下重复构建的结果相同，无需加锁
+                int body = 2 + _Topic.length + (withId ? 2 : 0) + (_Payload == null ? 0 : _Payload.length);
+                ByteBuf output = ByteBuf.allocate(1 + ByteBuf.vSizeOf(body));
+                output.put(0)
+                      .vPutLength(body)
+                      .putShort(_Topic.length)
+                      .put(_Topic);
+                if(withId) {output.putShort(0);}
+                frame = output.put(_Payload)
+                              .array();
+                if(withId) {vFrameWithId = frame;}
+                else {vFrame = frame;}
+            }
+            return frame;
+        }
+    }
+
+    private byte[] topicBytes()
+    {
+        return mShared != null ? mShared._Topic : mTopic.getBytes(StandardCharsets.UTF_8);
+    }
 
     @Override
     public int length()
     {
-        int length = 2 + (mTopic != null ? mTopic.getBytes(StandardCharsets.UTF_8).length : 0); // topic
+        int length = 2 + (mTopic != null ? topicBytes().length : 0); // topic
         length += (level().getValue() > ALMOST_ONCE.getValue() ? 0 : -2);//msg-id
         return super.length() + length; //payload
     }
@@ -71,6 +118,15 @@ public class X113_QttPublish
     public X113_QttPublish withTopic(String topic)
     {
         mTopic = Objects.requireNonNull(topic);
+        mShared = null;
+        return this;
+    }
+
+    @Override
+    public X113_QttPublish withSub(byte[] sub)
+    {
+        super.withSub(sub);
+        mShared = null;
         return this;
     }
 
@@ -80,6 +136,15 @@ public class X113_QttPublish
         return mTopic;
     }
 
+    /**
+     * retained 消息只需保留 topic 的最新值
+     */
+    @Override
+    public String coalesce()
+    {
+        return isRetain() ? mTopic : null;
+    }
+
     @Override
     public long target()
     {
@@ -104,14 +169,15 @@ public class X113_QttPublish
     @Override
     public ByteBuf suffix(ByteBuf output)
     {
-        byte[] topicBytes = mTopic.getBytes(StandardCharsets.UTF_8);
+        byte[] topicBytes = topicBytes();
         output.putShort(topicBytes.length);
         output.put(topicBytes);
         if(level().getValue() > ALMOST_ONCE.getValue()) {
             output.putShort(msgId());
         }
-        if(mPayload != null) {
-            output.put(mPayload);
+        byte[] payload = payload();
+        if(payload != null) {
+            output.put(payload);
         }
         return output;
     }
@@ -125,17 +191,45 @@ public class X113_QttPublish
                              level(),
                              msgId(),
                              topic(),
-                             mPayload == null ? "NULL" : new String(mPayload, StandardCharsets.UTF_8));
+                             payload() == null ? "NULL" : new String(payload(), StandardCharsets.UTF_8));
     }
 
+    /**
+     * payload 在 decode 后不再修改，副本与原消息共享 topic/payload 的编码结果
+     */
     @Override
     public X113_QttPublish duplicate()
     {
+        if(mShared == null) {mShared = new Shared(mTopic, payload());}
         X113_QttPublish n113 = new X113_QttPublish();
-        n113.withTopic(topic());
+        n113.mTopic = mTopic;
+        n113.mPayload = mPayload;
+        n113.mShared = mShared;
         n113.setLevel(level());
-        n113.mPayload = new byte[mPayload.length];
-        IoUtil.addArray(mPayload, n113.mPayload);
         return n113;
     }
+
+    public boolean isShared()
+    {
+        return mShared != null;
+    }
+
+    /**
+     * 基于共享模板生成完整的 mqtt frame，只修补 header 与 msg-id
+     */
+    public ByteBuf encodeFrame()
+    {
+        if(mShared == null) {mShared = new Shared(mTopic, payload());}
+        boolean withId = level().getValue() > ALMOST_ONCE.getValue();
+        byte[] frame = mShared.frame(withId);
+        ByteBuf output = ByteBuf.allocate(frame.length)
+                                .put(frame);
+        output.put(header(), 0);
+        if(withId) {
+            int pos = frame.length - (mPayload == null ? 0 : mPayload.length) - 2;
+            output.put(mMsgId >> 8, pos);
+            output.put(mMsgId, pos + 1);
+        }
+        return output;
+    }
 }
@@ -122,6 +122,7 @@ public abstract class QttControl
     public QttControl withSub(byte[] sub)
     {
         mPayload = sub == null || sub.length > 0 ? sub : null;
+        mSlice = null;
         return this;
     }
 
@@ -176,19 +177,10 @@ public abstract class QttControl
         }
     }
 
-    @Override
-    public byte[] payload()
-    {
-        return mPayload;
-    }
-
     @Override
     public void fold(ByteBuf input, int remain)
     {
-        if(remain > 0) {
-            mPayload = new byte[remain];
-            input.get(mPayload);
-        }
+        slice(input, remain);
     }
 
     @Override
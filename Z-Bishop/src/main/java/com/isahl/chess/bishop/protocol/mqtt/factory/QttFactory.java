@@ -53,6 +53,8 @@ public class QttFactory
         QttControl instance = build(QttFrame.peekSubSerial(input));
         instance.header(input.get());
         instance.decode(input);
+        // input 由调用方持有，不保证在返回后不被复用
+        instance.detach();
         return instance;
     }
 
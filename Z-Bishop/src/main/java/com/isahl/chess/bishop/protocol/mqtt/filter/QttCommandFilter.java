@@ -24,15 +24,16 @@
 package com.isahl.chess.bishop.protocol.mqtt.filter;
 
 import com.isahl.chess.bishop.protocol.mqtt.command.QttCommand;
+import com.isahl.chess.bishop.protocol.mqtt.command.X113_QttPublish;
 import com.isahl.chess.bishop.protocol.mqtt.factory.QttFactory;
 import com.isahl.chess.bishop.protocol.mqtt.model.QttContext;
 import com.isahl.chess.bishop.protocol.mqtt.model.QttFrame;
 import com.isahl.chess.bishop.protocol.mqtt.model.QttProtocol;
-import com.isahl.chess.king.base.util.Pair;
 import com.isahl.chess.queen.io.core.features.model.content.IControl;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.session.IPContext;
 import com.isahl.chess.queen.io.core.features.model.session.proxy.IProxyContext;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 import com.isahl.chess.queen.io.core.net.socket.AioFilterChain;
 
 /**
@@ -52,8 +53,14 @@ public class QttCommandFilter
     {
         QttFrame frame = new QttFrame();
         frame.header(output.header());
-        frame.withSub(output.encode(context)
-                            .array());
+        if(output instanceof X113_QttPublish x113 && x113.isShared()) {
+            // fan-out 的副本共享编码模板，跳过逐层编码
+            frame.withEncoded(x113.encodeFrame());
+        }
+        else {
+            frame.withSub(output.encode(context)
+                                .array());
+        }
         context.promotionOut();
         return frame;
     }
@@ -66,7 +73,7 @@ public class QttCommandFilter
     }
 
     @Override
-    public <O extends IProtocol> Pair<ResultType, IPContext> pipeSeek(IPContext context, O output)
+    public <O extends IProtocol> PipeCursor pipeSeek(IPContext context, O output, PipeCursor cursor)
     {
         if(checkType(output, IProtocol.PROTOCOL_BISHOP_COMMAND_SERIAL) && output instanceof QttProtocol) {
             IPContext acting = context;
@@ -78,7 +85,7 @@ public class QttCommandFilter
                    !c.isCtrl())
                 {
                     //@formatter:on
-                    return Pair.of(ResultType.NEXT_STEP, acting);
+                    return cursor.of(ResultType.NEXT_STEP, acting);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -89,17 +96,17 @@ public class QttCommandFilter
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
-    public <I extends IProtocol> Pair<ResultType, IPContext> pipePeek(IPContext context, I input)
+    public <I extends IProtocol> PipeCursor pipePeek(IPContext context, I input, PipeCursor cursor)
     {
         if(checkType(input, IProtocol.PROTOCOL_BISHOP_FRAME_SERIAL) && input instanceof QttFrame f && !f.isCtrl()) {
             IPContext acting = context;
             do {
                 if(acting.isInConvert() && acting instanceof QttContext) {
-                    return Pair.of(ResultType.HANDLED, acting);
+                    return cursor.of(ResultType.HANDLED, acting);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -110,7 +117,7 @@ public class QttCommandFilter
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
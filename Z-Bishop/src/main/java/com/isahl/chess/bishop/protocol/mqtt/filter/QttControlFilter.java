@@ -28,11 +28,11 @@ import com.isahl.chess.bishop.protocol.mqtt.factory.QttFactory;
 import com.isahl.chess.bishop.protocol.mqtt.model.QttContext;
 import com.isahl.chess.bishop.protocol.mqtt.model.QttFrame;
 import com.isahl.chess.bishop.protocol.mqtt.model.QttProtocol;
-import com.isahl.chess.king.base.util.Pair;
 import com.isahl.chess.queen.io.core.features.model.content.IControl;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.session.IPContext;
 import com.isahl.chess.queen.io.core.features.model.session.proxy.IProxyContext;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 import com.isahl.chess.queen.io.core.net.socket.AioFilterChain;
 
 /**
@@ -66,7 +66,7 @@ public class QttControlFilter
     }
 
     @Override
-    public <O extends IProtocol> Pair<ResultType, IPContext> pipeSeek(IPContext context, O output)
+    public <O extends IProtocol> PipeCursor pipeSeek(IPContext context, O output, PipeCursor cursor)
     {
         if(checkType(output, IProtocol.PROTOCOL_BISHOP_CONTROL_SERIAL) && output instanceof QttProtocol) {
             IPContext acting = context;
@@ -78,7 +78,7 @@ public class QttControlFilter
                    c.isCtrl())
                 {
                 //@formatter:on
-                    return Pair.of(ResultType.NEXT_STEP, acting);
+                    return cursor.of(ResultType.NEXT_STEP, acting);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -89,17 +89,17 @@ public class QttControlFilter
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
-    public <I extends IProtocol> Pair<ResultType, IPContext> pipePeek(IPContext context, I input)
+    public <I extends IProtocol> PipeCursor pipePeek(IPContext context, I input, PipeCursor cursor)
     {
         if(checkType(input, IProtocol.PROTOCOL_BISHOP_FRAME_SERIAL) && input instanceof QttFrame f && f.isCtrl()) {
             IPContext acting = context;
             do {
                 if(acting.isInConvert() && acting instanceof QttContext) {
-                    return Pair.of(ResultType.HANDLED, acting);
+                    return cursor.of(ResultType.HANDLED, acting);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -110,7 +110,7 @@ public class QttControlFilter
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
@@ -25,16 +25,19 @@ package com.isahl.chess.bishop.protocol.mqtt.filter;
 
 import com.isahl.chess.bishop.protocol.mqtt.model.QttContext;
 import com.isahl.chess.bishop.protocol.mqtt.model.QttFrame;
-import com.isahl.chess.king.base.util.Pair;
+import com.isahl.chess.king.base.content.ByteBufPool;
+import com.isahl.chess.king.base.content.PooledByteBuf;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.session.IPContext;
 import com.isahl.chess.queen.io.core.features.model.session.proxy.IProxyContext;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 import com.isahl.chess.queen.io.core.net.socket.AioFilterChain;
 import com.isahl.chess.queen.io.core.net.socket.AioPacket;
 
 import static com.isahl.chess.queen.io.core.features.model.pipe.IFilter.ResultType.NEED_DATA;
 import static com.isahl.chess.queen.io.core.features.model.pipe.IFilter.ResultType.NEXT_STEP;
+import static com.isahl.chess.queen.io.core.features.model.session.IOption.GATHER_MIN;
 
 /**
  * @author william.d.zk
@@ -54,7 +57,10 @@ public class QttFrameFilter
     public IPacket encode(QttContext context, QttFrame output)
     {
         context.demotionOut();
-        return new AioPacket(output.encode());
+        int size = output.sizeOf();
+        // 大帧直接编码到池化的堆外缓冲，gathering write 时无需再拷贝，写完归还
+        return new AioPacket(size < GATHER_MIN ? output.encode()
+                                               : output.suffix(new PooledByteBuf(ByteBufPool.global(), size, size)));
     }
 
     @Override
@@ -68,13 +74,13 @@ public class QttFrameFilter
     }
 
     @Override
-    public <O extends IProtocol> Pair<ResultType, IPContext> pipeSeek(IPContext context, O output)
+    public <O extends IProtocol> PipeCursor pipeSeek(IPContext context, O output, PipeCursor cursor)
     {
         if(checkType(output, IProtocol.PROTOCOL_BISHOP_FRAME_SERIAL)) {
             IPContext acting = context;
             do {
                 if(acting.isOutFrame() && acting instanceof QttContext) {
-                    return Pair.of(NEXT_STEP, acting);
+                    return cursor.of(NEXT_STEP, acting);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -85,11 +91,11 @@ public class QttFrameFilter
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
-    public <I extends IProtocol> Pair<ResultType, IPContext> pipePeek(IPContext context, I input)
+    public <I extends IProtocol> PipeCursor pipePeek(IPContext context, I input, PipeCursor cursor)
     {
         if(checkType(input, IProtocol.IO_QUEEN_PACKET_SERIAL)) {
             IPContext acting = context;
@@ -99,7 +105,7 @@ public class QttFrameFilter
                     if(carrier == null) {
                         qtt_ctx.setCarrier(carrier = new QttFrame());
                     }
-                    return Pair.of(carrier.lack(acting.getRvBuffer()
+                    return cursor.of(carrier.lack(acting.getRvBuffer()
                                                       .put(in_packet.getBuffer())
                                                       .discardOnHalf()) > 0 ? NEED_DATA : NEXT_STEP, acting);
                 }
@@ -113,7 +119,7 @@ public class QttFrameFilter
             while(acting != null);
 
         }
-        return new Pair<>(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
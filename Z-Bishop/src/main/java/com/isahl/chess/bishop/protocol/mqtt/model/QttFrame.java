@@ -42,6 +42,22 @@ public class QttFrame
         extends QttProtocol
         implements IFrame
 {
+    /*
+     * command 层已生成完整 frame 时直接输出，如 PUBLISH fan-out
+     */
+    private ByteBuf mEncoded;
+
+    public QttFrame withEncoded(ByteBuf encoded)
+    {
+        mEncoded = encoded;
+        return this;
+    }
+
+    @Override
+    public ByteBuf encode()
+    {
+        return mEncoded != null ? mEncoded : super.encode();
+    }
 
     @Override
     public void header(int header)
@@ -76,16 +92,10 @@ public class QttFrame
         return Level.valueOf((mFrameHeader & QOS_MASK) >> 1);
     }
 
-    @Override
-    public byte[] payload()
-    {
-        return mPayload;
-    }
-
     @Override
     public int length()
     {
-        return 1 + ByteBuf.vSizeOf(mPayload == null ? 0 : mPayload.length);
+        return 1 + ByteBuf.vSizeOf(payloadLength());
     }
 
     @Override
@@ -125,6 +135,7 @@ public class QttFrame
         ByteBuf encoded = Objects.requireNonNull(sub)
                                  .encode();
         if(encoded.capacity() > 0) {mPayload = encoded.array();}
+        mSlice = null;
         return this;
     }
 
@@ -132,6 +143,7 @@ public class QttFrame
     public QttFrame withSub(byte[] sub)
     {
         mPayload = sub == null || sub.length > 0 ? sub : null;
+        mSlice = null;
         return this;
     }
 
@@ -151,17 +163,19 @@ public class QttFrame
     @Override
     public void fold(ByteBuf input, int remain)
     {
-        if(remain > 0) {
-            mPayload = new byte[remain];
-            input.get(mPayload);
-        }
+        // frame body 只引用接收缓冲，由 command 层继续解析
+        slice(input, remain);
     }
 
     @Override
     public ByteBuf suffix(ByteBuf output)
     {
         output.put(mFrameHeader);
-        if(mPayload != null) {
+        if(mSlice != null) {
+            output.vPutLength(mSlice.readableBytes());
+            output.put(new ByteBuf(mSlice));
+        }
+        else if(mPayload != null) {
             output.vPutLength(mPayload.length);
             output.put(mPayload);
         }
@@ -23,6 +23,7 @@
 
 package com.isahl.chess.bishop.protocol.mqtt.model;
 
+import com.isahl.chess.king.base.content.ByteBuf;
 import com.isahl.chess.king.base.log.Logger;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 
@@ -44,6 +45,10 @@ public abstract class QttProtocol
 
     protected byte   mFrameHeader;
     protected byte[] mPayload;
+    /*
+     * decode 时引用接收缓冲的只读 slice，首次 payload() 或 detach() 时才拷贝为 mPayload
+     */
+    protected ByteBuf mSlice;
 
     public QttType getType()
     {
@@ -55,10 +60,47 @@ public abstract class QttProtocol
         mFrameHeader |= (byte) type.getValue();
     }
 
+    @Override
+    public byte[] payload()
+    {
+        if(mSlice != null) {
+            mPayload = mSlice.peekAll();
+            mSlice = null;
+        }
+        return mPayload;
+    }
+
+    @Override
+    public ByteBuf subEncoded()
+    {
+        if(mSlice != null) {return mSlice.isReadable() ? new ByteBuf(mSlice) : null;}
+        return IProtocol.super.subEncoded();
+    }
+
+    @Override
+    public void detach()
+    {
+        payload();
+    }
+
+    /**
+     * @return 不触发拷贝的 payload 长度
+     */
+    protected int payloadLength()
+    {
+        return mSlice != null ? mSlice.readableBytes() : mPayload == null ? 0 : mPayload.length;
+    }
+
+    protected void slice(ByteBuf input, int remain)
+    {
+        mPayload = null;
+        mSlice = remain > 0 ? input.slice(remain) : null;
+    }
+
     @Override
     public int length()
     {
-        return mPayload == null ? 0 : mPayload.length;
+        return payloadLength();
     }
 
     @Override
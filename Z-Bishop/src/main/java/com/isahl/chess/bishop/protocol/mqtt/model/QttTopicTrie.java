@@ -0,0 +1,366 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.bishop.protocol.mqtt.model;
+
+import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
+import com.isahl.chess.queen.io.core.features.model.routes.IThread;
+import com.isahl.chess.queen.io.core.features.model.routes.IThread.Subscribe;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * MQTT topic filter 分层索引
+ * 每一级 topic level 对应一个节点，'+' / '#' 作为独立的通配子节点，
+ * broker 时按 topic 深度下降，代价与订阅总数无关。
+ * 以 '$' 开头的 topic 不会被首级 '+' / '#' 匹配 [MQTT-4.7.2-1]。
+ * <p>
+ * 写操作(subscribe/unsubscribe/dismiss/retain)串行化，
+ * broker 读路径不加锁。
+ *
+ * @author william.d.zk
+ * @since 1.0.17
+ */
+public class QttTopicTrie
+{
+    private final static char LEVEL_SEPARATOR = '/';
+    private final static char SINGLE_LEVEL    = '+';
+    private final static char MULTI_LEVEL     = '#';
+    private final static char SYSTEM_PREFIX   = '$';
+
+    private final Node                                _Root           = new Node(null, null);
+    /*
+     * filter → 订阅节点, groupBy/filter/dismiss 时不再遍历整棵树
+     */
+    private final Map<String, Node>                   _Filter2Node    = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>>              _Session2Filter = new ConcurrentHashMap<>();
+
+    /**
+     * 校验 topic filter 并转为字面量 Pattern，
+     * 通配语义由 trie 负责，Pattern 仅作为 filter 的载体
+     *
+     * @param filter mqtt topic filter
+     * @return literal pattern
+     * @throws IllegalArgumentException filter 不符合 MQTT-4.7.1
+     */
+    public static Pattern compile(String filter)
+    {
+        validate(filter);
+        return Pattern.compile(filter, Pattern.LITERAL);
+    }
+
+    public static void validate(String filter)
+    {
+        if(filter == null || filter.isEmpty()) {
+            throw new IllegalArgumentException("topic filter is empty");
+        }
+        for(int i = 0, length = filter.length(); i < length; i++) {
+            char c = filter.charAt(i);
+            if(c == SINGLE_LEVEL || c == MULTI_LEVEL) {
+                boolean head = i == 0 || filter.charAt(i - 1) == LEVEL_SEPARATOR;
+                boolean tail = i == length - 1 || filter.charAt(i + 1) == LEVEL_SEPARATOR;
+                if(!head || !tail || (c == MULTI_LEVEL && i != length - 1)) {
+                    throw new IllegalArgumentException("topic error " + filter);
+                }
+            }
+        }
+    }
+
+    /**
+     * 订阅，同一 session 重复订阅时 QoS 取较大值
+     *
+     * @param filter  topic filter
+     * @param session session index, 0 时仅创建节点
+     * @param level   qos
+     * @return filter 对应的 Subscribe
+     */
+    public synchronized Subscribe subscribe(String filter, long session, IQoS.Level level)
+    {
+        Node node = _Filter2Node.computeIfAbsent(filter, this::create);
+        Subscribe subscribe = node.subscribe();
+        if(session != 0) {
+            //@formatter:off
+            if(subscribe.computeIfPresent(session,
+                                          (key, old)->old.getValue() > level.getValue() ? old : level) == null)
+            //@formatter:on
+            {
+                subscribe.onSubscribe(session, level);
+            }
+            _Session2Filter.computeIfAbsent(session, k->ConcurrentHashMap.newKeySet())
+                           .add(filter);
+        }
+        return subscribe;
+    }
+
+    public synchronized void unsubscribe(String filter, long session)
+    {
+        Node node = _Filter2Node.get(filter);
+        if(node != null) {
+            node.mSubscribe.onDismiss(session);
+            prune(node);
+        }
+        _Session2Filter.computeIfPresent(session, (k, filters)->{
+            filters.remove(filter);
+            return filters.isEmpty() ? null : filters;
+        });
+    }
+
+    /**
+     * 清除 session 的全部订阅
+     */
+    public synchronized void dismiss(long session)
+    {
+        Set<String> filters = _Session2Filter.remove(session);
+        if(filters == null) {return;}
+        for(String filter : filters) {
+            Node node = _Filter2Node.get(filter);
+            if(node != null) {
+                node.mSubscribe.onDismiss(session);
+                prune(node);
+            }
+        }
+    }
+
+    /**
+     * 将 retained 挂载到所有匹配 topic 的订阅上，
+     * 无匹配时以 topic 本身建立节点持有 retained
+     */
+    public synchronized void retain(String topic, IProtocol content)
+    {
+        List<Subscribe> matched = new ArrayList<>(4);
+        match(topic, matched);
+        if(matched.isEmpty()) {
+            _Filter2Node.computeIfAbsent(topic, this::create)
+                        .subscribe()
+                        .setRetain(content);
+        }
+        else {
+            matched.forEach(subscribe->subscribe.setRetain(content));
+        }
+    }
+
+    /**
+     * 同一 session 被多个 filter 命中时只投递一次，QoS 取最大值 [MQTT-3.3.5-1]
+     *
+     * @param topic publish topic name
+     * @return 命中的 session 及 QoS
+     */
+    public List<Subscribe.Mapped> broker(String topic)
+    {
+        List<Subscribe> matched = new ArrayList<>(4);
+        match(topic, matched);
+        if(matched.isEmpty()) {return Collections.emptyList();}
+        if(matched.size() == 1) {
+            return matched.get(0)
+                          .mapped();
+        }
+        Map<Long, IQoS.Level> merged = new HashMap<>();
+        for(Subscribe subscribe : matched) {
+            subscribe.stream()
+                     .forEach(mapped->merged.merge(mapped.session(),
+                                                   mapped.level(),
+                                                   (o, n)->o.getValue() >= n.getValue() ? o : n));
+        }
+        List<Subscribe.Mapped> result = new ArrayList<>(merged.size());
+        merged.forEach((session, level)->result.add(new Subscribe.Mapped(session, level)));
+        return result;
+    }
+
+    public List<IThread.Topic> groupBy(long session)
+    {
+        Set<String> filters = _Session2Filter.get(session);
+        if(filters == null) {return Collections.emptyList();}
+        List<IThread.Topic> topics = new ArrayList<>(filters.size());
+        for(String filter : filters) {
+            Node node = _Filter2Node.get(filter);
+            IQoS.Level level;
+            if(node != null && (level = node.mSubscribe.level(session)) != null) {
+                topics.add(new IThread.Topic(node.mSubscribe.pattern(), level, 0));
+            }
+        }
+        return topics;
+    }
+
+    /**
+     * @param topic topic name 或 filter
+     * @return 与之相等或可匹配它的全部 filter
+     */
+    public List<Pattern> filter(String topic)
+    {
+        List<Subscribe> matched = new ArrayList<>();
+        match(topic, matched);
+        Node exact = _Filter2Node.get(topic);
+        if(exact != null && !matched.contains(exact.mSubscribe)) {
+            matched.add(exact.mSubscribe);
+        }
+        return matched.stream()
+                      .map(Subscribe::pattern)
+                      .toList();
+    }
+
+    public Subscribe get(String filter)
+    {
+        Node node = _Filter2Node.get(filter);
+        return node == null ? null : node.mSubscribe;
+    }
+
+    public int size()
+    {
+        return _Filter2Node.size();
+    }
+
+    private void match(String topic, List<Subscribe> matched)
+    {
+        if(topic == null || topic.isEmpty()) {return;}
+        match(_Root, topic, 0, topic.charAt(0) == SYSTEM_PREFIX, matched);
+    }
+
+    /**
+     * @param node   当前节点
+     * @param topic  topic name
+     * @param offset 当前 level 在 topic 中的起点, > topic.length() 表示 level 已耗尽
+     */
+    private void match(Node node, String topic, int offset, boolean system, List<Subscribe> matched)
+    {
+        int length = topic.length();
+        if(offset > length) {
+            add(node.mSubscribe, matched);
+            // "a/#" 同时匹配 "a"
+            Node hash = node.mMultiLevel;
+            if(hash != null) {add(hash.mSubscribe, matched);}
+            return;
+        }
+        boolean wildcard = !system || node != _Root;
+        if(wildcard) {
+            Node hash = node.mMultiLevel;
+            if(hash != null) {add(hash.mSubscribe, matched);}
+        }
+        int end = topic.indexOf(LEVEL_SEPARATOR, offset);
+        if(end < 0) {end = length;}
+        if(wildcard) {
+            Node plus = node.mSingleLevel;
+            if(plus != null) {match(plus, topic, end + 1, system, matched);}
+        }
+        Map<String, Node> children = node.mChildren;
+        if(children != null) {
+            Node child = children.get(topic.substring(offset, end));
+            if(child != null) {match(child, topic, end + 1, system, matched);}
+        }
+    }
+
+    private static void add(Subscribe subscribe, List<Subscribe> matched)
+    {
+        if(subscribe != null && !matched.contains(subscribe)) {
+            matched.add(subscribe);
+        }
+    }
+
+    private Node create(String filter)
+    {
+        validate(filter);
+        Node node = _Root;
+        int offset = 0, length = filter.length();
+        while(offset <= length) {
+            int end = filter.indexOf(LEVEL_SEPARATOR, offset);
+            if(end < 0) {end = length;}
+            node = node.child(filter.substring(offset, end));
+            offset = end + 1;
+        }
+        node.mSubscribe = new Subscribe(Pattern.compile(filter, Pattern.LITERAL));
+        return node;
+    }
+
+    /**
+     * 订阅为空且未持有 retained 时回收节点，并向上回收空分支
+     */
+    private void prune(Node node)
+    {
+        Subscribe subscribe = node.mSubscribe;
+        if(subscribe == null || !subscribe.isEmpty() || subscribe.retain() != null) {return;}
+        _Filter2Node.remove(subscribe.pattern()
+                                     .pattern());
+        node.mSubscribe = null;
+        for(Node parent = node._Parent; parent != null && node.isLeaf(); node = parent, parent = node._Parent) {
+            parent.remove(node);
+        }
+    }
+
+    private static class Node
+    {
+        private final Node   _Parent;
+        private final String _Level;
+
+        private volatile Map<String, Node> mChildren;
+        private volatile Node              mSingleLevel;
+        private volatile Node              mMultiLevel;
+        private volatile Subscribe         mSubscribe;
+
+        Node(Node parent, String level)
+        {
+            _Parent = parent;
+            _Level = level;
+        }
+
+        Subscribe subscribe()
+        {
+            return mSubscribe;
+        }
+
+        Node child(String level)
+        {
+            if(level.length() == 1) {
+                switch(level.charAt(0)) {
+                    case SINGLE_LEVEL -> {
+                        if(mSingleLevel == null) {mSingleLevel = new Node(this, level);}
+                        return mSingleLevel;
+                    }
+                    case MULTI_LEVEL -> {
+                        if(mMultiLevel == null) {mMultiLevel = new Node(this, level);}
+                        return mMultiLevel;
+                    }
+                }
+            }
+            if(mChildren == null) {mChildren = new ConcurrentHashMap<>();}
+            return mChildren.computeIfAbsent(level, k->new Node(this, k));
+        }
+
+        void remove(Node child)
+        {
+            if(child == mSingleLevel) {mSingleLevel = null;}
+            else if(child == mMultiLevel) {mMultiLevel = null;}
+            else if(mChildren != null) {
+                mChildren.remove(child._Level, child);
+                if(mChildren.isEmpty()) {mChildren = null;}
+            }
+        }
+
+        boolean isLeaf()
+        {
+            return mSubscribe == null && mSingleLevel == null && mMultiLevel == null &&
+                   (mChildren == null || mChildren.isEmpty());
+        }
+    }
+}
@@ -30,10 +30,10 @@ import com.isahl.chess.bishop.protocol.ws.features.IWsContext;
 import com.isahl.chess.bishop.protocol.ws.model.WsControl;
 import com.isahl.chess.bishop.protocol.ws.model.WsFrame;
 import com.isahl.chess.king.base.exception.ZException;
-import com.isahl.chess.king.base.util.Pair;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.session.IPContext;
 import com.isahl.chess.queen.io.core.features.model.session.proxy.IProxyContext;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 import com.isahl.chess.queen.io.core.net.socket.AioFilterChain;
 
 /**
@@ -73,7 +73,7 @@ public class WsControlFilter<T extends WsContext>
     }
 
     @Override
-    public <O extends IProtocol> Pair<ResultType, IPContext> pipeSeek(IPContext context, O output)
+    public <O extends IProtocol> PipeCursor pipeSeek(IPContext context, O output, PipeCursor cursor)
     {
         if(checkType(output, IProtocol.PROTOCOL_BISHOP_CONTROL_SERIAL) && output instanceof WsControl c) {
             IPContext acting = context;
@@ -84,7 +84,7 @@ public class WsControlFilter<T extends WsContext>
                    c.isCtrl())
                 {
                 //@formatter:on
-                    return Pair.of(ResultType.NEXT_STEP, acting);
+                    return cursor.of(ResultType.NEXT_STEP, acting);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -95,17 +95,17 @@ public class WsControlFilter<T extends WsContext>
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
-    public <I extends IProtocol> Pair<ResultType, IPContext> pipePeek(IPContext context, I input)
+    public <I extends IProtocol> PipeCursor pipePeek(IPContext context, I input, PipeCursor cursor)
     {
         if(checkType(input, IProtocol.PROTOCOL_BISHOP_FRAME_SERIAL) && input instanceof WsFrame f && f.isCtrl()) {
             IPContext acting = context;
             do {
                 if(acting.isInConvert() && acting instanceof IWsContext) {
-                    return Pair.of(ResultType.HANDLED, acting);
+                    return cursor.of(ResultType.HANDLED, acting);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -116,7 +116,7 @@ public class WsControlFilter<T extends WsContext>
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
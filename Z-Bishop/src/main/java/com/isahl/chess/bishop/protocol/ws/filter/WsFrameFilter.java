@@ -25,11 +25,11 @@ package com.isahl.chess.bishop.protocol.ws.filter;
 import com.isahl.chess.bishop.protocol.ws.WsContext;
 import com.isahl.chess.bishop.protocol.ws.features.IWsContext;
 import com.isahl.chess.bishop.protocol.ws.model.WsFrame;
-import com.isahl.chess.king.base.util.Pair;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.session.IPContext;
 import com.isahl.chess.queen.io.core.features.model.session.proxy.IProxyContext;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 import com.isahl.chess.queen.io.core.net.socket.AioFilterChain;
 import com.isahl.chess.queen.io.core.net.socket.AioPacket;
 
@@ -69,13 +69,13 @@ public class WsFrameFilter<T extends WsContext>
     }
 
     @Override
-    public <O extends IProtocol> Pair<ResultType, IPContext> pipeSeek(IPContext context, O output)
+    public <O extends IProtocol> PipeCursor pipeSeek(IPContext context, O output, PipeCursor cursor)
     {
         if(checkType(output, IProtocol.PROTOCOL_BISHOP_FRAME_SERIAL)) {
             IPContext acting = context;
             do {
                 if(acting.isOutFrame() && acting instanceof IWsContext) {
-                    return Pair.of(ResultType.NEXT_STEP, context);
+                    return cursor.of(ResultType.NEXT_STEP, context);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -86,11 +86,11 @@ public class WsFrameFilter<T extends WsContext>
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
-    public <I extends IProtocol> Pair<ResultType, IPContext> pipePeek(IPContext context, I input)
+    public <I extends IProtocol> PipeCursor pipePeek(IPContext context, I input, PipeCursor cursor)
     {
         if(checkType(input, IProtocol.IO_QUEEN_PACKET_SERIAL)) {
             IPContext acting = context;
@@ -101,7 +101,7 @@ public class WsFrameFilter<T extends WsContext>
                     if(carrier == null) {
                         ws_ctx.setCarrier(carrier = new WsFrame());
                     }
-                    return Pair.of(carrier.lack(acting.getRvBuffer()
+                    return cursor.of(carrier.lack(acting.getRvBuffer()
                                                       .put(in_packet.getBuffer())
                                                       .discardOnHalf()) > 0 ? NEED_DATA : NEXT_STEP, acting);
                 }
@@ -114,7 +114,7 @@ public class WsFrameFilter<T extends WsContext>
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
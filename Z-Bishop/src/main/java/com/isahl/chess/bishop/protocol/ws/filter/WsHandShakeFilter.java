@@ -26,11 +26,11 @@ package com.isahl.chess.bishop.protocol.ws.filter;
 import com.isahl.chess.bishop.protocol.ws.WsContext;
 import com.isahl.chess.bishop.protocol.ws.ctrl.X101_HandShake;
 import com.isahl.chess.bishop.protocol.ws.features.IWsContext;
-import com.isahl.chess.king.base.util.Pair;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.session.IPContext;
 import com.isahl.chess.queen.io.core.features.model.session.proxy.IProxyContext;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 import com.isahl.chess.queen.io.core.net.socket.AioFilterChain;
 import com.isahl.chess.queen.io.core.net.socket.AioPacket;
 
@@ -68,13 +68,13 @@ public class WsHandShakeFilter<T extends WsContext>
     }
 
     @Override
-    public <O extends IProtocol> Pair<ResultType, IPContext> pipeSeek(IPContext context, O output)
+    public <O extends IProtocol> PipeCursor pipeSeek(IPContext context, O output, PipeCursor cursor)
     {
         if(checkType(output, IProtocol.PROTOCOL_BISHOP_CONTROL_SERIAL) && output instanceof X101_HandShake) {
             IPContext acting = context;
             do {
                 if(acting.isOutInit() && acting instanceof IWsContext) {
-                    return Pair.of(ResultType.NEXT_STEP, acting);
+                    return cursor.of(ResultType.NEXT_STEP, acting);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -85,12 +85,12 @@ public class WsHandShakeFilter<T extends WsContext>
             }
             while(acting != null);
         }
-        return Pair.of(IGNORE, context);
+        return cursor.of(IGNORE, context);
     }
 
     @Override
     @SuppressWarnings("unchecked")
-    public <I extends IProtocol> Pair<ResultType, IPContext> pipePeek(IPContext context, I input)
+    public <I extends IProtocol> PipeCursor pipePeek(IPContext context, I input, PipeCursor cursor)
     {
         if(checkType(input, IProtocol.IO_QUEEN_PACKET_SERIAL) && input instanceof IPacket in_packet) {
             IPContext acting = context;
@@ -102,7 +102,7 @@ public class WsHandShakeFilter<T extends WsContext>
                         ws_ctx.handshake(handshake = new X101_HandShake<>());
                         handshake.wrap(ws_ctx);
                     }
-                    return Pair.of(handshake.lack(in_packet.getBuffer()) > 0 ? NEED_DATA : HANDLED, acting);
+                    return cursor.of(handshake.lack(in_packet.getBuffer()) > 0 ? NEED_DATA : HANDLED, acting);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -113,7 +113,7 @@ public class WsHandShakeFilter<T extends WsContext>
             }
             while(acting != null);
         }
-        return Pair.of(IGNORE, context);
+        return cursor.of(IGNORE, context);
     }
 
     @Override
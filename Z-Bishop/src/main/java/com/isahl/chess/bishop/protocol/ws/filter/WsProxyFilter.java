@@ -26,11 +26,11 @@ package com.isahl.chess.bishop.protocol.ws.filter;
 import com.isahl.chess.bishop.protocol.ws.features.IWsContext;
 import com.isahl.chess.bishop.protocol.ws.model.WsFrame;
 import com.isahl.chess.bishop.protocol.ws.proxy.WsProxyContext;
-import com.isahl.chess.king.base.util.Pair;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.session.IPContext;
 import com.isahl.chess.queen.io.core.features.model.session.proxy.IProxyContext;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 import com.isahl.chess.queen.io.core.net.socket.AioFilterChain;
 import com.isahl.chess.queen.io.core.net.socket.AioPacket;
 
@@ -53,6 +53,7 @@ public class WsProxyFilter<A extends IPContext>
         WsFrame frame = new WsFrame();
         frame.header(WsFrame.frame_op_code_ctrl_binary);
         frame.withSub(output.payload());
+        output.recycle();
         context.promotionOut();
         return frame;
     }
@@ -65,13 +66,13 @@ public class WsProxyFilter<A extends IPContext>
     }
 
     @Override
-    public <O extends IProtocol> Pair<ResultType, IPContext> pipeSeek(IPContext context, O output)
+    public <O extends IProtocol> PipeCursor pipeSeek(IPContext context, O output, PipeCursor cursor)
     {
         if(checkType(output, IProtocol.IO_QUEEN_PACKET_SERIAL)) {
             IPContext acting = context;
             do {
                 if(acting instanceof IWsContext && acting.isOutConvert()) {
-                    return Pair.of(ResultType.NEXT_STEP, acting);
+                    return cursor.of(ResultType.NEXT_STEP, acting);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -82,17 +83,17 @@ public class WsProxyFilter<A extends IPContext>
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
-    public <I extends IProtocol> Pair<ResultType, IPContext> pipePeek(IPContext context, I input)
+    public <I extends IProtocol> PipeCursor pipePeek(IPContext context, I input, PipeCursor cursor)
     {
         if(checkType(input, IProtocol.PROTOCOL_BISHOP_FRAME_SERIAL) && input instanceof WsFrame f && !f.isCtrl()) {
             IPContext acting = context;
             do {
                 if(acting.isInConvert() && acting instanceof IWsContext) {
-                    return Pair.of(ResultType.PROXY, acting);
+                    return cursor.of(ResultType.PROXY, acting);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -103,7 +104,7 @@ public class WsProxyFilter<A extends IPContext>
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
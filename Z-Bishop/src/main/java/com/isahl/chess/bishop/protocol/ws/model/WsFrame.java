@@ -54,6 +54,8 @@ public class WsFrame
     public  byte     mFrameHeader;
     private byte[]   mMask;
     private byte[]   mPayload;
+    // decode 时引用接收缓冲的只读 slice，payload() 时才拷贝
+    private ByteBuf  mSlice;
     // mask | first payload_length
     private IoSerial mSubContent;
 
@@ -77,9 +79,20 @@ public class WsFrame
     @Override
     public byte[] payload()
     {
+        if(mSlice != null) {
+            mPayload = mSlice.peekAll();
+            mSlice = null;
+        }
         return mPayload;
     }
 
+    @Override
+    public ByteBuf subEncoded()
+    {
+        if(mSlice != null) {return mSlice.isReadable() ? new ByteBuf(mSlice) : null;}
+        return IFrame.super.subEncoded();
+    }
+
     public void setMask(byte[] mask)
     {
         mMask = mask;
@@ -91,16 +104,14 @@ public class WsFrame
         int length = 1 + // header
                      (mMask == null ? 0 : 4) + //mask
                      1; // attr
-        if(mPayload != null) {
-            if(mPayload.length > 0xFFFF) {
-                length += 8;
-            }
-            else if(mPayload.length > 0x7D) {
-                length += 2;
-            }
-            length += mPayload.length;
+        int payloadLength = mSlice != null ? mSlice.readableBytes() : mPayload == null ? 0 : mPayload.length;
+        if(payloadLength > 0xFFFF) {
+            length += 8;
+        }
+        else if(payloadLength > 0x7D) {
+            length += 2;
         }
-        return length;
+        return length + payloadLength;
     }
 
     @Override
@@ -197,16 +208,23 @@ public class WsFrame
     @Override
     public void fold(ByteBuf input, int remain)
     {
+        mPayload = null;
+        mSlice = null;
         if(remain > 0) {
-            mPayload = new byte[remain];
-            input.get(mPayload);
-            doMask();
+            if(mMask != null) {
+                // 掩码在接收缓冲内原地还原，frame 只引用其 slice
+                for(int i = 0, offset = input.readerIdx(); i < remain; i++) {
+                    input.put(input.peek(i) ^ mMask[i & 3], offset + i);
+                }
+            }
+            mSlice = input.slice(remain);
         }
     }
 
     @Override
     public ByteBuf suffix(ByteBuf output)
     {
+        payload();
         output.put(mFrameHeader |= (byte) frame_fin_no_more);
         int attr = 0;
         output.markWriter();
@@ -248,6 +266,7 @@ public class WsFrame
         //IoSerial payload ≤ 256MB不会超过payload, 对多fragment场景支持欠缺
         ByteBuf encoded = sub.encode();
         if(encoded != null && encoded.capacity() > 0) {mPayload = encoded.array();}
+        mSlice = null;
         mSubContent = sub;
         return this;
     }
@@ -256,6 +275,7 @@ public class WsFrame
     public WsFrame withSub(byte[] sub)
     {
         mPayload = sub == null || sub.length > 0 ? sub : null;
+        mSlice = null;
         return this;
     }
 
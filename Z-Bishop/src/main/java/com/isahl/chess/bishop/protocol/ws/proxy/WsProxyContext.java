@@ -57,6 +57,12 @@ public class WsProxyContext<A extends IPContext>
         return true;
     }
 
+    @Override
+    public boolean isOutOrdered()
+    {
+        return _ActingContext.isOutOrdered();
+    }
+
     @Override
     public void ready()
     {
@@ -23,7 +23,9 @@
 
 package com.isahl.chess.bishop.protocol.zchat;
 
-import com.isahl.chess.king.base.crypt.util.Rc4;
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.crypt.features.ISymmetric;
+import com.isahl.chess.king.base.crypt.util.CipherSuite;
 import com.isahl.chess.king.base.util.CryptoUtil;
 import com.isahl.chess.queen.io.core.features.model.channels.INetworkOption;
 import com.isahl.chess.queen.io.core.features.model.session.ISort;
@@ -35,29 +37,68 @@ public class EZContext
         implements IEContext
 {
     private final CryptoUtil _CryptoUtil = new CryptoUtil();
+    private final int        _FrameSize;
 
     private int     mPubKeyId = -2;
     private boolean mUpdateKeyIn, mUpdateKeyOut;
     private int    mSymmetricKeyId;
     private byte[] mSymmetricKeyIn, mSymmetricKeyOut, mSymmetricKeyReroll;
-    private Rc4 mEncryptRc4, mDecryptRc4;
-    private IEncryptor mEncryptHandler;
+    private ISymmetric  mEncrypt, mDecrypt;
+    private IEncryptor  mEncryptHandler;
+    private CipherSuite mCipherSuite = CipherSuite.RC4;
+    private boolean     mInitiator;
+    /*
+     * 进入密文阶段后，接收缓冲只存放密文，解密结果写入独立的帧缓冲
+     */
+    private ByteBuf     mFrameBuffer;
 
     public EZContext(INetworkOption option, ISort.Mode mode, ISort.Type type)
     {
         super(option, mode, type);
+        _FrameSize = option.getRcvByte();
+    }
+
+    /**
+     * 密文按编码顺序推进密钥流/nonce
+     */
+    @Override
+    public boolean isOutOrdered()
+    {
+        return true;
+    }
+
+    @Override
+    public ISymmetric getSymmetricDecrypt()
+    {
+        return mDecrypt == null ? mDecrypt = mCipherSuite.create(false, mInitiator) : mDecrypt;
+    }
+
+    @Override
+    public ISymmetric getSymmetricEncrypt()
+    {
+        return mEncrypt == null ? mEncrypt = mCipherSuite.create(true, mInitiator) : mEncrypt;
     }
 
     @Override
-    public Rc4 getSymmetricDecrypt()
+    public CipherSuite getCipherSuite()
     {
-        return mDecryptRc4 == null ? mDecryptRc4 = new Rc4() : mDecryptRc4;
+        return mCipherSuite;
+    }
+
+    @Override
+    public void setCipherSuite(CipherSuite suite, boolean initiator)
+    {
+        if(suite != mCipherSuite || initiator != mInitiator) {
+            mCipherSuite = suite;
+            mInitiator = initiator;
+            mEncrypt = mDecrypt = null;
+        }
     }
 
     @Override
-    public Rc4 getSymmetricEncrypt()
+    public ByteBuf getFrameBuffer()
     {
-        return mEncryptRc4 == null ? mEncryptRc4 = new Rc4() : mEncryptRc4;
+        return mFrameBuffer == null ? getRvBuffer() : mFrameBuffer;
     }
 
     @Override
@@ -192,6 +233,7 @@ public class EZContext
     @Override
     public void cryptIn()
     {
+        if(mFrameBuffer == null) {mFrameBuffer = ByteBuf.allocate(_FrameSize);}
         super.promotionIn();
     }
 
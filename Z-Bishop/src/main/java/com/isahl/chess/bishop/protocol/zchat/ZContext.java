@@ -24,6 +24,7 @@ package com.isahl.chess.bishop.protocol.zchat;
 
 import com.isahl.chess.bishop.protocol.ProtocolContext;
 import com.isahl.chess.bishop.protocol.zchat.model.base.ZFrame;
+import com.isahl.chess.king.base.content.ByteBuf;
 import com.isahl.chess.queen.io.core.features.model.channels.INetworkOption;
 import com.isahl.chess.queen.io.core.features.model.session.ISort;
 
@@ -39,6 +40,14 @@ public class ZContext
         super(option, mode, type);
     }
 
+    /**
+     * 帧解码所用的缓冲，明文链路直接使用接收缓冲
+     */
+    public ByteBuf getFrameBuffer()
+    {
+        return getRvBuffer();
+    }
+
     @Override
     public void ready()
     {
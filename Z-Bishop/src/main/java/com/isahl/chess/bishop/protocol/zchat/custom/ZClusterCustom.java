@@ -57,6 +57,12 @@ public class ZClusterCustom<T extends IStorage>
         return _Then != null ? _Then.consistent(manager, request, origin, factory) : null;
     }
 
+    @Override
+    public List<ITriple> onBatch(IManager manager)
+    {
+        return _Then != null ? _Then.onBatch(manager) : null;
+    }
+
     @Override
     public List<ITriple> change(IManager manager, IoSerial topology)
     {
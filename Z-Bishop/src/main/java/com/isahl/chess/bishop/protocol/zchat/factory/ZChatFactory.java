@@ -26,6 +26,7 @@ package com.isahl.chess.bishop.protocol.zchat.factory;
 
 import com.isahl.chess.bishop.protocol.zchat.ZContext;
 import com.isahl.chess.bishop.protocol.zchat.model.base.ZFrame;
+import com.isahl.chess.bishop.protocol.zchat.model.command.X1C_MultiExchange;
 import com.isahl.chess.bishop.protocol.zchat.model.command.X1D_PlainText;
 import com.isahl.chess.bishop.protocol.zchat.model.command.X1E_Consensus;
 import com.isahl.chess.bishop.protocol.zchat.model.command.X1F_Exchange;
@@ -77,6 +78,7 @@ public class ZChatFactory
             case 0x0C -> new X0C_Pong();
             case 0x0D -> new X0D_Error();
             // command
+            case 0x1C -> new X1C_MultiExchange();
             case 0x1D -> new X1D_PlainText();
             case 0x1E -> new X1E_Consensus();
             case 0x1F -> new X1F_Exchange();
@@ -28,6 +28,7 @@ import com.isahl.chess.bishop.protocol.zchat.model.base.ZFrame;
 import com.isahl.chess.bishop.protocol.zchat.model.base.ZProtocol;
 import com.isahl.chess.bishop.protocol.zchat.model.ctrl.ZControl;
 import com.isahl.chess.bishop.protocol.zchat.model.ctrl.zls.*;
+import com.isahl.chess.king.base.crypt.util.CipherSuite;
 import com.isahl.chess.king.base.util.Pair;
 import com.isahl.chess.king.config.CodeKing;
 import com.isahl.chess.queen.io.core.features.model.content.IControl;
@@ -36,6 +37,7 @@ import com.isahl.chess.queen.io.core.features.model.session.IPContext;
 import com.isahl.chess.queen.io.core.features.model.session.proxy.IProxyContext;
 import com.isahl.chess.queen.io.core.features.model.session.zls.IEContext;
 import com.isahl.chess.queen.io.core.features.model.session.zls.IEncryptor;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 import com.isahl.chess.queen.io.core.net.socket.AioFilterChain;
 
 import java.util.Arrays;
@@ -78,9 +80,12 @@ public class ZControlFilter
                     }
                     Pair<Integer, byte[]> keyPair = encryptHandler.getAsymmetricPubKey(x01.getPubKeyId());
                     if(keyPair != null) {
+                        CipherSuite suite = CipherSuite.select(x01.getCipherSuites());
                         X02_AsymmetricPub x02 = new X02_AsymmetricPub();
                         ec.setPubKeyId(keyPair.getFirst());
+                        ec.setCipherSuite(suite, false);
                         x02.setPubKey(keyPair.getFirst(), keyPair.getSecond());
+                        x02.setCipherSuite(suite);
                         return x02;
                     }
                     else {
@@ -93,6 +98,7 @@ public class ZControlFilter
                 if(context instanceof IEContext ec) {
                     X02_AsymmetricPub x02 = (X02_AsymmetricPub) input;
                     IEncryptor encryptHandler = ec.getEncryptHandler();
+                    ec.setCipherSuite(x02.getCipherSuite(), true);
                     byte[] symmetricKey = ec.getSymmetricEncrypt()
                                             .createKey("z-tls-rc4");
                     if(symmetricKey == null) {
@@ -139,6 +145,7 @@ public class ZControlFilter
                             X02_AsymmetricPub x02 = new X02_AsymmetricPub();
                             ec.setPubKeyId(keyPair.getFirst());
                             x02.setPubKey(keyPair.getFirst(), keyPair.getSecond());
+                            x02.setCipherSuite(ec.getCipherSuite());
                             return x02;
                         }
                         else {
@@ -198,7 +205,7 @@ public class ZControlFilter
     }
 
     @Override
-    public <O extends IProtocol> Pair<ResultType, IPContext> pipeSeek(IPContext context, O output)
+    public <O extends IProtocol> PipeCursor pipeSeek(IPContext context, O output, PipeCursor cursor)
     {
         if(checkType(output, IProtocol.PROTOCOL_BISHOP_CONTROL_SERIAL) && output instanceof ZProtocol) {
             IPContext acting = context;
@@ -210,7 +217,7 @@ public class ZControlFilter
                    c.isCtrl())
                 {
                 //@formatter:on
-                    return Pair.of(ResultType.NEXT_STEP, acting);
+                    return cursor.of(ResultType.NEXT_STEP, acting);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -221,17 +228,17 @@ public class ZControlFilter
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
-    public <I extends IProtocol> Pair<ResultType, IPContext> pipePeek(IPContext context, I input)
+    public <I extends IProtocol> PipeCursor pipePeek(IPContext context, I input, PipeCursor cursor)
     {
         if(checkType(input, IProtocol.PROTOCOL_BISHOP_FRAME_SERIAL) && input instanceof ZFrame f && f.isCtrl()) {
             IPContext acting = context;
             do {
                 if(acting.isInConvert() && acting instanceof ZContext) {
-                    return Pair.of(ResultType.HANDLED, acting);
+                    return cursor.of(ResultType.HANDLED, acting);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -242,7 +249,7 @@ public class ZControlFilter
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
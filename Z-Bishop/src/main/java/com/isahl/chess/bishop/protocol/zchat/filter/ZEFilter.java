@@ -23,13 +23,15 @@
 package com.isahl.chess.bishop.protocol.zchat.filter;
 
 import com.isahl.chess.bishop.protocol.zchat.ZContext;
-import com.isahl.chess.king.base.util.Pair;
+import com.isahl.chess.king.base.content.ByteBuf;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.session.IPContext;
 import com.isahl.chess.queen.io.core.features.model.session.proxy.IProxyContext;
 import com.isahl.chess.queen.io.core.features.model.session.zls.IEContext;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 import com.isahl.chess.queen.io.core.net.socket.AioFilterChain;
+import com.isahl.chess.queen.io.core.net.socket.AioPacket;
 
 /**
  * @author William.d.zk
@@ -48,8 +50,13 @@ public class ZEFilter<T extends ZContext & IEContext>
     public IPacket encode(T context, IPacket output)
     {
         if(context.isOutCrypt() && output.outIdempotent(getLeftIdempotentBit())) {
-            context.getSymmetricEncrypt()
-                   .digest(output.getBuffer(), context.getSymmetricKeyOut());
+            ByteBuf plain = output.getBuffer();
+            ByteBuf sealed = context.getSymmetricEncrypt()
+                                    .seal(plain, context.getSymmetricKeyOut());
+            if(sealed != plain) {
+                // AEAD 产生带长度与 tag 的新记录；RC4 原地加密
+                output = new AioPacket(sealed);
+            }
             /* cipher with old symmetric key -> new symmetric key */
             if(context.needUpdateKeyOut()) {
                 context.swapKeyOut(context.getReRollKey());
@@ -78,20 +85,25 @@ public class ZEFilter<T extends ZContext & IEContext>
             context.cryptIn();
         }
         if(context.isInCrypt() && input.inIdempotent(getRightIdempotentBit())) {
+            /*
+             * 密文从接收缓冲直接解密进帧缓冲，接收缓冲被读尽，
+             * 不会再把尚未成帧的明文当作密文重复处理；
+             * 后续 frame-filter 对已读尽的 input 执行 put 为空操作
+             */
             context.getSymmetricDecrypt()
-                   .digest(input.getBuffer(), context.getSymmetricKeyIn());
+                   .open(input.getBuffer(), context.getFrameBuffer(), context.getSymmetricKeyIn());
         }
         return input;
     }
 
     @Override
-    public <O extends IProtocol> Pair<ResultType, IPContext> pipeSeek(IPContext context, O output)
+    public <O extends IProtocol> PipeCursor pipeSeek(IPContext context, O output, PipeCursor cursor)
     {
         if(checkType(output, IProtocol.IO_QUEEN_PACKET_SERIAL)) {
             IPContext acting = context;
             do {
                 if(acting.isOutConvert() && acting instanceof IEContext) {
-                    return Pair.of(ResultType.NEXT_STEP, acting);
+                    return cursor.of(ResultType.NEXT_STEP, acting);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -100,19 +112,19 @@ public class ZEFilter<T extends ZContext & IEContext>
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
 
     }
 
     @Override
-    public <I extends IProtocol> Pair<ResultType, IPContext> pipePeek(IPContext context, I input)
+    public <I extends IProtocol> PipeCursor pipePeek(IPContext context, I input, PipeCursor cursor)
     {
         if(checkType(input, IProtocol.IO_QUEEN_PACKET_SERIAL)) {
 
             IPContext acting = context;
             do {
                 if(acting.isInConvert() && acting instanceof IEContext) {
-                    return Pair.of(ResultType.NEXT_STEP, acting);
+                    return cursor.of(ResultType.NEXT_STEP, acting);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -123,7 +135,7 @@ public class ZEFilter<T extends ZContext & IEContext>
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
@@ -24,11 +24,11 @@ package com.isahl.chess.bishop.protocol.zchat.filter;
 
 import com.isahl.chess.bishop.protocol.zchat.ZContext;
 import com.isahl.chess.bishop.protocol.zchat.model.base.ZFrame;
-import com.isahl.chess.king.base.util.Pair;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.session.IPContext;
 import com.isahl.chess.queen.io.core.features.model.session.proxy.IProxyContext;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 import com.isahl.chess.queen.io.core.net.socket.AioFilterChain;
 import com.isahl.chess.queen.io.core.net.socket.AioPacket;
 
@@ -61,20 +61,20 @@ public class ZFrameFilter
     public ZFrame decode(ZContext context, IPacket input)
     {
         ZFrame frame = context.getCarrier();
-        frame.decode(context.getRvBuffer());
+        frame.decode(context.getFrameBuffer());
         context.reset();
         context.promotionIn();
         return frame;
     }
 
     @Override
-    public <O extends IProtocol> Pair<ResultType, IPContext> pipeSeek(IPContext context, O output)
+    public <O extends IProtocol> PipeCursor pipeSeek(IPContext context, O output, PipeCursor cursor)
     {
         if(checkType(output, IProtocol.PROTOCOL_BISHOP_FRAME_SERIAL)) {
             IPContext acting = context;
             do {
                 if(acting.isOutFrame() && acting instanceof ZContext) {
-                    return Pair.of(ResultType.NEXT_STEP, acting);
+                    return cursor.of(ResultType.NEXT_STEP, acting);
                 }
                 else if(acting.isProxy()) {
                     acting = ((IProxyContext<?>) acting).getActingContext();
@@ -85,11 +85,11 @@ public class ZFrameFilter
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
-    public <I extends IProtocol> Pair<ResultType, IPContext> pipePeek(IPContext context, I input)
+    public <I extends IProtocol> PipeCursor pipePeek(IPContext context, I input, PipeCursor cursor)
     {
         if(checkType(input, IProtocol.IO_QUEEN_PACKET_SERIAL)) {
             IPContext acting = context;
@@ -99,7 +99,7 @@ public class ZFrameFilter
                     if(carrier == null) {
                         z_ctx.setCarrier(carrier = new ZFrame());
                     }
-                    return Pair.of(carrier.lack(acting.getRvBuffer()
+                    return cursor.of(carrier.lack(z_ctx.getFrameBuffer()
                                                       .put(in_packet.getBuffer())
                                                       .discardOnHalf()) > 0 ? NEED_DATA : NEXT_STEP, acting);
                 }
@@ -113,7 +113,7 @@ public class ZFrameFilter
             }
             while(acting != null);
         }
-        return Pair.of(ResultType.IGNORE, context);
+        return cursor.of(ResultType.IGNORE, context);
     }
 
     @Override
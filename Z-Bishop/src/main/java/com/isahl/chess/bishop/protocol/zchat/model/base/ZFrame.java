@@ -41,12 +41,15 @@ public class ZFrame
     public final static int frame_payload_length_21_transaction_position    = 11;
     public final static int frame_payload_length_28_transaction_position    = 12;
 
-    private long mTransaction;
+    private long    mTransaction;
+    // decode 时引用接收缓冲的只读 slice，payload() 时才拷贝
+    private ByteBuf mSlice;
 
     @Override
     public int length()
     {
-        return 1 + (isTransactional() ? 8 : 0) + ByteBuf.vSizeOf(mPayload == null ? 0 : mPayload.length);
+        return 1 + (isTransactional() ? 8 : 0) + ByteBuf.vSizeOf(mSlice != null ? mSlice.readableBytes()
+                                                                                 : mPayload == null ? 0 : mPayload.length);
     }
 
     @Override
@@ -158,10 +161,8 @@ public class ZFrame
     @Override
     public void fold(ByteBuf input, int remain)
     {
-        if(remain > 0) {
-            mPayload = new byte[remain];
-            input.get(mPayload);
-        }
+        mPayload = null;
+        mSlice = remain > 0 ? input.slice(remain) : null;
     }
 
     @Override
@@ -171,7 +172,11 @@ public class ZFrame
         if(isTransactional()) {
             output.putLong(mTransaction);
         }
-        if(mPayload != null) {
+        if(mSlice != null) {
+            output.vPutLength(mSlice.readableBytes());
+            output.put(new ByteBuf(mSlice));
+        }
+        else if(mPayload != null) {
             output.vPutLength(mPayload.length);
             output.put(mPayload);
         }
@@ -240,6 +245,7 @@ public class ZFrame
     {
         ByteBuf encoded = sub.encode();
         if(encoded != null && encoded.capacity() > 0) {mPayload = encoded.array();}
+        mSlice = null;
         mSubContent = sub;
         return this;
     }
@@ -248,6 +254,7 @@ public class ZFrame
     public ZFrame withSub(byte[] sub)
     {
         mPayload = sub == null || sub.length > 0 ? sub : null;
+        mSlice = null;
         return this;
     }
 
@@ -262,9 +269,20 @@ public class ZFrame
     @Override
     public byte[] payload()
     {
+        if(mSlice != null) {
+            mPayload = mSlice.peekAll();
+            mSlice = null;
+        }
         return mPayload;
     }
 
+    @Override
+    public ByteBuf subEncoded()
+    {
+        if(mSlice != null) {return mSlice.isReadable() ? new ByteBuf(mSlice) : null;}
+        return super.subEncoded();
+    }
+
     public static int peekSubSerial(ByteBuf buffer)
     {
         return Objects.requireNonNull(buffer)
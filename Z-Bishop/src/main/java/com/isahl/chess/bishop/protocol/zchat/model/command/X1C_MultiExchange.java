@@ -0,0 +1,209 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.bishop.protocol.zchat.model.command;
+
+import com.isahl.chess.board.annotation.ISerialGenerator;
+import com.isahl.chess.board.base.ISerial;
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.exception.ZException;
+import com.isahl.chess.king.base.util.IoUtil;
+
+import java.util.Arrays;
+
+/**
+ * 集群间批量 exchange，同一 sub-content 只携带一次，
+ * 附带目标 session 列表及每个目标的 QoS 与 msg-id，由接收节点在本地展开
+ *
+ * @author william.d.zk
+ * @see X1F_Exchange
+ */
+@ISerialGenerator(parent = ISerial.PROTOCOL_BISHOP_COMMAND_SERIAL,
+                  serial = 0x1C)
+public class X1C_MultiExchange
+        extends ZCommand
+{
+    /**
+     * 单帧最多携带的目标数，超出时由发送方拆帧
+     */
+    public final static int MAX_TARGETS = 4096;
+
+    public X1C_MultiExchange()
+    {
+        super();
+    }
+
+    public X1C_MultiExchange(long msgId)
+    {
+        super(msgId);
+    }
+
+    @Override
+    public boolean isMapping()
+    {
+        return false;
+    }
+
+    private long mPeer;
+    private int  mFactory;
+
+    private int    mCount;
+    private long[] mTargets = new long[8];
+    private byte[] mLevels  = new byte[8];
+    private long[] mIds     = new long[8];
+
+    @Override
+    public int priority()
+    {
+        return QOS_PRIORITY_03_CLUSTER_EXCHANGE;
+    }
+
+    @Override
+    public Level level()
+    {
+        return Level.AT_LEAST_ONCE;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("X1C_MultiExchange { node-client:%#x, targets:%d, factory:%s sub-size[%d]}",
+                             mPeer,
+                             mCount,
+                             IoUtil.int2Chars(mFactory),
+                             payload() == null ? 0 : payload().length);
+    }
+
+    public X1C_MultiExchange add(long target, int level, long msgId)
+    {
+        if(mCount == mTargets.length) {
+            int size = mCount << 1;
+            mTargets = Arrays.copyOf(mTargets, size);
+            mLevels = Arrays.copyOf(mLevels, size);
+            mIds = Arrays.copyOf(mIds, size);
+        }
+        mTargets[mCount] = target;
+        mLevels[mCount] = (byte) level;
+        mIds[mCount] = level > 0 ? msgId : 0;
+        mCount++;
+        return this;
+    }
+
+    public boolean isFull()
+    {
+        return mCount >= MAX_TARGETS;
+    }
+
+    public int count()
+    {
+        return mCount;
+    }
+
+    public long target(int i)
+    {
+        return mTargets[i];
+    }
+
+    public int targetLevel(int i)
+    {
+        return mLevels[i];
+    }
+
+    public long targetMsgId(int i)
+    {
+        return mIds[i];
+    }
+
+    public int factory()
+    {
+        return mFactory;
+    }
+
+    public void factory(int factory)
+    {
+        mFactory = factory;
+    }
+
+    public long peer()
+    {
+        return mPeer;
+    }
+
+    public void peer(long peer)
+    {
+        mPeer = peer;
+    }
+
+    @Override
+    public ByteBuf suffix(ByteBuf output)
+    {
+        super.suffix(output)
+             .putLong(mPeer)
+             .putInt(mFactory)
+             .putInt(mCount);
+        for(int i = 0; i < mCount; i++) {
+            output.putLong(mTargets[i])
+                  .put(mLevels[i]);
+            if(mLevels[i] > 0) {output.putLong(mIds[i]);}
+        }
+        return output;
+    }
+
+    @Override
+    public int prefix(ByteBuf input)
+    {
+        int remain = super.prefix(input);
+        mPeer = input.getLong();
+        mFactory = input.getInt();
+        mCount = input.getInt();
+        remain -= 16;
+        // mCount 来自对端，分配前校验：每个目标至少 target(8) + level(1)
+        if(mCount < 0 || mCount > MAX_TARGETS || mCount * 9L > remain) {
+            throw new ZException("multi-exchange targets [%d] out of range, remain %d", mCount, remain);
+        }
+        mTargets = new long[mCount];
+        mLevels = new byte[mCount];
+        mIds = new long[mCount];
+        for(int i = 0; i < mCount; i++) {
+            mTargets[i] = input.getLong();
+            mLevels[i] = input.get();
+            remain -= 9;
+            if(mLevels[i] > 0) {
+                mIds[i] = input.getLong();
+                remain -= 8;
+            }
+        }
+        return remain;
+    }
+
+    @Override
+    public int length()
+    {
+        int length = super.length() + 16 + mCount * 9;
+        for(int i = 0; i < mCount; i++) {
+            if(mLevels[i] > 0) {length += 8;}
+        }
+        return length;
+    }
+
+}
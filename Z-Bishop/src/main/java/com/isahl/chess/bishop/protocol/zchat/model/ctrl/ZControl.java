@@ -23,6 +23,7 @@ public abstract class ZControl
 {
     protected final static int attribute_rsv_msg_id        = 0x80;
     protected final static int attribute_sub_content       = 0x10;
+    protected final static int attribute_cipher_suite      = 0x08;
     protected final static int attribute_version_bits_left = 5;
     protected final static int attribute_version_mask      = 3 << attribute_version_bits_left;
 
@@ -92,12 +93,12 @@ public abstract class ZControl
 
     protected void addCrc(ByteBuf output)
     {
-        output.putInt(CryptoUtil.crc32(output.array(), output.writerMark(), output.writerIdx() - output.writerMark()));
+        output.putInt(CryptoUtil.crc32(output, output.writerMark(), output.writerIdx() - output.writerMark()));
     }
 
     protected void checkCrc(ByteBuf input)
     {
-        if(CryptoUtil.crc32(input.array(), input.readerMark(), input.readerIdx() - input.readerMark()) !=
+        if(CryptoUtil.crc32(input, input.readerMark(), input.readerIdx() - input.readerMark()) !=
            input.getInt())
         {
             throw new ZException("crc check failed! = %#x", serial());
@@ -26,6 +26,7 @@ import com.isahl.chess.bishop.protocol.zchat.model.ctrl.ZControl;
 import com.isahl.chess.board.annotation.ISerialGenerator;
 import com.isahl.chess.board.base.ISerial;
 import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.crypt.util.CipherSuite;
 
 /**
  * @author William.d.zk
@@ -36,6 +37,10 @@ public class X01_EncryptRequest
         extends ZControl
 {
     private int mPubKeyId = -1;
+    /*
+     * 本端支持的加密套件掩码，旧版本不携带此字段，按 RC4 处理
+     */
+    private int mCipherSuites = CipherSuite.getSupported();
 
     public int getPubKeyId()
     {
@@ -47,16 +52,26 @@ public class X01_EncryptRequest
         mPubKeyId = pubKeyId;
     }
 
+    public int getCipherSuites()
+    {
+        return mCipherSuites;
+    }
+
+    public void setCipherSuites(int suites)
+    {
+        mCipherSuites = suites;
+    }
+
     @Override
     public int length()
     {
-        return super.length() + 4;
+        return super.length() + 5;
     }
 
     @Override
     public String toString()
     {
-        return String.format("%s\npublic-key-id:%d", super.toString(), mPubKeyId);
+        return String.format("%s\npublic-key-id:%d,cipher-suites:%#x", super.toString(), mPubKeyId, mCipherSuites);
     }
 
     @Override
@@ -69,7 +84,8 @@ public class X01_EncryptRequest
     public ByteBuf suffix(ByteBuf output)
     {
         return super.suffix(output)
-                    .putInt(mPubKeyId);
+                    .putInt(mPubKeyId)
+                    .put(mCipherSuites);
     }
 
     @Override
@@ -77,6 +93,13 @@ public class X01_EncryptRequest
     {
         int remain = super.prefix(input);
         mPubKeyId = input.getInt();
-        return remain - 4;
+        remain -= 4;
+        // 剩余仅 crc 时为旧版本请求
+        if(remain > 4) {
+            mCipherSuites = input.getUnsigned();
+            return remain - 1;
+        }
+        mCipherSuites = CipherSuite.RC4.getMask();
+        return remain;
     }
 }
@@ -26,6 +26,7 @@ import com.isahl.chess.bishop.protocol.zchat.model.ctrl.ZControl;
 import com.isahl.chess.board.annotation.ISerialGenerator;
 import com.isahl.chess.board.base.ISerial;
 import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.crypt.util.CipherSuite;
 import com.isahl.chess.king.base.util.IoUtil;
 
 /**
@@ -36,7 +37,8 @@ import com.isahl.chess.king.base.util.IoUtil;
 public class X02_AsymmetricPub
         extends ZControl
 {
-    private int mPubKeyId = -1;
+    private int         mPubKeyId    = -1;
+    private CipherSuite mCipherSuite = CipherSuite.RC4;
 
     public int getPubKeyId()
     {
@@ -48,10 +50,35 @@ public class X02_AsymmetricPub
         this.mPubKeyId = pubKeyId;
     }
 
+    public CipherSuite getCipherSuite()
+    {
+        return mCipherSuite;
+    }
+
+    /**
+     * 仅在协商出非 RC4 套件时写出，旧版本客户端收到的格式不变
+     */
+    public X02_AsymmetricPub setCipherSuite(CipherSuite suite)
+    {
+        mCipherSuite = suite;
+        if(suite != CipherSuite.RC4) {
+            mAttr |= attribute_cipher_suite;
+        }
+        else {
+            mAttr &= ~attribute_cipher_suite;
+        }
+        return this;
+    }
+
+    private boolean isWithCipherSuite()
+    {
+        return (mAttr & attribute_cipher_suite) != 0;
+    }
+
     @Override
     public int length()
     {
-        return super.length() + 4;
+        return super.length() + 4 + (isWithCipherSuite() ? 1 : 0);
     }
 
     public X02_AsymmetricPub setPubKey(int _id, byte[] key)
@@ -64,8 +91,12 @@ public class X02_AsymmetricPub
     @Override
     public ByteBuf suffix(ByteBuf output)
     {
-        return super.suffix(output)
-                    .putInt(mPubKeyId);
+        super.suffix(output)
+             .putInt(mPubKeyId);
+        if(isWithCipherSuite()) {
+            output.put(mCipherSuite.getMask());
+        }
+        return output;
     }
 
     @Override
@@ -73,6 +104,10 @@ public class X02_AsymmetricPub
     {
         int remain = super.prefix(input);
         mPubKeyId = input.getInt();
+        if(isWithCipherSuite()) {
+            mCipherSuite = CipherSuite.valueOf(input.getUnsigned());
+            return remain - 5;
+        }
         return remain - 4;
     }
 
@@ -38,91 +38,112 @@ public class Encryptor
         implements IEncryptor
 {
 
-    private final static int        KEY_PAIR_INDEX_PUBLIC_KEY = 0;
-    private final static int        KEY_PAIR_INDEX_PASSWORD   = KEY_PAIR_INDEX_PUBLIC_KEY + 1;
-    private final static int        KEY_PAIR_INDEX_TIME       = KEY_PAIR_INDEX_PASSWORD + 1;
-    private final static int        KEY_PAIR_INDEX_VERSION    = KEY_PAIR_INDEX_TIME + 1;
-    private final static int        PUBLIC_KEY_TIME_MAX       = 1 << 16;
-    private final static int        _TotalSizeWidth           = 8;
-    private final        int        _PairSize                 = 1 << _TotalSizeWidth;
-    private final        int        _PairSizeMask             = _PairSize - 1;
-    private final        int        _VersionWidth             = 12;
-    private final        int        _VersionMask              = ((1 << _VersionWidth) - 1) << _TotalSizeWidth;
-    private final        NtruUtil   _Ntru                     = new NtruUtil();
-    private final        Random     _Random                   = new Random();
-    private final        byte[][][] _PublicKeyPair            = new byte[_PairSize][][];
-    private final        CryptoUtil cryptoUtil                = new CryptoUtil();
-    private              int        mIndexAdd;
+    private final static int         KEY_PAIR_INDEX_PUBLIC_KEY = 0;
+    private final static int         KEY_PAIR_INDEX_PASSWORD   = KEY_PAIR_INDEX_PUBLIC_KEY + 1;
+    private final static int         KEY_PAIR_INDEX_TIME       = KEY_PAIR_INDEX_PASSWORD + 1;
+    private final static int         KEY_PAIR_INDEX_VERSION    = KEY_PAIR_INDEX_TIME + 1;
+    private final static int         PUBLIC_KEY_TIME_MAX       = 1 << 16;
+    private final static int         _TotalSizeWidth           = 8;
+    private final        int         _PairSize                 = 1 << _TotalSizeWidth;
+    private final        int         _PairSizeMask             = _PairSize - 1;
+    private final        int         _VersionWidth             = 12;
+    private final        int         _VersionMask              = ((1 << _VersionWidth) - 1) << _TotalSizeWidth;
+    private final        NtruUtil    _Ntru                     = new NtruUtil();
+    private final        Random      _Random                   = new Random();
+    private final        byte[][][]  _PublicKeyPair            = new byte[_PairSize][][];
+    private final        CryptoUtil  cryptoUtil                = new CryptoUtil();
+    private final        KeyPairPool _KeyPairPool;
+    private              int         mIndexAdd;
+    private              int         mLastIndex                = -1;
+
+    public Encryptor(KeyPairPool pool)
+    {
+        _KeyPairPool = pool;
+    }
 
     private boolean isPubKeyAvailable(int _ReqPubKeyId)
     {
         return _ReqPubKeyId >= 0;
     }
 
-    private Pair<Integer, byte[][]> createPair(Random random, int _PubKeyId)
+    private int pubKeyId(Random random, int keyIndex, int keyVersion)
     {
         int saltWidth = _TotalSizeWidth + _VersionWidth;
         int saltMask = (0xFFFFFFFF << saltWidth) ^ 0x80000000;
-        int keyIndex = _PubKeyId & _PairSizeMask;
-        int keyVersion = (_PubKeyId & _VersionMask) >>> _TotalSizeWidth;
-        int sequence;
+        return (random.nextInt() << saltWidth) & saltMask | (keyVersion << _TotalSizeWidth) | keyIndex;
+    }
+
+    private byte[][] install(int keyIndex, byte[][] keys, int keyVersion)
+    {
+        byte[] time = new byte[4];
+        byte[] version = new byte[2];
+        IoUtil.writeShort(keyVersion, version, 0);
+        byte[][] keyPair = new byte[][]{
+                keys[KEY_PAIR_INDEX_PUBLIC_KEY],
+                keys[KEY_PAIR_INDEX_PASSWORD],
+                time,
+                version
+        };
+        _PublicKeyPair[keyIndex] = keyPair;
+        mLastIndex = keyIndex;
+        return keyPair;
+    }
+
+    private static int versionOf(byte[][] keyPair)
+    {
+        return IoUtil.readUnsignedShort(keyPair[KEY_PAIR_INDEX_VERSION], 0);
+    }
+
+    /**
+     * 轮换策略：
+     * 1. 请求的 key 仍在使用期内则继续使用，版本过期的请求直接下发该槽位的当前版本；
+     * 2. 使用次数达到 PUBLIC_KEY_TIME_MAX 时从预生成池取新密钥并升级版本，池空则推迟轮换继续使用旧 key；
+     * 3. 新的请求占用下一个槽位，池空时复用最近安装的槽位；
+     * 只有冷启动且池中尚无密钥时才在当前线程生成。
+     */
+    private Pair<Integer, byte[][]> createPair(Random random, int _PubKeyId)
+    {
+        int versionMax = _VersionMask >>> _TotalSizeWidth;
         byte[][] keyPair = null;
+        int keyIndex = _PubKeyId & _PairSizeMask;
         if(isPubKeyAvailable(_PubKeyId)) {
             keyPair = _PublicKeyPair[keyIndex];
         }
-        boolean recreate = false;
-        int curVersion = -1;
-        int pubKeyId;
         if(keyPair != null) {
-            sequence = IoUtil.readInt(keyPair[KEY_PAIR_INDEX_TIME], 0) + 1;
-            curVersion = IoUtil.readUnsignedShort(keyPair[KEY_PAIR_INDEX_VERSION], 0);
-            if(sequence < PUBLIC_KEY_TIME_MAX && keyVersion == curVersion) {
-                IoUtil.writeInt(sequence, keyPair[KEY_PAIR_INDEX_TIME], 0);
-                pubKeyId = (random.nextInt() << saltWidth) & saltMask | keyIndex | curVersion;
-            }
-            else {
-                int nextVersion = (curVersion + 1) & (_VersionMask >>> _TotalSizeWidth);
-                pubKeyId = (random.nextInt() << saltWidth) & saltMask | keyIndex | (nextVersion << _TotalSizeWidth);
-                recreate = true;
+            int sequence = IoUtil.readInt(keyPair[KEY_PAIR_INDEX_TIME], 0) + 1;
+            if(sequence >= PUBLIC_KEY_TIME_MAX) {
+                byte[][] keys = _KeyPairPool.poll();
+                if(keys != null) {
+                    keyPair = install(keyIndex, keys, (versionOf(keyPair) + 1) & versionMax);
+                    sequence = 0;
+                }
+                else {
+                    sequence = PUBLIC_KEY_TIME_MAX - 1;
+                }
             }
+            IoUtil.writeInt(sequence, keyPair[KEY_PAIR_INDEX_TIME], 0);
+            return new Pair<>(pubKeyId(random, keyIndex, versionOf(keyPair)), keyPair);
         }
-        else {
-            keyIndex = mIndexAdd++ & _PairSizeMask;
+        byte[][] keys = _KeyPairPool.poll();
+        if(keys == null && mLastIndex >= 0) {
+            keyIndex = mLastIndex;
             keyPair = _PublicKeyPair[keyIndex];
-            pubKeyId = (random.nextInt() << saltWidth) & saltMask | keyIndex;
-            recreate = true;
+            return new Pair<>(pubKeyId(random, keyIndex, versionOf(keyPair)), keyPair);
         }
-        if(recreate) {
+        if(keys == null) {
             byte[] password = new byte[32];
             random.nextBytes(password);
-            byte[] time = new byte[]{
-                    0,
-                    0,
-                    0,
-                    0
-            };
-            byte[] version = new byte[]{
-                    0,
-                    0
-            };
-
-            curVersion = (curVersion + 1) & (_VersionMask >>> _TotalSizeWidth);
-            IoUtil.writeShort(curVersion, version, 0);
             try {
-                byte[][] keys = _Ntru.getKeys(password);
-                keyPair = new byte[][]{
-                        keys[KEY_PAIR_INDEX_PUBLIC_KEY],
-                        keys[KEY_PAIR_INDEX_PASSWORD],
-                        time,
-                        version
-                };
+                keys = _Ntru.getKeys(password);
             }
             catch(Exception e) {
                 return null;
             }
-            _PublicKeyPair[keyIndex] = keyPair;
         }
-        return new Pair<>(pubKeyId, keyPair);
+        keyIndex = mIndexAdd++ & _PairSizeMask;
+        byte[][] old = _PublicKeyPair[keyIndex];
+        keyPair = install(keyIndex, keys, old == null ? 0 : (versionOf(old) + 1) & versionMax);
+        return new Pair<>(pubKeyId(random, keyIndex, versionOf(keyPair)), keyPair);
     }
 
     @Override
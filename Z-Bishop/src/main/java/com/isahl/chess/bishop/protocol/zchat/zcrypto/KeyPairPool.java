@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.bishop.protocol.zchat.zcrypto;
+
+import com.isahl.chess.king.base.log.Logger;
+import com.isahl.chess.king.base.util.NtruUtil;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NTRU 密钥对后台预生成池。
+ * 生成线程持续把 {公钥,私钥} 填入有界队列，池满时阻塞；
+ * 握手路径只通过 {@link #poll()} 取现成的密钥对，从不在 I/O 线程上生成。
+ * 容量与生成线程数由配置决定，{@link #start()} 之后才开始生成。
+ *
+ * @author william.d.zk
+ */
+public class KeyPairPool
+{
+    private final static Logger _Logger = Logger.getLogger("protocol.bishop." + KeyPairPool.class.getSimpleName());
+
+    public final static int DEFAULT_CAPACITY   = 64;
+    public final static int DEFAULT_GENERATORS = 1;
+
+    private final BlockingQueue<byte[][]> _Pool;
+    private final Thread[]                _Generators;
+    private final AtomicLong              _Generated    = new AtomicLong();
+    private final AtomicLong              _GenerateNano = new AtomicLong();
+    private final AtomicLong              _Taken        = new AtomicLong();
+    private final AtomicLong              _Missed       = new AtomicLong();
+    private final AtomicLong              _Failed       = new AtomicLong();
+
+    public KeyPairPool(int capacity, int generators)
+    {
+        _Pool = new ArrayBlockingQueue<>(capacity);
+        _Generators = new Thread[Math.max(1, generators)];
+        for(int i = 0; i < _Generators.length; i++) {
+            Thread generator = new Thread(this::generate);
+            generator.setName(String.format("ZlsKeyGen-%d", i));
+            generator.setDaemon(true);
+            _Generators[i] = generator;
+        }
+    }
+
+    public synchronized void start()
+    {
+        if(_Generators[0].getState() != Thread.State.NEW) {return;}
+        for(Thread generator : _Generators) {generator.start();}
+        _Logger.info("zls key pool start, capacity %d, generators %d", getCapacity(), _Generators.length);
+    }
+
+    public void stop()
+    {
+        for(Thread generator : _Generators) {generator.interrupt();}
+    }
+
+    private void generate()
+    {
+        NtruUtil ntru = new NtruUtil();
+        SecureRandom random = new SecureRandom();
+        byte[] seed = new byte[32];
+        while(!Thread.currentThread()
+                     .isInterrupted())
+        {
+            try {
+                random.nextBytes(seed);
+                long start = System.nanoTime();
+                byte[][] keys = ntru.getKeys(seed);
+                _GenerateNano.addAndGet(System.nanoTime() - start);
+                _Generated.incrementAndGet();
+                _Pool.put(keys);
+            }
+            catch(InterruptedException e) {
+                return;
+            }
+            catch(Exception e) {
+                _Failed.incrementAndGet();
+                _Logger.warning("ntru key generate failed", e);
+            }
+        }
+    }
+
+    /**
+     * @return {公钥,私钥}，池空时返回 null，由调用方决定推迟轮换
+     */
+    public byte[][] poll()
+    {
+        byte[][] keys = _Pool.poll();
+        if(keys == null) {
+            _Missed.incrementAndGet();
+        }
+        else {
+            _Taken.incrementAndGet();
+        }
+        return keys;
+    }
+
+    public int getDepth()
+    {
+        return _Pool.size();
+    }
+
+    public int getCapacity()
+    {
+        return _Pool.size() + _Pool.remainingCapacity();
+    }
+
+    public long getGenerated()
+    {
+        return _Generated.get();
+    }
+
+    public long getTaken()
+    {
+        return _Taken.get();
+    }
+
+    public long getMissed()
+    {
+        return _Missed.get();
+    }
+
+    public long getFailed()
+    {
+        return _Failed.get();
+    }
+
+    /**
+     * @return 生成线程实际产出速率，对/秒
+     */
+    public double getGenerateRate()
+    {
+        long nano = _GenerateNano.get();
+        return nano == 0 ? 0 : _Generated.get() * 1_000_000_000D * _Generators.length / nano;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("KeyPairPool{depth=%d/%d, generated=%d, taken=%d, missed=%d, failed=%d, rate=%.1f/s}",
+                             getDepth(),
+                             getCapacity(),
+                             getGenerated(),
+                             getTaken(),
+                             getMissed(),
+                             getFailed(),
+                             getGenerateRate());
+    }
+}
@@ -36,8 +36,6 @@ import com.isahl.chess.queen.io.core.features.model.session.ssl.ISslOption;
 import com.isahl.chess.queen.io.core.model.BaseSort;
 import com.isahl.chess.queen.io.core.net.socket.features.IAioSort;
 
-import java.security.NoSuchAlgorithmException;
-
 public class SslZSort<T extends IPContext>
         extends BaseSort<SSLZContext<T>>
 {
@@ -62,13 +60,7 @@ public class SslZSort<T extends IPContext>
     @Override
     public SSLZContext<T> newContext(INetworkOption option)
     {
-        try {
-            return new SSLZContext<>((ISslOption) option, getMode(), getType(), _ActingSort.newContext(option));
-        }
-        catch(NoSuchAlgorithmException e) {
-            e.printStackTrace();
-        }
-        return null;
+        return new SSLZContext<>((ISslOption) option, getMode(), getType(), _ActingSort.newContext(option));
     }
 
     @Override
@@ -0,0 +1,242 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.bishop.io;
+
+import com.isahl.chess.bishop.sort.ZSortHolder;
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.queen.config.ISocketConfig;
+import com.isahl.chess.queen.io.core.features.model.channels.IConnectActivity;
+import com.isahl.chess.queen.io.core.features.model.channels.IWritable;
+import com.isahl.chess.queen.io.core.features.model.session.ISession;
+import com.isahl.chess.queen.io.core.net.socket.AioCreator;
+import com.isahl.chess.queen.io.core.net.socket.AioPacket;
+import com.isahl.chess.queen.io.core.net.socket.AioSession;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 拷贝发送与 gathering write 在部分写出时字节流保持完整
+ *
+ * @author william.d.zk
+ */
+class GatherWriteTest
+{
+    private final static int COUNT = 128;
+    private final static int SIZE  = 8 << 10;
+
+    @Test
+    void copy() throws Exception
+    {
+        roundTrip(false, 0);
+    }
+
+    @Test
+    void gather() throws Exception
+    {
+        // 堆外且不小于 GATHER_MIN 的 buffer 才参与 gathering
+        roundTrip(true, 16);
+    }
+
+    private void roundTrip(boolean direct, int gather) throws Exception
+    {
+        Random random = new Random(SIZE);
+        byte[] payload = new byte[SIZE];
+        ByteBuf[] buffers = new ByteBuf[COUNT];
+        CRC32 expected = new CRC32();
+        for(int i = 0; i < COUNT; i++) {
+            random.nextBytes(payload);
+            expected.update(payload);
+            buffers[i] = new ByteBuf(SIZE, direct).put(payload);
+        }
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        try(AsynchronousServerSocketChannel server = AsynchronousServerSocketChannel.open()
+                                                                                    .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                                                                                                                0));
+            AsynchronousSocketChannel client = AsynchronousSocketChannel.open())
+        {
+            // 收发缓冲远小于总量，且读端在全部 packet 入队后才开始读，write 必然部分完成
+            client.setOption(StandardSocketOptions.SO_SNDBUF, 64 << 10);
+            client.connect(server.getLocalAddress())
+                  .get();
+            AsynchronousSocketChannel peer = server.accept()
+                                                   .get();
+            peer.setOption(StandardSocketOptions.SO_RCVBUF, 64 << 10);
+            AioSession<?> session = new AioSession<>(client,
+                                                     creator(gather),
+                                                     ZSortHolder.QTT_SERVER.getSort(),
+                                                     activity(),
+                                                     null,
+                                                     false);
+            CompletionHandler<Integer, ISession> handler = new CompletionHandler<>()
+            {
+                @Override
+                public void completed(Integer wrote, ISession s)
+                {
+                    // 与 encoder 同一线程处理 wrote，与 pipeline 中的线程模型一致
+                    if(!writer.isShutdown()) {writer.execute(()->s.writeNext(wrote, this));}
+                }
+
+                @Override
+                public void failed(Throwable exc, ISession s)
+                {
+                    done.completeExceptionally(exc);
+                }
+            };
+            // 穿插没有待写字节的 packet，入队后同样要完成回调
+            List<AioPacket> accepted = new ArrayList<>();
+            writer.submit(()->{
+                for(int i = 0; i < COUNT; i++) {
+                    write(session, new AioPacket(buffers[i]), handler, accepted);
+                    if((i & 7) == 7) {write(session, new AioPacket(new ByteBuf(16, direct)), handler, accepted);}
+                }
+            })
+                  .get();
+            Thread reader = new Thread(()->{
+                CRC32 received = new CRC32();
+                ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+                try {
+                    for(long remain = (long) COUNT * SIZE; remain > 0 && !done.isDone(); ) {
+                        int read = peer.read(buffer)
+                                           .get(10, TimeUnit.SECONDS);
+                        if(read < 0) {throw new IllegalStateException("closed, remain " + remain);}
+                        remain -= read;
+                        received.update(buffer.flip());
+                        buffer.clear();
+                    }
+                    done.complete(received.getValue());
+                }
+                catch(Exception e) {
+                    done.completeExceptionally(e);
+                }
+            });
+            reader.start();
+            assertEquals(expected.getValue(), (long) done.get(30, TimeUnit.SECONDS));
+            // 最后一次 writeNext 可能晚于读端结束
+            for(long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                !accepted.stream()
+                         .allMatch(AioPacket::isSent) && System.nanoTime() < deadline; )
+            {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            assertTrue(accepted.stream()
+                               .allMatch(AioPacket::isSent));
+            peer.close();
+        }
+        finally {
+            writer.shutdownNow();
+        }
+    }
+
+    private static void write(AioSession<?> session,
+                              AioPacket packet,
+                              CompletionHandler<Integer, ISession> handler,
+                              List<AioPacket> accepted)
+    {
+        // IGNORE 时 packet 未入队，由调用方处理
+        if(session.write(packet, handler) != IWritable.WRITE_STATUS.IGNORE) {accepted.add(packet);}
+    }
+
+    private static AioCreator creator(int gather)
+    {
+        return new AioCreator(new ISocketConfig()
+        {
+            @Override
+            public int getSendQueueMax()
+            {
+                return Integer.MAX_VALUE;
+            }
+
+            @Override
+            public long getSendQueueMaxInByte()
+            {
+                return Long.MAX_VALUE;
+            }
+
+            @Override
+            public int getGatherWriteMax()
+            {
+                return gather;
+            }
+
+            @Override
+            public SSLContext getSslContext()
+            {
+                return null;
+            }
+
+            @Override
+            public int getSslPacketBufferSize()
+            {
+                return 0;
+            }
+
+            @Override
+            public int getSslAppBufferSize()
+            {
+                return 0;
+            }
+
+            @Override
+            public boolean isClientAuth()
+            {
+                return false;
+            }
+        })
+        {
+            @Override
+            public ISession create(AsynchronousSocketChannel channel, IConnectActivity activity)
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static IConnectActivity activity()
+    {
+        return (IConnectActivity) Proxy.newProxyInstance(IConnectActivity.class.getClassLoader(),
+                                                         new Class[]{ IConnectActivity.class },
+                                                         (proxy, method, args)->null);
+    }
+}
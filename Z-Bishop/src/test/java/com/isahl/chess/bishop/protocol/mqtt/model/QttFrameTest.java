@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.bishop.protocol.mqtt.model;
+
+import com.isahl.chess.bishop.protocol.mqtt.command.X113_QttPublish;
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QttFrameTest
+{
+    @Test
+    void publishSlice()
+    {
+        byte[] payload = "zero-copy".getBytes(StandardCharsets.UTF_8);
+        X113_QttPublish out = new X113_QttPublish();
+        out.withTopic("a/b/c");
+        out.setLevel(IQoS.Level.AT_LEAST_ONCE);
+        out.msgId(7);
+        out.withSub(payload);
+        ByteBuf encoded = out.encodeFrame();
+
+        ByteBuf received = new ByteBuf(encoded.readableBytes(), true).put(encoded);
+        QttFrame frame = new QttFrame();
+        frame.decode(received);
+        assertFalse(received.isReadable());
+        X113_QttPublish in = new X113_QttPublish();
+        in.header(frame.header());
+        in.decode(frame.subEncoded());
+        assertEquals("a/b/c", in.topic());
+        assertEquals(7, in.msgId());
+        assertEquals(out.length(), in.length());
+
+        // detach 之前 payload 仍引用接收缓冲
+        int last = received.writerIdx() - 1;
+        received.put('Y', last);
+        in.detach();
+        received.clear();
+        received.put(new byte[received.capacity()]);
+        assertEquals("zero-copY", new String(in.payload(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.bishop.protocol.mqtt.model;
+
+import com.isahl.chess.queen.io.core.features.model.routes.IThread;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QttTopicTrieTest
+{
+    @Test
+    void broker()
+    {
+        QttTopicTrie trie = new QttTopicTrie();
+        trie.subscribe("a/+/c", 1, IQoS.Level.ALMOST_ONCE);
+        trie.subscribe("a/#", 2, IQoS.Level.AT_LEAST_ONCE);
+        trie.subscribe("a/b/c", 2, IQoS.Level.EXACTLY_ONCE);
+        trie.subscribe("#", 3, IQoS.Level.ALMOST_ONCE);
+        trie.subscribe("$SYS/#", 4, IQoS.Level.ALMOST_ONCE);
+
+        List<IThread.Subscribe.Mapped> mapped = trie.broker("a/b/c");
+        assertEquals(3, mapped.size());
+        assertTrue(mapped.contains(new IThread.Subscribe.Mapped(2, IQoS.Level.EXACTLY_ONCE)));
+        assertEquals(2, trie.broker("a").size());
+        assertEquals(List.of(new IThread.Subscribe.Mapped(4, IQoS.Level.ALMOST_ONCE)), trie.broker("$SYS/load"));
+    }
+
+    @Test
+    void dismiss()
+    {
+        QttTopicTrie trie = new QttTopicTrie();
+        trie.subscribe("a/+", 1, IQoS.Level.ALMOST_ONCE);
+        trie.subscribe("a/b", 1, IQoS.Level.ALMOST_ONCE);
+        trie.subscribe("a/b", 2, IQoS.Level.ALMOST_ONCE);
+        assertEquals(2, trie.groupBy(1)
+                            .size());
+        trie.dismiss(1);
+        assertEquals(1, trie.size());
+        assertTrue(trie.groupBy(1)
+                       .isEmpty());
+        trie.unsubscribe("a/b", 2);
+        assertEquals(0, trie.size());
+        assertTrue(trie.broker("a/b")
+                       .isEmpty());
+    }
+
+    @Test
+    void validate()
+    {
+        assertThrows(IllegalArgumentException.class, ()->QttTopicTrie.validate("a/#/b"));
+        assertThrows(IllegalArgumentException.class, ()->QttTopicTrie.validate("a+/b"));
+        assertThrows(IllegalArgumentException.class, ()->QttTopicTrie.validate(""));
+        QttTopicTrie.validate("+/+/#");
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.bishop.protocol.zchat.model.command;
+
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.exception.ZException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class X1C_MultiExchangeTest
+{
+    /*
+     * attr(1) + cmd(1) + msg-id(8) + peer(8) + factory(4)
+     */
+    private final static int COUNT_OFFSET = 22;
+
+    @Test
+    void roundTrip()
+    {
+        byte[] data = encode().array();
+        assertEquals(3,
+                     ByteBuffer.wrap(data)
+                               .getInt(COUNT_OFFSET));
+        X1C_MultiExchange in = decode(data);
+        assertEquals(3, in.count());
+        assertEquals(0x12L, in.target(1));
+        assertEquals(1, in.targetLevel(1));
+        assertEquals(0x101L, in.targetMsgId(1));
+        assertEquals(0x99L, in.peer());
+    }
+
+    @Test
+    void countOutOfRange()
+    {
+        for(int count : new int[]{ -1, X1C_MultiExchange.MAX_TARGETS + 1, Integer.MAX_VALUE, 5 }) {
+            byte[] data = encode().array();
+            ByteBuffer.wrap(data)
+                      .putInt(COUNT_OFFSET, count);
+            assertThrows(ZException.class, ()->decode(data));
+        }
+    }
+
+    private static ByteBuf encode()
+    {
+        X1C_MultiExchange out = new X1C_MultiExchange(0x7L);
+        out.peer(0x99L);
+        out.factory(1);
+        out.add(0x11L, 0, 0)
+           .add(0x12L, 1, 0x101L)
+           .add(0x13L, 2, 0x102L);
+        return out.encode();
+    }
+
+    private static X1C_MultiExchange decode(byte[] data)
+    {
+        X1C_MultiExchange in = new X1C_MultiExchange();
+        in.decode(ByteBuf.wrap(data));
+        return in;
+    }
+}
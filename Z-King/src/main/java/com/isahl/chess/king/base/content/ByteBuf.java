@@ -107,6 +107,32 @@ public class ByteBuf
         return mBuffer.slice(mReaderIdx, readableBytes());
     }
 
+    /**
+     * @return [offset, offset + length) 的视图，与当前 ByteBuf 共享数据
+     */
+    public ByteBuffer toReadBuffer(int offset, int length)
+    {
+        return mBuffer.slice(offset, length);
+    }
+
+    /**
+     * 从 reader 处切出 length 字节的只读视图，reader 随之前移；
+     * 视图与当前 ByteBuf 共享数据，在其 discard/clear 之前有效，需要长期持有时以 peekAll() 拷贝
+     */
+    public ByteBuf slice(int length)
+    {
+        checkOffset(length);
+        ByteBuf slice = new ByteBuf(mBuffer.slice(mReaderIdx, length)
+                                           .asReadOnlyBuffer());
+        mReaderIdx += length;
+        return slice;
+    }
+
+    public boolean isReadOnly()
+    {
+        return mBuffer != null && mBuffer.isReadOnly();
+    }
+
     public ByteBuffer toWriteBuffer()
     {
         return mBuffer.slice(mWriterIdx, writableBytes());
@@ -140,7 +166,7 @@ public class ByteBuf
     public byte[] array()
     {
         if(mCapacity > 0) {
-            if(_Direct) {
+            if(!mBuffer.hasArray()) {
                 byte[] v = new byte[mCapacity];
                 mBuffer.get(0, v);
                 return v;
@@ -181,7 +207,7 @@ public class ByteBuf
     public ByteBuf copy()
     {
         ByteBuf newBuf = new ByteBuf(mCapacity, _Direct);
-        if(_Direct) {
+        if(!mBuffer.hasArray()) {
             byte[] v = new byte[mCapacity];
             mBuffer.get(0, v);
             newBuf.mBuffer.put(v)
@@ -196,6 +222,11 @@ public class ByteBuf
         return newBuf;
     }
 
+    public boolean isDirect()
+    {
+        return _Direct;
+    }
+
     public boolean isReadable()
     {
         return mReaderIdx < mWriterIdx;
@@ -247,6 +278,12 @@ public class ByteBuf
         return peekShort(offset) & 0xFFFF;
     }
 
+    public int peekInt(int offset)
+    {
+        checkOffset(offset + 4);
+        return mBuffer.getInt(mReaderIdx + offset);
+    }
+
     public byte get()
     {
         checkOffset(0);
@@ -341,14 +378,14 @@ public class ByteBuf
         if(len > 0) {
             checkOffset(len);
             String str;
-            if(_Direct) {
+            if(mBuffer.hasArray()) {
+                str = new String(mBuffer.array(), mBuffer.arrayOffset() + mReaderIdx, len, StandardCharsets.UTF_8);
+            }
+            else {
                 byte[] v = new byte[len];
                 mBuffer.get(mReaderIdx, v);
                 str = new String(v, StandardCharsets.UTF_8);
             }
-            else {
-                str = new String(mBuffer.array(), mReaderIdx, len, StandardCharsets.UTF_8);
-            }
             mReaderIdx += len;
             return str;
         }
@@ -387,7 +424,7 @@ public class ByteBuf
         return mWriterIdx + capacity <= this.mCapacity;
     }
 
-    private void checkCapacity(int capacity)
+    protected void checkCapacity(int capacity)
     {
         if(!isCapacityWritable(capacity)) {
             throw new ZException("write out of bounds");
@@ -603,7 +640,7 @@ public class ByteBuf
         int len;
         if(v == null || v == this || (len = v.readableBytes()) == 0) {return this;}
         checkCapacity(len);
-        mBuffer.put(mWriterIdx, v.array(), v.readerIdx(), len);
+        mBuffer.put(mWriterIdx, v.mBuffer, v.mReaderIdx, len);
         v.mReaderIdx += len;
         mWriterIdx += len;
         return this;
@@ -628,7 +665,7 @@ public class ByteBuf
         if(v == null || v == this) {return this;}
         int len = Math.min(v.readableBytes(), writableBytes());
         if(len > 0) {
-            mBuffer.put(mWriterIdx, v.array(), v.mReaderIdx, len);
+            mBuffer.put(mWriterIdx, v.mBuffer, v.mReaderIdx, len);
             v.mReaderIdx += len;
             mWriterIdx += len;
         }
@@ -650,6 +687,8 @@ public class ByteBuf
     public void expand(int size)
     {
         mBuffer = IoUtil.expandBuffer(mBuffer, size);
+        // 读写均为绝对位置，limit 需要随容量放开
+        mBuffer.limit(mBuffer.capacity());
         mCapacity += size;
     }
 
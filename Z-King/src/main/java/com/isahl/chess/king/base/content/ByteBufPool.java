@@ -0,0 +1,210 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.isahl.chess.king.base.content;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 堆外缓冲池，按 2 的幂划分 size class [512B, 1MB]，超出上限的请求直接分配且不回收。
+ * 每个线程持有一层本地缓存，溢出时归还全局队列，全局队列满时交给 GC 回收。
+ * 泄漏检测：持有者被 GC 时仍未归还的缓冲计为 leak。
+ *
+ * @author william.d.zk
+ */
+public class ByteBufPool
+{
+    public final static int MIN_SHIFT = 9;
+    public final static int MAX_SHIFT = 20;
+
+    private final static int         CLASS_COUNT = MAX_SHIFT - MIN_SHIFT + 1;
+    private final static Cleaner     _Cleaner    = Cleaner.create();
+    private final static ByteBufPool _Global     = new ByteBufPool(1 << 20, 64 << 20);
+
+    private final ConcurrentLinkedQueue<ByteBuffer>[] _Shared;
+    private final AtomicInteger[]                     _SharedCount;
+    private final int[]                               _SharedMax;
+    private final int[]                               _LocalMax;
+    private final ThreadLocal<ArrayDeque<ByteBuffer>[]> _Local;
+
+    private final LongAdder _Allocated = new LongAdder();
+    private final LongAdder _Leased    = new LongAdder();
+    private final LongAdder _Released  = new LongAdder();
+    private final LongAdder _Dropped   = new LongAdder();
+    private final LongAdder _Leaked    = new LongAdder();
+    private final LongAdder _IdleBytes = new LongAdder();
+    private final LongAdder _UsedBytes = new LongAdder();
+
+    public static ByteBufPool global()
+    {
+        return _Global;
+    }
+
+    /**
+     * @param localBytes  每线程每个 size class 缓存的字节上限
+     * @param sharedBytes 全局队列每个 size class 缓存的字节上限
+     */
+    @SuppressWarnings("unchecked")
+    public ByteBufPool(int localBytes, long sharedBytes)
+    {
+        _Shared = new ConcurrentLinkedQueue[CLASS_COUNT];
+        _SharedCount = new AtomicInteger[CLASS_COUNT];
+        _SharedMax = new int[CLASS_COUNT];
+        _LocalMax = new int[CLASS_COUNT];
+        for(int i = 0; i < CLASS_COUNT; i++) {
+            _Shared[i] = new ConcurrentLinkedQueue<>();
+            _SharedCount[i] = new AtomicInteger();
+            _SharedMax[i] = (int) Math.max(1, sharedBytes >>> (MIN_SHIFT + i));
+            _LocalMax[i] = Math.max(1, localBytes >>> (MIN_SHIFT + i));
+        }
+        _Local = ThreadLocal.withInitial(()->{
+            ArrayDeque<ByteBuffer>[] local = new ArrayDeque[CLASS_COUNT];
+            for(int i = 0; i < CLASS_COUNT; i++) {
+                local[i] = new ArrayDeque<>();
+            }
+            return local;
+        });
+    }
+
+    /**
+     * @return size 所属的 size class，超出上限时返回 -1
+     */
+    static int classOf(int size)
+    {
+        if(size <= 1 << MIN_SHIFT) {return 0;}
+        int shift = Integer.SIZE - Integer.numberOfLeadingZeros(size - 1);
+        return shift > MAX_SHIFT ? -1 : shift - MIN_SHIFT;
+    }
+
+    public static int sizeOf(int size)
+    {
+        int c = classOf(size);
+        return c < 0 ? size : 1 << (c + MIN_SHIFT);
+    }
+
+    /**
+     * @return capacity ≥ size 的已 clear 的堆外缓冲
+     */
+    public ByteBuffer lease(int size)
+    {
+        int c = classOf(size);
+        ByteBuffer buffer = null;
+        if(c >= 0) {
+            buffer = _Local.get()[c].pollFirst();
+            if(buffer == null && (buffer = _Shared[c].poll()) != null) {
+                _SharedCount[c].decrementAndGet();
+            }
+        }
+        if(buffer == null) {
+            buffer = ByteBuffer.allocateDirect(c < 0 ? size : 1 << (c + MIN_SHIFT));
+            _Allocated.add(buffer.capacity());
+        }
+        else {
+            _IdleBytes.add(-buffer.capacity());
+        }
+        _Leased.increment();
+        _UsedBytes.add(buffer.capacity());
+        return buffer.clear();
+    }
+
+    public void release(ByteBuffer buffer)
+    {
+        _Released.increment();
+        _UsedBytes.add(-buffer.capacity());
+        int c = classOf(buffer.capacity());
+        if(c < 0 || buffer.capacity() != 1 << (c + MIN_SHIFT)) {
+            _Allocated.add(-buffer.capacity());
+            return;
+        }
+        ArrayDeque<ByteBuffer> local = _Local.get()[c];
+        if(local.size() < _LocalMax[c]) {
+            local.offerFirst(buffer);
+        }
+        else if(_SharedCount[c].incrementAndGet() <= _SharedMax[c]) {
+            _Shared[c].offer(buffer);
+        }
+        else {
+            _SharedCount[c].decrementAndGet();
+            _Allocated.add(-buffer.capacity());
+            return;
+        }
+        _IdleBytes.add(buffer.capacity());
+    }
+
+    /**
+     * 持有者无法确认缓冲是否仍被系统 IO 引用时放弃归还，交给 GC 回收
+     */
+    public void drop(ByteBuffer buffer)
+    {
+        _Dropped.increment();
+        _UsedBytes.add(-buffer.capacity());
+        _Allocated.add(-buffer.capacity());
+    }
+
+    void leak(ByteBuffer buffer)
+    {
+        _Leaked.increment();
+        _UsedBytes.add(-buffer.capacity());
+        _Allocated.add(-buffer.capacity());
+    }
+
+    Cleaner.Cleanable watch(Object holder, Runnable action)
+    {
+        return _Cleaner.register(holder, action);
+    }
+
+    public Metrics metrics()
+    {
+        return new Metrics(_Allocated.sum(),
+                           _UsedBytes.sum(),
+                           _IdleBytes.sum(),
+                           _Leased.sum(),
+                           _Released.sum(),
+                           _Dropped.sum(),
+                           _Leaked.sum());
+    }
+
+    /**
+     * @param allocated 池管理的堆外字节总量
+     * @param used      已租出的字节
+     * @param idle      缓存中的字节
+     * @param leaked    未归还即被 GC 的缓冲数量
+     */
+    public record Metrics(long allocated,
+                          long used,
+                          long idle,
+                          long leased,
+                          long released,
+                          long dropped,
+                          long leaked)
+    {
+        public long outstanding()
+        {
+            return leased - released - dropped - leaked;
+        }
+    }
+}
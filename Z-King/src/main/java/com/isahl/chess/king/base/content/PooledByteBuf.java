@@ -0,0 +1,211 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.isahl.chess.king.base.content;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+
+/**
+ * 从 {@link ByteBufPool} 按需租用堆外空间的 ByteBuf，空闲时归还，capacity 为 0。
+ * 写入时自动租用或扩容至 limit；作为读缓冲时按上次读取的填充程度调整下次租用的大小。
+ * 非线程安全，由持有的 session 保证串行访问。
+ *
+ * @author william.d.zk
+ */
+public class PooledByteBuf
+        extends ByteBuf
+{
+    private final ByteBufPool       _Pool;
+    private final int               _Min;
+    private final int               _Limit;
+    private final Lease             _Lease;
+    private final Cleaner.Cleanable _Cleanable;
+
+    private int     mGuess;
+    private boolean mDropped;
+
+    /**
+     * @param min   首次租用及收缩的下限
+     * @param limit 扩容上限，超出后与普通 ByteBuf 一样抛出越界
+     */
+    public PooledByteBuf(ByteBufPool pool, int min, int limit)
+    {
+        super(0, true);
+        _Pool = pool;
+        _Limit = Math.max(limit, 1);
+        _Min = Math.min(ByteBufPool.sizeOf(Math.max(min, 1)), _Limit);
+        mGuess = _Min;
+        _Lease = new Lease(pool);
+        _Cleanable = pool.watch(this, _Lease);
+    }
+
+    private static class Lease
+            implements Runnable
+    {
+        private final ByteBufPool _Pool;
+        private       ByteBuffer  mBuffer;
+
+        private Lease(ByteBufPool pool)
+        {
+            _Pool = pool;
+        }
+
+        @Override
+        public void run()
+        {
+            if(mBuffer != null) {_Pool.leak(mBuffer);}
+        }
+    }
+
+    public boolean isLeased()
+    {
+        return mBuffer != null;
+    }
+
+    private void lease(int size)
+    {
+        mBuffer = _Lease.mBuffer = mDropped ? ByteBuffer.allocateDirect(size) : _Pool.lease(size);
+        mCapacity = mBuffer.capacity();
+        mReaderIdx = mWriterIdx = 0;
+    }
+
+    /**
+     * 换用更大的缓冲，reader/writer 位置不变
+     */
+    private void grow(int size)
+    {
+        int readerIdx = mReaderIdx, writerIdx = mWriterIdx;
+        ByteBuffer old = mBuffer;
+        lease(size);
+        mBuffer.put(0, old, 0, writerIdx);
+        mReaderIdx = readerIdx;
+        mWriterIdx = writerIdx;
+        if(!mDropped) {_Pool.release(old);}
+    }
+
+    /**
+     * 无可读数据时归还缓冲，下次读写时重新租用
+     *
+     * @return 是否已归还
+     */
+    public boolean release()
+    {
+        if(mBuffer == null) {return true;}
+        if(isReadable() || mDropped) {return false;}
+        _Pool.release(mBuffer);
+        mBuffer = _Lease.mBuffer = null;
+        mCapacity = mReaderIdx = mWriterIdx = 0;
+        return true;
+    }
+
+    /**
+     * 关闭时系统 IO 或解码线程可能仍引用缓冲，不归还池，保留引用交由 GC 回收
+     */
+    public void drop()
+    {
+        if(mDropped) {return;}
+        mDropped = true;
+        if(mBuffer != null) {_Pool.drop(mBuffer);}
+        _Lease.mBuffer = null;
+        _Cleanable.clean();
+    }
+
+    @Override
+    protected void checkCapacity(int capacity)
+    {
+        if(!isCapacityWritable(capacity) && capacity <= _Limit) {
+            if(mBuffer == null) {lease(Math.max(capacity, mGuess));}
+            else if(mWriterIdx + capacity <= _Limit) {grow(Math.min(Math.max(mWriterIdx + capacity, mCapacity << 1), _Limit));}
+        }
+        super.checkCapacity(capacity);
+    }
+
+    @Override
+    public ByteBuf putExactly(ByteBuf v)
+    {
+        if(v != null && v != this && v.isReadable() && writableBytes() < v.readableBytes()) {
+            if(mBuffer == null) {lease(Math.min(Math.max(v.readableBytes(), mGuess), _Limit));}
+            else {
+                // 已达上限时也要回收已写出的空间，否则写满后再也放不进数据
+                discard();
+                if(writableBytes() < v.readableBytes() && mCapacity < _Limit) {
+                    grow(Math.min(mWriterIdx + v.readableBytes(), _Limit));
+                }
+            }
+        }
+        return super.putExactly(v);
+    }
+
+    /**
+     * 作为读缓冲时使用：无待处理数据时按预期大小换租，有残留数据且写满时按 2 倍扩容
+     */
+    @Override
+    public ByteBuffer toWriteBuffer()
+    {
+        if(mBuffer != null && !isReadable() && mCapacity != mGuess) {release();}
+        if(mBuffer == null) {lease(mGuess);}
+        else if(writableBytes() == 0 && mCapacity < _Limit) {grow(Math.min(mCapacity << 1, _Limit));}
+        return super.toWriteBuffer();
+    }
+
+    @Override
+    public ByteBuffer toReadBuffer()
+    {
+        return mBuffer == null ? ByteBuffer.allocate(0) : super.toReadBuffer();
+    }
+
+    /**
+     * 读完成时调用，填满则下次扩大，不足 1/4 则下次收缩
+     */
+    @Override
+    public ByteBuf seek(int length)
+    {
+        super.seek(length);
+        if(writableBytes() == 0) {
+            mGuess = Math.min(_Limit, mCapacity << 1);
+        }
+        else if(length < mCapacity >> 2) {
+            mGuess = Math.max(_Min, mGuess >> 1);
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf clear()
+    {
+        return mBuffer == null ? this : super.clear();
+    }
+
+    @Override
+    public ByteBuf copy()
+    {
+        return mBuffer == null ? new ByteBuf() : super.copy();
+    }
+
+    @Override
+    public void expand(int size)
+    {
+        if(mBuffer == null) {lease(size);}
+        else {grow(mCapacity + size);}
+    }
+}
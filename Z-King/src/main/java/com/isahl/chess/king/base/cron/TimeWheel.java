@@ -27,133 +27,146 @@ import com.isahl.chess.king.base.cron.features.ICancelable;
 import com.isahl.chess.king.base.features.IValid;
 import com.isahl.chess.king.base.log.Logger;
 
-import java.util.*;
+import java.util.Queue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Supplier;
 
-import static java.lang.Thread.sleep;
-
 /**
+ * 分层时间轮
+ * 第 n 层每个 slot 的跨度为 tick * 2^(bitLeft * n)，任务按到期时间放入能容纳它的最低层，
+ * 高层 slot 到期时逐层下放，最终在第 0 层按 tick 精度触发。
+ * <p>
+ * acquire 只向无锁队列投递，cancel 只做标记并投递到取消队列；
+ * slot 为侵入式双向链表，仅由 timer 线程维护，插入与删除均为 O(1)。
+ *
  * @author William.d.zk
  */
 public class TimeWheel
         extends ForkJoinPool
 {
-    private final    Logger        _Logger = Logger.getLogger("base.king." + getClass().getSimpleName());
-    private final    int           _SlotBitLeft;// must <= 10
-    private final    int           _HashMod;
-    private final    long          _Tick;
-    private final    TickSlot<?>[] _ModHashEntryArray;
-    private final    ReentrantLock _Lock;
-    private volatile int           vCtxSlot, vCtxLoop;
+    private final Logger                  _Logger    = Logger.getLogger("base.king." + getClass().getSimpleName());
+    private final int                     _SlotBitLeft;// must <= 10
+    private final int                     _HashMod;
+    private final long                    _Tick;
+    private final long                    _Start;
+    private final Wheel[]                 _Wheels;
+    private final Queue<HandleTask<?>>    _Acquired  = new ConcurrentLinkedQueue<>();
+    private final Queue<HandleTask<?>>    _Cancelled = new ConcurrentLinkedQueue<>();
+    private final Thread                  _Timer;
+    /*
+     * timer 线程已经处理到的 tick，仅由 timer 线程修改
+     */
+    private       long                    mTicks;
 
     public TimeWheel()
     {
-        this(1, TimeUnit.SECONDS, 3);
+        this(100, TimeUnit.MILLISECONDS, 3);
     }
 
     public TimeWheel(long tick, TimeUnit timeUnit, int bitLeft)
     {
         super(bitLeft, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
-        _Lock = new ReentrantLock();
-        _Tick = timeUnit.toMillis(tick);
+        _Tick = timeUnit.toNanos(tick);
+        if(_Tick <= 0) {throw new IllegalArgumentException("tick must > 0");}
         _SlotBitLeft = bitLeft;
-        _ModHashEntryArray = new TickSlot[1 << _SlotBitLeft];
-        Arrays.setAll(_ModHashEntryArray, TickSlot::new);
-        _HashMod = _ModHashEntryArray.length - 1;
-        // 5~20
-        // ignore 没有地方执行interrupt操作
-        // 此处-sleep 计算当期这次过程的偏差值
-        final Thread _Timer = new Thread(()->{
-            int correction = 13;// 5~20
-            for(long align = 0, t, sleep, expect; !isShutdown(); ) {
-                t = System.currentTimeMillis();
-                sleep = _Tick - align;
-                expect = t + sleep;
-                if(sleep > correction) {
-                    try {
-                        sleep(sleep - correction);
-                    }
-                    catch(InterruptedException e) {
-                        // ignore 没有地方执行interrupt操作
-                    }
+        _HashMod = (1 << _SlotBitLeft) - 1;
+        // 覆盖 long 范围内全部 tick 所需的层数，各层按需创建
+        _Wheels = new Wheel[(Long.SIZE - 1 + _SlotBitLeft - 1) / _SlotBitLeft];
+        _Start = System.nanoTime();
+        vCurrentMillisecond = System.currentTimeMillis();
+        _Timer = new Thread(()->{
+            for(long deadline; !isShutdown(); ) {
+                deadline = _Start + (mTicks + 1) * _Tick;
+                for(long wait; (wait = deadline - System.nanoTime()) > 0 && !isShutdown(); ) {
+                    LockSupport.parkNanos(this, wait);
                 }
                 vCurrentMillisecond = System.currentTimeMillis();
-                _Lock.lock();
-                try {
-                    List<HandleTask<?>> readyList = filterReady();
-                    if(!readyList.isEmpty()) {
-                        for(HandleTask<?> ready : readyList) {
-                            submit(ready);
-                        }
-                    }
-                    vCtxSlot++;
-                    if((vCtxSlot &= _HashMod) == 0) {
-                        vCtxLoop++;
-                    }
-                }
-                finally {
-                    _Lock.unlock();
+                // 落后时连续追赶，不丢失 tick
+                for(long now = System.nanoTime(); _Start + (mTicks + 1) * _Tick <= now; ) {
+                    transfer();
+                    advance();
                 }
-                // 此处-sleep 计算当期这次过程的偏差值
-                align = System.currentTimeMillis() - expect;
             }
         });
         _Timer.setName(String.format("TimerWheel-%d", _Timer.getId()));
+        _Timer.setDaemon(true);
         _Timer.start();
         _Logger.info("timer wheel start %s", _Timer.getName());
     }
 
-    private int getCurrentLoop()
+    private <A extends IValid> ICancelable acquire(IWheelItem<A> item)
     {
-        return vCtxLoop;
+        return acquire(new HandleTask<>(this, item));
     }
 
-    private int getCurrentSlot()
+    private <A extends IValid> ICancelable acquire(HandleTask<A> task)
     {
-        return vCtxSlot;
+        task.mDeadline = (System.nanoTime() - _Start + task._Item.getTick() * 1_000_000L + _Tick - 1) / _Tick;
+        task._Item.setup();
+        _Acquired.offer(task);
+        return task;
     }
 
-    private <A extends IValid> ICancelable acquire(IWheelItem<A> item)
+    /**
+     * 处理其他线程投递的新增与取消，只在 timer 线程执行
+     */
+    private void transfer()
     {
-        return acquire(new HandleTask<>(item));
+        for(HandleTask<?> task; (task = _Cancelled.poll()) != null; ) {
+            task.unlink();
+        }
+        for(HandleTask<?> task; (task = _Acquired.poll()) != null; ) {
+            if(task.isValid()) {place(task);}
+        }
     }
 
-    @SuppressWarnings("unchecked")
-    private <A extends IValid> ICancelable acquire(HandleTask<A> task)
+    private void place(HandleTask<?> task)
     {
-        IWheelItem<A> item = task._Item;
-        _Lock.lock();
-        try {
-            int slot = task.acquire(getCurrentLoop(), getCurrentSlot());
-            TickSlot<A> tickSlot = (TickSlot<A>) _ModHashEntryArray[slot & _HashMod];
-            int index = Collections.binarySearch(tickSlot, task);
-            tickSlot.add(index < 0 ? -index - 1 : index, task);
-            item.setup();
+        long delta = task.mDeadline - mTicks;
+        if(delta <= 0) {
+            submit(task);
+            return;
         }
-        finally {
-            _Lock.unlock();
+        int level = 0;
+        while(level + 1 < _Wheels.length && (delta >>> (_SlotBitLeft * (level + 1))) != 0) {
+            level++;
+        }
+        Wheel wheel = _Wheels[level];
+        if(wheel == null) {
+            wheel = _Wheels[level] = new Wheel(_SlotBitLeft * level);
+        }
+        wheel.slot(task.mDeadline)
+             .add(task);
+        if(task.isInvalid()) {
+            // acquire 与 cancel 竞争时，cancel 可能早于 place 被处理
+            task.unlink();
         }
-        return task;
     }
 
-    private List<HandleTask<?>> filterReady()
+    private void advance()
     {
-        List<HandleTask<?>> readyList = new LinkedList<>();
-        for(Iterator<? extends HandleTask<?>> it = _ModHashEntryArray[getCurrentSlot() &
-                                                                      _HashMod].iterator(); it.hasNext(); ) {
-            HandleTask<?> handleTask = it.next();
-            if(handleTask.getLoop() == getCurrentLoop()) {
-                if(handleTask.isValid()) {
-                    readyList.add(handleTask);
+        long ticks = ++mTicks;
+        // 自高层向低层下放到期的 slot，保证同一 tick 内的下放结果能被低层继续处理
+        for(int level = _Wheels.length - 1; level > 0; level--) {
+            Wheel wheel = _Wheels[level];
+            if(wheel != null && (ticks & ((1L << wheel._Shift) - 1)) == 0) {
+                for(HandleTask<?> task; (task = wheel.slot(ticks)
+                                                     .poll()) != null; ) {
+                    place(task);
                 }
-                it.remove();
             }
         }
-        return readyList;
+        Wheel wheel = _Wheels[0];
+        if(wheel != null) {
+            for(HandleTask<?> task; (task = wheel.slot(ticks)
+                                                 .poll()) != null; ) {
+                if(task.isValid()) {submit(task);}
+            }
+        }
     }
 
     public interface IWheelItem<V extends IValid>
@@ -203,59 +216,91 @@ public class TimeWheel
         void onCall();
     }
 
-    private class TickSlot<V extends IValid>
-            extends ArrayList<HandleTask<V>>
+    private class Wheel
+    {
+        private final int        _Shift;
+        private final TickSlot[] _Slots;
+
+        private Wheel(int shift)
+        {
+            _Shift = shift;
+            _Slots = new TickSlot[_HashMod + 1];
+            for(int i = 0; i < _Slots.length; i++) {
+                _Slots[i] = new TickSlot();
+            }
+        }
+
+        private TickSlot slot(long ticks)
+        {
+            return _Slots[(int) (ticks >>> _Shift) & _HashMod];
+        }
+    }
+
+    /**
+     * 带哨兵的双向链表
+     */
+    private static class TickSlot
     {
-        private final int _Slot;
+        private final HandleTask<?> _Head = new HandleTask<>();
+
+        private TickSlot()
+        {
+            _Head.mPrev = _Head.mNext = _Head;
+        }
 
-        private TickSlot(int slot)
+        private void add(HandleTask<?> task)
         {
-            super(3);
-            _Slot = slot;
+            task.mPrev = _Head.mPrev;
+            task.mNext = _Head;
+            _Head.mPrev.mNext = task;
+            _Head.mPrev = task;
         }
 
-        public int getSlot() {
-            return _Slot;
+        private HandleTask<?> poll()
+        {
+            HandleTask<?> task = _Head.mNext;
+            if(task == _Head) {return null;}
+            task.unlink();
+            return task;
         }
     }
 
-    private class HandleTask<V extends IValid>
+    private static class HandleTask<V extends IValid>
             implements Callable<IWheelItem<V>>,
                        Comparable<HandleTask<V>>,
                        ICancelable
     {
+        private final static Logger _Logger = Logger.getLogger("base.king." + TimeWheel.class.getSimpleName());
+
         private final IWheelItem<V> _Item;
-        private final int           _Slot;
-        private final int           _Loop;
+        private final TimeWheel     _Wheel;
 
-        private          int     loop;
-        private volatile boolean vCancel;
+        private          long          mDeadline;
+        private          HandleTask<?> mPrev, mNext;
+        private volatile boolean       vCancel;
 
-        HandleTask(IWheelItem<V> wheelItem)
+        HandleTask(TimeWheel wheel, IWheelItem<V> wheelItem)
         {
+            _Wheel = wheel;
             _Item = wheelItem;
-            int tok = (int) (_Item.getTick() / _Tick) - 1;
-            _Loop = tok >>> _SlotBitLeft;
-            _Slot = tok & _HashMod;
         }
 
-        int getLoop()
+        /**
+         * 哨兵节点
+         */
+        private HandleTask()
         {
-            return loop;
+            _Wheel = null;
+            _Item = null;
         }
 
-        int acquire(int currentLoop, int currentSlot)
+        private void unlink()
         {
-            int slot;
-            if(currentSlot + _Slot > _HashMod) {
-                loop = _Loop + currentLoop + 1;
-                slot = _Slot + currentSlot - _HashMod - 1;
-            }
-            else {
-                loop = currentLoop + _Loop;
-                slot = currentSlot + _Slot;
+            if(mPrev != null) {
+                mPrev.mNext = mNext;
+                mNext.mPrev = mPrev;
+                mPrev = mNext = null;
             }
-            return slot;
         }
 
         @Override
@@ -269,7 +314,7 @@ public class TimeWheel
                 if(isValid() && (attach == null || attach.isValid())) {
                     _Item.onCall();
                     if(_Item.isCycle()) {
-                        TimeWheel.this.acquire(HandleTask.this);
+                        _Wheel.acquire(HandleTask.this);
                     }
                 }
                 else {
@@ -305,7 +350,11 @@ public class TimeWheel
         {
             _Item.lock();
             try {
-                vCancel = true;
+                if(!vCancel) {
+                    vCancel = true;
+                    // 由 timer 线程从 slot 中摘除
+                    _Wheel._Cancelled.offer(this);
+                }
             }
             finally {
                 _Item.unlock();
@@ -334,16 +383,11 @@ public class TimeWheel
     @Override
     public void shutdown()
     {
-        for(TickSlot<?> tickSlot : _ModHashEntryArray) {
-            for(Iterator<? extends HandleTask<?>> it = tickSlot.iterator(); it.hasNext(); ) {
-                HandleTask<?> handleTask = it.next();
-                if(handleTask.getLoop() == getCurrentLoop()) {
-                    handleTask.cancel();
-                    it.remove();
-                }
-            }
-        }
         super.shutdown();
+        LockSupport.unpark(_Timer);
+        for(HandleTask<?> task; (task = _Acquired.poll()) != null; ) {
+            task.vCancel = true;
+        }
     }
 
 }
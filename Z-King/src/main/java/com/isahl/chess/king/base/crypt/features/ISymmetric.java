@@ -38,4 +38,16 @@ public interface ISymmetric
 
     void digest(byte[] dst, byte[] key);
 
+    /**
+     * 加密 src 的全部可读内容；
+     * 流式密码原地处理并返回 src，记录式密码返回新的记录缓冲
+     */
+    ByteBuf seal(ByteBuf src, byte[] key);
+
+    /**
+     * 将 src 中可解密的内容写入 dst，
+     * 记录式密码不足一条完整记录的尾部保留在 src 中等待后续数据
+     */
+    void open(ByteBuf src, ByteBuf dst, byte[] key);
+
 }
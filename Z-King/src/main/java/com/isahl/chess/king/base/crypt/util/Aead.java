@@ -0,0 +1,176 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.crypt.util;
+
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.crypt.features.ISymmetric;
+import com.isahl.chess.king.base.exception.ZException;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+
+/**
+ * AEAD 记录层，单向使用。
+ * 记录格式: length(4) | cipher-text | tag(16)，length 为密文与 tag 的总长并作为 AAD；
+ * nonce = 方向标识(4) | 记录序号(8)，序号随每条记录递增，reset() 时归零
+ *
+ * @author william.d.zk
+ */
+public class Aead
+        implements ISymmetric
+{
+    public final static int HEADER_LENGTH = 4;
+    public final static int TAG_LENGTH    = 16;
+    public final static int RECORD_MAX    = 1 << 24;
+
+    private final static SecureRandom _Random = new SecureRandom();
+
+    private final CipherSuite   _Suite;
+    private final int           _Direction;
+    private final byte[]        _Nonce  = new byte[12];
+    private final byte[]        _Header = new byte[HEADER_LENGTH];
+    private       Cipher        mCipher;
+    private       SecretKeySpec mKey;
+    private       long          mSequence;
+
+    public Aead(CipherSuite suite, int direction)
+    {
+        _Suite = suite;
+        _Direction = direction;
+    }
+
+    public CipherSuite getSuite()
+    {
+        return _Suite;
+    }
+
+    @Override
+    public byte[] createKey(String seed)
+    {
+        byte[] key = new byte[32];
+        _Random.nextBytes(key);
+        return key;
+    }
+
+    private void init(byte[] key) throws GeneralSecurityException
+    {
+        if(mKey != null) {return;}
+        // 握手交换的对称密钥长度不固定，统一摘要为 256 位
+        mKey = new SecretKeySpec(MessageDigest.getInstance("SHA-256")
+                                              .digest(key), _Suite.getKeyAlgorithm());
+        if(mCipher == null) {mCipher = Cipher.getInstance(_Suite.getTransformation());}
+        mSequence = 0;
+    }
+
+    private AlgorithmParameterSpec nextNonce()
+    {
+        long sequence = mSequence++;
+        _Nonce[0] = (byte) (_Direction >>> 24);
+        _Nonce[1] = (byte) (_Direction >>> 16);
+        _Nonce[2] = (byte) (_Direction >>> 8);
+        _Nonce[3] = (byte) _Direction;
+        for(int i = 0; i < 8; i++) {
+            _Nonce[4 + i] = (byte) (sequence >>> (56 - (i << 3)));
+        }
+        return _Suite == CipherSuite.AES_GCM ? new GCMParameterSpec(TAG_LENGTH << 3, _Nonce)
+                                             : new IvParameterSpec(_Nonce);
+    }
+
+    @Override
+    public ByteBuf seal(ByteBuf src, byte[] key)
+    {
+        if(key == null) {return src;}
+        int length = src.readableBytes() + TAG_LENGTH;
+        ByteBuf record = ByteBuf.allocate(HEADER_LENGTH + length);
+        record.putInt(length);
+        try {
+            init(key);
+            mCipher.init(Cipher.ENCRYPT_MODE, mKey, nextNonce());
+            mCipher.updateAAD(record.array(), 0, HEADER_LENGTH);
+            int produced = mCipher.doFinal(src.toReadBuffer(), record.toWriteBuffer());
+            src.skip(src.readableBytes());
+            return record.seek(produced);
+        }
+        catch(GeneralSecurityException e) {
+            throw new ZException(e, String.format("aead seal failed: %s", _Suite));
+        }
+    }
+
+    @Override
+    public void open(ByteBuf src, ByteBuf dst, byte[] key)
+    {
+        if(key == null) {return;}
+        try {
+            init(key);
+            while(src.readableBytes() >= HEADER_LENGTH) {
+                int length = src.peekInt(0);
+                if(length < TAG_LENGTH || length > RECORD_MAX) {
+                    throw new ZException("aead record length error: %d", length);
+                }
+                if(src.readableBytes() < HEADER_LENGTH + length) {break;}
+                int plain = length - TAG_LENGTH;
+                if(dst.writableBytes() < plain) {
+                    dst.discard();
+                    if(dst.writableBytes() < plain) {dst.expand(plain - dst.writableBytes());}
+                }
+                src.get(_Header);
+                mCipher.init(Cipher.DECRYPT_MODE, mKey, nextNonce());
+                mCipher.updateAAD(_Header);
+                ByteBuffer input = src.toReadBuffer()
+                                      .limit(length);
+                dst.seek(mCipher.doFinal(input, dst.toWriteBuffer()));
+                src.skip(length);
+            }
+        }
+        catch(GeneralSecurityException e) {
+            throw new ZException(e, String.format("aead open failed: %s", _Suite));
+        }
+    }
+
+    @Override
+    public void digest(ByteBuf dst, byte[] key)
+    {
+        throw new UnsupportedOperationException("aead is not a stream cipher");
+    }
+
+    @Override
+    public void digest(byte[] dst, byte[] key)
+    {
+        throw new UnsupportedOperationException("aead is not a stream cipher");
+    }
+
+    @Override
+    public void reset()
+    {
+        mKey = null;
+        mSequence = 0;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.crypt.util;
+
+import com.isahl.chess.king.base.crypt.features.ISymmetric;
+
+import javax.crypto.Cipher;
+
+/**
+ * ZLS 对称加密套件，以位掩码在握手中协商；
+ * RC4 作为旧版本对端的兼容选项始终可用
+ *
+ * @author william.d.zk
+ */
+public enum CipherSuite
+{
+    RC4(0x01, null, null),
+    AES_GCM(0x02, "AES/GCM/NoPadding", "AES"),
+    CHACHA20_POLY1305(0x04, "ChaCha20-Poly1305", "ChaCha20");
+
+    private final int    _Mask;
+    private final String _Transformation;
+    private final String _KeyAlgorithm;
+
+    CipherSuite(int mask, String transformation, String keyAlgorithm)
+    {
+        _Mask = mask;
+        _Transformation = transformation;
+        _KeyAlgorithm = keyAlgorithm;
+    }
+
+    public int getMask()
+    {
+        return _Mask;
+    }
+
+    public String getTransformation()
+    {
+        return _Transformation;
+    }
+
+    public String getKeyAlgorithm()
+    {
+        return _KeyAlgorithm;
+    }
+
+    public boolean isAead()
+    {
+        return _Transformation != null;
+    }
+
+    private final static int _Supported = supported();
+
+    private static int supported()
+    {
+        int mask = 0;
+        for(CipherSuite suite : values()) {
+            if(suite.isAead()) {
+                try {
+                    Cipher.getInstance(suite._Transformation);
+                }
+                catch(Exception e) {
+                    continue;
+                }
+            }
+            mask |= suite._Mask;
+        }
+        return mask;
+    }
+
+    /**
+     * @return 本端 JCE 可用套件的掩码
+     */
+    public static int getSupported()
+    {
+        return _Supported;
+    }
+
+    /**
+     * 按本端优先级从对端提供的掩码中选择；
+     * AES-GCM 可使用 AES-NI 优先，其次 ChaCha20-Poly1305，最后回退 RC4
+     */
+    public static CipherSuite select(int offered)
+    {
+        int common = offered & _Supported;
+        if((common & AES_GCM._Mask) != 0) {return AES_GCM;}
+        if((common & CHACHA20_POLY1305._Mask) != 0) {return CHACHA20_POLY1305;}
+        return RC4;
+    }
+
+    public static CipherSuite valueOf(int mask)
+    {
+        for(CipherSuite suite : values()) {
+            if(suite._Mask == mask) {return suite;}
+        }
+        return RC4;
+    }
+
+    /**
+     * @param outbound 加密方向；AEAD 以方向区分 nonce，两个方向共用同一密钥时不会重复
+     * @param initiator 是否为握手发起方
+     */
+    public ISymmetric create(boolean outbound, boolean initiator)
+    {
+        return isAead() ? new Aead(this, outbound == initiator ? 1 : 2) : new Rc4();
+    }
+}
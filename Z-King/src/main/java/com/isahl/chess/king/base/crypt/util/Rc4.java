@@ -27,6 +27,7 @@ import com.isahl.chess.king.base.content.ByteBuf;
 import com.isahl.chess.king.base.crypt.features.ISymmetric;
 import com.isahl.chess.king.base.util.ArrayUtil;
 
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 /**
@@ -131,20 +132,50 @@ public class Rc4
         initialized = true;
     }
 
+    private int next()
+    {
+        i = (i + 1) & 0xFF;
+        j = (j + (S[i] & 0xFF)) & 0xFF;
+        ArrayUtil.swap(S, i, j);
+        return S[((S[i] & 0xFF) + (S[j] & 0xFF)) & 0xFF] & 0xFF;
+    }
+
     @Override
     public void digest(ByteBuf buffer, byte[] key)
     {
         if(!buffer.isReadable() || key == null) {return;}
         ksa(key);
-        int limit = buffer.readableBytes();
-        byte[] dst = buffer.array();
-        for(int p = buffer.readerIdx(); p < limit; p++) {
-            i = ((i + 1) & Integer.MAX_VALUE) & 0xFF;
-            j = ((j + (S[i] & 0xFF)) & Integer.MAX_VALUE) & 0xFF;
-            ArrayUtil.swap(S, i, j);
-            int k = S[((S[i] & 0xFF) + (S[j] & 0xFF)) & 0xFF] & 0xFF;
-            dst[p] = (byte) (dst[p] ^ k);
+        // 通过视图按绝对位置处理，direct 缓冲与 readerIdx > 0 时同样有效
+        ByteBuffer dst = buffer.toReadBuffer();
+        for(int p = 0, limit = dst.limit(); p < limit; p++) {
+            dst.put(p, (byte) (dst.get(p) ^ next()));
+        }
+    }
+
+    @Override
+    public ByteBuf seal(ByteBuf src, byte[] key)
+    {
+        digest(src, key);
+        return src;
+    }
+
+    @Override
+    public void open(ByteBuf src, ByteBuf dst, byte[] key)
+    {
+        int length = src.readableBytes();
+        if(length == 0 || key == null) {return;}
+        ksa(key);
+        if(dst.writableBytes() < length) {
+            dst.discard();
+            if(dst.writableBytes() < length) {dst.expand(length - dst.writableBytes());}
         }
+        ByteBuffer in = src.toReadBuffer();
+        ByteBuffer out = dst.toWriteBuffer();
+        for(int p = 0; p < length; p++) {
+            out.put(p, (byte) (in.get(p) ^ next()));
+        }
+        src.skip(length);
+        dst.seek(length);
     }
 
     @Override
@@ -152,13 +183,8 @@ public class Rc4
     {
         if(dst == null || key == null) {return;}
         ksa(key);
-        int limit = dst.length;
-        for(int x = 0; x < limit; x++) {
-            i = ((i + 1) & Integer.MAX_VALUE) & 0xFF;
-            j = ((j + (S[i] & 0xFF)) & Integer.MAX_VALUE) & 0xFF;
-            ArrayUtil.swap(S, i, j);
-            int k = S[((S[i] & 0xFF) + (S[j] & 0xFF)) & 0xFF] & 0xFF;
-            dst[x] = (byte) (dst[x] ^ k);
+        for(int x = 0, limit = dst.length; x < limit; x++) {
+            dst[x] = (byte) (dst[x] ^ next());
         }
     }
 
@@ -20,97 +20,167 @@
  * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
  * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
-
 package com.isahl.chess.king.base.disruptor.components;
 
 import com.isahl.chess.king.base.disruptor.features.debug.IHealth;
 import com.isahl.chess.king.base.log.Logger;
+import com.isahl.chess.king.base.util.Histogram;
 
 import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * 单个 processor 的运行统计，collect* 仅由 processor 线程调用，其余读取方法可由任意线程调用
+ * 单 event 耗时与 batch size 以 Histogram 记录；吞吐与平均耗时按 1s 窗口计算，平均耗时按窗口衰减
+ * <p>
+ * 默认开启，平均耗时上限 100ms；由 core 配置在构建 pipeline 前通过 {@link #configure(boolean, Duration)} 设定
+ */
 public class Health
         implements IHealth
 {
-    private final Logger _Logger;
-    private final int    _ThreadSlot;
+    private final static long WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+    private static volatile boolean vDefaultEnable = true;
+    private static volatile long    vLatencyLimit  = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * @param enable       此后创建的 Health 是否默认开启
+     * @param latencyLimit isHealthy 的平均耗时上限
+     */
+    public static void configure(boolean enable, Duration latencyLimit)
+    {
+        vDefaultEnable = enable;
+        if(latencyLimit != null) {vLatencyLimit = latencyLimit.toNanos();}
+    }
+
+    private final Logger    _Logger;
+    private final int       _ThreadSlot;
+    private final Histogram _Latency   = new Histogram();
+    private final Histogram _BatchSize = new Histogram();
 
     public Health(int slot)
     {
         _Logger = Logger.getLogger("base.king." + (_ThreadSlot = slot) + "@" + getClass().getSimpleName());
     }
 
-    private boolean  mEnable;
-    private Duration mStatisticDuration = Duration.ZERO;
-    private Duration mAverageDuration   = Duration.ZERO;
-    private Duration mDuration          = Duration.ZERO;
-    private long     mStartTime;
-    private long     mCount;
-    private long     mNumber;
-    private long     mStart;
+    private volatile boolean vEnable = vDefaultEnable;
+    private volatile long    vEvents;
+    private volatile long    vRate;
+    private volatile long    vAverage;
+    private volatile long    vWindowStart;
+    private          boolean mInBatch;
+    private          long    mStart;
+    private          long    mEvents;
+    private          long    mWindowEvents;
+    private          long    mWindowNanos;
 
     public void enable()
     {
-        mEnable = true;
+        vEnable = true;
     }
 
     public void disable()
     {
-        mEnable = false;
+        vEnable = false;
     }
 
     /**
-     * 衰减函数
+     * 衰减函数，窗口结束时将本窗口的平均耗时以 1/4 权重并入
      */
-    private void attenuation()
+    private void attenuation(long now)
     {
-        mStatisticDuration = mStatisticDuration.plus(mDuration);
-        //TODO count 和 统计的总次数都进行衰减
+        long events = mEvents - mWindowEvents;
+        long average = events > 0 ? mWindowNanos / events : 0;
+        vRate = events * WINDOW / (now - vWindowStart);
+        vAverage = vAverage == 0 ? average : (vAverage * 3 + average) >> 2;
+        mWindowEvents = mEvents;
+        mWindowNanos = 0;
+        vWindowStart = now;
     }
 
     @Override
     public boolean isEnabled()
     {
-        return mEnable;
+        return vEnable;
     }
 
     @Override
     public void collectOn(long start)
     {
-        mStartTime = System.nanoTime();
         mStart = start;
-        mNumber++;
+        mInBatch = true;
+    }
+
+    @Override
+    public void collectEvent(long nanos)
+    {
+        _Latency.record(nanos);
+        mWindowNanos += nanos;
     }
 
     @Override
     public void collectOff(long end)
     {
-        if(mNumber > Long.MAX_VALUE - 1) {
-            mNumber = 0;
+        if(!mInBatch) {return;}
+        mInBatch = false;
+        long size = end - mStart;
+        if(size <= 0) {return;}
+        _BatchSize.record(size);
+        vEvents = mEvents += size;
+        long now = System.nanoTime();
+        if(vWindowStart == 0) {
+            mWindowEvents = mEvents - size;
+            vWindowStart = now;
         }
-        mCount += end - mStart;
-        mDuration = Duration.ofNanos(System.nanoTime() - mStartTime);
-        attenuation();
-        if(mCount > 0) {
-            mAverageDuration = mStatisticDuration.dividedBy(mCount);
+        else if(now - vWindowStart >= WINDOW) {
+            attenuation(now);
         }
     }
 
     @Override
     public boolean isHealthy()
     {
-        return false;
+        return isEnabled() && vAverage <= vLatencyLimit;
     }
 
     @Override
     public Duration averageEventHandling()
     {
-        return mAverageDuration;
+        return Duration.ofNanos(vAverage);
+    }
+
+    @Override
+    public Histogram.Snapshot latency()
+    {
+        return _Latency.snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot batchSize()
+    {
+        return _BatchSize.snapshot();
+    }
+
+    @Override
+    public long events()
+    {
+        return vEvents;
+    }
+
+    @Override
+    public long eventRate()
+    {
+        // 两个窗口内没有新的 batch，视为空闲
+        return System.nanoTime() - vWindowStart > WINDOW << 1 ? 0 : vRate;
     }
 
-    public Logger getLogger() {
+    public Logger getLogger()
+    {
         return _Logger;
     }
-    public int getThreadSlot(){
+
+    public int getThreadSlot()
+    {
         return _ThreadSlot;
     }
 }
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.isahl.chess.king.base.disruptor.components;
+
+import com.isahl.chess.king.base.disruptor.features.debug.IHealth;
+import com.isahl.chess.king.base.util.Histogram;
+import com.lmax.disruptor.RingBuffer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * pipeline 观测入口：按注册顺序汇总各 processor 的 IHealth 与各 RingBuffer 的剩余容量
+ * 注册发生在 pipeline 构建期，读取为拉取式，不在 processor 线程上产生额外开销
+ *
+ * @author william.d.zk
+ */
+public class Telemetry
+{
+    private final List<Named<IHealth>>       _Stages = new CopyOnWriteArrayList<>();
+    private final List<Named<RingBuffer<?>>> _Rings  = new CopyOnWriteArrayList<>();
+
+    public Telemetry stage(String name, IHealth health)
+    {
+        _Stages.add(new Named<>(name, health));
+        return this;
+    }
+
+    public Telemetry ring(String name, RingBuffer<?> ring)
+    {
+        _Rings.add(new Named<>(name, ring));
+        return this;
+    }
+
+    public Telemetry ring(String name, RingBuffer<?>[] rings)
+    {
+        for(int i = 0; i < rings.length; i++) {
+            ring(name + "#" + i, rings[i]);
+        }
+        return this;
+    }
+
+    public List<Stage> stages()
+    {
+        return _Stages.stream()
+                      .map(named->{
+                          IHealth health = named.target();
+                          return new Stage(named.name(),
+                                           health.isEnabled(),
+                                           health.isHealthy(),
+                                           health.events(),
+                                           health.eventRate(),
+                                           health.averageEventHandling()
+                                                 .toNanos(),
+                                           health.latency(),
+                                           health.batchSize());
+                      })
+                      .toList();
+    }
+
+    public List<Ring> rings()
+    {
+        return _Rings.stream()
+                     .map(named->{
+                         RingBuffer<?> ring = named.target();
+                         long remaining = ring.remainingCapacity();
+                         return new Ring(named.name(), ring.getBufferSize(), remaining, ring.getBufferSize() - remaining);
+                     })
+                     .toList();
+    }
+
+    /**
+     * @return 剩余容量占比最低的 ring，即当前最接近饱和的阶段
+     */
+    public Ring saturated()
+    {
+        Ring saturated = null;
+        for(Ring ring : rings()) {
+            if(saturated == null || ring.backlog() * saturated.size() > saturated.backlog() * ring.size()) {
+                saturated = ring;
+            }
+        }
+        return saturated;
+    }
+
+    private record Named<T>(String name, T target) {}
+
+    /**
+     * @param averageNanos 衰减后的单 event 平均处理耗时
+     * @param latency      单 event 处理耗时分布 (ns)
+     * @param batchSize    batch size 分布
+     */
+    public record Stage(String name,
+                        boolean enabled,
+                        boolean healthy,
+                        long events,
+                        long eventRate,
+                        long averageNanos,
+                        Histogram.Snapshot latency,
+                        Histogram.Snapshot batchSize)
+    {}
+
+    public record Ring(String name,
+                       long size,
+                       long remaining,
+                       long backlog)
+    {}
+}
@@ -23,6 +23,7 @@
 
 package com.isahl.chess.king.base.disruptor.components;
 
+import com.isahl.chess.king.base.disruptor.features.debug.IHealth;
 import com.isahl.chess.king.base.disruptor.features.event.IEvent;
 import com.isahl.chess.king.base.disruptor.features.flow.IBatchHandler;
 import com.isahl.chess.king.base.log.Logger;
@@ -88,6 +89,11 @@ public class Z1Processor<T extends IEvent>
         _SequenceBarrier.alert();
     }
 
+    public IHealth getHealth()
+    {
+        return _BatchEventHandler._Health();
+    }
+
     @Override
     public boolean isRunning()
     {
@@ -149,9 +155,17 @@ public class Z1Processor<T extends IEvent>
             try {
                 final long availableSequence = _SequenceBarrier.waitFor(nextSequence);
                 _BatchEventHandler.onBatchStart(nextSequence - 1);
+                final IHealth health = _BatchEventHandler._Health();
+                final boolean collect = health.isEnabled();
+                long mark = collect ? System.nanoTime() : 0;
                 while(nextSequence <= availableSequence) {
                     event = _DataProvider.get(nextSequence);
                     _BatchEventHandler.onEvent(event, nextSequence);
+                    if(collect) {
+                        long now = System.nanoTime();
+                        health.collectEvent(now - mark);
+                        mark = now;
+                    }
                     nextSequence++;
                     if(mIsGating) {
                         event.reset();
@@ -23,6 +23,7 @@
 
 package com.isahl.chess.king.base.disruptor.components;
 
+import com.isahl.chess.king.base.disruptor.features.debug.IHealth;
 import com.isahl.chess.king.base.disruptor.features.event.IEvent;
 import com.isahl.chess.king.base.disruptor.features.flow.IBatchHandler;
 import com.isahl.chess.king.base.log.Logger;
@@ -135,6 +136,11 @@ public class Z2Processor<T extends IEvent>
         }
     }
 
+    public IHealth getHealth()
+    {
+        return _Handler._Health();
+    }
+
     @Override
     public boolean isRunning()
     {
@@ -148,9 +154,18 @@ public class Z2Processor<T extends IEvent>
         try {
             available = barrier.waitFor(-1);
             _Handler.onBatchStart(nextSequence - 1);
+            final IHealth health = _Handler._Health();
+            // 多路轮询时大部分 barrier 为空，仅在存在 event 时取时间
+            final boolean collect = nextSequence <= available && health.isEnabled();
+            long mark = collect ? System.nanoTime() : 0;
             while(nextSequence <= available) {
                 T event = provider.get(nextSequence);
                 _Handler.onEvent(event, nextSequence);
+                if(collect) {
+                    long now = System.nanoTime();
+                    health.collectEvent(now - mark);
+                    mark = now;
+                }
                 nextSequence++;
                 if(mIsGating) {
                     event.reset();
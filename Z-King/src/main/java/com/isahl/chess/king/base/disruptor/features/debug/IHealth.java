@@ -23,6 +23,8 @@
 
 package com.isahl.chess.king.base.disruptor.features.debug;
 
+import com.isahl.chess.king.base.util.Histogram;
+
 import java.time.Duration;
 
 /**
@@ -33,11 +35,33 @@ public interface IHealth
 {
     boolean isEnabled();
 
+    /**
+     * @param start batch 开始前已处理的 sequence
+     */
     void collectOn(long start);
 
+    /**
+     * @param nanos 单个 event 的处理耗时
+     */
+    void collectEvent(long nanos);
+
+    /**
+     * @param end batch 结束后已处理的 sequence，与 start 之差即 batch size
+     */
     void collectOff(long end);
 
     boolean isHealthy();
 
     Duration averageEventHandling();
+
+    Histogram.Snapshot latency();
+
+    Histogram.Snapshot batchSize();
+
+    long events();
+
+    /**
+     * @return 最近一个统计窗口内每秒处理的 event 数
+     */
+    long eventRate();
 }
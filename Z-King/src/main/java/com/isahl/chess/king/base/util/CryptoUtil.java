@@ -22,9 +22,14 @@
  */
 package com.isahl.chess.king.base.util;
 
+import com.isahl.chess.king.base.content.ByteBuf;
 import com.isahl.chess.king.base.log.Logger;
+import com.isahl.chess.king.base.util.crc.Crc16;
+import com.isahl.chess.king.base.util.crc.Crc64;
+import com.isahl.chess.king.base.util.crc.CrcCalculator;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyFactory;
 import java.security.KeyPair;
@@ -40,6 +45,8 @@ import java.security.spec.X509EncodedKeySpec;
 import java.time.Instant;
 import java.util.Objects;
 import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
 import javax.crypto.Cipher;
 import org.apache.commons.codec.binary.Base64;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
@@ -49,7 +56,10 @@ import org.bouncycastle.jce.provider.BouncyCastleProvider;
  */
 public class CryptoUtil
 {
-    private static final Logger _Logger = Logger.getLogger(CryptoUtil.class.getSimpleName());
+    private static final Logger        _Logger = Logger.getLogger(CryptoUtil.class.getSimpleName());
+    private static final CrcCalculator _Crc16  = CrcCalculator.of(Crc16.Crc16Modbus);
+    private static final CrcCalculator _Crc64  = CrcCalculator.of(Crc64.Crc64Jones);
+    private static final byte[]        _Empty  = new byte[0];
 
     private final static String        _CHARS         = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
     private final static char          _PAD           = '=';
@@ -99,6 +109,7 @@ public class CryptoUtil
 
     /**
      * 需要注意，返回值是在int32 空间内，即unsigned short
+     * CRC-16/MODBUS 参数，slicing-by-8 查表
      *
      * @param buf input buffer
      * @param off offset
@@ -107,18 +118,23 @@ public class CryptoUtil
      */
     public static int crc16(byte[] buf, int off, int len)
     {
-        int crc = 0xFFFF;
-        while(len-- != 0) {
-            crc ^= buf[off++] & 0xFF;
-            for(int i = 0; i < 8; i++) {
-                if((crc & 1) > 0) {
-                    crc >>>= 1;
-                    crc ^= 0xA001;
-                }
-                else {crc >>>= 1;}
-            }
-        }
-        return crc;
+        return (int) _Crc16.Calc(buf, off, len);
+    }
+
+    /**
+     * @param buf heap / direct / mapped，按绝对位置读取，不改变 position
+     */
+    public static int crc16(ByteBuffer buf, int off, int len)
+    {
+        return (int) _Crc16.Calc(buf, off, len);
+    }
+
+    /**
+     * @param off ByteBuf 内的绝对位置，与 readerIdx/writerIdx 同一坐标
+     */
+    public static int crc16(ByteBuf buf, int off, int len)
+    {
+        return len > 0 ? crc16(buf.toReadBuffer(off, len), 0, len) : crc16(_Empty, 0, 0);
     }
 
     public static int crc16_modbus(byte[] buf, int off, int len)
@@ -126,36 +142,68 @@ public class CryptoUtil
         return IoUtil.swapLhb(crc16(buf, off, len));
     }
 
+    public static int crc16_modbus(ByteBuf buf, int off, int len)
+    {
+        return IoUtil.swapLhb(crc16(buf, off, len));
+    }
+
+    /**
+     * CRC-32(IEEE)，由 java.util.zip.CRC32 完成，JDK 对其有 intrinsic 实现
+     */
     public static int crc32(byte[] buf, int off, int len)
     {
-        int crc = 0xFFFFFFFF;
-        while(len-- != 0) {
-            crc ^= buf[off++] & 0xFF;
-            for(int i = 0; i < 8; i++) {
-                if((crc & 1) > 0) {
-                    crc >>>= 1;
-                    crc ^= 0xEDB88320;
-                }
-                else {crc >>>= 1;}
-            }
-        }
-        return ~crc;
+        CRC32 crc = new CRC32();
+        crc.update(buf, off, len);
+        return (int) crc.getValue();
+    }
+
+    public static int crc32(ByteBuffer buf, int off, int len)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice(off, len));
+        return (int) crc.getValue();
+    }
+
+    public static int crc32(ByteBuf buf, int off, int len)
+    {
+        return len > 0 ? crc32(buf.toReadBuffer(off, len), 0, len) : crc32(_Empty, 0, 0);
+    }
+
+    /**
+     * CRC-32C(Castagnoli)，由 java.util.zip.CRC32C 完成，适用于存储记录校验
+     */
+    public static int crc32c(byte[] buf, int off, int len)
+    {
+        CRC32C crc = new CRC32C();
+        crc.update(buf, off, len);
+        return (int) crc.getValue();
+    }
+
+    public static int crc32c(ByteBuffer buf, int off, int len)
+    {
+        CRC32C crc = new CRC32C();
+        crc.update(buf.slice(off, len));
+        return (int) crc.getValue();
+    }
+
+    public static int crc32c(ByteBuf buf, int off, int len)
+    {
+        return len > 0 ? crc32c(buf.toReadBuffer(off, len), 0, len) : crc32c(_Empty, 0, 0);
     }
 
     public static long crc64(byte[] buf, int off, int len)
     {
-        long crc = 0xFFFFFFFFFFFFFFFFL;
-        while(len-- != 0) {
-            crc ^= buf[off++] & 0xFF;
-            for(int i = 0; i < 8; i++) {
-                if((crc & 1) == 1) {
-                    crc >>>= 1;
-                    crc ^= 0x95AC9329AC4BC9B5L;
-                }
-                else {crc >>>= 1;}
-            }
-        }
-        return ~crc;
+        return _Crc64.Calc(buf, off, len);
+    }
+
+    public static long crc64(ByteBuffer buf, int off, int len)
+    {
+        return _Crc64.Calc(buf, off, len);
+    }
+
+    public static long crc64(ByteBuf buf, int off, int len)
+    {
+        return len > 0 ? crc64(buf.toReadBuffer(off, len), 0, len) : crc64(_Empty, 0, 0);
     }
 
     public static boolean xorSign(byte[] src, byte sign)
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.isahl.chess.king.base.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 对数-线性分桶的直方图（HDR 风格），每个 2 的幂区间再线性切分为 16 个子桶，相对误差不超过 1/16
+ * 覆盖 [0, Long.MAX_VALUE]，共 960 个桶，record 为 O(1) 且无分配
+ * 单写多读：record 仅由所属线程调用，snapshot 可由任意线程读取近似一致的结果
+ *
+ * @author william.d.zk
+ */
+public class Histogram
+{
+    private final static int SUB_BITS    = 4;
+    private final static int SUB_COUNT   = 1 << SUB_BITS;
+    private final static int SUB_MASK    = SUB_COUNT - 1;
+    private final static int BUCKET_SIZE = (63 - SUB_BITS) * SUB_COUNT + SUB_COUNT;
+
+    private final AtomicLongArray _Counts = new AtomicLongArray(BUCKET_SIZE);
+    private final AtomicLong      _Total  = new AtomicLong();
+    private final AtomicLong      _Sum    = new AtomicLong();
+    private final AtomicLong      _Max    = new AtomicLong();
+
+    static int indexOf(long value)
+    {
+        if(value < SUB_COUNT) {return (int) Math.max(value, 0);}
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        return ((exp - SUB_BITS + 1) << SUB_BITS) + (int) ((value >>> (exp - SUB_BITS)) & SUB_MASK);
+    }
+
+    /**
+     * @return 桶内最大值
+     */
+    static long highOf(int index)
+    {
+        if(index < SUB_COUNT) {return index;}
+        int exp = (index >>> SUB_BITS) + SUB_BITS - 1;
+        long low = (long) (SUB_COUNT + (index & SUB_MASK)) << (exp - SUB_BITS);
+        return low + (1L << (exp - SUB_BITS)) - 1;
+    }
+
+    public void record(long value)
+    {
+        int index = indexOf(value);
+        _Counts.lazySet(index, _Counts.get(index) + 1);
+        _Total.lazySet(_Total.get() + 1);
+        _Sum.lazySet(_Sum.get() + value);
+        if(value > _Max.get()) {_Max.lazySet(value);}
+    }
+
+    public Snapshot snapshot()
+    {
+        long[] counts = new long[BUCKET_SIZE];
+        long total = 0;
+        for(int i = 0; i < BUCKET_SIZE; i++) {
+            total += counts[i] = _Counts.get(i);
+        }
+        long max = _Max.get();
+        if(total == 0) {return new Snapshot(0, 0, 0, 0, 0, 0, 0);}
+        return new Snapshot(total,
+                            _Sum.get() / Math.max(_Total.get(), 1),
+                            Math.min(percentile(counts, total, 0.50), max),
+                            Math.min(percentile(counts, total, 0.90), max),
+                            Math.min(percentile(counts, total, 0.99), max),
+                            Math.min(percentile(counts, total, 0.999), max),
+                            max);
+    }
+
+    private static long percentile(long[] counts, long total, double p)
+    {
+        long rank = Math.max((long) Math.ceil(total * p), 1);
+        long seen = 0;
+        for(int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if(seen >= rank) {return highOf(i);}
+        }
+        return highOf(counts.length - 1);
+    }
+
+    public record Snapshot(long count,
+                           long mean,
+                           long p50,
+                           long p90,
+                           long p99,
+                           long p999,
+                           long max)
+    {}
+}
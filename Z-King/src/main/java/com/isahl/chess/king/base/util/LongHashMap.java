@@ -0,0 +1,287 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * long → V 的开放寻址散列表，线性探测，删除时回移后续元素，不产生 tombstone
+ * key 与 value 分别存放在 long[] 与 Object[] 中，无装箱与 Entry 节点；value 不允许为 null
+ * <p>
+ * 写操作在 StampedLock 写锁下互斥；读操作乐观无锁，经 validate 失败后退回读锁重读：
+ * 1. keys/values/mask/shift 打包为不可变的 Table 经 volatile 发布，rehash 时读者不会拿到错配的数组与掩码
+ * 2. 删除回移期间同一 key 会短暂出现在两个 slot 或暂时离开探测链，此时读到的结果由 validate 丢弃
+ *
+ * @author william.d.zk
+ */
+public class LongHashMap<V>
+{
+    private final static float LOAD_FACTOR = 0.75f;
+
+    private final StampedLock _Lock = new StampedLock();
+
+    private volatile Table vTable;
+    private volatile int   vSize;
+    private          int   mThreshold;
+
+    public LongHashMap()
+    {
+        this(16);
+    }
+
+    public LongHashMap(int expected)
+    {
+        int capacity = tableSizeFor(expected);
+        mThreshold = (int) (capacity * LOAD_FACTOR);
+        vTable = new Table(capacity);
+    }
+
+    static int tableSizeFor(int expected)
+    {
+        int capacity = (int) Math.min(1 << 30, Math.max(4, (long) Math.ceil(Math.max(expected, 1) / LOAD_FACTOR)));
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    /**
+     * Fibonacci hashing，ZUID 的低位序列号递增，高位为类型与节点，需要充分混合
+     */
+    static int hash(long key, int shift)
+    {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private static class Table
+    {
+        private final long[]   _Keys;
+        private final Object[] _Values;
+        private final int      _Mask;
+        private final int      _Shift;
+
+        Table(int capacity)
+        {
+            _Keys = new long[capacity];
+            _Values = new Object[capacity];
+            _Mask = capacity - 1;
+            _Shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+        }
+
+        /**
+         * 探测步数以容量为上限，乐观读看到并发修改中的表时也不会空转
+         */
+        int indexOf(long key)
+        {
+            for(int i = hash(key, _Shift), n = 0; n <= _Mask; i = (i + 1) & _Mask, n++) {
+                if(_Values[i] == null) {return -1;}
+                if(_Keys[i] == key) {return i;}
+            }
+            return -1;
+        }
+
+        Object get(long key)
+        {
+            int i = indexOf(key);
+            return i < 0 ? null : _Values[i];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key)
+    {
+        long stamp = _Lock.tryOptimisticRead();
+        Object value = vTable.get(key);
+        if(!_Lock.validate(stamp)) {
+            stamp = _Lock.readLock();
+            try {
+                value = vTable.get(key);
+            }
+            finally {
+                _Lock.unlockRead(stamp);
+            }
+        }
+        return (V) value;
+    }
+
+    public boolean containsKey(long key)
+    {
+        return get(key) != null;
+    }
+
+    public V put(long key, V value)
+    {
+        if(value == null) {throw new NullPointerException("value");}
+        long stamp = _Lock.writeLock();
+        try {
+            return put0(key, value, false);
+        }
+        finally {
+            _Lock.unlockWrite(stamp);
+        }
+    }
+
+    public V putIfAbsent(long key, V value)
+    {
+        if(value == null) {throw new NullPointerException("value");}
+        long stamp = _Lock.writeLock();
+        try {
+            return put0(key, value, true);
+        }
+        finally {
+            _Lock.unlockWrite(stamp);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V put0(long key, V value, boolean onlyIfAbsent)
+    {
+        Table t = vTable;
+        int i = hash(key, t._Shift);
+        for(; t._Values[i] != null; i = (i + 1) & t._Mask) {
+            if(t._Keys[i] == key) {
+                V old = (V) t._Values[i];
+                if(!onlyIfAbsent) {t._Values[i] = value;}
+                return old;
+            }
+        }
+        t._Keys[i] = key;
+        t._Values[i] = value;
+        if(++vSize > mThreshold) {rehash(t);}
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key)
+    {
+        long stamp = _Lock.writeLock();
+        try {
+            Table t = vTable;
+            int i = t.indexOf(key);
+            if(i < 0) {return null;}
+            V old = (V) t._Values[i];
+            shift(t, i);
+            return old;
+        }
+        finally {
+            _Lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean remove(long key, V value)
+    {
+        long stamp = _Lock.writeLock();
+        try {
+            Table t = vTable;
+            int i = t.indexOf(key);
+            if(i < 0 || t._Values[i] != value) {return false;}
+            shift(t, i);
+            return true;
+        }
+        finally {
+            _Lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 删除 slot 后将同一探测链上的后续元素前移，保持线性探测的不变式
+     */
+    private void shift(Table t, int gap)
+    {
+        vSize--;
+        for(int i = (gap + 1) & t._Mask; t._Values[i] != null; i = (i + 1) & t._Mask) {
+            int home = hash(t._Keys[i], t._Shift);
+            // home 不在 (gap, i] 区间内时，可以移动到 gap
+            if(((i - home) & t._Mask) >= ((i - gap) & t._Mask)) {
+                t._Keys[gap] = t._Keys[i];
+                t._Values[gap] = t._Values[i];
+                gap = i;
+            }
+        }
+        t._Values[gap] = null;
+    }
+
+    /**
+     * 新表填充完毕后才经 volatile 发布
+     */
+    private void rehash(Table old)
+    {
+        Table t = new Table(old._Keys.length << 1);
+        for(int j = 0; j < old._Keys.length; j++) {
+            if(old._Values[j] != null) {
+                int i = hash(old._Keys[j], t._Shift);
+                while(t._Values[i] != null) {
+                    i = (i + 1) & t._Mask;
+                }
+                t._Keys[i] = old._Keys[j];
+                t._Values[i] = old._Values[j];
+            }
+        }
+        mThreshold = (int) (t._Keys.length * LOAD_FACTOR);
+        vTable = t;
+    }
+
+    public int size()
+    {
+        return vSize;
+    }
+
+    public boolean isEmpty()
+    {
+        return vSize == 0;
+    }
+
+    public void clear()
+    {
+        long stamp = _Lock.writeLock();
+        try {
+            Arrays.fill(vTable._Values, null);
+            vSize = 0;
+        }
+        finally {
+            _Lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return 调用时刻 value 的只读快照，遍历期间不持锁，可在遍历中修改本表
+     */
+    @SuppressWarnings("unchecked")
+    public Collection<V> values()
+    {
+        long stamp = _Lock.readLock();
+        try {
+            List<V> values = new ArrayList<>(vSize);
+            for(Object value : vTable._Values) {
+                if(value != null) {values.add((V) value);}
+            }
+            return Collections.unmodifiableList(values);
+        }
+        finally {
+            _Lock.unlockRead(stamp);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.util;
+
+import java.util.function.LongConsumer;
+
+/**
+ * long 集合，基于 {@link LongLongHashMap}，并发约定与其相同
+ *
+ * @author william.d.zk
+ */
+public class LongHashSet
+{
+    private final LongLongHashMap _Map;
+
+    public LongHashSet(int expected)
+    {
+        _Map = new LongLongHashMap(expected, 0);
+    }
+
+    public boolean add(long key)
+    {
+        return _Map.putIfAbsent(key, 1) == 0;
+    }
+
+    public boolean remove(long key)
+    {
+        return _Map.remove(key) != 0;
+    }
+
+    public boolean contains(long key)
+    {
+        return _Map.containsKey(key);
+    }
+
+    public int size()
+    {
+        return _Map.size();
+    }
+
+    public boolean isEmpty()
+    {
+        return _Map.isEmpty();
+    }
+
+    public void forEach(LongConsumer consumer)
+    {
+        _Map.forEachKey(consumer);
+    }
+}
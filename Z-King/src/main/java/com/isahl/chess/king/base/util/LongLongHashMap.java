@@ -0,0 +1,286 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.util;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongConsumer;
+
+import static com.isahl.chess.king.base.util.LongHashMap.hash;
+import static com.isahl.chess.king.base.util.LongHashMap.tableSizeFor;
+
+/**
+ * long → long 的开放寻址散列表，key 0 单独存放
+ * 并发约定与 {@link LongHashMap} 相同：写锁互斥，读乐观无锁并经 validate 校验
+ *
+ * @author william.d.zk
+ * @see LongHashMap
+ */
+public class LongLongHashMap
+{
+    private final static float LOAD_FACTOR = 0.75f;
+
+    private final long        _Missing;
+    private final StampedLock _Lock = new StampedLock();
+
+    private volatile Table   vTable;
+    private volatile int     vSize;
+    private          int     mThreshold;
+    private          boolean mHasZero;
+    private          long    mZeroValue;
+
+    /**
+     * @param expected 预期容量
+     * @param missing  key 不存在时 get/remove 的返回值
+     */
+    public LongLongHashMap(int expected, long missing)
+    {
+        _Missing = missing;
+        int capacity = tableSizeFor(expected);
+        mThreshold = (int) (capacity * LOAD_FACTOR);
+        vTable = new Table(capacity);
+    }
+
+    private static class Table
+    {
+        private final long[] _Keys;
+        private final long[] _Values;
+        private final int    _Mask;
+        private final int    _Shift;
+
+        Table(int capacity)
+        {
+            _Keys = new long[capacity];
+            _Values = new long[capacity];
+            _Mask = capacity - 1;
+            _Shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+        }
+
+        int indexOf(long key)
+        {
+            for(int i = hash(key, _Shift), n = 0; n <= _Mask; i = (i + 1) & _Mask, n++) {
+                if(_Keys[i] == 0) {return -1;}
+                if(_Keys[i] == key) {return i;}
+            }
+            return -1;
+        }
+    }
+
+    public long missing()
+    {
+        return _Missing;
+    }
+
+    private long get0(long key)
+    {
+        if(key == 0) {return mHasZero ? mZeroValue : _Missing;}
+        Table t = vTable;
+        int i = t.indexOf(key);
+        return i < 0 ? _Missing : t._Values[i];
+    }
+
+    private boolean contains0(long key)
+    {
+        return key == 0 ? mHasZero : vTable.indexOf(key) >= 0;
+    }
+
+    public long get(long key)
+    {
+        long stamp = _Lock.tryOptimisticRead();
+        long value = get0(key);
+        if(!_Lock.validate(stamp)) {
+            stamp = _Lock.readLock();
+            try {
+                value = get0(key);
+            }
+            finally {
+                _Lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    public boolean containsKey(long key)
+    {
+        long stamp = _Lock.tryOptimisticRead();
+        boolean contains = contains0(key);
+        if(!_Lock.validate(stamp)) {
+            stamp = _Lock.readLock();
+            try {
+                contains = contains0(key);
+            }
+            finally {
+                _Lock.unlockRead(stamp);
+            }
+        }
+        return contains;
+    }
+
+    public long put(long key, long value)
+    {
+        long stamp = _Lock.writeLock();
+        try {
+            return put0(key, value, false);
+        }
+        finally {
+            _Lock.unlockWrite(stamp);
+        }
+    }
+
+    public long putIfAbsent(long key, long value)
+    {
+        long stamp = _Lock.writeLock();
+        try {
+            return put0(key, value, true);
+        }
+        finally {
+            _Lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return 原值，key 不存在时返回 missing
+     */
+    private long put0(long key, long value, boolean onlyIfAbsent)
+    {
+        if(key == 0) {
+            long old = mHasZero ? mZeroValue : _Missing;
+            if(mHasZero && onlyIfAbsent) {return old;}
+            if(!mHasZero) {vSize++;}
+            mHasZero = true;
+            mZeroValue = value;
+            return old;
+        }
+        Table t = vTable;
+        int i = hash(key, t._Shift);
+        for(; t._Keys[i] != 0; i = (i + 1) & t._Mask) {
+            if(t._Keys[i] == key) {
+                long old = t._Values[i];
+                if(!onlyIfAbsent) {t._Values[i] = value;}
+                return old;
+            }
+        }
+        t._Keys[i] = key;
+        t._Values[i] = value;
+        if(++vSize > mThreshold) {rehash(t);}
+        return _Missing;
+    }
+
+    public long remove(long key)
+    {
+        long stamp = _Lock.writeLock();
+        try {
+            if(key == 0) {
+                if(!mHasZero) {return _Missing;}
+                mHasZero = false;
+                vSize--;
+                return mZeroValue;
+            }
+            Table t = vTable;
+            int i = t.indexOf(key);
+            if(i < 0) {return _Missing;}
+            long old = t._Values[i];
+            shift(t, i);
+            return old;
+        }
+        finally {
+            _Lock.unlockWrite(stamp);
+        }
+    }
+
+    private void shift(Table t, int gap)
+    {
+        vSize--;
+        for(int i = (gap + 1) & t._Mask; t._Keys[i] != 0; i = (i + 1) & t._Mask) {
+            int home = hash(t._Keys[i], t._Shift);
+            if(((i - home) & t._Mask) >= ((i - gap) & t._Mask)) {
+                t._Keys[gap] = t._Keys[i];
+                t._Values[gap] = t._Values[i];
+                gap = i;
+            }
+        }
+        t._Keys[gap] = 0;
+    }
+
+    private void rehash(Table old)
+    {
+        Table t = new Table(old._Keys.length << 1);
+        for(int j = 0; j < old._Keys.length; j++) {
+            if(old._Keys[j] != 0) {
+                int i = hash(old._Keys[j], t._Shift);
+                while(t._Keys[i] != 0) {
+                    i = (i + 1) & t._Mask;
+                }
+                t._Keys[i] = old._Keys[j];
+                t._Values[i] = old._Values[j];
+            }
+        }
+        mThreshold = (int) (t._Keys.length * LOAD_FACTOR);
+        vTable = t;
+    }
+
+    public int size()
+    {
+        return vSize;
+    }
+
+    public boolean isEmpty()
+    {
+        return vSize == 0;
+    }
+
+    public void clear()
+    {
+        long stamp = _Lock.writeLock();
+        try {
+            Arrays.fill(vTable._Keys, 0);
+            mHasZero = false;
+            vSize = 0;
+        }
+        finally {
+            _Lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 遍历调用时刻 key 的快照，consumer 中可以修改本表
+     */
+    public void forEachKey(LongConsumer consumer)
+    {
+        long[] keys;
+        boolean hasZero;
+        long stamp = _Lock.readLock();
+        try {
+            hasZero = mHasZero;
+            keys = vTable._Keys.clone();
+        }
+        finally {
+            _Lock.unlockRead(stamp);
+        }
+        if(hasZero) {consumer.accept(0);}
+        for(long key : keys) {
+            if(key != 0) {consumer.accept(key);}
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 有界无锁环形队列
+ * 每个槽位携带序号，生产者与消费者各自以 CAS 推进 tail/head，槽位的写入由序号的 release/acquire 完成交接；
+ * 多生产者写入、通常由单一消费者批量取出，但 poll 同样可以并发调用，
+ * 因此生产者在队列满时可以自行取出最旧元素腾出空间。
+ *
+ * @author william.d.zk
+ */
+public class RingQueue<E>
+{
+    private final static VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[]     _Sequences;
+    private final Object[]   _Slots;
+    private final int        _Mask;
+    private final AtomicLong _Head = new AtomicLong();
+    private final AtomicLong _Tail = new AtomicLong();
+
+    /**
+     * @param capacity 向上取整到 2 的幂
+     */
+    public RingQueue(int capacity)
+    {
+        if(capacity <= 0 || capacity > 1 << 30) {throw new IllegalArgumentException("capacity: " + capacity);}
+        int size = 1 << 32 - Integer.numberOfLeadingZeros(Math.max(capacity, 2) - 1);
+        _Sequences = new long[size];
+        _Slots = new Object[size];
+        _Mask = size - 1;
+        for(int i = 0; i < size; i++) {
+            _Sequences[i] = i;
+        }
+    }
+
+    /**
+     * @return false 队列已满
+     */
+    public boolean offer(E e)
+    {
+        Objects.requireNonNull(e);
+        long tail = _Tail.get();
+        for(; ; ) {
+            int index = (int) tail & _Mask;
+            long diff = (long) SEQUENCE.getAcquire(_Sequences, index) - tail;
+            if(diff == 0) {
+                long witness = _Tail.compareAndExchange(tail, tail + 1);
+                if(witness == tail) {
+                    _Slots[index] = e;
+                    SEQUENCE.setRelease(_Sequences, index, tail + 1);
+                    return true;
+                }
+                tail = witness;
+            }
+            else if(diff < 0) {
+                // 槽位尚未被消费
+                return false;
+            }
+            else {
+                tail = _Tail.get();
+            }
+        }
+    }
+
+    /**
+     * @return null 队列为空
+     */
+    @SuppressWarnings("unchecked")
+    public E poll()
+    {
+        long head = _Head.get();
+        for(; ; ) {
+            int index = (int) head & _Mask;
+            long diff = (long) SEQUENCE.getAcquire(_Sequences, index) - (head + 1);
+            if(diff == 0) {
+                long witness = _Head.compareAndExchange(head, head + 1);
+                if(witness == head) {
+                    E e = (E) _Slots[index];
+                    _Slots[index] = null;
+                    SEQUENCE.setRelease(_Sequences, index, head + _Mask + 1);
+                    return e;
+                }
+                head = witness;
+            }
+            else if(diff < 0) {
+                // 槽位尚未发布
+                return null;
+            }
+            else {
+                head = _Head.get();
+            }
+        }
+    }
+
+    /**
+     * 取出至多 limit 个元素
+     *
+     * @return 取出的数量
+     */
+    public int drain(Consumer<? super E> consumer, int limit)
+    {
+        int count = 0;
+        for(E e; count < limit && (e = poll()) != null; count++) {
+            consumer.accept(e);
+        }
+        return count;
+    }
+
+    /**
+     * 并发写入时为近似值
+     */
+    public int size()
+    {
+        long head, tail;
+        do {
+            head = _Head.get();
+            tail = _Tail.get();
+        }
+        while(head != _Head.get());
+        return (int) Math.max(0, Math.min(tail - head, _Slots.length));
+    }
+
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    public int capacity()
+    {
+        return _Slots.length;
+    }
+}
@@ -26,7 +26,7 @@ package com.isahl.chess.king.base.util.crc;
 /**
  * Created by anthony on 11.05.2017.
  */
-class AlgoParams
+public class AlgoParams
 {
 
     AlgoParams(String name, int hashSize, long poly, long init, boolean refIn, boolean refOut, long xorOut, long check)
@@ -107,4 +107,14 @@ class AlgoParams
     /// checksum.
     /// </summary>
     long XorOut;
-}
\ No newline at end of file
+
+    public String getName()
+    {
+        return Name;
+    }
+
+    public long getCheck()
+    {
+        return Check;
+    }
+}
@@ -49,10 +49,22 @@ public class Crc64
                                                       true,
                                                       0xFFFFFFFFFFFFFFFFL,
                                                       0x995DC9BBDF1939FAL);
+    /*
+     * Jones 多项式，与 CryptoUtil.crc64 一致
+     */
+    public static AlgoParams Crc64Jones = new AlgoParams("CRC-64/JONES",
+                                                         64,
+                                                         0xAD93D23594C935A9L,
+                                                         0xFFFFFFFFFFFFFFFFL,
+                                                         true,
+                                                         true,
+                                                         0xFFFFFFFFFFFFFFFFL,
+                                                         0x3558E8E979F60D7EL);
 
     public static final AlgoParams[] Params = new AlgoParams[]{
             Crc64,
             Crc64We,
-            Crc64Xz
+            Crc64Xz,
+            Crc64Jones
     };
 }
@@ -23,19 +23,40 @@
 
 package com.isahl.chess.king.base.util.crc;
 
-import java.util.HashMap;
+import com.isahl.chess.king.base.content.ByteBuf;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by anthony on 11.05.2017.
+ * <p>
+ * 查表 + slicing-by-8：每次读入 8 字节，以 8 张表并行查得 crc 贡献，
+ * 不足 8 字节的尾部按单表逐字节处理。
+ * byte[] 与 ByteBuffer（heap/direct/mapped）均按绝对位置读取，不移动 position，不复制数据。
  */
 public class CrcCalculator
 {
+    private static final VarHandle _ArrayLE  = MethodHandles.byteArrayViewVarHandle(long[].class,
+                                                                                    ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle _ArrayBE  = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle _BufferLE = MethodHandles.byteBufferViewVarHandle(long[].class,
+                                                                                     ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle _BufferBE = MethodHandles.byteBufferViewVarHandle(long[].class,
+                                                                                     ByteOrder.BIG_ENDIAN);
 
     private final AlgoParams _Parameters;
     private       byte       hashSize = 8;
     private       long       mask     = 0xFFFFFFFFFFFFFFFFL;
-    private final long[]     _table   = new long[256];
+    /*
+     * _Tables[k][b]: 字节 b 之后再跟 k 个 0x00 时对 crc 的贡献，_Tables[0] 即传统单表
+     */
+    private final long[][]   _Tables  = new long[8][256];
+    private final long[]     _table   = _Tables[0];
 
     CrcCalculator(AlgoParams params)
     {
@@ -51,25 +72,62 @@ public class CrcCalculator
 
     public long Calc(byte[] data, int offset, int length)
     {
-        long init = _Parameters.RefOut ? CrcHelper.ReverseBits(_Parameters.Init, hashSize) : _Parameters.Init;
-        long hash = ComputeCrc(init, data, offset, length);
+        long hash = ComputeCrc(Init(), data, offset, length);
+        return (hash ^ _Parameters.XorOut) & mask;
+    }
+
+    /**
+     * @param buffer heap / direct / mapped，读取 [offset, offset + length)，不改变 position
+     */
+    public long Calc(ByteBuffer buffer, int offset, int length)
+    {
+        long hash = ComputeCrc(Init(), buffer, offset, length);
         return (hash ^ _Parameters.XorOut) & mask;
     }
 
+    /**
+     * @param buffer 读取 [position, limit)，不改变 position
+     */
+    public long Calc(ByteBuffer buffer)
+    {
+        return Calc(buffer, buffer.position(), buffer.remaining());
+    }
+
+    private long Init()
+    {
+        return _Parameters.RefOut ? CrcHelper.ReverseBits(_Parameters.Init, hashSize) : _Parameters.Init;
+    }
+
     private long ComputeCrc(long init, byte[] data, int offset, int length)
     {
         long crc = init;
+        int i = offset, end = offset + length;
+        final long[] t0 = _Tables[0], t1 = _Tables[1], t2 = _Tables[2], t3 = _Tables[3];
+        final long[] t4 = _Tables[4], t5 = _Tables[5], t6 = _Tables[6], t7 = _Tables[7];
 
         if(_Parameters.RefOut) {
-            for(int i = offset; i < offset + length; i++) {
+            for(; i + 8 <= end; i += 8) {
+                long x = crc ^ (long) _ArrayLE.get(data, i);
+                crc = t7[(int) x & 0xFF] ^ t6[(int) (x >>> 8) & 0xFF] ^ t5[(int) (x >>> 16) & 0xFF] ^
+                      t4[(int) (x >>> 24) & 0xFF] ^ t3[(int) (x >>> 32) & 0xFF] ^ t2[(int) (x >>> 40) & 0xFF] ^
+                      t1[(int) (x >>> 48) & 0xFF] ^ t0[(int) (x >>> 56)];
+            }
+            for(; i < end; i++) {
                 crc = (_table[(int) ((crc ^ data[i]) & 0xFF)] ^ (crc >>> 8));
                 crc &= mask;
             }
         }
         else {
+            int toLeft = 64 - hashSize;
+            for(; i + 8 <= end; i += 8) {
+                long x = (crc << toLeft) ^ (long) _ArrayBE.get(data, i);
+                crc = t7[(int) (x >>> 56)] ^ t6[(int) (x >>> 48) & 0xFF] ^ t5[(int) (x >>> 40) & 0xFF] ^
+                      t4[(int) (x >>> 32) & 0xFF] ^ t3[(int) (x >>> 24) & 0xFF] ^ t2[(int) (x >>> 16) & 0xFF] ^
+                      t1[(int) (x >>> 8) & 0xFF] ^ t0[(int) x & 0xFF];
+            }
             int toRight = (hashSize - 8);
             toRight = Math.max(toRight, 0);
-            for(int i = offset; i < offset + length; i++) {
+            for(; i < end; i++) {
                 crc = (_table[(int) (((crc >> toRight) ^ data[i]) & 0xFF)] ^ (crc << 8));
                 crc &= mask;
             }
@@ -78,9 +136,57 @@ public class CrcCalculator
         return crc;
     }
 
+    private long ComputeCrc(long init, ByteBuffer data, int offset, int length)
+    {
+        long crc = init;
+        int i = offset, end = offset + length;
+        final long[] t0 = _Tables[0], t1 = _Tables[1], t2 = _Tables[2], t3 = _Tables[3];
+        final long[] t4 = _Tables[4], t5 = _Tables[5], t6 = _Tables[6], t7 = _Tables[7];
+
+        if(_Parameters.RefOut) {
+            for(; i + 8 <= end; i += 8) {
+                long x = crc ^ (long) _BufferLE.get(data, i);
+                crc = t7[(int) x & 0xFF] ^ t6[(int) (x >>> 8) & 0xFF] ^ t5[(int) (x >>> 16) & 0xFF] ^
+                      t4[(int) (x >>> 24) & 0xFF] ^ t3[(int) (x >>> 32) & 0xFF] ^ t2[(int) (x >>> 40) & 0xFF] ^
+                      t1[(int) (x >>> 48) & 0xFF] ^ t0[(int) (x >>> 56)];
+            }
+            for(; i < end; i++) {
+                crc = (_table[(int) ((crc ^ data.get(i)) & 0xFF)] ^ (crc >>> 8));
+                crc &= mask;
+            }
+        }
+        else {
+            int toLeft = 64 - hashSize;
+            for(; i + 8 <= end; i += 8) {
+                long x = (crc << toLeft) ^ (long) _BufferBE.get(data, i);
+                crc = t7[(int) (x >>> 56)] ^ t6[(int) (x >>> 48) & 0xFF] ^ t5[(int) (x >>> 40) & 0xFF] ^
+                      t4[(int) (x >>> 32) & 0xFF] ^ t3[(int) (x >>> 24) & 0xFF] ^ t2[(int) (x >>> 16) & 0xFF] ^
+                      t1[(int) (x >>> 8) & 0xFF] ^ t0[(int) x & 0xFF];
+            }
+            int toRight = (hashSize - 8);
+            toRight = Math.max(toRight, 0);
+            for(; i < end; i++) {
+                crc = (_table[(int) (((crc >> toRight) ^ data.get(i)) & 0xFF)] ^ (crc << 8));
+                crc &= mask;
+            }
+        }
+
+        return crc;
+    }
+
     private void CreateTable()
     {
         for(int i = 0; i < _table.length; i++) {_table[i] = CreateTableEntry(i);}
+        int toRight = Math.max(hashSize - 8, 0);
+        for(int k = 1; k < _Tables.length; k++) {
+            long[] prev = _Tables[k - 1];
+            long[] next = _Tables[k];
+            for(int i = 0; i < 256; i++) {
+                long r = prev[i];
+                next[i] = _Parameters.RefOut ? _table[(int) (r & 0xFF)] ^ (r >>> 8)
+                                             : (_table[(int) ((r >>> toRight) & 0xFF)] ^ (r << 8)) & mask;
+            }
+        }
     }
 
     private long CreateTableEntry(int index)
@@ -102,12 +208,30 @@ public class CrcCalculator
         return r & mask;
     }
 
-    private static Map<AlgoParams, CrcCalculator> _CalcMap = new HashMap<>();
+    private static final Map<AlgoParams, CrcCalculator> _CalcMap = new ConcurrentHashMap<>();
+
+    public static CrcCalculator of(AlgoParams algo)
+    {
+        return _CalcMap.computeIfAbsent(algo, CrcCalculator::new);
+    }
 
     public static long calc(AlgoParams algo, byte[] data)
     {
-        CrcCalculator calculator = _CalcMap.computeIfAbsent(algo, CrcCalculator::new);
-        return calculator.Calc(data, 0, data.length);
+        return of(algo).Calc(data, 0, data.length);
+    }
+
+    public static long calc(AlgoParams algo, ByteBuffer data)
+    {
+        return of(algo).Calc(data);
+    }
+
+    /**
+     * 计算 ByteBuf 可读区域 [readerIdx, writerIdx)
+     */
+    public static long calc(AlgoParams algo, ByteBuf data)
+    {
+        CrcCalculator calculator = of(algo);
+        return data.isReadable() ? calculator.Calc(data.toReadBuffer()) : calculator.Calc(new byte[0], 0, 0);
     }
 
     //@formatter:off
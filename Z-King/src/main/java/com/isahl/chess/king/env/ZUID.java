@@ -23,11 +23,13 @@
 
 package com.isahl.chess.king.env;
 
+import com.isahl.chess.king.base.log.Logger;
+
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.time.ZoneOffset;
-import java.util.concurrent.locks.LockSupport;
-import java.util.function.Supplier;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -47,6 +49,16 @@ import java.util.regex.Pattern;
  * [07bit] cluster-node identity
  * [38bit] timestamp gap 2021-06-01 00:00:00.000
  * [10bit] sequence in one millisecond
+ * <p>
+ * 低 48bit 以 (timestamp &lt;&lt; 10 | sequence) 打包为单个 AtomicLong，CAS 分配，无锁；
+ * 分配值 = max(上次 + 1, 当前毫秒首个序号)，因此：
+ * 同一毫秒内 sequence 溢出时进位到下一毫秒（借用未来的时间戳），不阻塞；
+ * 时钟回拨时继续沿用已分配的最大值递增，不会产生重复 id。
+ * 二者均计数并告警，可由 getOverflow / getRegression 读取。
+ * <p>
+ * lease &gt; 1 时每个线程一次 CAS 租用 lease 个连续序号，在本地递增分配；
+ * 租用区间的毫秒早于当前时钟时作废，保证 id 的时间戳不滞后。
+ * 此时 id 全局唯一，单线程内递增，跨线程不再严格按分配顺序递增。
  */
 public class ZUID
 {
@@ -93,11 +105,28 @@ public class ZUID
     private final        long           _ClusterId;
     private final        long           _NodeId;
     private final        long           _Type;
-    private final        Supplier<Long> _TimestampSupplier;
-    private              long           mSequence;
-    private              long           mLastTimestamp;
+    private final        LongSupplier   _TimestampSupplier;
+    /*
+     * 最近一次分配的 (timestamp << SEQUENCE_BITS) | sequence
+     */
+    private final        AtomicLong     _State             = new AtomicLong();
+    private final        AtomicLong     _Overflow          = new AtomicLong();
+    private final        AtomicLong     _Regression        = new AtomicLong();
+    private volatile     long           vWallClock;
+    private              int            mLeaseSize;
+
+    private static final Logger              _Logger = Logger.getLogger("base.king." + ZUID.class.getSimpleName());
+    /*
+     * 线程租用的序号区间 [next, end)
+     */
+    private final        ThreadLocal<long[]> _Lease  = ThreadLocal.withInitial(()->new long[2]);
 
     public ZUID(long idc_id, long cluster_id, long node_id, long type)
+    {
+        this(idc_id, cluster_id, node_id, type, System::currentTimeMillis);
+    }
+
+    ZUID(long idc_id, long cluster_id, long node_id, long type, LongSupplier timestampSupplier)
     {
         if(idc_id > MAX_IDC_ID || idc_id < 0) {
             throw new IllegalArgumentException(String.format("idc region Id can't be greater than %d or less than 0",
@@ -118,7 +147,7 @@ public class ZUID
         _ClusterId = cluster_id;
         _NodeId = node_id;
         _Type = type;
-        _TimestampSupplier = System::currentTimeMillis;
+        _TimestampSupplier = timestampSupplier;
     }
 
     public ZUID()
@@ -164,44 +193,95 @@ public class ZUID
         _TimestampSupplier = System::currentTimeMillis;
     }
 
-    public synchronized long getId()
+    /**
+     * @param lease 每个线程一次租用的序号数量，不超过单毫秒容量；&lt;= 1 时逐个 CAS 分配
+     */
+    public ZUID setLease(int lease)
+    {
+        mLeaseSize = (int) Math.min(Math.max(lease, 0), SEQUENCE_MASK + 1);
+        return this;
+    }
+
+    public long getId()
     {
         return getId(_Type << TYPE_SHIFT);
     }
 
     public String getName()
     {
-        return String.format(UNAME_FORMATTER, _Type, _IdcId, _ClusterId, _NodeId, _TimestampSupplier.get());
+        return String.format(UNAME_FORMATTER, _Type, _IdcId, _ClusterId, _NodeId, _TimestampSupplier.getAsLong());
     }
 
     public long getId(long type)
     {
         type &= TYPE_MASK;
-        generateSequence();
-        return (_IdcId << IDC_SHIFT) | (_ClusterId << CLUSTER_SHIFT) | (_NodeId << NODE_SHIFT)| type |
-               ((mLastTimestamp << TIMESTAMP_SHIFT) | mSequence) & ~PREFIX_MASK;
+        return (_IdcId << IDC_SHIFT) | (_ClusterId << CLUSTER_SHIFT) | (_NodeId << NODE_SHIFT) | type |
+               next() & ~PREFIX_MASK;
     }
 
     public long moveOn(long id)
     {
         long prefix = PREFIX_MASK & id;
-        generateSequence();
-        return ((mLastTimestamp << TIMESTAMP_SHIFT) | mSequence) & ~PREFIX_MASK | prefix;
+        return next() & ~PREFIX_MASK | prefix;
     }
 
-    private void generateSequence()
+    private long next()
     {
-        long timestamp = _TimestampSupplier.get();
-        if(mLastTimestamp == timestamp) {
-            mSequence = (mSequence + 1) & SEQUENCE_MASK;
-            if(mSequence == 0) {
-                LockSupport.parkUntil(++timestamp);
+        if(mLeaseSize <= 1) {return reserve(1);}
+        long[] lease = _Lease.get();
+        if(lease[0] < lease[1] && (lease[1] - 1) >>> SEQUENCE_BITS >= _TimestampSupplier.getAsLong()) {
+            return lease[0]++;
+        }
+        long start = reserve(mLeaseSize);
+        lease[0] = start + 1;
+        lease[1] = start + mLeaseSize;
+        return start;
+    }
+
+    /**
+     * @return 连续 count 个序号中的首个
+     */
+    private long reserve(int count)
+    {
+        for(; ; ) {
+            long last = _State.get();
+            long now = _TimestampSupplier.getAsLong();
+            long next = Math.max(last + 1, now << SEQUENCE_BITS);
+            long end = next + count - 1;
+            if(_State.compareAndSet(last, end)) {
+                long wall = vWallClock;
+                if(now > wall) {vWallClock = now;}
+                else if(now < wall) {report(_Regression, "clock moved backwards %d ms", wall - now);}
+                if(end >>> SEQUENCE_BITS > Math.max(now, wall)) {
+                    report(_Overflow, "sequence overflow, borrow %d ms ahead", (end >>> SEQUENCE_BITS) - now);
+                }
+                return next;
             }
         }
-        else {
-            mSequence = 0L;
+    }
+
+    private void report(AtomicLong counter, String fmt, long gap)
+    {
+        long count = counter.incrementAndGet();
+        if((count & (count - 1)) == 0) {
+            _Logger.warning("%s " + fmt + " [total: %d]", this, gap, count);
         }
-        mLastTimestamp = timestamp;
+    }
+
+    /**
+     * @return sequence 溢出后借用后续毫秒的次数
+     */
+    public long getOverflow()
+    {
+        return _Overflow.get();
+    }
+
+    /**
+     * @return 检测到时钟回拨的次数
+     */
+    public long getRegression()
+    {
+        return _Regression.get();
     }
 
     public long getPeerId()
@@ -237,7 +317,7 @@ public class ZUID
     @Override
     public String toString()
     {
-        return "ZUID{" + "IdcId=" + _IdcId + ", ClusterId=" + _ClusterId + ", NodeId=" + _NodeId + ", Type=" + _Type + ", sequence=" + mSequence + '}';
+        return "ZUID{" + "IdcId=" + _IdcId + ", ClusterId=" + _ClusterId + ", NodeId=" + _NodeId + ", Type=" + _Type + ", sequence=" + (_State.get() & SEQUENCE_MASK) + '}';
     }
 
     public static int getNodeId(long id)
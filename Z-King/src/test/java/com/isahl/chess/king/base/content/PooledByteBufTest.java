@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.content;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PooledByteBufTest
+{
+    @Test
+    void leaseAndRelease()
+    {
+        ByteBufPool pool = new ByteBufPool(1 << 16, 1 << 20);
+        ByteBuffer a = pool.lease(100);
+        assertEquals(512, a.capacity());
+        assertTrue(a.isDirect());
+        pool.release(a);
+        assertSame(a, pool.lease(300));
+        assertEquals((1 << 20) + 1, pool.lease((1 << 20) + 1).capacity());
+        ByteBufPool.Metrics metrics = pool.metrics();
+        assertEquals(3, metrics.leased());
+        assertEquals(1, metrics.released());
+        assertEquals(2, metrics.outstanding());
+    }
+
+    @Test
+    void writeGrowAndRelease()
+    {
+        ByteBufPool pool = new ByteBufPool(1 << 16, 1 << 20);
+        PooledByteBuf buf = new PooledByteBuf(pool, 512, 4096);
+        assertEquals(0, buf.capacity());
+        for(int i = 0; i < 1024; i++) {buf.putInt(i);}
+        assertEquals(4096, buf.capacity());
+        assertThrows(RuntimeException.class, ()->buf.put(1));
+        for(int i = 0; i < 1024; i++) {assertEquals(i, buf.getInt());}
+        assertTrue(buf.release());
+        assertEquals(0, buf.capacity());
+        assertEquals(0, pool.metrics()
+                            .used());
+
+        ByteBuf packet = ByteBuf.wrap(new byte[6000]);
+        buf.putExactly(packet);
+        assertEquals(4096, buf.readableBytes());
+        assertEquals(6000 - 4096, packet.readableBytes());
+    }
+
+    @Test
+    void adaptiveRead()
+    {
+        ByteBufPool pool = new ByteBufPool(1 << 16, 1 << 20);
+        PooledByteBuf buf = new PooledByteBuf(pool, 512, 1 << 16);
+        ByteBuffer window = buf.toWriteBuffer();
+        assertEquals(512, window.remaining());
+        buf.seek(512);
+        buf.skip(512);
+        // 写满后下一次读窗口扩大
+        assertEquals(1024, buf.toWriteBuffer()
+                              .remaining());
+        buf.seek(2);
+        buf.skip(2);
+        // 少量读取后收缩回最小窗口
+        assertEquals(512, buf.toWriteBuffer()
+                             .remaining());
+    }
+
+    @Test
+    void leak() throws InterruptedException
+    {
+        ByteBufPool pool = new ByteBufPool(1 << 16, 1 << 20);
+        new PooledByteBuf(pool, 512, 4096).put(1);
+        for(int i = 0; i < 50 && pool.metrics()
+                                      .leaked() == 0; i++)
+        {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(1, pool.metrics()
+                            .leaked());
+        assertEquals(0, pool.metrics()
+                            .outstanding());
+    }
+}
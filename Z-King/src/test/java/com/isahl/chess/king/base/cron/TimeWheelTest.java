@@ -0,0 +1,155 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.cron;
+
+import com.isahl.chess.king.base.cron.features.ICancelable;
+import com.isahl.chess.king.base.features.IValid;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeWheelTest
+{
+    private final IValid _Valid = new IValid()
+    {
+        @Override
+        public boolean isValid()
+        {
+            return true;
+        }
+
+        @Override
+        public boolean isInvalid()
+        {
+            return false;
+        }
+    };
+
+    @Test
+    void subSecond() throws InterruptedException
+    {
+        TimeWheel wheel = new TimeWheel(10, TimeUnit.MILLISECONDS, 3);
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger cancelled = new AtomicInteger();
+        long start = System.nanoTime();
+        wheel.acquire(_Valid, new ScheduleHandler<>(Duration.ofMillis(150), v->latch.countDown()));
+        ICancelable cancel = wheel.acquire(_Valid, new ScheduleHandler<>(Duration.ofMillis(50), v->cancelled.incrementAndGet()));
+        cancel.cancel();
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        // 只校验不会提前触发，上界由调度负载决定，不做断言
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+        assertEquals(0, cancelled.get());
+        wheel.shutdown();
+    }
+
+    @Test
+    void cascade() throws InterruptedException
+    {
+        // 8 slot/level, 延迟跨越多层
+        TimeWheel wheel = new TimeWheel(5, TimeUnit.MILLISECONDS, 3);
+        int count = 2000;
+        CountDownLatch latch = new CountDownLatch(count);
+        AtomicInteger early = new AtomicInteger();
+        for(int i = 0; i < count; i++) {
+            long delay = (i * 37L) % 3000;
+            long expect = System.currentTimeMillis() + delay;
+            wheel.acquire(_Valid, new ScheduleHandler<>(Duration.ofMillis(delay), v->{
+                if(System.currentTimeMillis() < expect) {early.incrementAndGet();}
+                latch.countDown();
+            }));
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(0, early.get());
+        wheel.shutdown();
+    }
+
+    @Test
+    void acquireAndCancel() throws InterruptedException
+    {
+        TimeWheel wheel = new TimeWheel(5, TimeUnit.MILLISECONDS, 3);
+        int count = 20_000, threads = 4;
+        // 偶数位保留、奇数位取消；延迟足够长，取消一定早于到期
+        AtomicIntegerArray fired = new AtomicIntegerArray(count);
+        CountDownLatch latch = new CountDownLatch(count / 2);
+        Thread[] workers = new Thread[threads];
+        for(int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(()->{
+                for(int i = id; i < count; i += threads) {
+                    int n = i;
+                    ICancelable cancelable = wheel.acquire(_Valid, new ScheduleHandler<>(Duration.ofMillis(500 + i % 300), v->{
+                        fired.incrementAndGet(n);
+                        latch.countDown();
+                    }));
+                    if((i & 1) == 1) {cancelable.cancel();}
+                }
+            });
+            workers[t].start();
+        }
+        for(Thread worker : workers) {worker.join();}
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        // 越过最大延迟，留出重复触发或已取消任务触发的时间
+        TimeUnit.MILLISECONDS.sleep(300);
+        for(int i = 0; i < count; i++) {
+            assertEquals(1 - (i & 1), fired.get(i), "task " + i);
+        }
+        wheel.shutdown();
+    }
+
+    @Test
+    void deadlineOrder() throws InterruptedException
+    {
+        // 8 slot/level，每 tick 5ms；分组覆盖 0~2 层，组间至少相隔 20 个 tick，
+        // 同组任务在同一 tick 交给线程池并发执行，只断言组间的先后
+        TimeWheel wheel = new TimeWheel(5, TimeUnit.MILLISECONDS, 3);
+        int[] groups = { 20, 150, 300, 500, 800, 1200, 1600, 2000 };
+        int each = 5;
+        List<Integer> delays = new ArrayList<>();
+        for(int group : groups) {
+            for(int i = 0; i < each; i++) {delays.add(group);}
+        }
+        Collections.shuffle(delays, new Random(7));
+        Queue<Integer> order = new ConcurrentLinkedQueue<>();
+        CountDownLatch latch = new CountDownLatch(delays.size());
+        for(int delay : delays) {
+            wheel.acquire(_Valid, new ScheduleHandler<>(Duration.ofMillis(delay), v->{
+                order.offer(delay);
+                latch.countDown();
+            }));
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        List<Integer> expect = new ArrayList<>(delays);
+        Collections.sort(expect);
+        assertEquals(expect, new ArrayList<>(order));
+        wheel.shutdown();
+    }
+}
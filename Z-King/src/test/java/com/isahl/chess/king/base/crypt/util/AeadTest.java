@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.crypt.util;
+
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.crypt.features.ISymmetric;
+import com.isahl.chess.king.base.exception.ZException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author william.d.zk
+ */
+class AeadTest
+{
+    private final byte[] _Key = "z-tls-aead-test-key".getBytes();
+
+    private void roundTrip(CipherSuite suite)
+    {
+        ISymmetric initiatorOut = suite.create(true, true);
+        ISymmetric responderIn = suite.create(false, false);
+        Random random = new Random(suite.ordinal());
+        ByteBuf wire = ByteBuf.allocate(1 << 16);
+        byte[][] frames = new byte[32][];
+        for(int i = 0; i < frames.length; i++) {
+            frames[i] = new byte[random.nextInt(4096) + 1];
+            random.nextBytes(frames[i]);
+            ByteBuf plain = ByteBuf.allocate(frames[i].length);
+            plain.put(frames[i]);
+            wire.append(initiatorOut.seal(plain, _Key));
+        }
+        // 按任意长度分片送达，验证半包保留
+        ByteBuf network = ByteBuf.allocate(64);
+        ByteBuf frame = ByteBuf.allocate(64);
+        while(wire.isReadable()) {
+            byte[] chunk = new byte[Math.min(wire.readableBytes(), random.nextInt(1500) + 1)];
+            wire.get(chunk);
+            network.append(ByteBuf.wrap(chunk));
+            responderIn.open(network, frame, _Key);
+        }
+        assertFalse(network.isReadable());
+        for(byte[] expected : frames) {
+            byte[] actual = new byte[expected.length];
+            frame.get(actual);
+            assertArrayEquals(expected, actual);
+        }
+        assertFalse(frame.isReadable());
+    }
+
+    @Test
+    void aesGcm()
+    {
+        roundTrip(CipherSuite.AES_GCM);
+    }
+
+    @Test
+    void chacha20Poly1305()
+    {
+        roundTrip(CipherSuite.CHACHA20_POLY1305);
+    }
+
+    @Test
+    void rc4()
+    {
+        roundTrip(CipherSuite.RC4);
+    }
+
+    @Test
+    void directionAndTamper()
+    {
+        ISymmetric out = CipherSuite.AES_GCM.create(true, true);
+        ByteBuf plain = ByteBuf.allocate(16);
+        plain.put(new byte[16]);
+        ByteBuf record = out.seal(plain, _Key);
+        byte[] bytes = new byte[record.readableBytes()];
+        record.get(bytes);
+        // 同方向的解密端 nonce 不同，必须拒绝
+        ISymmetric reflect = CipherSuite.AES_GCM.create(false, true);
+        assertThrows(ZException.class, ()->reflect.open(ByteBuf.wrap(bytes.clone()), ByteBuf.allocate(16), _Key));
+        bytes[bytes.length - 1] ^= 1;
+        ISymmetric in = CipherSuite.AES_GCM.create(false, false);
+        assertThrows(ZException.class, ()->in.open(ByteBuf.wrap(bytes), ByteBuf.allocate(16), _Key));
+    }
+
+    @Test
+    void negotiate()
+    {
+        assertEquals(CipherSuite.AES_GCM, CipherSuite.select(CipherSuite.getSupported()));
+        assertEquals(CipherSuite.CHACHA20_POLY1305, CipherSuite.select(CipherSuite.CHACHA20_POLY1305.getMask()));
+        assertEquals(CipherSuite.RC4, CipherSuite.select(CipherSuite.RC4.getMask()));
+        assertEquals(CipherSuite.RC4, CipherSuite.select(0));
+    }
+}
@@ -23,8 +23,21 @@
 
 package com.isahl.chess.king.base.util;
 
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.util.crc.AlgoParams;
+import com.isahl.chess.king.base.util.crc.Crc16;
+import com.isahl.chess.king.base.util.crc.Crc32;
+import com.isahl.chess.king.base.util.crc.Crc64;
+import com.isahl.chess.king.base.util.crc.Crc8;
+import com.isahl.chess.king.base.util.crc.CrcCalculator;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 /**
  * @author william.d.zk
  * @date 2020/7/12
@@ -52,4 +65,79 @@ class CryptoUtilTest
         int crc32 = CryptoUtil.crc32(input, 0, input.length);
         System.out.println(IoUtil.long2Hex(crc32, ":"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void crcCheck()
+    {
+        byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(0x4B37, CryptoUtil.crc16(check, 0, check.length));
+        assertEquals(0xCBF43926, CryptoUtil.crc32(check, 0, check.length));
+        assertEquals(0xE3069283, CryptoUtil.crc32c(check, 0, check.length));
+        assertEquals(0x3558E8E979F60D7EL, CryptoUtil.crc64(check, 0, check.length));
+        for(AlgoParams[] params : new AlgoParams[][]{ Crc8.Params, Crc16.Params, Crc32.Params, Crc64.Params }) {
+            for(AlgoParams algo : params) {
+                long expect = CrcCalculator.calc(algo, check);
+                assertEquals(algo.getCheck(), expect, algo.getName());
+                ByteBuffer direct = ByteBuffer.allocateDirect(check.length + 3);
+                direct.position(3);
+                direct.put(check);
+                direct.position(3);
+                assertEquals(expect, CrcCalculator.calc(algo, direct));
+                assertEquals(3, direct.position());
+            }
+        }
+    }
+
+    @Test
+    void crcSlicing()
+    {
+        Random random = new Random(17);
+        byte[] data = new byte[1031];
+        random.nextBytes(data);
+        ByteBuf heap = ByteBuf.wrap(data);
+        ByteBuf direct = new ByteBuf(data.length, true);
+        direct.put(data);
+        for(int off = 0; off < 9; off++) {
+            for(int len = 0; len + off <= data.length; len += 1 + (len >> 3)) {
+                int crc16 = crc16Bitwise(data, off, len);
+                long crc64 = crc64Bitwise(data, off, len);
+                assertEquals(crc16, CryptoUtil.crc16(data, off, len));
+                assertEquals(crc16, CryptoUtil.crc16(direct, off, len));
+                assertEquals(crc64, CryptoUtil.crc64(data, off, len));
+                assertEquals(crc64, CryptoUtil.crc64(direct, off, len));
+                assertEquals(crc32Bitwise(data, off, len), CryptoUtil.crc32(heap, off, len));
+                assertEquals(CryptoUtil.crc32c(data, off, len), CryptoUtil.crc32c(direct, off, len));
+            }
+        }
+    }
+
+    private static int crc16Bitwise(byte[] buf, int off, int len)
+    {
+        int crc = 0xFFFF;
+        for(int i = off; i < off + len; i++) {
+            crc ^= buf[i] & 0xFF;
+            for(int j = 0; j < 8; j++) {crc = (crc & 1) > 0 ? (crc >>> 1) ^ 0xA001 : crc >>> 1;}
+        }
+        return crc;
+    }
+
+    private static int crc32Bitwise(byte[] buf, int off, int len)
+    {
+        int crc = 0xFFFFFFFF;
+        for(int i = off; i < off + len; i++) {
+            crc ^= buf[i] & 0xFF;
+            for(int j = 0; j < 8; j++) {crc = (crc & 1) > 0 ? (crc >>> 1) ^ 0xEDB88320 : crc >>> 1;}
+        }
+        return ~crc;
+    }
+
+    private static long crc64Bitwise(byte[] buf, int off, int len)
+    {
+        long crc = 0xFFFFFFFFFFFFFFFFL;
+        for(int i = off; i < off + len; i++) {
+            crc ^= buf[i] & 0xFF;
+            for(int j = 0; j < 8; j++) {crc = (crc & 1) == 1 ? (crc >>> 1) ^ 0x95AC9329AC4BC9B5L : crc >>> 1;}
+        }
+        return ~crc;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.isahl.chess.king.base.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author william.d.zk
+ */
+class HistogramTest
+{
+    @Test
+    void bucket()
+    {
+        long previous = -1;
+        for(long v : new long[]{ 0, 1, 15, 16, 17, 31, 32, 1000, 1 << 20, Long.MAX_VALUE >>> 1, Long.MAX_VALUE }) {
+            int index = Histogram.indexOf(v);
+            long high = Histogram.highOf(index);
+            assertTrue(high >= v, "high " + high + " < " + v);
+            assertTrue(high - v <= Math.max(v >>> 4, 0), "error over 1/16 @" + v);
+            assertTrue(high >= previous);
+            previous = high;
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.highOf(Histogram.indexOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void percentile()
+    {
+        Histogram histogram = new Histogram();
+        for(int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10000, snapshot.count());
+        assertEquals(5000, snapshot.mean());
+        assertEquals(10000, snapshot.max());
+        assertTrue(Math.abs(snapshot.p50() - 5000) <= 5000 >> 4);
+        assertTrue(Math.abs(snapshot.p99() - 9900) <= 9900 >> 4);
+        assertEquals(0, new Histogram().snapshot()
+                                       .count());
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashMapTest
+{
+    @Test
+    void compareWithHashMap()
+    {
+        Random random = new Random(17);
+        LongHashMap<Long> map = new LongHashMap<>(4);
+        LongLongHashMap lMap = new LongLongHashMap(4, -1);
+        Map<Long, Long> expect = new HashMap<>();
+        for(int i = 0; i < 200_000; i++) {
+            // 小范围 key 制造大量冲突与删除回移
+            long key = random.nextInt(4096) - 16;
+            long value = random.nextLong();
+            switch(random.nextInt(3)) {
+                case 0, 1 -> {
+                    assertEquals(expect.put(key, value), map.put(key, value));
+                    lMap.put(key, value);
+                }
+                default -> {
+                    Long old = expect.remove(key);
+                    assertEquals(old, map.remove(key));
+                    assertEquals(old == null ? -1L : old.longValue(), lMap.remove(key));
+                }
+            }
+        }
+        assertEquals(expect.size(), map.size());
+        assertEquals(expect.size(), lMap.size());
+        for(long key = -16; key < 4096; key++) {
+            assertEquals(expect.get(key), map.get(key));
+            assertEquals(expect.getOrDefault(key, -1L).longValue(), lMap.get(key));
+        }
+        long sum = 0;
+        for(long v : map.values()) {sum += v;}
+        assertEquals(expect.values()
+                           .stream()
+                           .mapToLong(Long::longValue)
+                           .sum(), sum);
+    }
+
+    @Test
+    void removeExact()
+    {
+        LongHashMap<String> map = new LongHashMap<>();
+        String a = "a";
+        map.put(1, a);
+        assertFalse(map.remove(1, new String("a")));
+        assertTrue(map.remove(1, a));
+        assertNull(map.get(1));
+    }
+
+    @Test
+    void set()
+    {
+        LongHashSet set = new LongHashSet(2);
+        for(long i = 0; i < 1000; i++) {assertTrue(set.add(i * 31));}
+        assertFalse(set.add(0));
+        assertTrue(set.remove(0));
+        assertFalse(set.contains(0));
+        long[] sum = {0};
+        set.forEach(k->sum[0] += k);
+        assertEquals(31L * 999 * 1000 / 2, sum[0]);
+    }
+
+    @Test
+    void concurrentRead() throws InterruptedException
+    {
+        LongHashMap<Long> map = new LongHashMap<>(4);
+        // 常驻 key 始终存在，写线程持续插入、删除其余 key，触发 rehash 与删除回移
+        for(long key = 0; key < 64; key++) {map.put(key << 8, key);}
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong missed = new AtomicLong();
+        Thread[] readers = new Thread[3];
+        for(int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(()->{
+                while(running.get()) {
+                    for(long key = 0; key < 64; key++) {
+                        Long value = map.get(key << 8);
+                        if(value == null || value != key) {missed.incrementAndGet();}
+                    }
+                }
+            });
+            readers[r].start();
+        }
+        Random random = new Random(31);
+        for(int i = 0; i < 500_000; i++) {
+            long key = (random.nextInt(1 << 14) << 8) + 1 + random.nextInt(255);
+            if(random.nextBoolean()) {map.put(key, key);}
+            else {map.remove(key);}
+        }
+        running.set(false);
+        for(Thread reader : readers) {reader.join();}
+        assertEquals(0, missed.get());
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.king.base.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author william.d.zk
+ */
+class RingQueueTest
+{
+    @Test
+    void bounded()
+    {
+        RingQueue<Integer> queue = new RingQueue<>(5);
+        assertEquals(8, queue.capacity());
+        for(int i = 0; i < 8; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(8));
+        assertEquals(8, queue.size());
+        // 丢弃最旧元素后可以继续写入
+        assertEquals(0, (int) queue.poll());
+        assertTrue(queue.offer(8));
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, queue.drain(drained::add, 4));
+        assertEquals(List.of(1, 2, 3, 4), drained);
+        assertEquals(4, queue.drain(drained::add, 16));
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void concurrent() throws InterruptedException
+    {
+        final int producers = 4, count = 200_000;
+        RingQueue<long[]> queue = new RingQueue<>(1024);
+        CountDownLatch latch = new CountDownLatch(producers);
+        for(int p = 0; p < producers; p++) {
+            final int producer = p;
+            new Thread(()->{
+                for(int i = 0; i < count; i++) {
+                    long[] e = { producer, i };
+                    while(!queue.offer(e)) {Thread.onSpinWait();}
+                }
+                latch.countDown();
+            }).start();
+        }
+        long[] next = new long[producers];
+        int received = 0;
+        while(received < producers * count) {
+            long[] e = queue.poll();
+            if(e == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            // 同一生产者的元素保持写入顺序
+            assertEquals(next[(int) e[0]]++, e[1]);
+            received++;
+        }
+        latch.await();
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.isahl.chess.king.env;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author william.d.zk
+ */
+class ZUIDTest
+{
+    @Test
+    void concurrent() throws InterruptedException
+    {
+        unique(new ZUID(1, 2, 3, 2));
+        unique(new ZUID(1, 2, 3, 2).setLease(64));
+    }
+
+    private void unique(ZUID zuid) throws InterruptedException
+    {
+        final int threads = 4, count = 100_000;
+        long[][] ids = new long[threads][count];
+        CountDownLatch latch = new CountDownLatch(threads);
+        for(int t = 0; t < threads; t++) {
+            long[] local = ids[t];
+            new Thread(()->{
+                for(int i = 0; i < count; i++) {
+                    local[i] = zuid.getId();
+                    assertTrue(i == 0 || local[i] > local[i - 1]);
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        long[] all = Arrays.stream(ids)
+                           .flatMapToLong(Arrays::stream)
+                           .sorted()
+                           .toArray();
+        for(int i = 1; i < all.length; i++) {
+            assertNotEquals(all[i - 1], all[i]);
+        }
+        assertEquals(zuid.getPeerId(), all[0] & ZUID.PREFIX_MASK);
+    }
+
+    @Test
+    void regression()
+    {
+        AtomicLong clock = new AtomicLong(1_000_000);
+        ZUID zuid = new ZUID(0, 0, 1, 2, clock::get);
+        long a = zuid.getId();
+        clock.addAndGet(-100);
+        long b = zuid.getId();
+        assertTrue(b > a);
+        assertEquals(1, zuid.getRegression());
+        clock.addAndGet(200);
+        long c = zuid.getId();
+        assertTrue(c > b);
+        assertEquals(0, c & ZUID.SEQUENCE_MASK);
+    }
+
+    @Test
+    void overflow()
+    {
+        ZUID zuid = new ZUID(0, 0, 1, 2, ()->1_000_000);
+        long last = zuid.getId();
+        for(int i = 0; i < ZUID.SEQUENCE_MASK + 10; i++) {
+            long id = zuid.getId();
+            assertTrue(id > last);
+            last = id;
+        }
+        assertTrue(zuid.getOverflow() > 0);
+        assertEquals(1_000_001, (last & ~ZUID.PREFIX_MASK) >>> ZUID.TIMESTAMP_SHIFT);
+    }
+}
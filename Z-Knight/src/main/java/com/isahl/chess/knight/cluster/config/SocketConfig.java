@@ -23,16 +23,20 @@
 
 package com.isahl.chess.knight.cluster.config;
 
-import com.isahl.chess.king.base.exception.ZException;
 import com.isahl.chess.king.base.util.IoUtil;
 import com.isahl.chess.queen.config.ISocketConfig;
+import com.isahl.chess.queen.io.core.features.model.session.IOption;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
 import org.springframework.util.unit.DataSize;
 
 import javax.net.ssl.*;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.security.*;
 import java.security.cert.CertificateException;
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 public class SocketConfig
         implements ISocketConfig
@@ -45,6 +49,16 @@ public class SocketConfig
     private DataSize       sendBufferSize;
     private DataSize       recvBufferSize;
     private int            sendQueueMax;
+    private DataSize       sendQueueBytes      = DataSize.ofMegabytes(4);
+    private DataSize       spillMax            = DataSize.ofMegabytes(64);
+    private String         spillDirectory;
+    private int            gatherWriteMax;
+    private int            acceptBacklog       = 1 << 10;
+    private int            acceptors           = 1;
+    /*
+     * key 为 QoS 等级值 0/1/2
+     */
+    private Map<String, IOption.SlowConsumer> slowConsumer = new HashMap<>();
     private boolean        tcpNoDelay;
     private String         keyStorePath;
     private String         trustKeyStorePath;
@@ -55,6 +69,10 @@ public class SocketConfig
     private boolean        clientAuth;
     private int            sslPacketBufferSize;
     private int            sslAppBufferSize;
+    private String[]       sslProtocols        = { "TLSv1.2" };
+    private int            sslSessionCacheSize = 20480;
+    private Duration       sslSessionTimeout   = Duration.ofHours(24);
+    private SSLContext     sslContext;
 
     @Override
     public boolean isKeepAlive()
@@ -139,6 +157,84 @@ public class SocketConfig
         this.sendQueueMax = sendQueueMax;
     }
 
+    @Override
+    public long getSendQueueMaxInByte()
+    {
+        return sendQueueBytes.toBytes();
+    }
+
+    public void setSendQueueBytes(DataSize sendQueueBytes)
+    {
+        this.sendQueueBytes = sendQueueBytes;
+    }
+
+    @Override
+    public IOption.SlowConsumer getSlowConsumer(IQoS.Level level)
+    {
+        IOption.SlowConsumer action = slowConsumer.get(String.valueOf(level.getValue()));
+        return action == null ? ISocketConfig.super.getSlowConsumer(level) : action;
+    }
+
+    public void setSlowConsumer(Map<String, IOption.SlowConsumer> slowConsumer)
+    {
+        this.slowConsumer = slowConsumer;
+    }
+
+    @Override
+    public long getSpillMaxInByte()
+    {
+        return spillMax.toBytes();
+    }
+
+    public void setSpillMax(DataSize spillMax)
+    {
+        this.spillMax = spillMax;
+    }
+
+    @Override
+    public Path getSpillDirectory()
+    {
+        return IoUtil.isBlank(spillDirectory) ? ISocketConfig.super.getSpillDirectory() : Path.of(spillDirectory);
+    }
+
+    public void setSpillDirectory(String spillDirectory)
+    {
+        this.spillDirectory = spillDirectory;
+    }
+
+    @Override
+    public int getGatherWriteMax()
+    {
+        return gatherWriteMax;
+    }
+
+    public void setGatherWriteMax(int gatherWriteMax)
+    {
+        this.gatherWriteMax = gatherWriteMax;
+    }
+
+    @Override
+    public int getAcceptBacklog()
+    {
+        return acceptBacklog;
+    }
+
+    public void setAcceptBacklog(int acceptBacklog)
+    {
+        this.acceptBacklog = acceptBacklog;
+    }
+
+    @Override
+    public int getAcceptors()
+    {
+        return acceptors;
+    }
+
+    public void setAcceptors(int acceptors)
+    {
+        this.acceptors = acceptors;
+    }
+
     public void setTcpNoDelay(boolean tcpNoDelay)
     {
         this.tcpNoDelay = tcpNoDelay;
@@ -222,19 +318,56 @@ public class SocketConfig
     }
 
     @Override
-    public void init()
-    {
-        try {
-            SSLContext sslCtx = SSLContext.getInstance("TLSv1.2");
-            sslCtx.init(getKeyManagers(), getTrustManagers(), null);
-            SSLSession sslSession = sslCtx.createSSLEngine()
-                                          .getSession();
-            sslPacketBufferSize = sslSession.getPacketBufferSize();
-            sslAppBufferSize = sslSession.getApplicationBufferSize();
-        }
-        catch(NoSuchAlgorithmException | KeyManagementException e) {
-            throw new ZException(e, "ssl static init failed");
+    public synchronized void init()
+    {
+        if(sslContext != null) {
+            return;
         }
+        sslContext = buildSslContext();
+        SSLEngine sslEngine = sslContext.createSSLEngine();
+        sslEngine.setEnabledProtocols(getSslProtocols());
+        SSLSession sslSession = sslEngine.getSession();
+        sslPacketBufferSize = sslSession.getPacketBufferSize();
+        sslAppBufferSize = sslSession.getApplicationBufferSize();
+    }
+
+    @Override
+    public SSLContext getSslContext()
+    {
+        return sslContext;
+    }
+
+    @Override
+    public String[] getSslProtocols()
+    {
+        return sslProtocols;
+    }
+
+    public void setSslProtocols(String[] sslProtocols)
+    {
+        this.sslProtocols = sslProtocols;
+    }
+
+    @Override
+    public int getSslSessionCacheSize()
+    {
+        return sslSessionCacheSize;
+    }
+
+    public void setSslSessionCacheSize(int sslSessionCacheSize)
+    {
+        this.sslSessionCacheSize = sslSessionCacheSize;
+    }
+
+    @Override
+    public Duration getSslSessionTimeout()
+    {
+        return sslSessionTimeout;
+    }
+
+    public void setSslSessionTimeout(Duration sslSessionTimeout)
+    {
+        this.sslSessionTimeout = sslSessionTimeout;
     }
 
     @Override
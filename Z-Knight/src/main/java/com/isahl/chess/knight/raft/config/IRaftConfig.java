@@ -90,6 +90,58 @@ public interface IRaftConfig
 
     int getSyncBatchMaxSize();
 
+    /**
+     * 每个 segment 保留的已解码 log entry 数量上限
+     *
+     * @return segment decoded entry cache size
+     */
+    int getSegmentCacheSize();
+
+    /**
+     * WAL 刷盘策略
+     *
+     * @return log append fsync policy
+     * @see SyncPolicy
+     */
+    SyncPolicy getWalSyncPolicy();
+
+    /**
+     * SyncPolicy.INTERVAL 时的刷盘周期
+     *
+     * @return log append fsync interval
+     */
+    Duration getWalSyncInterval();
+
+    /**
+     * leader 单个批次合并的提案数上限，达到上限时不再等待批次结束立即提交
+     *
+     * @return proposal batch max size
+     */
+    int getProposalBatchMaxSize();
+
+    /**
+     * leader 对每个 follower 未确认的 X72 数量上限
+     *
+     * @return append in-flight window per follower
+     */
+    int getAppendWindow();
+
+    enum SyncPolicy
+    {
+        /**
+         * 每条 entry 写入后立即 fsync
+         */
+        ENTRY,
+        /**
+         * 一批 entry 写入完成后统一 fsync 一次
+         */
+        BATCH,
+        /**
+         * 后台按固定周期 fsync，append 的结果在下一次刷盘后完成
+         */
+        INTERVAL
+    }
+
     class Uid
             implements IReset
     {
@@ -97,6 +149,7 @@ public interface IRaftConfig
         private int mIdcId     = -1;
         private int mClusterId = -1;
         private int mType      = -1;
+        private int mLease;
 
         @Override
         public void reset()
@@ -105,6 +158,7 @@ public interface IRaftConfig
             mIdcId = -1;
             mClusterId = -1;
             mNodeId = -1;
+            mLease = 0;
         }
 
         public int getNodeId()
@@ -146,5 +200,18 @@ public interface IRaftConfig
         {
             this.mType = type;
         }
+
+        /**
+         * @return 每个线程一次租用的 id 数量，0 为逐个分配
+         */
+        public int getLease()
+        {
+            return mLease;
+        }
+
+        public void setLease(int lease)
+        {
+            this.mLease = lease;
+        }
     }
 }
@@ -62,10 +62,10 @@ public class ZRaftConfig
 
     private final static String FILE_NAME = "raft.json";
 
-    private ZUID       mZUid;
-    private RaftNode   mPeerBind;
-    private String     mBaseDir;
-    private RaftConfig mConfig;
+    private volatile ZUID       vZUid;
+    private          RaftNode   mPeerBind;
+    private          String     mBaseDir;
+    private          RaftConfig mConfig;
 
     public ZRaftConfig()
     {
@@ -204,7 +204,19 @@ public class ZRaftConfig
     @Override
     public ZUID getZUID()
     {
-        return mZUid == null ? mZUid = new ZUID(getUid().getIdcId(), getUid().getClusterId(), getUid().getNodeId(), getUid().getType()) : mZUid;
+        ZUID zUid = vZUid;
+        if(zUid == null) {
+            synchronized(this) {
+                if((zUid = vZUid) == null) {
+                    Uid uid = getUid();
+                    vZUid = zUid = new ZUID(uid.getIdcId(),
+                                            uid.getClusterId(),
+                                            uid.getNodeId(),
+                                            uid.getType()).setLease(uid.getLease());
+                }
+            }
+        }
+        return zUid;
     }
 
     @Override
@@ -393,4 +405,34 @@ public class ZRaftConfig
     {
         return mConfig.getSyncBatchMaxSize();
     }
+
+    @Override
+    public int getSegmentCacheSize()
+    {
+        return mConfig.getSegmentCacheSize();
+    }
+
+    @Override
+    public SyncPolicy getWalSyncPolicy()
+    {
+        return mConfig.getWalSyncPolicy();
+    }
+
+    @Override
+    public Duration getWalSyncInterval()
+    {
+        return mConfig.getWalSyncInterval();
+    }
+
+    @Override
+    public int getProposalBatchMaxSize()
+    {
+        return mConfig.getProposalBatchMaxSize();
+    }
+
+    @Override
+    public int getAppendWindow()
+    {
+        return mConfig.getAppendWindow();
+    }
 }
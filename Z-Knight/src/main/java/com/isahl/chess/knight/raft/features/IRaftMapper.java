@@ -30,6 +30,8 @@ import com.isahl.chess.knight.raft.model.replicate.LogMeta;
 import com.isahl.chess.knight.raft.model.replicate.SnapshotEntry;
 import com.isahl.chess.knight.raft.model.replicate.SnapshotMeta;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author william.d.zk
  */
@@ -63,6 +65,19 @@ public interface IRaftMapper
 
     boolean append(LogEntry entry);
 
+    /**
+     * 写入 entry，返回的 future 在 entry 按 SyncPolicy 落盘后完成
+     *
+     * @param entry log entry
+     * @return durable future, append 失败或 entry 被截断时以异常完成
+     */
+    CompletableFuture<LogEntry> appendAsync(LogEntry entry);
+
+    /**
+     * 批次边界，一次性提交此前 append 的全部 entry
+     */
+    void sync();
+
     void truncatePrefix(long newFirstIndex);
 
     LogEntry truncateSuffix(long newEndIndex);
@@ -57,6 +57,14 @@ public class RaftConfig
     private IRaftConfig.Uid      uid;
 
     private int syncBatchMaxSize;
+    private int segmentCacheSize;
+
+    private IRaftConfig.SyncPolicy walSyncPolicy;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Duration               walSyncInterval;
+
+    private int proposalBatchMaxSize;
+    private int appendWindow;
 
     public Map<Integer, String> getPeers()
     {
@@ -177,7 +185,54 @@ public class RaftConfig
     {
         this.syncBatchMaxSize = syncBatchMaxSize;
     }
-}
 
+    public int getSegmentCacheSize()
+    {
+        return segmentCacheSize;
+    }
+
+    public void setSegmentCacheSize(int segmentCacheSize)
+    {
+        this.segmentCacheSize = segmentCacheSize;
+    }
+
+    public IRaftConfig.SyncPolicy getWalSyncPolicy()
+    {
+        return walSyncPolicy;
+    }
+
+    public void setWalSyncPolicy(IRaftConfig.SyncPolicy walSyncPolicy)
+    {
+        this.walSyncPolicy = walSyncPolicy;
+    }
+
+    public Duration getWalSyncInterval()
+    {
+        return walSyncInterval;
+    }
+
+    public void setWalSyncInterval(Duration walSyncInterval)
+    {
+        this.walSyncInterval = walSyncInterval;
+    }
+
+    public int getProposalBatchMaxSize()
+    {
+        return proposalBatchMaxSize;
+    }
 
+    public void setProposalBatchMaxSize(int proposalBatchMaxSize)
+    {
+        this.proposalBatchMaxSize = proposalBatchMaxSize;
+    }
+
+    public int getAppendWindow()
+    {
+        return appendWindow;
+    }
 
+    public void setAppendWindow(int appendWindow)
+    {
+        this.appendWindow = appendWindow;
+    }
+}
@@ -24,7 +24,9 @@
 package com.isahl.chess.knight.raft.model.replicate;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.isahl.chess.king.base.exception.ZException;
 import com.isahl.chess.king.base.log.Logger;
+import com.isahl.chess.knight.raft.config.IRaftConfig.SyncPolicy;
 import com.isahl.chess.knight.raft.config.ZRaftConfig;
 import com.isahl.chess.knight.raft.features.IRaftMapper;
 import com.isahl.chess.knight.raft.model.RaftConfig;
@@ -41,12 +43,18 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.lang.reflect.InvocationTargetException;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -55,9 +63,11 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static com.isahl.chess.knight.raft.features.IRaftMachine.INDEX_NAN;
 import static com.isahl.chess.knight.raft.features.IRaftMachine.TERM_NAN;
 import static com.isahl.chess.knight.raft.model.replicate.Segment.SEGMENT_PREFIX;
 import static com.isahl.chess.knight.raft.model.replicate.Segment.SEGMENT_SUFFIX_WRITE;
+import static java.time.temporal.ChronoUnit.MILLIS;
 import static java.time.temporal.ChronoUnit.SECONDS;
 
 @Component
@@ -70,9 +80,22 @@ public class Mapper
     private final String                    _LogMetaDir;
     private final String                    _SnapshotDir;
     private final long                      _MaxSegmentSize;
+    private final int                       _SegmentCacheSize;
     private final TreeMap<Long, Segment>    _Index2SegmentMap          = new TreeMap<>();
     private final TypeReference<RaftConfig> _TypeReferenceOfRaftConfig = new TypeReference<>() {};
     private final CacheManager              _CacheManager;
+    private final SyncPolicy                _SyncPolicy;
+    private final Duration                  _SyncInterval;
+    /*
+     * 已写入 segment 但尚未 fsync 的 entry，按 index 递增排列，仅在 _WalLock 下访问
+     */
+    private final Queue<Durable>            _Pending                   = new ArrayDeque<>();
+    /*
+     * 保护 _Index2SegmentMap、各 segment（含读取时的 LRU 缓存）与 _Pending，raft-wal-sync 线程同样在此锁下访问
+     */
+    private final Lock                      _WalLock                   = new ReentrantLock();
+
+    private ScheduledExecutorService mSyncExecutor;
 
     private          LogMeta       mLogMeta;
     private          SnapshotMeta  mSnapshotMeta;
@@ -93,8 +116,16 @@ public class Mapper
         _LogDataDir = String.format("%s%s.data", baseDir, File.separator);
         _SnapshotDir = String.format("%s%s.snapshot", baseDir, File.separator);
         _MaxSegmentSize = config.getMaxSegmentSize();
+        _SegmentCacheSize = config.getSegmentCacheSize() > 0 ? config.getSegmentCacheSize()
+                                                              : Segment.DEFAULT_CACHE_SIZE;
+        _SyncPolicy = config.getWalSyncPolicy() == null ? SyncPolicy.BATCH : config.getWalSyncPolicy();
+        _SyncInterval = config.getWalSyncInterval() == null || config.getWalSyncInterval()
+                                                                     .isZero() ? Duration.of(50, MILLIS)
+                                                                               : config.getWalSyncInterval();
     }
 
+    private record Durable(LogEntry entry, CompletableFuture<LogEntry> future) {}
+
     @PostConstruct
     private void init() throws ClassNotFoundException, InstantiationException, IllegalAccessException
     {
@@ -103,6 +134,14 @@ public class Mapper
                                   Long.class,
                                   LogEntry.class,
                                   Duration.of(30, SECONDS));
+        load();
+    }
+
+    /**
+     * 加载 meta 与 segment，按 SyncPolicy 启动 raft-wal-sync
+     */
+    void load()
+    {
         File file = new File(_LogMetaDir);
         if(!file.exists() && !file.mkdirs()) {
             throw new SecurityException(String.format("%s check mkdir authority", _LogMetaDir));
@@ -159,12 +198,25 @@ public class Mapper
             //存在本地文件错误损失→重置
             reset();
         }
+        if(_SyncPolicy == SyncPolicy.INTERVAL) {
+            mSyncExecutor = Executors.newSingleThreadScheduledExecutor(r->{
+                Thread thread = new Thread(r, "raft-wal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = _SyncInterval.toNanos();
+            mSyncExecutor.scheduleWithFixedDelay(this::force, interval, interval, TimeUnit.NANOSECONDS);
+        }
         vValid = true;
     }
 
     @PreDestroy
     void dispose()
     {
+        if(mSyncExecutor != null) {
+            mSyncExecutor.shutdown();
+        }
+        force();
         mLogMeta.close();
         mSnapshotMeta.close();
         _Logger.debug("raft dao dispose");
@@ -209,19 +261,26 @@ public class Mapper
     @Override
     public LogEntry getEntry(long index)
     {
-        long startIndex = getStartIndex();
-        long endIndex = getEndIndex();
-        if(_Index2SegmentMap.isEmpty()) {return null;}
-        if(index < startIndex || index > endIndex) {
-            _Logger.debug("index out of range, index=%d, start_index=%d, end_index=%d", index, startIndex, endIndex);
+        // segment 的 LRU 缓存在读取时同样会变更结构，与 append/truncate 一起在 _WalLock 下串行
+        _WalLock.lock();
+        try {
+            long startIndex = getStartIndex();
+            long endIndex = getEndIndex();
+            if(_Index2SegmentMap.isEmpty()) {return null;}
+            if(index < startIndex || index > endIndex) {
+                _Logger.debug("index out of range, index=%d, start_index=%d, end_index=%d", index, startIndex, endIndex);
+                return null;
+            }
+            Map.Entry<Long, Segment> floor = _Index2SegmentMap.floorEntry(index);
+            if(floor != null) {
+                _Logger.debug("index: %#x, segment: %s", index, floor.getValue());
+                return floor.getValue().getEntry(index);
+            }
             return null;
         }
-        Map.Entry<Long, Segment> floor = _Index2SegmentMap.floorEntry(index);
-        if(floor != null) {
-            _Logger.debug("index: %#x, segment: %s", index, floor.getValue());
-            return floor.getValue().getEntry(index);
+        finally {
+            _WalLock.unlock();
         }
-        return null;
     }
 
     @Override
@@ -296,11 +355,14 @@ public class Mapper
                                      long start = Long.parseLong(matcher.group(1));
                                      String g3 = matcher.group(3);
                                      boolean canWrite = SEGMENT_SUFFIX_WRITE.equalsIgnoreCase(g3);
-                                     return new Segment(subFile, start, canWrite);
+                                     return new Segment(subFile,
+                                                        start,
+                                                        canWrite,
+                                                        _SegmentCacheSize,
+                                                        _MaxSegmentSize);
                                  }
                              }
-                             catch(IOException | IllegalArgumentException | InvocationTargetException |
-                                   NoSuchMethodException | InstantiationException | IllegalAccessException e) {
+                             catch(IOException | IllegalArgumentException e) {
                                  e.printStackTrace();
                              }
                              return null;
@@ -335,6 +397,79 @@ public class Mapper
 
     @Override
     public boolean append(LogEntry entry)
+    {
+        _WalLock.lock();
+        try {
+            return write(entry, null);
+        }
+        finally {
+            _WalLock.unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<LogEntry> appendAsync(LogEntry entry)
+    {
+        CompletableFuture<LogEntry> future = new CompletableFuture<>();
+        _WalLock.lock();
+        try {
+            if(!write(entry, future)) {
+                future.completeExceptionally(new ZException("append failed: %s", entry));
+            }
+        }
+        finally {
+            _WalLock.unlock();
+        }
+        return future;
+    }
+
+    @Override
+    public void sync()
+    {
+        switch(_SyncPolicy) {
+            case BATCH -> force();
+            case INTERVAL -> {
+                // 仅更新 header，fsync 由 raft-wal-sync 周期执行
+                _WalLock.lock();
+                try {
+                    if(!_Index2SegmentMap.isEmpty()) {
+                        _Index2SegmentMap.lastEntry()
+                                         .getValue()
+                                         .sync(false);
+                    }
+                }
+                finally {
+                    _WalLock.unlock();
+                }
+            }
+            default -> {
+                // ENTRY: append 时已经落盘
+            }
+        }
+    }
+
+    /**
+     * 将当前可写 segment 刷写到存储设备，完成所有等待中的 durable future
+     */
+    private void force()
+    {
+        _WalLock.lock();
+        try {
+            if(!_Index2SegmentMap.isEmpty()) {
+                Segment segment = _Index2SegmentMap.lastEntry()
+                                                   .getValue();
+                if(segment.isDirty()) {
+                    segment.sync(true);
+                }
+            }
+            complete();
+        }
+        finally {
+            _WalLock.unlock();
+        }
+    }
+
+    private boolean write(LogEntry entry, CompletableFuture<LogEntry> future)
     {
         _Logger.debug("wait to append %s", entry);
         if(entry == null) {return false;}
@@ -353,8 +488,9 @@ public class Mapper
                 }
                 else if(segment.getFileSize() + size >= _MaxSegmentSize) {
                     needNewFile = true;
-                    // segment的文件close并改名
+                    // segment的文件close并改名，freeze 会将全部数据落盘
                     segment.freeze();
+                    complete();
                 }
             }
             Segment segment = null;
@@ -365,13 +501,16 @@ public class Mapper
                 if(!newFile.exists()) {
                     try {
                         if(newFile.createNewFile()) {
-                            segment = new Segment(newFile, newEndIndex, true);
+                            segment = new Segment(newFile,
+                                                  newEndIndex,
+                                                  true,
+                                                  _SegmentCacheSize,
+                                                  _MaxSegmentSize);
                             _Index2SegmentMap.put(newEndIndex, segment);
                         }
                         else {throw new IOException("create file failed");}
                     }
-                    catch(IOException | InvocationTargetException | NoSuchMethodException | InstantiationException |
-                          IllegalAccessException e) {
+                    catch(IOException e) {
                         _Logger.warning("create segment file failed %s", e, newFileName);
                         return false;
                     }
@@ -381,9 +520,17 @@ public class Mapper
                 segment = _Index2SegmentMap.lastEntry()
                                            .getValue();
             }
-            if(segment != null && segment.add(entry)) {
+            if(segment != null && segment.append(entry)) {
                 vTotalSize += size;
                 mLogMeta.accept(entry);
+                if(_SyncPolicy == SyncPolicy.ENTRY) {
+                    segment.sync(true);
+                    complete();
+                    if(future != null) {future.complete(entry);}
+                }
+                else if(future != null) {
+                    _Pending.offer(new Durable(entry, future));
+                }
                 _Logger.debug("append ok [%d]", newEndIndex);
                 return true;
             }
@@ -392,36 +539,64 @@ public class Mapper
         return false;
     }
 
+    private void complete()
+    {
+        for(Durable durable; (durable = _Pending.poll()) != null; ) {
+            durable.future()
+                   .complete(durable.entry());
+        }
+    }
+
+    /**
+     * 被截断或重置的 entry 不会再落盘，等待中的 future 以异常完成
+     */
+    private void fail(long newEndIndex)
+    {
+        for(Iterator<Durable> it = _Pending.iterator(); it.hasNext(); ) {
+            Durable durable = it.next();
+            if(durable.entry()
+                      .index() > newEndIndex)
+            {
+                durable.future()
+                       .completeExceptionally(new ZException("entry %d truncated",
+                                                             durable.entry()
+                                                                    .index()));
+                it.remove();
+            }
+        }
+    }
+
     @Override
     public void truncatePrefix(long newFirstIndex)
     {
         if(newFirstIndex <= getStartIndex()) {return;}
         long oldFirstIndex = getStartIndex();
-        while(!_Index2SegmentMap.isEmpty()) {
-            Segment segment = _Index2SegmentMap.firstEntry()
-                                               .getValue();
-            if(segment.isCanWrite()) {
-                break;
-            }
-            if(newFirstIndex > segment.getEndIndex()) {
-                try {
-                    vTotalSize -= segment.drop();
-                    _Index2SegmentMap.remove(segment.getStartIndex());
+        long newActualFirstIndex;
+        _WalLock.lock();
+        try {
+            while(!_Index2SegmentMap.isEmpty()) {
+                Segment segment = _Index2SegmentMap.firstEntry()
+                                                   .getValue();
+                if(segment.isCanWrite()) {
+                    break;
+                }
+                if(newFirstIndex > segment.getEndIndex()) {
+                    try {
+                        vTotalSize -= segment.drop();
+                        _Index2SegmentMap.remove(segment.getStartIndex());
+                    }
+                    catch(Exception ex2) {
+                        _Logger.warning("delete file exception:", ex2);
+                    }
                 }
-                catch(Exception ex2) {
-                    _Logger.warning("delete file exception:", ex2);
+                else {
+                    break;
                 }
             }
-            else {
-                break;
-            }
+            newActualFirstIndex = _Index2SegmentMap.isEmpty() ? newFirstIndex : _Index2SegmentMap.firstKey();
         }
-        long newActualFirstIndex;
-        if(_Index2SegmentMap.isEmpty()) {
-            newActualFirstIndex = newFirstIndex;
-        }
-        else {
-            newActualFirstIndex = _Index2SegmentMap.firstKey();
+        finally {
+            _WalLock.unlock();
         }
         updateLogStart(newActualFirstIndex);
         _Logger.debug("Truncating log from old first index %d to new first index %d",
@@ -435,6 +610,18 @@ public class Mapper
         long endIndex = getEndIndex();
         if(newEndIndex >= endIndex) {return null;}
         _Logger.debug("Truncating log from old end index %d to new end index %d", endIndex, newEndIndex);
+        _WalLock.lock();
+        try {
+            fail(newEndIndex);
+            return truncate(newEndIndex);
+        }
+        finally {
+            _WalLock.unlock();
+        }
+    }
+
+    private LogEntry truncate(long newEndIndex)
+    {
         while(!_Index2SegmentMap.isEmpty()) {
             Segment segment = _Index2SegmentMap.lastEntry()
                                                .getValue();
@@ -528,7 +715,14 @@ public class Mapper
     @Override
     public void reset()
     {
-        _Index2SegmentMap.clear();
+        _WalLock.lock();
+        try {
+            fail(INDEX_NAN);
+            _Index2SegmentMap.clear();
+        }
+        finally {
+            _WalLock.unlock();
+        }
         mLogMeta.reset();
         mSnapshotMeta.reset();
         clearSegments();
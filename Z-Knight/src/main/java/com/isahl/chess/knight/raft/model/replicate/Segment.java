@@ -25,6 +25,7 @@ package com.isahl.chess.knight.raft.model.replicate;
 
 import com.isahl.chess.king.base.content.ByteBuf;
 import com.isahl.chess.king.base.exception.ZException;
+import com.isahl.chess.king.base.features.model.ICollectionSerial;
 import com.isahl.chess.king.base.log.Logger;
 import com.isahl.chess.king.base.model.ListSerial;
 import org.apache.commons.io.FileUtils;
@@ -32,61 +33,128 @@ import org.apache.commons.io.FileUtils;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.lang.reflect.InvocationTargetException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
 
+/**
+ * 文件格式与 ListSerial&lt;LogEntry&gt; 保持一致
+ * +--------+--------+------+-------+-------+ - - - +
+ * |serial 2|length 4|size 4|entry 0|entry 1|  ...  |
+ * +--------+--------+------+-------+-------+ - - - +
+ * 内存中仅保留每条 entry 在文件中的偏移量，读取时从 mmap 区域按需解码，
+ * 最近解码的 entry 保存在有界的 LRU 缓存中。
+ * <p>
+ * 可写 segment 预先映射 capacity 大小的区域，append 只写入 entry，
+ * header 中的 length/size 在 sync 时一次性更新；
+ * 未被 header 覆盖的尾部数据在重新加载时被忽略。
+ * <p>
+ * sync 时在有效数据之后写入 [crc32c 4|crc32c ^ magic 4]，覆盖 header 之后的全部 entry；
+ * 该 trailer 位于被忽略的尾部，不改变 ListSerial 格式，下一次 append 直接覆盖它。
+ * 重新加载时 trailer 有效则校验，缺失（旧文件或 trailer 尚未落盘）则跳过。
+ * <p>
+ * 非线程安全，LRU 缓存按访问顺序排列，getEntry 同样会修改其结构；
+ * 读写均由 Mapper 的 _WalLock 串行化。
+ */
 public class Segment
 {
     final static String SEGMENT_PREFIX          = "z_chess_raft_seg";
     final static String SEGMENT_SUFFIX_WRITE    = "w";
     final static String SEGMENT_SUFFIX_READONLY = "r";
     final static String SEGMENT_DATE_FORMATTER  = "%020d-%020d";
+    final static int    HEADER_SIZE             = ICollectionSerial.SIZE_POS + Integer.BYTES;
+    final static int    DEFAULT_CACHE_SIZE      = 1 << 10;
+    final static long   DEFAULT_CAPACITY        = 1 << 16;
+    final static int    TRAILER_SIZE            = Integer.BYTES << 1;
+    final static int    TRAILER_MAGIC           = 0x5A435243;
 
-    private final static Logger _Logger = Logger.getLogger("cluster.knight." + Segment.class.getSimpleName());
+    private final static Logger _Logger        = Logger.getLogger("cluster.knight." + Segment.class.getSimpleName());
+    private final static int    RECORDS_SERIAL = new ListSerial<LogEntry>(LogEntry::new).serial();
 
-    private final long                 _StartIndex;
-    private final String               _FileDirectory;
-    private final ListSerial<LogEntry> _Records;
+    private final long                _StartIndex;
+    private final String              _FileDirectory;
+    private final Map<Long, LogEntry> _Cache;
+    private final long                _Capacity;
+    private final CRC32C              _Checksum = new CRC32C();
 
     private RandomAccessFile mRandomAccessFile;
+    private MappedByteBuffer mReadMapped;
+    private MappedByteBuffer mWriteMapped;
     private String           mFileName;
     private long             mEndIndex;
     private long             mFileSize;
+    private long             mSyncSize;
+    private long             mForceSize;
     private boolean          mCanWrite;
+    /*
+     * _StartIndex + i 对应的 entry 在文件中的起始偏移
+     */
+    private int[]            mOffsets;
+    private int              mCount;
 
     public LogEntry getEntry(long index)
     {
-        int listIndex = (int) (index - _StartIndex);
-        if(_StartIndex == 0 || mEndIndex == 0 || index < _StartIndex || index > mEndIndex || listIndex < 0 ||
-           listIndex >= _Records.size())
-        {
-            _Logger.warning("get entry failed@%d;start:%d,end:%d,size:%d",
-                            index,
-                            _StartIndex,
-                            mEndIndex,
-                            _Records.size());
+        long position = index - _StartIndex;
+        if(_StartIndex == 0 || mEndIndex == 0 || index < _StartIndex || index > mEndIndex || position >= mCount) {
+            _Logger.warning("get entry failed@%d;start:%d,end:%d,size:%d", index, _StartIndex, mEndIndex, mCount);
             return null;
         }
-        LogEntry logEntry = _Records.get(listIndex);
+        LogEntry logEntry = _Cache.get(index);
+        if(logEntry == null) {
+            try {
+                logEntry = decode((int) position);
+            }
+            catch(IOException | RuntimeException e) {
+                _Logger.warning("segment decode entry @%d failed", e, index);
+                return null;
+            }
+            _Cache.put(index, logEntry);
+        }
         if(logEntry.index() != index) {
             _Logger.warning("segment get(%d) log entry [%s]", index, logEntry);
         }
         return logEntry;
     }
 
-    public Segment(File file,
-                   long startIndex,
-                   boolean canWrite) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException
+    public Segment(File file, long startIndex, boolean canWrite) throws IOException
+    {
+        this(file, startIndex, canWrite, DEFAULT_CACHE_SIZE, DEFAULT_CAPACITY);
+    }
+
+    public Segment(File file, long startIndex, boolean canWrite, int cacheSize) throws IOException
+    {
+        this(file, startIndex, canWrite, cacheSize, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param cacheSize 已解码 entry 缓存上限
+     * @param capacity  可写状态下预分配的映射区域大小，通常为 max_segment_size
+     */
+    public Segment(File file, long startIndex, boolean canWrite, int cacheSize, long capacity) throws IOException
     {
         _FileDirectory = file.getParent();
-        _Records = new ListSerial<>(LogEntry::new);
+        _Cache = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, LogEntry> eldest)
+            {
+                return size() > cacheSize;
+            }
+        };
+        _Capacity = Math.max(capacity, HEADER_SIZE + TRAILER_SIZE);
+        mOffsets = new int[64];
         mEndIndex = _StartIndex = startIndex;
         mFileName = file.getAbsolutePath();
         mCanWrite = canWrite;
         mRandomAccessFile = new RandomAccessFile(file, isCanWrite() ? "rw" : "r");
-        mFileSize = mRandomAccessFile.length();
         loadRecord();
+        if(isCanWrite()) {
+            mapForWrite(_Capacity);
+        }
     }
 
     public static String fileNameFormatter(boolean readonly)
@@ -107,14 +175,17 @@ public class Segment
         return mEndIndex;
     }
 
-    private void setEndIndex(long newEndIndex)
+    /**
+     * @return 有效数据长度，不含预分配部分
+     */
+    public long getFileSize()
     {
-        mEndIndex = newEndIndex;
+        return mFileSize;
     }
 
-    public long getFileSize()
+    public int size()
     {
-        return mFileSize;
+        return mCount;
     }
 
     public boolean isCanWrite()
@@ -122,29 +193,105 @@ public class Segment
         return mCanWrite;
     }
 
-    private void setFileSize(long newFileSize)
+    /**
+     * 仅扫描 entry 头部 [serial|v-length] 建立偏移索引，不解码 entry
+     * 有效数据范围以 header 为准
+     */
+    private void loadRecord() throws IOException
     {
-        mFileSize = newFileSize;
-        try {
-            mRandomAccessFile.setLength(mFileSize);
+        long length = mRandomAccessFile.length();
+        if(length < HEADER_SIZE) {
+            mFileSize = mSyncSize = mForceSize = 0;
+            return;
         }
-        catch(IOException e) {
-            _Logger.warning("set file size failed (%d)", e, mFileSize);
+        MappedByteBuffer mapped = mRandomAccessFile.getChannel()
+                                                   .map(FileChannel.MapMode.READ_ONLY, 0, length);
+        long dataSize = HEADER_SIZE + (mapped.getInt(ICollectionSerial.LENGTH_POS) & 0xFFFFFFFFL);
+        int size = mapped.getInt(ICollectionSerial.SIZE_POS);
+        if(dataSize > length) {
+            throw new ZException("segment %s header length %d over file size %d", mFileName, dataSize, length);
+        }
+        mReadMapped = mapped;
+        mFileSize = mSyncSize = mForceSize = dataSize;
+        checkTrailer(mapped, length);
+        ByteBuf input = ByteBuf.wrap(mapped);
+        long position = HEADER_SIZE;
+        for(int i = 0; i < size; i++) {
+            if(position + ICollectionSerial.LENGTH_POS >= mFileSize) {
+                throw new ZException("segment %s broken @%d of %d entries", mFileName, i, size);
+            }
+            int entryLength = input.vPeekLength((int) position + ICollectionSerial.LENGTH_POS);
+            offer((int) position);
+            position += ICollectionSerial.LENGTH_POS + ByteBuf.vLengthOff(entryLength) + entryLength;
+        }
+        if(position != mFileSize) {
+            _Logger.warning("segment %s size %d, indexed %d", mFileName, mFileSize, position);
+        }
+        if(mCount == 0) {return;}
+        long startIndex = decode(0).index();
+        if(startIndex != _StartIndex) {
+            throw new ZException("first entry index %d isn't equal segment's start_index %d", startIndex, _StartIndex);
+        }
+        mEndIndex = _StartIndex + mCount - 1;
+        long endIndex = decode(mCount - 1).index();
+        if(endIndex != mEndIndex) {
+            throw new ZException("last entry index %d isn't equal segment's end_index %d", endIndex, mEndIndex);
         }
     }
 
-    private void loadRecord() throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException
+    private void checkTrailer(MappedByteBuffer mapped, long length)
     {
-        if(mFileSize == 0) {return;}
-        _Records.decode(ByteBuf.wrap(mRandomAccessFile.getChannel()
-                                                      .map(FileChannel.MapMode.READ_ONLY, 0, mFileSize)));
-        long startIndex = _Records.get(0)
-                                  .index();
-        if(startIndex != _StartIndex) {
-            throw new ZException("first entry index %d isn't equal segment's start_index %d", startIndex, _StartIndex);
+        _Checksum.update(mapped.slice(HEADER_SIZE, (int) (mFileSize - HEADER_SIZE)));
+        if(mFileSize + TRAILER_SIZE > length) {return;}
+        int crc = mapped.getInt((int) mFileSize);
+        if((crc ^ TRAILER_MAGIC) != mapped.getInt((int) mFileSize + Integer.BYTES)) {
+            _Logger.debug("segment %s without crc trailer", mFileName);
+            return;
+        }
+        if(crc != (int) _Checksum.getValue()) {
+            throw new ZException("segment %s crc mismatch %#x != %#x", mFileName, crc, (int) _Checksum.getValue());
+        }
+    }
+
+    private void offer(int offset)
+    {
+        if(mCount == mOffsets.length) {
+            mOffsets = Arrays.copyOf(mOffsets, mCount << 1);
+        }
+        mOffsets[mCount++] = offset;
+    }
+
+    private LogEntry decode(int position) throws IOException
+    {
+        int from = mOffsets[position];
+        long to = position + 1 < mCount ? mOffsets[position + 1] : mFileSize;
+        ByteBuffer mapped = mapForRead(to);
+        return new LogEntry(ByteBuf.wrap(mapped.slice(from, (int) (to - from))));
+    }
+
+    /**
+     * 可写状态直接读取写入区域；只读映射随文件增长按需重建
+     */
+    private MappedByteBuffer mapForRead(long limit) throws IOException
+    {
+        if(mWriteMapped != null) {return mWriteMapped;}
+        if(mReadMapped == null || mReadMapped.capacity() < limit) {
+            mReadMapped = mRandomAccessFile.getChannel()
+                                           .map(FileChannel.MapMode.READ_ONLY, 0, mFileSize);
+        }
+        return mReadMapped;
+    }
+
+    private void mapForWrite(long capacity) throws IOException
+    {
+        mWriteMapped = mRandomAccessFile.getChannel()
+                                        .map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        mReadMapped = null;
+        if(mFileSize == 0) {
+            mWriteMapped.putShort(ICollectionSerial.SERIAL_POS, (short) RECORDS_SERIAL);
+            mFileSize = HEADER_SIZE;
+            writeHeader();
         }
-        mEndIndex = _Records.get(_Records.size() - 1)
-                            .index();
     }
 
     public void freeze()
@@ -154,9 +301,14 @@ public class Segment
         File newFile = new File(newAbsolutePath);
         File oldFile = new File(mFileName);
         try {
+            sync(true);
+            mWriteMapped = null;
+            // 回收预分配的尾部空间，保留 trailer
+            mRandomAccessFile.setLength(mFileSize + TRAILER_SIZE);
             mRandomAccessFile.close();
             FileUtils.moveFile(oldFile, newFile);
             mRandomAccessFile = new RandomAccessFile(newFile, "r");
+            mFileName = newAbsolutePath;
             mCanWrite = false;
         }
         catch(IOException e) {
@@ -164,44 +316,80 @@ public class Segment
         }
     }
 
-    public boolean add(LogEntry entry)
+    /**
+     * 写入 entry 但不更新 header，需调用 sync 使其在重新加载时可见
+     */
+    public boolean append(LogEntry entry)
     {
+        if(entry == null || !isCanWrite()) {return false;}
         try {
-            if(_Records.add(entry)) {
-                byte[] output;
-                if(_Records.size() > 1) {
-                    output = entry.encoded();
-                    ByteBuffer mapped = mRandomAccessFile.getChannel()
-                                                         .map(FileChannel.MapMode.READ_WRITE, mFileSize, output.length);
-                    mapped.put(output);
-                    mapped = mRandomAccessFile.getChannel()
-                                              .map(FileChannel.MapMode.READ_WRITE,
-                                                   _Records.SERIAL_POS,
-                                                   _Records.SIZE_POS + Integer.BYTES);
-                    int oldLength = mapped.getInt(_Records.LENGTH_POS);
-                    mapped.putInt(_Records.LENGTH_POS, oldLength + output.length);
-                    mapped.putInt(_Records.SIZE_POS, _Records.size());
-                }
-                else {
-                    output = _Records.encoded();
-                    ByteBuffer mapped = mRandomAccessFile.getChannel()
-                                                         .map(FileChannel.MapMode.READ_WRITE, 0, output.length);
-                    mapped.put(output);
-                }
-                mFileSize += output.length;
+            byte[] output = entry.encoded();
+            if(mFileSize + output.length + TRAILER_SIZE > mWriteMapped.capacity()) {
+                // 单条 entry 超过预分配空间，扩展映射区域
+                writeHeader();
+                mapForWrite(Math.max(mWriteMapped.capacity() << 1, mFileSize + output.length + TRAILER_SIZE));
             }
+            mWriteMapped.put((int) mFileSize, output);
+            _Checksum.update(output);
+            offer((int) mFileSize);
+            mFileSize += output.length;
             mEndIndex = entry.index();
+            _Cache.put(mEndIndex, entry);
             return true;
         }
         catch(IOException e) {
-            _Logger.warning("add record failed ", e);
+            _Logger.warning("append record failed ", e);
         }
         return false;
     }
 
+    public boolean add(LogEntry entry)
+    {
+        if(append(entry)) {
+            sync(false);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 以一次 header 更新提交自上次 sync 以来 append 的全部 entry
+     *
+     * @param force true: 将映射区域刷写到存储设备
+     */
+    public void sync(boolean force)
+    {
+        if(mWriteMapped == null) {return;}
+        if(mSyncSize != mFileSize) {
+            writeHeader();
+            mSyncSize = mFileSize;
+        }
+        if(force && mForceSize != mSyncSize) {
+            mWriteMapped.force(0, (int) mSyncSize + TRAILER_SIZE);
+            mForceSize = mSyncSize;
+        }
+    }
+
+    public boolean isDirty()
+    {
+        return mForceSize != mFileSize;
+    }
+
+    private void writeHeader()
+    {
+        mWriteMapped.putInt(ICollectionSerial.LENGTH_POS, (int) (mFileSize - HEADER_SIZE));
+        mWriteMapped.putInt(ICollectionSerial.SIZE_POS, mCount);
+        int crc = (int) _Checksum.getValue();
+        mWriteMapped.putInt((int) mFileSize, crc);
+        mWriteMapped.putInt((int) mFileSize + Integer.BYTES, crc ^ TRAILER_MAGIC);
+    }
+
     public long drop() throws IOException
     {
         mRandomAccessFile.close();
+        mReadMapped = null;
+        mWriteMapped = null;
+        _Cache.clear();
         File file = new File(mFileName);
         FileUtils.forceDelete(file);
         return mFileSize;
@@ -213,19 +401,16 @@ public class Segment
         if(newRecordCount < 0) {
             throw new ZException("new record size[%d],error input", newRecordCount);
         }
-        if(_Records.size() > newRecordCount) {
-            _Records.subList(newRecordCount, _Records.size())
-                    .clear();
-            mEndIndex = newEndIndex;
-            long newFileSize = _Records.sizeOf();
+        if(mCount > newRecordCount) {
+            long newFileSize = newRecordCount == 0 ? HEADER_SIZE : mOffsets[newRecordCount];
             long dropSize = mFileSize - newFileSize;
-            ByteBuffer mapped = mRandomAccessFile.getChannel()
-                                                 .map(FileChannel.MapMode.READ_WRITE,
-                                                      _Records.SERIAL_POS,
-                                                      _Records.SIZE_POS + Integer.BYTES);
-            mapped.putInt(_Records.LENGTH_POS, _Records.length());
-            mapped.putInt(_Records.SIZE_POS, _Records.size());
-            mRandomAccessFile.setLength(mFileSize = newFileSize);
+            mCount = newRecordCount;
+            mEndIndex = newEndIndex;
+            _Cache.keySet()
+                  .removeIf(index->index > newEndIndex);
+            mFileSize = newFileSize;
+            mReadMapped = null;
+            mWriteMapped = null;
             mRandomAccessFile.close();
             // 缩减后一定处于可write状态
             String newFileName = String.format(fileNameFormatter(false), _StartIndex, mEndIndex);
@@ -233,6 +418,14 @@ public class Segment
             if(new File(mFileName).renameTo(new File(newFullFileName))) {
                 mRandomAccessFile = new RandomAccessFile(newFullFileName, "rw");
                 mFileName = newFullFileName;
+                mCanWrite = true;
+                mapForWrite(Math.max(_Capacity, mFileSize + TRAILER_SIZE));
+                _Checksum.reset();
+                _Checksum.update(mWriteMapped.slice(HEADER_SIZE, (int) (mFileSize - HEADER_SIZE)));
+                writeHeader();
+                mWriteMapped.force(0, HEADER_SIZE);
+                mWriteMapped.force((int) mFileSize, TRAILER_SIZE);
+                mSyncSize = mForceSize = mFileSize;
             }
             else {
                 throw new ZException("file [%s] rename to [%s] failed", mFileName, newFileName);
@@ -143,6 +143,12 @@ public class RaftCustom
         return _RaftPeer.onSubmit(request, manager, origin, factory);
     }
 
+    @Override
+    public List<ITriple> onBatch(IManager manager)
+    {
+        return _RaftPeer.propose(manager);
+    }
+
     @Override
     public List<ITriple> change(IManager manager, IoSerial topology)
     {
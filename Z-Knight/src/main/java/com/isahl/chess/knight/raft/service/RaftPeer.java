@@ -90,6 +90,17 @@ public class RaftPeer
     private final Random          _Random       = new Random();
     private final long            _SnapshotFragmentMaxSize;
     private final int             _SyncBatchMaxSize;
+    private final int             _ProposalBatchMaxSize;
+    private final int             _AppendWindow;
+    /*
+     * 与 follower 的 tick 超时一致，超过此时间仍无确认的 append 视为丢失
+     */
+    private final long            _AckTimeout;
+    /*
+     * key(Long) → follower peer
+     * value(InFlight) → leader 已发出但未确认的 append
+     */
+    private final Map<Long, InFlight> _InFlights = new HashMap<>();
 
     /*
      * key(Long) → msgId
@@ -99,6 +110,10 @@ public class RaftPeer
 
     private IClusterNode mClusterNode;
     private ICancelable  mElectTask, mHeartbeatTask, mTickTask;
+    /*
+     * leader 已写入 WAL 但尚未广播的提案数
+     */
+    private int          mProposals;
 
     public RaftPeer(TimeWheel timeWheel, IRaftConfig raftConfig, IRaftMapper raftMapper)
     {
@@ -117,6 +132,11 @@ public class RaftPeer
         _JointGraph.append(_SelfMachine);
         _SnapshotFragmentMaxSize = _RaftConfig.getSnapshotFragmentMaxSize();
         _SyncBatchMaxSize = _RaftConfig.getSyncBatchMaxSize();
+        _ProposalBatchMaxSize = _RaftConfig.getProposalBatchMaxSize() > 0 ? _RaftConfig.getProposalBatchMaxSize() : 128;
+        _AppendWindow = _RaftConfig.getAppendWindow() > 0 ? _RaftConfig.getAppendWindow() : 4;
+        _AckTimeout = _RaftConfig.getHeartbeatInSecond()
+                                 .multipliedBy(2)
+                                 .toNanos();
     }
 
     private RaftMachine updateMachine(IRaftMachine machine, RaftState state)
@@ -497,6 +517,9 @@ public class RaftPeer
                         // follower 持有的 log 纪录 index@term 与leader 投送的不一致，后续进行覆盖同步
                         if(_SelfMachine.isInState(LEADER)) {
                             _Logger.debug("follower %#x,match failed,rollback %d@%d", x74.peer(), x74.index(), x74.indexTerm());
+                            // 流水线中后续的 append 都将被拒绝，从 follower 的位置重新发送
+                            InFlight inFlight = _InFlights.get(x74.peer());
+                            if(inFlight != null) {inFlight.reset();}
                             IProtocol append =
                                     machine != null ? createAppend(machine, min((int) (_SelfMachine.commit() - machine.index()), _SyncBatchMaxSize)).with(
                                             session) : null;
@@ -560,33 +583,48 @@ public class RaftPeer
         if(_SelfMachine.isInState(JOINT)) {fromRecord(x73, _JointGraph, x73.peer());}
         /*
          * member.accept > leader.commit 完成半数 match 之后只触发一次 leader commit
+         * 批量 append 时一次 accept 可能覆盖多条 entry，逐条推进至不满足半数为止
          */
+        List<ITriple> broadcast = null;
+        List<X77_RaftNotify> notifies = null;
         long next = _SelfMachine.commit() + 1;
-        boolean condition = _SelfMachine.isInState(LEADER) && _SelfGraph.isMajorAccept(next);
-        boolean joint = _SelfMachine.isInState(JOINT) && _JointGraph.isMajorAccept(next);
-        if(x73.accept() >= next && condition && (joint || !_SelfMachine.isInState(JOINT))) {
+        if(x73.accept() < next) {// machine.accept < next → 已经执行过 self commit 过, 无须重复 commit
+            _Logger.debug("already commit %d, follow[ %#x ] accept: %d commit: %d", _SelfMachine.commit(), x73.peer(), x73.accept(), x73.commit());
+        }
+        for(; x73.accept() >= next && isMajorAccept(next); next++) {
             _SelfMachine.commit(next, _RaftMapper);
             LogEntry entry = _RaftMapper.getEntry(next);
+            if(notifies == null) {notifies = new LinkedList<>();}
+            notifies.add(createNotify(entry));
             if(entry.client() != _SelfMachine.peer()) {
                 // leader → client → device
                 ISession session = manager.fairLoadSessionByPrefix(entry.client());
                 if(session != null) {
-                    return Triple.of(createNotify(entry).with(session), createNotify(entry), SINGLE);
+                    if(broadcast == null) {broadcast = new LinkedList<>();}
+                    broadcast.add(map(createNotify(entry).with(session)));
                 }
             }
-            else {
-                // leader ≡ client → device
-                return Triple.of(null, createNotify(entry), NULL);
-            }
+            // else: leader ≡ client → device
         }
-        else if(x73.accept() < next) {// machine.accept < next → 已经执行过 self commit 过, 无须重复 commit
-            _Logger.debug("already commit %d, follow[ %#x ] accept: %d commit: %d", _SelfMachine.commit(), x73.peer(), x73.accept(), x73.commit());
-        }
-        else {
+        if(notifies == null && x73.accept() >= next) {
             // !_SelfGraph.isMajorAccept(next) → 未满足 commit 条件, 不执行 commit
             _Logger.debug("member %#x, catchup:%d → %d", x73.peer(), x73.accept(), _SelfMachine.accept());
         }
-        return null;
+        // 窗口释放后继续向该 follower 投送
+        ITriple append = pipeline(x73.peer(), manager);
+        if(append != null) {
+            if(broadcast == null) {broadcast = new LinkedList<>();}
+            broadcast.add(append);
+        }
+        return broadcast == null && notifies == null ? null
+                                                     : Triple.of(broadcast, notifies, broadcast == null ? NULL : BATCH);
+    }
+
+    private boolean isMajorAccept(long next)
+    {
+        boolean condition = _SelfMachine.isInState(LEADER) && _SelfGraph.isMajorAccept(next);
+        boolean joint = _SelfMachine.isInState(JOINT) && _JointGraph.isMajorAccept(next);
+        return condition && (joint || !_SelfMachine.isInState(JOINT));
     }
 
     private IRaftMachine getMachine(RaftGraph graph, long peer)
@@ -664,7 +702,8 @@ public class RaftPeer
             _SelfMachine.candidate(INVALID_PEER_ID);
             _SelfMachine.approve(FOLLOWER);
             mTickTask = _TimeWheel.acquire(this, _TickSchedule);
-
+            _InFlights.clear();
+            mProposals = 0;
         }
         else {_Logger.warning("step down [ignore],state now[%s]", RaftState.roleOf(_SelfMachine.state()));}
     }
@@ -672,6 +711,7 @@ public class RaftPeer
     private void lead()
     {
         electCancel();
+        _InFlights.clear();
         _SelfMachine.leader(_SelfMachine.peer());
         mHeartbeatTask = _TimeWheel.acquire(this, _HeartbeatSchedule);
         _Logger.debug("be leader → %s", _SelfMachine.toPrimary());
@@ -806,6 +846,8 @@ public class RaftPeer
             _RecvLogQueue.clear();
             return false;
         }
+        // 本批次接收的 entry 统一落盘后再向 leader 回复
+        _RaftMapper.sync();
         return true;
     }
 
@@ -900,12 +942,12 @@ public class RaftPeer
     {
         switch(RaftState.valueOf(_SelfMachine.state())) {
             case LEADER -> {
-                List<ITriple> responses = leaderAppend(request.encoded(), _SelfMachine.peer(), origin, factory, manager);
-                if(responses == null) {
+                if(!leaderAppend(request.encoded(), _SelfMachine.peer(), origin, factory)) {
                     stepDown(_SelfMachine.term());
                     return null;
                 }
-                else {return responses;}
+                // 达到批次上限立即提交，否则等待 ClusterProcessor 批次结束时统一提交
+                return mProposals >= _ProposalBatchMaxSize ? propose(manager) : null;
             }
             case CLIENT, FOLLOWER -> {
                 ISession session = manager.fairLoadSessionByPrefix(_SelfMachine.leader());
@@ -938,8 +980,8 @@ public class RaftPeer
     public ITriple onRequest(X75_RaftReq x75, IManager manager, ISession session)
     {
         if(_SelfMachine.isInState(LEADER)) {
-            List<ITriple> appends = leaderAppend(x75.payload(), x75.client(), x75.origin(), x75.factory(), manager);
-            if(appends != null && !appends.isEmpty()) {
+            if(leaderAppend(x75.payload(), x75.client(), x75.origin(), x75.factory())) {
+                List<ITriple> appends = mProposals >= _ProposalBatchMaxSize ? propose(manager) : null;
                 return Triple.of(appends, response(SUCCESS, x75.client(), x75.msgId(), x75.origin()).with(session), BATCH);
             }
             else {
@@ -1130,17 +1172,34 @@ public class RaftPeer
         return x76;
     }
 
-    private List<ITriple> leaderAppend(byte[] payload, long client, long origin, int factory, IManager manager)
+    private boolean leaderAppend(byte[] payload, long client, long origin, int factory)
     {
         LogEntry newEntry = new LogEntry(_SelfMachine.index() + 1, _SelfMachine.term(), client, origin, factory, payload);
         _Logger.debug("leader append new log {%s}", newEntry);
         if(_RaftMapper.append(newEntry)) {
             _SelfMachine.accept(newEntry.index(), newEntry.term());
+            mProposals++;
             _Logger.debug("leader appended log %d@%d", newEntry.index(), newEntry.term());
-            return followersAppend(RaftGraph.join(_SelfMachine.peer(), _SelfGraph, _JointGraph), manager);
+            return true;
         }
         _Logger.fetal("RAFT WAL failed!");
-        return null;
+        return false;
+    }
+
+    /**
+     * 批次边界：WAL 统一落盘后，向每个 follower 发送一个包含本批次全部 entry 的 X72
+     * 无需等待前一个 X72 的确认，每个 follower 未确认的 X72 不超过 append_window
+     *
+     * @return list of triple → publish (write,list)
+     */
+    public List<ITriple> propose(IManager manager)
+    {
+        if(mProposals == 0) {return null;}
+        _Logger.debug("leader propose %d entries", mProposals);
+        mProposals = 0;
+        _RaftMapper.sync();
+        return _SelfMachine.isInState(LEADER) ? followersAppend(RaftGraph.join(_SelfMachine.peer(), _SelfGraph, _JointGraph), manager)
+                                              : null;
     }
 
     private List<ITriple> followersAppend(Map<Long, IRaftMachine> peers, IManager manager)
@@ -1149,14 +1208,76 @@ public class RaftPeer
                                                         .stream()
                                                         .filter(e->e.getKey() != _SelfMachine.peer())
                                                         .map(e->{
-                                                            ISession session = manager.fairLoadSessionByPrefix(e.getKey());
-                                                            return session == null ? null : createAppend(e.getValue()).with(session);
+                                                            InFlight inFlight = _InFlights.computeIfAbsent(e.getKey(),
+                                                                                                           k->new InFlight(_AppendWindow));
+                                                            ISession session = pin(e.getKey(), inFlight, manager);
+                                                            if(session == null) {return null;}
+                                                            if(inFlight.ack(e.getValue()
+                                                                             .index()))
+                                                            {
+                                                                // 窗口已满只停止投送 entry，heartbeat 与 commit 照常发送
+                                                                _Logger.debug("follower %#x append window full", e.getKey());
+                                                                return createHeartbeat(e.getValue(), inFlight).with(session);
+                                                            }
+                                                            return createAppend(e.getValue()).with(session);
                                                         })
                                                         .filter(Objects::nonNull)
                                                         .map(this::map)
                                                         .collect(Collectors.toList()) : null;
     }
 
+    /**
+     * follower 确认后窗口有空余，且还有未发送的 entry 时继续投送
+     */
+    private ITriple pipeline(long peer, IManager manager)
+    {
+        if(!_SelfMachine.isInState(LEADER)) {return null;}
+        InFlight inFlight = _InFlights.get(peer);
+        IRaftMachine acceptor = _SelfGraph.get(peer);
+        if(acceptor == null && _SelfMachine.isInState(JOINT)) {acceptor = _JointGraph.get(peer);}
+        if(acceptor == null || inFlight == null || inFlight.ack(acceptor.index()) || acceptor.index() == INDEX_NAN ||
+           Math.max(inFlight.index(), acceptor.index()) >= _SelfMachine.index())
+        {
+            return null;
+        }
+        ISession session = pin(peer, inFlight, manager);
+        return session == null ? null : map(createAppend(acceptor).with(session));
+    }
+
+    /**
+     * 流水线中的 append 固定在同一 session 上以保持到达顺序；
+     * session 关闭或超过 _AckTimeout 仍无确认时，未确认的 append 视为丢失，从 follower 已确认处重新投送
+     */
+    private ISession pin(long peer, InFlight inFlight, IManager manager)
+    {
+        ISession session = inFlight.session();
+        if(session == null || session.isClosed()) {
+            inFlight.reset();
+            inFlight.bind(session = manager.fairLoadSessionByPrefix(peer));
+        }
+        else if(inFlight.isStale(_AckTimeout)) {
+            _Logger.warning("follower %#x append ack timeout, resend from %d", peer, inFlight.index());
+            inFlight.reset();
+        }
+        return session;
+    }
+
+    /**
+     * 不携带 entry，preIndex 取最后发出的 entry；
+     * follower 尚未收到时以 CONFLICT 回应，leader 重置窗口后重新投送
+     */
+    private X72_RaftAppend createHeartbeat(IRaftMachine acceptor, InFlight inFlight)
+    {
+        X72_RaftAppend x72 = new X72_RaftAppend(_ZUid.getId());
+        x72.leader(_SelfMachine.peer());
+        x72.term(_SelfMachine.term());
+        x72.commit(_SelfMachine.commit());
+        x72.preIndex(inFlight.index());
+        x72.preIndexTerm(inFlight.indexTerm());
+        x72.setFollower(acceptor.peer());
+        return x72;
+    }
+
     private X72_RaftAppend createAppend(IRaftMachine acceptor)
     {
         return createAppend(acceptor, -1);
@@ -1175,6 +1296,13 @@ public class RaftPeer
         {
             long preIndex = acceptor.index();
             long preIndexTerm = acceptor.indexTerm();
+            InFlight inFlight = _InFlights.computeIfAbsent(acceptor.peer(), k->new InFlight(_AppendWindow));
+            inFlight.ack(preIndex);
+            if(preIndex != INDEX_NAN && inFlight.index() > preIndex) {
+                // 已发出但尚未确认的部分不再重复发送
+                preIndex = inFlight.index();
+                preIndexTerm = inFlight.indexTerm();
+            }
             if(preIndex == _SelfMachine.index() || preIndex == INDEX_NAN) {
                 // acceptor 已经同步 或 acceptor.next 未知
                 break CHECK;
@@ -1228,11 +1356,92 @@ public class RaftPeer
                 payloadSize += nextLog.sizeOf();
             }
             x72.withSub(entryList);
+            if(!entryList.isEmpty()) {
+                LogEntry last = entryList.get(entryList.size() - 1);
+                inFlight.offer(last.index(), last.term());
+            }
             _Logger.debug("leader → acceptor[ %#x ] %d@%d with %d", x72.peer(), x72.index(), x72.indexTerm(), entryList.size());
         }
         return x72;
     }
 
+    /**
+     * leader → follower 已发出未确认的 append，按发送顺序记录每个 X72 的最后一条 entry
+     */
+    private static class InFlight
+    {
+        private final int         _Window;
+        private final Deque<Long> _Sent = new ArrayDeque<>();
+
+        private long     mIndex     = INDEX_NAN;
+        private long     mIndexTerm = INDEX_NAN;
+        /*
+         * 最近一次确认推进或窗口由空转为非空的时间
+         */
+        private long     mAckAt;
+        private ISession mSession;
+
+        InFlight(int window)
+        {
+            _Window = window;
+        }
+
+        void offer(long index, long indexTerm)
+        {
+            if(_Sent.isEmpty()) {mAckAt = System.nanoTime();}
+            _Sent.offer(index);
+            mIndex = index;
+            mIndexTerm = indexTerm;
+        }
+
+        /**
+         * @param index follower 已确认的 index
+         * @return 确认后窗口是否仍然已满
+         */
+        boolean ack(long index)
+        {
+            boolean progress = false;
+            while(!_Sent.isEmpty() && _Sent.peek() <= index) {
+                _Sent.poll();
+                progress = true;
+            }
+            if(progress) {mAckAt = System.nanoTime();}
+            if(_Sent.isEmpty()) {reset();}
+            return _Sent.size() >= _Window;
+        }
+
+        void reset()
+        {
+            _Sent.clear();
+            mIndex = mIndexTerm = INDEX_NAN;
+        }
+
+        boolean isStale(long timeout)
+        {
+            return !_Sent.isEmpty() && System.nanoTime() - mAckAt > timeout;
+        }
+
+        void bind(ISession session)
+        {
+            mSession = session;
+        }
+
+        ISession session()
+        {
+            return mSession;
+        }
+
+        long index()
+        {
+            return mIndex;
+        }
+
+        long indexTerm()
+        {
+            return mIndexTerm;
+        }
+    }
+
     private Triple<IProtocol, ISession, IPipeEncoder> map(IProtocol source)
     {
         // source 一定持有 session 在上一步完成了这个操作。
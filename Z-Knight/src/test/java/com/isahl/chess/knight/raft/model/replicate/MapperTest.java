@@ -23,7 +23,18 @@
 
 package com.isahl.chess.knight.raft.model.replicate;
 
+import com.isahl.chess.knight.raft.config.IRaftConfig.SyncPolicy;
+import com.isahl.chess.knight.raft.config.ZRaftConfig;
+import com.isahl.chess.knight.raft.model.RaftConfig;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class MapperTest
 {
@@ -67,4 +78,63 @@ class MapperTest
     void truncateSuffix()
     {
     }
-}
\ No newline at end of file
+
+    @Test
+    void appendAsync(@TempDir File dir)
+    {
+        Mapper mapper = mapper(dir);
+        try {
+            LogEntry entry = entry(mapper.getEndIndex() + 1);
+            CompletableFuture<LogEntry> future = mapper.appendAsync(entry);
+            // BATCH 策略下 append 只写入 segment，sync 的 fsync 之后才完成
+            assertFalse(future.isDone());
+            mapper.sync();
+            assertSame(entry, future.join());
+        }
+        finally {
+            mapper.dispose();
+        }
+    }
+
+    @Test
+    void appendAsyncTruncated(@TempDir File dir)
+    {
+        Mapper mapper = mapper(dir);
+        try {
+            long start = mapper.getEndIndex() + 1;
+            CompletableFuture<LogEntry> kept = mapper.appendAsync(entry(start));
+            CompletableFuture<LogEntry> dropped = mapper.appendAsync(entry(start + 1));
+            mapper.truncateSuffix(start);
+            assertTrue(dropped.isCompletedExceptionally());
+            assertFalse(kept.isDone());
+            mapper.sync();
+            assertEquals(start,
+                         kept.join()
+                             .index());
+            CompletableFuture<LogEntry> reset = mapper.appendAsync(entry(start + 1));
+            mapper.reset();
+            assertThrows(CompletionException.class, reset::join);
+        }
+        finally {
+            mapper.dispose();
+        }
+    }
+
+    private Mapper mapper(File dir)
+    {
+        RaftConfig config = new RaftConfig();
+        config.setMaxSegmentSize(DataSize.ofMegabytes(1));
+        config.setWalSyncPolicy(SyncPolicy.BATCH);
+        ZRaftConfig raftConfig = new ZRaftConfig();
+        raftConfig.setBaseDir(dir.getAbsolutePath());
+        raftConfig.setConfig(config);
+        Mapper mapper = new Mapper(raftConfig, null);
+        mapper.load();
+        return mapper;
+    }
+
+    private LogEntry entry(long index)
+    {
+        return new LogEntry(index, 1, 0x99, 0x123, 0x99123, new byte[]{ 1, 2, 3, 4 });
+    }
+}
@@ -24,15 +24,19 @@
 package com.isahl.chess.knight.raft.model.replicate;
 
 import com.isahl.chess.bishop.protocol.mqtt.factory.QttFactory;
+import com.isahl.chess.king.base.exception.ZException;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
 
 import static com.isahl.chess.knight.raft.features.IRaftMachine.MIN_START;
+import static org.junit.jupiter.api.Assertions.*;
 
 class SegmentTest
 {
@@ -65,6 +69,45 @@ class SegmentTest
 
     }
 
+    @Test
+    void testRandomAccess(@TempDir File dir) throws IOException
+    {
+        File file = new File(dir, String.format(Segment.fileNameFormatter(false), MIN_START, 0));
+        Segment segment = new Segment(file, MIN_START, true, 4);
+        List<LogEntry> logs = mockEntryInput();
+        logs.forEach(segment::add);
+        Segment reload = new Segment(file, MIN_START, true, 4);
+        assertEquals(segment.getEndIndex(), reload.getEndIndex());
+        for(int i = logs.size() - 1; i >= 0; i--) {
+            LogEntry expect = logs.get(i);
+            LogEntry entry = reload.getEntry(expect.index());
+            assertEquals(expect.index(), entry.index());
+            assertArrayEquals(expect.content(), entry.content());
+        }
+        long end = MIN_START + 4;
+        assertTrue(reload.truncate(end) > 0);
+        assertEquals(end, reload.getEndIndex());
+        assertNull(reload.getEntry(end + 1));
+    }
+
+    @Test
+    void testChecksum(@TempDir File dir) throws IOException
+    {
+        File file = new File(dir, String.format(Segment.fileNameFormatter(false), MIN_START, 0));
+        Segment segment = new Segment(file, MIN_START, true, 4);
+        List<LogEntry> logs = mockEntryInput();
+        logs.forEach(segment::add);
+        segment.sync(true);
+        long tail = segment.getFileSize() - 1;
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(tail);
+            int b = raf.read();
+            raf.seek(tail);
+            raf.write(b ^ 0xFF);
+        }
+        assertThrows(ZException.class, ()->new Segment(file, MIN_START, true, 4));
+    }
+
     private List<LogEntry> mockEntryInput()
     {
         long term = 1;
@@ -86,6 +129,7 @@ class SegmentTest
                                                       0x73,
                                                       0x74,
                                                       0x00 });
+            logs.add(entry);
         }
         return logs;
     }
@@ -23,14 +23,17 @@
 
 package com.isahl.chess.pawn.endpoint.device;
 
+import com.isahl.chess.bishop.protocol.zchat.model.command.X1C_MultiExchange;
 import com.isahl.chess.bishop.protocol.zchat.model.command.X1F_Exchange;
 import com.isahl.chess.bishop.protocol.zchat.model.ctrl.X0B_Ping;
 import com.isahl.chess.bishop.protocol.zchat.zcrypto.Encryptor;
+import com.isahl.chess.bishop.protocol.zchat.zcrypto.KeyPairPool;
 import com.isahl.chess.bishop.sort.ZSortHolder;
 import com.isahl.chess.king.base.cron.ScheduleHandler;
 import com.isahl.chess.king.base.cron.TimeWheel;
 import com.isahl.chess.king.base.disruptor.features.functions.OperateType;
 import com.isahl.chess.king.base.features.model.ITriple;
+import com.isahl.chess.king.base.util.LongHashMap;
 import com.isahl.chess.king.base.util.Triple;
 import com.isahl.chess.king.env.ZUID;
 import com.isahl.chess.knight.cluster.IClusterNode;
@@ -50,6 +53,7 @@ import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.session.IDismiss;
 import com.isahl.chess.queen.io.core.features.model.session.ISession;
 import com.isahl.chess.queen.io.core.net.socket.BaseAioClient;
+import com.isahl.chess.queen.io.core.net.socket.BaseAioServer;
 import com.isahl.chess.queen.io.core.net.socket.features.client.IAioClient;
 import com.isahl.chess.queen.io.core.net.socket.features.server.IAioServer;
 import com.isahl.chess.queen.io.core.tasks.ServerCore;
@@ -75,6 +79,7 @@ public class DeviceNode
     private final IAioClient       _PeerClient;
     private final IAioClient       _GateClient;
     private final TimeWheel        _TimeWheel;
+    private final KeyPairPool      _KeyPairPool;
     private final X0B_Ping         _PeerPing, _GatePing;
 
     @Override
@@ -95,6 +100,7 @@ public class DeviceNode
         super(bizIoConfig, new ServerCore(serverConfig));
         _TimeWheel = timeWheel;
         _ClusterPeer = clusterPeer;
+        _KeyPairPool = new KeyPairPool(serverConfig.getKeyPoolSize(), serverConfig.getKeyGenerators());
 
         if(raftConfig.isInCongress()) {
             RaftNode peerBind = raftConfig.getPeerBind();
@@ -172,7 +178,8 @@ public class DeviceNode
 
     public void start(ILogicHandler.factory logicFactory, ILinkCustom linkCustom, IClusterCustom<IRaftMachine> clusterCustom)
     {
-        build(logicFactory, linkCustom, clusterCustom, Encryptor::new);
+        _KeyPairPool.start();
+        build(logicFactory, linkCustom, clusterCustom, ()->new Encryptor(_KeyPairPool));
         for(IAioServer server : _AioServers) {
             try {
                 server.bindAddress(server.getLocalAddress(), getServiceChannelGroup());
@@ -185,6 +192,14 @@ public class DeviceNode
         }
     }
 
+    public List<BaseAioServer.Metrics> getAcceptMetrics()
+    {
+        return _AioServers.stream()
+                          .filter(BaseAioServer.class::isInstance)
+                          .map(server->((BaseAioServer) server).metrics())
+                          .collect(Collectors.toList());
+    }
+
     @Override
     public void setupPeer(String host, int port) throws IOException
     {
@@ -266,4 +281,44 @@ public class DeviceNode
         x1F.peer(clusterPeer().peerId());
         load.add(Triple.of(x1F.with(session), session, session.encoder()));
     }
+
+    @Override
+    public void exchange(IProtocol body, List<Target> targets, int factory, List<ITriple> load)
+    {
+        if(load == null || body == null || targets == null || targets.isEmpty()) {
+            _Logger.warning("exchange failed{ load:%s body:%s targets:%s }", load, body, targets);
+            return;
+        }
+        LongHashMap<X1C_MultiExchange> frames = new LongHashMap<>(4);
+        for(Target target : targets) {
+            ISession session = target.index() == INVALID_INDEX ? null : findSessionOverIndex(target.index());
+            if(session == null) {
+                _Logger.warning("exchange failed, no session routing %#x", target.index());
+                continue;
+            }
+            X1C_MultiExchange x1C = frames.get(session.index());
+            if(x1C == null) {
+                x1C = new X1C_MultiExchange(clusterPeer().generateId());
+                x1C.withSub(body);
+                x1C.factory(factory);
+                x1C.peer(clusterPeer().peerId());
+                x1C.with(session);
+                frames.put(session.index(), x1C);
+            }
+            x1C.add(target.index(),
+                    target.level()
+                          .getValue(),
+                    target.msgId());
+            if(x1C.isFull()) {
+                frames.remove(session.index());
+                load.add(Triple.of(x1C, session, session.encoder()));
+            }
+        }
+        for(X1C_MultiExchange x1C : frames.values()) {
+            load.add(Triple.of(x1C,
+                               x1C.session(),
+                               x1C.session()
+                                  .encoder()));
+        }
+    }
 }
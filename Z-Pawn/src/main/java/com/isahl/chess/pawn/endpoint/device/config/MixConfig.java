@@ -24,6 +24,7 @@
 package com.isahl.chess.pawn.endpoint.device.config;
 
 import com.isahl.chess.king.base.cron.TimeWheel;
+import com.isahl.chess.pawn.endpoint.device.spi.plugin.PersistentHook;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -78,6 +79,25 @@ public class MixConfig
     private       Duration     passwordInvalidDays;
     private       String       passwordRandomSeed;
     private       boolean      multiBind;
+    private       String       stateJournalDir;
+    private       Duration     stateFlushInterval;
+    private       boolean      stateColdTier;
+    private       int          authConcurrency;
+    private       int          authQueueSize;
+    private       Duration     authNegativeTtl;
+    private       int          authNegativeCapacity;
+    private       int          authWarmUp;
+    private       String       archiveDir;
+    private       Duration     archiveTtl;
+    private       boolean      archiveMirror;
+    private       int          archiveMirrorCapacity;
+    private       int          persistCapacity;
+    private       int          persistBatchMax;
+    private       Duration     persistFlushInterval;
+    private       Duration     persistBatchLatency;
+
+    private PersistentHook.Overflow persistOverflow;
+    private String                  persistSpillDir;
     private final TimeWheel    _TimeWheel = new TimeWheel();
 
     public List<Server> getListeners()
@@ -120,6 +140,217 @@ public class MixConfig
         this.multiBind = multiBind;
     }
 
+    public String getStateJournalDir()
+    {
+        return stateJournalDir;
+    }
+
+    public void setStateJournalDir(String stateJournalDir)
+    {
+        this.stateJournalDir = stateJournalDir;
+    }
+
+    public Duration getStateFlushInterval()
+    {
+        return stateFlushInterval;
+    }
+
+    public void setStateFlushInterval(Duration stateFlushInterval)
+    {
+        this.stateFlushInterval = stateFlushInterval;
+    }
+
+    /**
+     * in-flight 状态在内存与 journal 中未命中时是否回查 JPA 存储
+     * 回查为同步数据库访问，默认关闭，仅在迁移旧版本遗留的 JPA 状态时开启
+     */
+    public boolean isStateColdTier()
+    {
+        return stateColdTier;
+    }
+
+    public void setStateColdTier(boolean stateColdTier)
+    {
+        this.stateColdTier = stateColdTier;
+    }
+
+    /**
+     * 设备鉴权回查存储的并发上限，同时也是鉴权线程数
+     */
+    public int getAuthConcurrency()
+    {
+        return authConcurrency;
+    }
+
+    public void setAuthConcurrency(int authConcurrency)
+    {
+        this.authConcurrency = authConcurrency;
+    }
+
+    public int getAuthQueueSize()
+    {
+        return authQueueSize;
+    }
+
+    public void setAuthQueueSize(int authQueueSize)
+    {
+        this.authQueueSize = authQueueSize;
+    }
+
+    /**
+     * 未知 token 的负缓存时长
+     */
+    public Duration getAuthNegativeTtl()
+    {
+        return authNegativeTtl;
+    }
+
+    public void setAuthNegativeTtl(Duration authNegativeTtl)
+    {
+        this.authNegativeTtl = authNegativeTtl;
+    }
+
+    public int getAuthNegativeCapacity()
+    {
+        return authNegativeCapacity;
+    }
+
+    public void setAuthNegativeCapacity(int authNegativeCapacity)
+    {
+        this.authNegativeCapacity = authNegativeCapacity;
+    }
+
+    /**
+     * 启动时预热到 token 缓存的设备数量，0 关闭预热
+     */
+    public int getAuthWarmUp()
+    {
+        return authWarmUp;
+    }
+
+    public void setAuthWarmUp(int authWarmUp)
+    {
+        this.authWarmUp = authWarmUp;
+    }
+
+    public String getArchiveDir()
+    {
+        return archiveDir;
+    }
+
+    public void setArchiveDir(String archiveDir)
+    {
+        this.archiveDir = archiveDir;
+    }
+
+    /**
+     * 本地消息归档保留时长，按小时分区整体过期
+     */
+    public Duration getArchiveTtl()
+    {
+        return archiveTtl;
+    }
+
+    public void setArchiveTtl(Duration archiveTtl)
+    {
+        this.archiveTtl = archiveTtl;
+    }
+
+    /**
+     * 归档后是否异步镜像到中心库
+     */
+    public boolean isArchiveMirror()
+    {
+        return archiveMirror;
+    }
+
+    public void setArchiveMirror(boolean archiveMirror)
+    {
+        this.archiveMirror = archiveMirror;
+    }
+
+    /**
+     * 待镜像队列容量，向上取整到 2 的幂；队列满时丢弃镜像，本地归档不受影响
+     */
+    public int getArchiveMirrorCapacity()
+    {
+        return archiveMirrorCapacity;
+    }
+
+    public void setArchiveMirrorCapacity(int archiveMirrorCapacity)
+    {
+        this.archiveMirrorCapacity = archiveMirrorCapacity;
+    }
+
+    /**
+     * 待持久化队列容量，向上取整到 2 的幂
+     */
+    public int getPersistCapacity()
+    {
+        return persistCapacity;
+    }
+
+    public void setPersistCapacity(int persistCapacity)
+    {
+        this.persistCapacity = persistCapacity;
+    }
+
+    public int getPersistBatchMax()
+    {
+        return persistBatchMax;
+    }
+
+    public void setPersistBatchMax(int persistBatchMax)
+    {
+        this.persistBatchMax = persistBatchMax;
+    }
+
+    /**
+     * 积压未达到批量时的最长等待
+     */
+    public Duration getPersistFlushInterval()
+    {
+        return persistFlushInterval;
+    }
+
+    public void setPersistFlushInterval(Duration persistFlushInterval)
+    {
+        this.persistFlushInterval = persistFlushInterval;
+    }
+
+    /**
+     * 单批持久化的目标耗时，批量据此自适应
+     */
+    public Duration getPersistBatchLatency()
+    {
+        return persistBatchLatency;
+    }
+
+    public void setPersistBatchLatency(Duration persistBatchLatency)
+    {
+        this.persistBatchLatency = persistBatchLatency;
+    }
+
+    public PersistentHook.Overflow getPersistOverflow()
+    {
+        return persistOverflow;
+    }
+
+    public void setPersistOverflow(PersistentHook.Overflow persistOverflow)
+    {
+        this.persistOverflow = persistOverflow;
+    }
+
+    public String getPersistSpillDir()
+    {
+        return persistSpillDir;
+    }
+
+    public void setPersistSpillDir(String persistSpillDir)
+    {
+        this.persistSpillDir = persistSpillDir;
+    }
+
     @Bean
     public TimeWheel getTimeWheel()
     {
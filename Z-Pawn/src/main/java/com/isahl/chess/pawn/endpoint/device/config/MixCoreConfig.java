@@ -28,6 +28,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 
+import java.time.Duration;
+
 @Configuration("pawn_core_config")
 @ConfigurationProperties(prefix = "z.chess.pawn.core")
 @PropertySource("classpath:mix.core.properties")
@@ -46,6 +48,11 @@ public class MixCoreConfig
     private int logicQueueSizePower;
     private int errorQueueSizePower;
     private int closerQueueSizePower;
+    private int keyPoolSize   = 64;
+    private int keyGenerators = 1;
+
+    private boolean  healthEnable       = true;
+    private Duration healthLatencyLimit = Duration.ofMillis(100);
 
     @Override
     public int getDecoderCountPower()
@@ -119,6 +126,30 @@ public class MixCoreConfig
         return closerQueueSizePower;
     }
 
+    @Override
+    public int getKeyPoolSize()
+    {
+        return keyPoolSize;
+    }
+
+    @Override
+    public int getKeyGenerators()
+    {
+        return keyGenerators;
+    }
+
+    @Override
+    public boolean isHealthEnable()
+    {
+        return healthEnable;
+    }
+
+    @Override
+    public Duration getHealthLatencyLimit()
+    {
+        return healthLatencyLimit;
+    }
+
     public void setDecoderCountPower(int decoderCountPower)
     {
         this.decoderCountPower = decoderCountPower;
@@ -179,4 +210,24 @@ public class MixCoreConfig
         this.closerQueueSizePower = closerQueueSizePower;
     }
 
+    public void setKeyPoolSize(int keyPoolSize)
+    {
+        this.keyPoolSize = keyPoolSize;
+    }
+
+    public void setKeyGenerators(int keyGenerators)
+    {
+        this.keyGenerators = keyGenerators;
+    }
+
+    public void setHealthEnable(boolean healthEnable)
+    {
+        this.healthEnable = healthEnable;
+    }
+
+    public void setHealthLatencyLimit(Duration healthLatencyLimit)
+    {
+        this.healthLatencyLimit = healthLatencyLimit;
+    }
+
 }
@@ -30,6 +30,7 @@ import com.isahl.chess.queen.config.ISocketConfig;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.util.unit.DataSize;
 
 import java.util.Map;
 
@@ -49,6 +50,8 @@ public class PawnIoConfig
     private SocketConfig internal;
     private SocketConfig cluster;
     private SocketConfig provider;
+    private DataSize     sendHighWater = DataSize.ofMegabytes(256);
+    private DataSize     sendLowWater  = DataSize.ofMegabytes(192);
 
     @Override
     public boolean isDomainActive(int type)
@@ -80,6 +83,28 @@ public class PawnIoConfig
         };
     }
 
+    @Override
+    public long getSendHighWaterInByte()
+    {
+        return sendHighWater.toBytes();
+    }
+
+    @Override
+    public long getSendLowWaterInByte()
+    {
+        return sendLowWater.toBytes();
+    }
+
+    public void setSendHighWater(DataSize sendHighWater)
+    {
+        this.sendHighWater = sendHighWater;
+    }
+
+    public void setSendLowWater(DataSize sendLowWater)
+    {
+        this.sendLowWater = sendLowWater;
+    }
+
     public void setSizePowers(Map<String, Integer> sizePowers)
     {
         this.sizePowers = sizePowers;
@@ -0,0 +1,750 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.pawn.endpoint.device.db.local.archive;
+
+import com.isahl.chess.king.base.log.Logger;
+import com.isahl.chess.king.base.util.CryptoUtil;
+import com.isahl.chess.pawn.endpoint.device.db.central.model.MessageEntity;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * 本地消息归档
+ * 按小时分区的 append-only segment，payload 与元数据一并存放；每个分区在内存中维护 topic → 记录位置的索引，
+ * 按 topic、时间区间、id 游标检索时只读取未被分区边界排除的分区中命中的记录。
+ * 分区按写入时钟划分，id 在分区之间并不严格有序，检索结果跨分区按 id 合并。
+ * 已滚动的分区由 maintain 按 (topic, id) 重排压实，topic 索引收敛为连续区间并落盘为 .idx，
+ * 重启时直接加载；超过 ttl 的分区整体删除。
+ * <p>
+ * record: [length:4][crc32c:4][id:8][net-at:8][origin:8][topic-length:2][topic][content]
+ * <p>
+ * index: [crc32c:4][segment-size:8][min-id:8][max-id:8][min-at:8][max-at:8][topics:4]{[topic-length:2][topic][start:8][end:8]}
+ *
+ * @author william.d.zk
+ */
+public class MessageArchive
+        implements Closeable
+{
+    private final Logger _Logger = Logger.getLogger("endpoint.pawn." + getClass().getSimpleName());
+
+    private final static int               HEAD    = 8;
+    private final static int               META    = 26;
+    private final static int               CHUNK   = 1 << 20;
+    private final static long              HOUR    = TimeUnit.HOURS.toMillis(1);
+    private final static String            SEGMENT = ".seg";
+    private final static String            INDEX   = ".idx";
+    private final static DateTimeFormatter _Name   = new DateTimeFormatterBuilder().appendPattern("yyyyMMddHH")
+                                                                                   .parseDefaulting(ChronoField.MINUTE_OF_HOUR,
+                                                                                                    0)
+                                                                                   .toFormatter()
+                                                                                   .withZone(ZoneOffset.UTC);
+
+    private final Path                          _Directory;
+    private final Duration                      _Ttl;
+    private final NavigableMap<Long, Partition> _Partitions = new ConcurrentSkipListMap<>();
+    /*
+     * 读取持有读锁；分区替换与删除持有写锁，避免查询中途 channel 被关闭
+     */
+    private final ReadWriteLock                 _Lock       = new ReentrantReadWriteLock();
+
+    private Partition mActive;
+
+    private static class Posting
+    {
+        /*
+         * 未压实分区：逐条记录位置
+         */
+        private long[] mOffsets;
+        private int    mCount;
+        /*
+         * 已压实分区：连续区间 [start, end)
+         */
+        private long   mStart, mEnd;
+
+        private Posting()
+        {
+            mOffsets = new long[4];
+        }
+
+        private Posting(long start)
+        {
+            mStart = mEnd = start;
+        }
+
+        private void add(long offset)
+        {
+            if(mCount == mOffsets.length) {mOffsets = Arrays.copyOf(mOffsets, mCount << 1);}
+            mOffsets[mCount++] = offset;
+        }
+    }
+
+    private record View(long[] offsets,
+                        long start,
+                        long end,
+                        long minId,
+                        long maxId)
+    {}
+
+    private record Entry(String topic,
+                         long id,
+                         long offset,
+                         int size)
+    {}
+
+    private static class Partition
+    {
+        private final long                 _Hour;
+        private final Path                 _File;
+        private final FileChannel          _Channel;
+        private final Map<String, Posting> _Topics = new HashMap<>();
+
+        private long    mSize;
+        private long    mMinId = Long.MAX_VALUE, mMaxId = Long.MIN_VALUE;
+        private long    mMinAt = Long.MAX_VALUE, mMaxAt = Long.MIN_VALUE;
+        private boolean mSealed;
+        /*
+         * 已移出写入，等待或正在压实
+         */
+        private boolean mFrozen;
+
+        private Partition(long hour, Path file, FileChannel channel)
+        {
+            _Hour = hour;
+            _File = file;
+            _Channel = channel;
+        }
+
+        private synchronized void index(String topic, long id, long at, long offset)
+        {
+            _Topics.computeIfAbsent(topic, k->new Posting())
+                   .add(offset);
+            bound(id, at);
+        }
+
+        private void bound(long id, long at)
+        {
+            mMinId = Math.min(mMinId, id);
+            mMaxId = Math.max(mMaxId, id);
+            mMinAt = Math.min(mMinAt, at);
+            mMaxAt = Math.max(mMaxAt, at);
+        }
+
+        /**
+         * @param topic null 时为整个分区
+         * @return null 表示分区被边界排除
+         */
+        private synchronized View view(String topic, long afterId, long from, long to)
+        {
+            if(mSize == 0 || mMaxId <= afterId || mMaxAt < from || mMinAt > to) {return null;}
+            if(topic == null) {return new View(null, 0, mSize, mMinId, mMaxId);}
+            Posting posting = _Topics.get(topic);
+            if(posting == null) {return null;}
+            return mSealed ? new View(null, posting.mStart, posting.mEnd, mMinId, mMaxId)
+                           : new View(Arrays.copyOf(posting.mOffsets, posting.mCount), 0, 0, mMinId, mMaxId);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Visitor
+    {
+        /**
+         * @param record position 为 0，limit 为记录末尾
+         * @return false 停止遍历
+         */
+        boolean visit(ByteBuffer record, long offset);
+    }
+
+    public MessageArchive(Path directory, Duration ttl) throws IOException
+    {
+        Files.createDirectories(directory);
+        _Directory = directory;
+        _Ttl = ttl;
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT)) {
+            for(Path file : stream) {
+                String name = file.getFileName()
+                                  .toString();
+                long hour;
+                try {
+                    hour = Instant.from(_Name.parse(name.substring(0, name.length() - SEGMENT.length())))
+                                  .toEpochMilli() / HOUR;
+                }
+                catch(RuntimeException e) {
+                    _Logger.warning("skip unknown segment %s", file);
+                    continue;
+                }
+                Partition partition = load(hour, file);
+                _Partitions.put(hour, partition == null ? recover(hour, file) : partition);
+            }
+        }
+        _Logger.info("archive %s open, partitions %d", directory, _Partitions.size());
+    }
+
+    private Path segment(long hour)
+    {
+        return _Directory.resolve(_Name.format(Instant.ofEpochMilli(hour * HOUR)) + SEGMENT);
+    }
+
+    private static Path index(Path segment)
+    {
+        String name = segment.getFileName()
+                             .toString();
+        return segment.resolveSibling(name.substring(0, name.length() - SEGMENT.length()) + INDEX);
+    }
+
+    /**
+     * 批量追加并 fsync，返回后记录即可被检索
+     */
+    public synchronized void append(List<MessageEntity> messages) throws IOException
+    {
+        if(messages == null || messages.isEmpty()) {return;}
+        Partition partition = active();
+        FileChannel channel = partition._Channel;
+        ByteBuffer batch = ByteBuffer.allocate((int) Math.min(CHUNK, messages.size() * 256L));
+        long[] bounds = new long[messages.size() * 3];
+        long position = partition.mSize, flushed = position;
+        for(int i = 0; i < messages.size(); i++) {
+            MessageEntity message = messages.get(i);
+            byte[] topic = message.getTopic()
+                                  .getBytes(StandardCharsets.UTF_8);
+            byte[] content = message.payload();
+            int length = META + topic.length + (content == null ? 0 : content.length);
+            long at = message.getNetAt() == null ? System.currentTimeMillis() : message.getNetAt()
+                                                                                       .atZone(ZoneId.systemDefault())
+                                                                                       .toInstant()
+                                                                                       .toEpochMilli();
+            ByteBuffer record = ByteBuffer.allocate(HEAD + length);
+            record.putInt(length)
+                  .putInt(0)
+                  .putLong(message.getMessageId())
+                  .putLong(at)
+                  .putLong(message.getOrigin())
+                  .putShort((short) topic.length)
+                  .put(topic);
+            if(content != null) {record.put(content);}
+            record.putInt(4, CryptoUtil.crc32c(record, HEAD, length))
+                  .flip();
+            bounds[i * 3] = message.getMessageId();
+            bounds[i * 3 + 1] = at;
+            bounds[i * 3 + 2] = position;
+            if(record.remaining() > batch.remaining()) {
+                flushed = drain(channel, batch, flushed);
+                if(record.remaining() > batch.capacity()) {
+                    write(channel, record, position);
+                    position = flushed = position + HEAD + length;
+                    continue;
+                }
+            }
+            batch.put(record);
+            position += HEAD + length;
+        }
+        drain(channel, batch, flushed);
+        channel.force(false);
+        synchronized(partition) {
+            for(int i = 0; i < messages.size(); i++) {
+                partition.index(messages.get(i)
+                                        .getTopic(), bounds[i * 3], bounds[i * 3 + 1], bounds[i * 3 + 2]);
+            }
+            partition.mSize = position;
+        }
+    }
+
+    private static long drain(FileChannel channel, ByteBuffer batch, long position) throws IOException
+    {
+        batch.flip();
+        int size = batch.remaining();
+        write(channel, batch, position);
+        batch.clear();
+        return position + size;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+    {
+        while(buffer.hasRemaining()) {position += channel.write(buffer, position);}
+    }
+
+    private static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+    {
+        while(buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if(read < 0) {throw new EOFException();}
+            position += read;
+        }
+    }
+
+    /**
+     * 当前写入分区；时钟回拨时继续写入最近的分区，不回写已移出写入的分区
+     */
+    private Partition active() throws IOException
+    {
+        long hour = System.currentTimeMillis() / HOUR;
+        if(mActive != null && hour <= mActive._Hour) {return mActive;}
+        Map.Entry<Long, Partition> last = _Partitions.lastEntry();
+        if(last != null && last.getKey() >= hour) {
+            if(!last.getValue().mFrozen) {return mActive = last.getValue();}
+            hour = last.getKey() + 1;
+        }
+        Path file = segment(hour);
+        mActive = new Partition(hour, file, FileChannel.open(file, CREATE, READ, WRITE));
+        _Partitions.put(hour, mActive);
+        return mActive;
+    }
+
+    /**
+     * 最新的 limit 条，按 id 降序
+     */
+    public List<MessageEntity> latest(String topic, int limit) throws IOException
+    {
+        Objects.requireNonNull(topic);
+        if(limit <= 0) {return new ArrayList<>();}
+        List<MessageEntity> result = new ArrayList<>(Math.min(limit, 1024));
+        _Lock.readLock()
+             .lock();
+        try {
+            for(Partition partition : _Partitions.descendingMap()
+                                                 .values())
+            {
+                View view = partition.view(topic, Long.MIN_VALUE, Long.MIN_VALUE, Long.MAX_VALUE);
+                // 已凑满 limit 且分区内最大 id 不超过已选中的最小 id 时跳过
+                if(view == null || result.size() >= limit && view.maxId() <= last(result)) {continue;}
+                merge(result,
+                      collect(partition, view, limit, Long.MIN_VALUE, Long.MIN_VALUE, Long.MAX_VALUE, true),
+                      limit,
+                      true);
+            }
+        }
+        finally {
+            _Lock.readLock()
+                 .unlock();
+        }
+        return result;
+    }
+
+    /**
+     * 游标检索，按 id 升序；以返回的最后一条 id 作为下一次的 afterId
+     *
+     * @param topic null 时检索全部 topic
+     * @param from  net-at 下界(含)，epoch millis
+     * @param to    net-at 上界(含)，epoch millis
+     */
+    public List<MessageEntity> scan(String topic, long from, long to, long afterId, int limit) throws IOException
+    {
+        if(limit <= 0) {return new ArrayList<>();}
+        List<MessageEntity> result = new ArrayList<>(Math.min(limit, 1024));
+        _Lock.readLock()
+             .lock();
+        try {
+            for(Partition partition : _Partitions.values()) {
+                View view = partition.view(topic, afterId, from, to);
+                // 已凑满 limit 且分区内最小 id 不小于已选中的最大 id 时跳过
+                if(view == null || result.size() >= limit && view.minId() >= last(result)) {continue;}
+                merge(result, collect(partition, view, limit, afterId, from, to, false), limit, false);
+            }
+        }
+        finally {
+            _Lock.readLock()
+                 .unlock();
+        }
+        return result;
+    }
+
+    private static long last(List<MessageEntity> result)
+    {
+        return result.get(result.size() - 1)
+                     .getMessageId();
+    }
+
+    /**
+     * 合并一个分区的结果，按 id 排序后保留前 limit 条
+     */
+    private static void merge(List<MessageEntity> result, List<MessageEntity> picked, int limit, boolean descending)
+    {
+        if(picked.isEmpty()) {return;}
+        Comparator<MessageEntity> order = Comparator.comparingLong(MessageEntity::getMessageId);
+        result.addAll(picked);
+        result.sort(descending ? order.reversed() : order);
+        if(result.size() > limit) {
+            result.subList(limit, result.size())
+                  .clear();
+        }
+    }
+
+    /**
+     * 在一个分区内挑出 id 最小(或最大)的 need 条命中记录，
+     * 堆内只保留 id 与位置，最终只解码入选的记录
+     */
+    private List<MessageEntity> collect(Partition partition,
+                                        View view,
+                                        int need,
+                                        long afterId,
+                                        long from,
+                                        long to,
+                                        boolean descending) throws IOException
+    {
+        // 堆顶为当前最应淘汰的记录
+        PriorityQueue<long[]> heap = new PriorityQueue<>(need + 1,
+                                                         descending ? Comparator.comparingLong(e->e[0])
+                                                                    : Comparator.<long[]>comparingLong(e->e[0])
+                                                                                .reversed());
+        Visitor visitor = (record, offset)->{
+            long id = record.getLong(HEAD);
+            long at = record.getLong(HEAD + 8);
+            if(id <= afterId || at < from || at > to) {return true;}
+            if(heap.size() == need) {
+                long top = heap.peek()[0];
+                if(descending ? id <= top : id >= top) {return true;}
+                heap.poll();
+            }
+            heap.offer(new long[]{ id, offset });
+            return true;
+        };
+        if(view.offsets() != null) {
+            ByteBuffer head = ByteBuffer.allocate(HEAD + META);
+            for(long offset : view.offsets()) {
+                head.clear();
+                read(partition._Channel, head, offset);
+                visitor.visit(head.flip(), offset);
+            }
+        }
+        else {
+            range(partition._Channel, view.start(), view.end(), visitor);
+        }
+        List<long[]> picked = new ArrayList<>(heap);
+        picked.sort(descending ? Comparator.<long[]>comparingLong(e->e[0])
+                                           .reversed() : Comparator.comparingLong(e->e[0]));
+        List<MessageEntity> result = new ArrayList<>(picked.size());
+        for(long[] e : picked) {
+            MessageEntity entity = decode(partition, e[1]);
+            if(entity != null) {result.add(entity);}
+        }
+        return result;
+    }
+
+    private MessageEntity decode(Partition partition, long offset) throws IOException
+    {
+        ByteBuffer head = ByteBuffer.allocate(HEAD);
+        read(partition._Channel, head, offset);
+        int length = head.getInt(0);
+        ByteBuffer record = ByteBuffer.allocate(HEAD + length);
+        read(partition._Channel, record, offset);
+        if(CryptoUtil.crc32c(record, HEAD, length) != record.getInt(4)) {
+            _Logger.warning("archive %s corrupt record @ %d", partition._File, offset);
+            return null;
+        }
+        int tl = record.getShort(HEAD + 24) & 0xFFFF;
+        byte[] topic = new byte[tl];
+        byte[] content = new byte[length - META - tl];
+        record.get(HEAD + META, topic)
+              .get(HEAD + META + tl, content);
+        MessageEntity entity = new MessageEntity();
+        entity.setMessageId(record.getLong(HEAD));
+        entity.setNetAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(record.getLong(HEAD + 8)), ZoneId.systemDefault()));
+        entity.setOrigin(record.getLong(HEAD + 16));
+        entity.setTopic(new String(topic, StandardCharsets.UTF_8));
+        entity.setMessage(content);
+        return entity;
+    }
+
+    /**
+     * 顺序读取 [start, end) 内的记录，每次读取 CHUNK 字节
+     *
+     * @return 停止位置，完整读完时为 end
+     */
+    private static long range(FileChannel channel, long start, long end, Visitor visitor) throws IOException
+    {
+        ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(CHUNK, Math.max(end - start, HEAD)));
+        long position = start;
+        while(position < end) {
+            chunk.clear()
+                 .limit((int) Math.min(chunk.capacity(), end - position));
+            read(channel, chunk, position);
+            chunk.flip();
+            while(chunk.remaining() >= HEAD) {
+                int length = chunk.getInt(chunk.position());
+                if(length < META || position + chunk.position() + HEAD + length > end) {
+                    return position + chunk.position();
+                }
+                if(chunk.remaining() < HEAD + length) {break;}
+                if(!visitor.visit(chunk.slice(chunk.position(), HEAD + length), position + chunk.position())) {
+                    return position + chunk.position();
+                }
+                chunk.position(chunk.position() + HEAD + length);
+            }
+            if(chunk.position() == 0) {
+                if(chunk.remaining() < HEAD) {return position;}
+                // 单条超过 CHUNK，单独读取
+                ByteBuffer record = ByteBuffer.allocate(HEAD + chunk.getInt(0));
+                read(channel, record, position);
+                if(!visitor.visit(record.flip(), position)) {return position;}
+                position += record.capacity();
+                continue;
+            }
+            position += chunk.position();
+        }
+        return position;
+    }
+
+    /**
+     * 逐条校验 segment 并重建 topic 索引，遇到不完整或校验失败的记录时截断
+     */
+    private Partition recover(long hour, Path file) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file, READ, WRITE);
+        Partition partition = new Partition(hour, file, channel);
+        long size = channel.size();
+        long valid = range(channel, 0, size, (record, offset)->{
+            int length = record.getInt(0);
+            int tl = record.getShort(HEAD + 24) & 0xFFFF;
+            if(META + tl > length || CryptoUtil.crc32c(record, HEAD, length) != record.getInt(4)) {return false;}
+            byte[] topic = new byte[tl];
+            record.get(HEAD + META, topic);
+            partition.index(new String(topic, StandardCharsets.UTF_8), record.getLong(HEAD), record.getLong(HEAD + 8), offset);
+            return true;
+        });
+        if(valid < size) {
+            _Logger.warning("archive %s truncated at %d/%d", file, valid, size);
+            channel.truncate(valid);
+        }
+        partition.mSize = valid;
+        return partition;
+    }
+
+    /**
+     * 加载已压实分区的 .idx，与 segment 不一致时返回 null 转为 recover
+     */
+    private Partition load(long hour, Path file) throws IOException
+    {
+        Path index = index(file);
+        if(!Files.exists(index)) {return null;}
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(index));
+        if(buffer.capacity() < 48 || CryptoUtil.crc32c(buffer, 4, buffer.capacity() - 4) != buffer.getInt(0) ||
+           buffer.getLong(4) != Files.size(file))
+        {
+            _Logger.warning("archive index %s invalid, rebuild from segment", index);
+            return null;
+        }
+        Partition partition = new Partition(hour, file, FileChannel.open(file, READ));
+        buffer.position(4);
+        partition.mSize = buffer.getLong();
+        partition.mMinId = buffer.getLong();
+        partition.mMaxId = buffer.getLong();
+        partition.mMinAt = buffer.getLong();
+        partition.mMaxAt = buffer.getLong();
+        for(int i = 0, topics = buffer.getInt(); i < topics; i++) {
+            byte[] topic = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(topic);
+            Posting posting = new Posting(buffer.getLong());
+            posting.mEnd = buffer.getLong();
+            partition._Topics.put(new String(topic, StandardCharsets.UTF_8), posting);
+        }
+        partition.mSealed = partition.mFrozen = true;
+        return partition;
+    }
+
+    private void store(Partition partition) throws IOException
+    {
+        Map<byte[], Posting> topics = new LinkedHashMap<>();
+        int size = 48;
+        for(Map.Entry<String, Posting> entry : partition._Topics.entrySet()) {
+            byte[] topic = entry.getKey()
+                                .getBytes(StandardCharsets.UTF_8);
+            topics.put(topic, entry.getValue());
+            size += 2 + topic.length + 16;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(0)
+              .putLong(partition.mSize)
+              .putLong(partition.mMinId)
+              .putLong(partition.mMaxId)
+              .putLong(partition.mMinAt)
+              .putLong(partition.mMaxAt)
+              .putInt(topics.size());
+        topics.forEach((topic, posting)->buffer.putShort((short) topic.length)
+                                               .put(topic)
+                                               .putLong(posting.mStart)
+                                               .putLong(posting.mEnd));
+        buffer.putInt(0, CryptoUtil.crc32c(buffer, 4, size - 4))
+              .flip();
+        Path index = index(partition._File);
+        Path tmp = index.resolveSibling(index.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(tmp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            write(channel, buffer, 0);
+            channel.force(true);
+        }
+        Files.move(tmp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 压实已滚动的分区并删除超过 ttl 的分区，由定时任务调用
+     *
+     * @return 删除的分区数
+     */
+    public int maintain() throws IOException
+    {
+        long now = System.currentTimeMillis();
+        long hour = now / HOUR, expire = (now - _Ttl.toMillis()) / HOUR;
+        int dropped = 0;
+        for(Partition partition : _Partitions.values()) {
+            boolean expired = partition._Hour < expire;
+            if(!expired && (partition.mSealed || partition._Hour >= hour)) {continue;}
+            synchronized(this) {
+                if(mActive == partition) {mActive = null;}
+                partition.mFrozen = true;
+            }
+            if(expired) {
+                drop(partition);
+                dropped++;
+            }
+            else {
+                compact(partition);
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * 按 (topic, id) 重排分区，同一 topic 的记录连续存放，索引只需保存区间
+     */
+    private void compact(Partition partition) throws IOException
+    {
+        long size;
+        synchronized(partition) {
+            size = partition.mSize;
+        }
+        List<Entry> entries = new ArrayList<>();
+        range(partition._Channel, 0, size, (record, offset)->{
+            byte[] topic = new byte[record.getShort(HEAD + 24) & 0xFFFF];
+            record.get(HEAD + META, topic);
+            entries.add(new Entry(new String(topic, StandardCharsets.UTF_8), record.getLong(HEAD), offset, record.remaining()));
+            return true;
+        });
+        entries.sort(Comparator.comparing(Entry::topic)
+                               .thenComparingLong(Entry::id));
+        Path tmp = partition._File.resolveSibling(partition._File.getFileName() + ".compact");
+        Map<String, Posting> topics = new HashMap<>();
+        long position = 0;
+        try(FileChannel target = FileChannel.open(tmp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            Posting posting = null;
+            for(Entry entry : entries) {
+                if(posting == null || !topics.containsKey(entry.topic)) {
+                    topics.put(entry.topic, posting = new Posting(position));
+                }
+                for(long copied = 0; copied < entry.size; ) {
+                    copied += partition._Channel.transferTo(entry.offset + copied, entry.size - copied, target);
+                }
+                position += entry.size;
+                posting.mEnd = position;
+            }
+            target.force(true);
+        }
+        Partition sealed;
+        _Lock.writeLock()
+             .lock();
+        try {
+            partition._Channel.close();
+            Files.move(tmp, partition._File, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            sealed = new Partition(partition._Hour, partition._File, FileChannel.open(partition._File, READ));
+            sealed._Topics.putAll(topics);
+            sealed.mSize = position;
+            sealed.mMinId = partition.mMinId;
+            sealed.mMaxId = partition.mMaxId;
+            sealed.mMinAt = partition.mMinAt;
+            sealed.mMaxAt = partition.mMaxAt;
+            sealed.mSealed = sealed.mFrozen = true;
+            _Partitions.put(sealed._Hour, sealed);
+        }
+        finally {
+            _Lock.writeLock()
+                 .unlock();
+        }
+        store(sealed);
+        _Logger.info("archive %s compacted, records %d, topics %d", sealed._File, entries.size(), topics.size());
+    }
+
+    private void drop(Partition partition) throws IOException
+    {
+        _Lock.writeLock()
+             .lock();
+        try {
+            _Partitions.remove(partition._Hour);
+            partition._Channel.close();
+        }
+        finally {
+            _Lock.writeLock()
+                 .unlock();
+        }
+        Files.deleteIfExists(partition._File);
+        Files.deleteIfExists(index(partition._File));
+        _Logger.info("archive %s expired", partition._File);
+    }
+
+    public int partitions()
+    {
+        return _Partitions.size();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        _Lock.writeLock()
+             .lock();
+        try {
+            synchronized(this) {
+                mActive = null;
+                for(Partition partition : _Partitions.values()) {
+                    partition.mFrozen = true;
+                    partition._Channel.close();
+                }
+                _Partitions.clear();
+            }
+        }
+        finally {
+            _Lock.writeLock()
+                 .unlock();
+        }
+    }
+}
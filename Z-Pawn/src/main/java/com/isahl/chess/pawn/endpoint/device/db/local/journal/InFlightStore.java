@@ -0,0 +1,410 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2022. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.pawn.endpoint.device.db.local.journal;
+
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.log.Logger;
+import com.isahl.chess.king.base.util.CryptoUtil;
+import com.isahl.chess.king.base.util.LongHashMap;
+import com.isahl.chess.pawn.endpoint.device.db.local.model.MsgStateEntity;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * QoS 1/2 in-flight 状态表
+ * 内存中以 (session, msg-id) 为 key，按 session 分段加锁；
+ * 每次变更追加到本地 journal，由独立线程按 flush 周期批量写入并 fsync，重启时回放。
+ * journal 超过阈值后以当前内存快照重写。
+ * <p>
+ * record: [length:4][crc32:4][op:1][kind:1][session:8][msg-id:8]{PUT: [peer:8][created:8][topic:v][content:v]}
+ *
+ * @author william.d.zk
+ */
+public class InFlightStore
+        implements Closeable
+{
+    private final Logger _Logger = Logger.getLogger("endpoint.pawn." + getClass().getSimpleName());
+
+    /**
+     * client → server 已收到待 pubrel 的消息
+     */
+    public final static byte RECEIVED = 'R';
+    /**
+     * server → client 已发出待 ack 的消息
+     */
+    public final static byte SENDING  = 'B';
+
+    private final static byte OP_PUT       = 1;
+    private final static byte OP_DEL       = 2;
+    private final static int  STRIPES      = 64;
+    private final static int  HEAD         = 8;
+    private final static int  BATCH_BYTES  = 1 << 20;
+    private final static long COMPACT_SIZE = 64L << 20;
+
+    private final Stripe[]        _Received = new Stripe[STRIPES];
+    private final Stripe[]        _Sending  = new Stripe[STRIPES];
+    private final Queue<ByteBuf>  _Pending  = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger   _Size     = new AtomicInteger();
+    private final Path            _File;
+    private final long            _FlushNanos;
+    private final Thread          _Writer;
+    private final ByteBuffer      _Batch    = ByteBuffer.allocateDirect(BATCH_BYTES);
+
+    private FileChannel      mChannel;
+    private volatile boolean vRunning;
+
+    private static class Stripe
+    {
+        private final LongHashMap<LongHashMap<MsgStateEntity>> _Sessions = new LongHashMap<>();
+    }
+
+    public InFlightStore(Path directory, Duration flushInterval) throws IOException
+    {
+        Files.createDirectories(directory);
+        _File = directory.resolve("in_flight.journal");
+        _FlushNanos = flushInterval.toNanos();
+        for(int i = 0; i < STRIPES; i++) {
+            _Received[i] = new Stripe();
+            _Sending[i] = new Stripe();
+        }
+        replay();
+        compact();
+        vRunning = true;
+        _Writer = new Thread(this::write, "in-flight-journal");
+        _Writer.setDaemon(true);
+        _Writer.start();
+    }
+
+    private Stripe stripe(byte kind, long session)
+    {
+        Stripe[] stripes = kind == RECEIVED ? _Received : _Sending;
+        return stripes[(int) ((session ^ session >>> 32) * 0x9E3779B9) >>> 26];
+    }
+
+    public void put(byte kind, long session, MsgStateEntity entity)
+    {
+        Stripe stripe = stripe(kind, session);
+        synchronized(stripe) {
+            LongHashMap<MsgStateEntity> messages = stripe._Sessions.get(session);
+            if(messages == null) {
+                stripe._Sessions.put(session, messages = new LongHashMap<>(4));
+            }
+            if(messages.put(entity.getMsgId(), entity) == null) {_Size.incrementAndGet();}
+            // 同一 key 的变更在分段锁内入队，保证 journal 中顺序与内存一致
+            _Pending.offer(encodePut(kind, session, entity));
+        }
+    }
+
+    public MsgStateEntity get(byte kind, long session, long msgId)
+    {
+        Stripe stripe = stripe(kind, session);
+        synchronized(stripe) {
+            LongHashMap<MsgStateEntity> messages = stripe._Sessions.get(session);
+            return messages == null ? null : messages.get(msgId);
+        }
+    }
+
+    public MsgStateEntity remove(byte kind, long session, long msgId)
+    {
+        Stripe stripe = stripe(kind, session);
+        MsgStateEntity removed;
+        synchronized(stripe) {
+            removed = remove(stripe, session, msgId);
+            if(removed == null) {return null;}
+            _Pending.offer(encodeDel(kind, session, msgId));
+        }
+        return removed;
+    }
+
+    private MsgStateEntity remove(Stripe stripe, long session, long msgId)
+    {
+        LongHashMap<MsgStateEntity> messages = stripe._Sessions.get(session);
+        if(messages == null) {return null;}
+        MsgStateEntity removed = messages.remove(msgId);
+        if(removed != null) {
+            _Size.decrementAndGet();
+            if(messages.isEmpty()) {stripe._Sessions.remove(session);}
+        }
+        return removed;
+    }
+
+    /**
+     * 清理创建时间早于 before 的记录
+     *
+     * @return 清理数量
+     */
+    public int expire(LocalDateTime before)
+    {
+        int count = 0;
+        for(byte kind : new byte[]{ RECEIVED, SENDING }) {
+            for(Stripe stripe : kind == RECEIVED ? _Received : _Sending) {
+                synchronized(stripe) {
+                    List<MsgStateEntity> expired = new ArrayList<>();
+                    for(LongHashMap<MsgStateEntity> messages : stripe._Sessions.values()) {
+                        for(MsgStateEntity entity : messages.values()) {
+                            if(entity.getCreatedAt() != null && entity.getCreatedAt()
+                                                                      .isBefore(before))
+                            {
+                                expired.add(entity);
+                            }
+                        }
+                    }
+                    for(MsgStateEntity entity : expired) {
+                        long session = kind == RECEIVED ? entity.getOrigin() : entity.getTarget();
+                        remove(stripe, session, entity.getMsgId());
+                        _Pending.offer(encodeDel(kind, session, entity.getMsgId()));
+                    }
+                    count += expired.size();
+                }
+            }
+        }
+        return count;
+    }
+
+    public int size()
+    {
+        return _Size.get();
+    }
+
+    public int pending()
+    {
+        return _Pending.size();
+    }
+
+    private ByteBuf encodePut(byte kind, long session, MsgStateEntity entity)
+    {
+        byte[] topic = entity.getTopic() == null ? null : entity.getTopic()
+                                                               .getBytes(StandardCharsets.UTF_8);
+        byte[] content = entity.payload();
+        long created = entity.getCreatedAt() == null ? System.currentTimeMillis() : entity.getCreatedAt()
+                                                                                          .atZone(ZoneId.systemDefault())
+                                                                                          .toInstant()
+                                                                                          .toEpochMilli();
+        int length = 18 + 16 + ByteBuf.vSizeOf(topic == null ? 0 : topic.length) +
+                     ByteBuf.vSizeOf(content == null ? 0 : content.length);
+        ByteBuf record = ByteBuf.allocate(HEAD + length);
+        record.putInt(length)
+              .putInt(0)
+              .put(OP_PUT)
+              .put(kind)
+              .putLong(session)
+              .putLong(entity.getMsgId())
+              .putLong(kind == RECEIVED ? entity.getTarget() : entity.getOrigin())
+              .putLong(created)
+              .vPut(topic)
+              .vPut(content);
+        return sign(record);
+    }
+
+    private ByteBuf encodeDel(byte kind, long session, long msgId)
+    {
+        ByteBuf record = ByteBuf.allocate(HEAD + 18);
+        record.putInt(18)
+              .putInt(0)
+              .put(OP_DEL)
+              .put(kind)
+              .putLong(session)
+              .putLong(msgId);
+        return sign(record);
+    }
+
+    private ByteBuf sign(ByteBuf record)
+    {
+        byte[] array = record.array();
+        int crc = CryptoUtil.crc32(array, HEAD, array.length - HEAD);
+        record.put(crc >>> 24, 4)
+              .put(crc >>> 16, 5)
+              .put(crc >>> 8, 6)
+              .put(crc, 7);
+        return record;
+    }
+
+    /**
+     * 回放 journal，遇到不完整或校验失败的记录时截断
+     */
+    private void replay() throws IOException
+    {
+        if(!Files.exists(_File)) {return;}
+        byte[] journal = Files.readAllBytes(_File);
+        ByteBuf input = ByteBuf.wrap(journal);
+        int valid = 0, records = 0;
+        while(input.readableBytes() >= HEAD) {
+            int length = input.getInt();
+            int crc = input.getInt();
+            if(length < 18 || input.readableBytes() < length || CryptoUtil.crc32(journal, input.readerIdx(), length) != crc)
+            {
+                break;
+            }
+            byte op = input.get();
+            byte kind = input.get();
+            long session = input.getLong();
+            long msgId = input.getLong();
+            Stripe stripe = stripe(kind, session);
+            if(op == OP_PUT) {
+                MsgStateEntity entity = new MsgStateEntity();
+                long peer = input.getLong();
+                entity.setCreatedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(input.getLong()),
+                                                            ZoneId.systemDefault()));
+                int tl = input.vLength();
+                entity.setTopic(tl > 0 ? input.readUTF(tl) : null);
+                int cl = input.vLength();
+                if(cl > 0) {
+                    byte[] content = new byte[cl];
+                    input.get(content);
+                    entity.setContent(content);
+                }
+                entity.setMsgId(msgId);
+                entity.setOrigin(kind == RECEIVED ? session : peer);
+                entity.setTarget(kind == RECEIVED ? peer : session);
+                LongHashMap<MsgStateEntity> messages = stripe._Sessions.get(session);
+                if(messages == null) {
+                    stripe._Sessions.put(session, messages = new LongHashMap<>(4));
+                }
+                if(messages.put(msgId, entity) == null) {_Size.incrementAndGet();}
+            }
+            else {
+                remove(stripe, session, msgId);
+            }
+            valid = input.readerIdx();
+            records++;
+        }
+        if(valid < journal.length) {
+            _Logger.warning("journal %s truncated at %d/%d", _File, valid, journal.length);
+        }
+        _Logger.info("journal replay %d records, in-flight %d", records, _Size.get());
+    }
+
+    /**
+     * 以内存快照重写 journal；仅在 writer 线程或启动时调用
+     */
+    private void compact() throws IOException
+    {
+        Path tmp = _File.resolveSibling(_File.getFileName() + ".compact");
+        try(FileChannel channel = FileChannel.open(tmp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            for(byte kind : new byte[]{ RECEIVED, SENDING }) {
+                for(Stripe stripe : kind == RECEIVED ? _Received : _Sending) {
+                    List<ByteBuf> records = new ArrayList<>();
+                    synchronized(stripe) {
+                        for(LongHashMap<MsgStateEntity> messages : stripe._Sessions.values()) {
+                            for(MsgStateEntity entity : messages.values()) {
+                                records.add(encodePut(kind, kind == RECEIVED ? entity.getOrigin() : entity.getTarget(), entity));
+                            }
+                        }
+                    }
+                    for(ByteBuf record : records) {
+                        ByteBuffer buffer = record.toReadBuffer();
+                        while(buffer.hasRemaining()) {channel.write(buffer);}
+                    }
+                }
+            }
+            channel.force(true);
+        }
+        if(mChannel != null) {mChannel.close();}
+        Files.move(tmp, _File, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        mChannel = FileChannel.open(_File, CREATE, WRITE, APPEND);
+    }
+
+    private void write()
+    {
+        while(vRunning || !_Pending.isEmpty()) {
+            try {
+                // 每个 flush 周期聚合一批记录，写入方不唤醒 writer，避免每次变更一次系统调用
+                if(vRunning) {LockSupport.parkNanos(this, _FlushNanos);}
+                if(_Pending.isEmpty()) {continue;}
+                flush();
+                if(mChannel.size() > COMPACT_SIZE) {compact();}
+            }
+            catch(Throwable e) {
+                _Logger.warning("journal write failed", e);
+                LockSupport.parkNanos(this, TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+    }
+
+    private void flush() throws IOException
+    {
+        ByteBuf record;
+        int count = 0;
+        while((record = _Pending.peek()) != null) {
+            if(record.readableBytes() > _Batch.remaining()) {
+                if(_Batch.position() == 0) {
+                    // 单条超过 batch 容量，直接写
+                    ByteBuffer buffer = record.toReadBuffer();
+                    while(buffer.hasRemaining()) {mChannel.write(buffer);}
+                    _Pending.poll();
+                    count++;
+                    continue;
+                }
+                drain();
+            }
+            _Batch.put(record.toReadBuffer());
+            _Pending.poll();
+            count++;
+        }
+        drain();
+        if(count > 0) {mChannel.force(false);}
+    }
+
+    private void drain() throws IOException
+    {
+        _Batch.flip();
+        while(_Batch.hasRemaining()) {mChannel.write(_Batch);}
+        _Batch.clear();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        vRunning = false;
+        LockSupport.unpark(_Writer);
+        try {
+            _Writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+        }
+        mChannel.close();
+    }
+}
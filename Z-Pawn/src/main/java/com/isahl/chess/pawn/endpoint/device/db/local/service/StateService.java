@@ -23,12 +23,15 @@
 
 package com.isahl.chess.pawn.endpoint.device.db.local.service;
 
+import com.isahl.chess.bishop.protocol.mqtt.model.QttTopicTrie;
 import com.isahl.chess.king.base.cron.ScheduleHandler;
 import com.isahl.chess.king.base.cron.TimeWheel;
 import com.isahl.chess.king.base.features.IValid;
 import com.isahl.chess.king.base.log.Logger;
 import com.isahl.chess.king.env.ZUID;
 import com.isahl.chess.knight.raft.config.IRaftConfig;
+import com.isahl.chess.pawn.endpoint.device.config.MixConfig;
+import com.isahl.chess.pawn.endpoint.device.db.local.journal.InFlightStore;
 import com.isahl.chess.pawn.endpoint.device.db.local.model.MsgStateEntity;
 import com.isahl.chess.pawn.endpoint.device.db.local.model.SessionEntity;
 import com.isahl.chess.pawn.endpoint.device.db.local.repository.IMsgStateRepository;
@@ -49,6 +52,8 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import javax.cache.CacheManager;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -73,9 +78,14 @@ public class StateService
     private final TimeWheel                     _TimeWheel;
     private final ScheduleHandler<StateService> _StorageHourCleaner;
     private final ZUID                          _ZUID;
-    private final Map<Pattern, Subscribe>       _Topic2Subscribe;
+    private final QttTopicTrie                  _TopicTrie;
     private final Map<Long, DeviceClient>       _ClientPool;
     private final MsgStateService               _MsgStateService;
+    private final MixConfig                     _MixConfig;
+    /*
+     * QoS 1/2 in-flight 状态，JPA 仅作为可选的冷存储
+     */
+    private       InFlightStore                 mInFlight;
 
     @Autowired
     public StateService(IDeviceService deviceService,
@@ -83,22 +93,27 @@ public class StateService
                         IMsgStateRepository messageRepository,
                         TimeWheel timeWheel,
                         IRaftConfig raftConfig,
-                        MsgStateService msgStateService)
+                        MsgStateService msgStateService,
+                        MixConfig mixConfig)
     {
+        _MixConfig = mixConfig;
         _ZUID = raftConfig.getZUID();
         _DeviceService = deviceService;
         _SessionRepository = sessionRepository;
         _MsgStateRepository = messageRepository;
         _TimeWheel = timeWheel;
-        _Topic2Subscribe = new TreeMap<>(Comparator.comparing(Pattern::pattern));
+        _TopicTrie = new QttTopicTrie();
         _ClientPool = new ConcurrentSkipListMap<>();
         _StorageHourCleaner = new ScheduleHandler<>(Duration.ofHours(1), true, StateService::cleanup);
         _MsgStateService = msgStateService;
     }
 
     @PostConstruct
-    void initCache() throws ClassNotFoundException, InstantiationException, IllegalAccessException
+    void initCache() throws IOException
     {
+        String dir = _MixConfig.getStateJournalDir();
+        Duration flush = _MixConfig.getStateFlushInterval();
+        mInFlight = new InFlightStore(Path.of(dir == null ? "./state" : dir), flush == null ? Duration.ofMillis(10) : flush);
         _TimeWheel.acquire(this, _StorageHourCleaner);
     }
 
@@ -107,6 +122,7 @@ public class StateService
     {
         try {
             cleanup(this);
+            mInFlight.close();
         }
         catch(Throwable e) {
             _Logger.warning(e);
@@ -117,6 +133,8 @@ public class StateService
     {
         LocalDateTime idleTime = LocalDateTime.now()
                                               .minusHours(1);
+        int expired = self.mInFlight.expire(idleTime);
+        if(expired > 0) {self._Logger.info("in-flight expired %d", expired);}
         try {
             //@formatter:off
             List<MsgStateEntity> idleMsgHours =
@@ -151,16 +169,7 @@ public class StateService
 
     private void onDismiss(long session)
     {
-        for(Iterator<Map.Entry<Pattern, IThread.Subscribe>> iterator = _Topic2Subscribe.entrySet()
-                                                                                       .iterator(); iterator.hasNext(); )
-        {
-            Map.Entry<Pattern, IThread.Subscribe> entry = iterator.next();
-            entry.getValue()
-                 .onDismiss(session);
-            if(entry.getValue()
-                    .isEmpty())
-            {iterator.remove();}
-        }
+        _TopicTrie.dismiss(session);
     }
 
     @Override
@@ -271,13 +280,8 @@ public class StateService
                 message.setMsgId(msgId);
                 message.setTarget(_ZUID.getPeerId());
                 message.setContent(body.payload());
-                message.setId(String.format(MsgStateEntity.RECEIVER_PRIMARY_FORMAT, origin, msgId));
-                try {
-                    _MsgStateService.setMsgStateEntity(message);
-                }
-                catch(Throwable e) {
-                    _Logger.warning("local storage received msg %s failed", message.getId(), e);
-                }
+                message.setCreatedAt(LocalDateTime.now());
+                mInFlight.put(InFlightStore.RECEIVED, origin, message);
             }
         }
     }
@@ -285,6 +289,8 @@ public class StateService
     @Override
     public MsgStateEntity extract(long origin, long msgId)
     {
+        MsgStateEntity inFlight = mInFlight.remove(InFlightStore.RECEIVED, origin, msgId);
+        if(inFlight != null || !_MixConfig.isStateColdTier()) {return inFlight;}
         String primaryKey = String.format(MsgStateEntity.RECEIVER_PRIMARY_FORMAT, origin, msgId);
         try {
             MsgStateEntity exist = _MsgStateService.getMsgStateEntity(primaryKey);
@@ -304,31 +310,27 @@ public class StateService
     {
         long target = body.target();
         DeviceClient client = getClient(target);
-
-        if(client == null || client.identifierSendingMap()
-                                   .putIfAbsent(msgId, body) == body)
+        if(client != null) {
+            IProtocol old = client.identifierSendingMap()
+                                  .putIfAbsent(msgId, body);
+            // msg-id 已被其他尚未确认的消息占用
+            if(old != null && old != body) {return false;}
+        }
+        _Logger.debug("add: %s", body);
+        if(body.level()
+               .getValue() > IQoS.Level.ALMOST_ONCE.getValue())
         {
-            _Logger.debug("add: %s", body);
-            if(body.level()
-                   .getValue() > IQoS.Level.ALMOST_ONCE.getValue())
-            {
-                MsgStateEntity message = new MsgStateEntity();
-                message.setTopic(body.topic());
-                message.setOrigin(_ZUID.getPeerId());
-                message.setMsgId(msgId);
-                message.setTarget(body.target());
-                message.setContent(body.payload());
-                message.setId(String.format(MsgStateEntity.BROKER_PRIMARY_FORMAT, body.target(), msgId));
-                try {
-                    _MsgStateService.setMsgStateEntity(message);
-                }
-                catch(Throwable e) {
-                    _Logger.warning("local add broker msg %s failed", message.getId(), e);
-                }
-            }
-            return true;
+            // 在线 client 同样记入 in-flight 表，ack 时 drop 在内存中命中
+            MsgStateEntity message = new MsgStateEntity();
+            message.setTopic(body.topic());
+            message.setOrigin(_ZUID.getPeerId());
+            message.setMsgId(msgId);
+            message.setTarget(body.target());
+            message.setContent(body.payload());
+            message.setCreatedAt(LocalDateTime.now());
+            mInFlight.put(InFlightStore.SENDING, body.target(), message);
         }
-        return false;
+        return true;
     }
 
     @Override
@@ -339,6 +341,8 @@ public class StateService
             client.identifierSendingMap()
                   .remove(msgId);
         }
+        if(mInFlight.remove(InFlightStore.SENDING, target, msgId) != null) {return true;}
+        if(!_MixConfig.isStateColdTier()) {return false;}
         String key = String.format(MsgStateEntity.BROKER_PRIMARY_FORMAT, target, msgId);
         try {
             _MsgStateService.deleteMsgStateEntity(key);
@@ -361,20 +365,7 @@ public class StateService
                          .add(topic);
             _SessionRepository.save(sessionEntity);
         }
-        Subscribe subscribe = _Topic2Subscribe.computeIfAbsent(topic.pattern(), Subscribe::new);
-        if(session != 0) {
-            //@formatter:off
-            if(subscribe.computeIfPresent(session,
-                                          (key, old)->old.getValue() > topic.level()
-                                                                            .getValue()
-                                                      ? old : topic.level())
-               == null)
-            //@formatter:on
-            {
-                subscribe.onSubscribe(session, topic.level());
-            }
-        }
-        return subscribe;
+        return _TopicTrie.subscribe(topic.filter(), session, topic.level());
     }
 
     @Override
@@ -388,14 +379,7 @@ public class StateService
                          .remove(topic);
             _SessionRepository.save(sessionEntity);
         }
-        _Topic2Subscribe.computeIfPresent(topic.pattern(), (k, o)->{
-            o.onDismiss(session);
-            return o.isEmpty() ? null : o;
-        });
-        if(Objects.isNull(_Topic2Subscribe.get(topic.pattern()))) {
-            _Topic2Subscribe.remove(topic.pattern());
-            _Logger.debug("cleanup topic: %", topic);
-        }
+        _TopicTrie.unsubscribe(topic.filter(), session);
     }
 
     @Override
@@ -405,26 +389,21 @@ public class StateService
         //@formatter:off
         return client == null || client.identifierReceivedMap()
                                        .containsKey(msgId) ||
+               mInFlight.get(InFlightStore.RECEIVED, origin, msgId) != null ||
+               _MixConfig.isStateColdTier() &&
                _MsgStateService.getMsgStateEntity(String.format(MsgStateEntity.RECEIVER_PRIMARY_FORMAT, origin, msgId)) != null;
         //@formatter:on
     }
 
     @Override
-    public Map<Pattern, Subscribe> mappings()
+    public QttTopicTrie topics()
     {
-        return _Topic2Subscribe;
+        return _TopicTrie;
     }
 
     @Override
     public List<Pattern> filter(String filter)
     {
-        return _Topic2Subscribe.keySet()
-                               .stream()
-                               .filter(p->p.pattern()
-                                           .equals(filter) || p.asMatchPredicate()
-                                                               .test(filter) || Pattern.compile(filter)
-                                                                                       .asMatchPredicate()
-                                                                                       .test(p.pattern()))
-                               .toList();
+        return _TopicTrie.filter(filter);
     }
 }
@@ -29,6 +29,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.List;
+import java.util.function.BiConsumer;
 
 public interface IDeviceService
 {
@@ -81,4 +82,30 @@ public interface IDeviceService
      */
     void deleteDevice(long id);
 
+    /**
+     * 仅查询本地 token 缓存，不访问存储；供 LinkProcessor 线程使用
+     *
+     * @param token
+     * @return null 未命中
+     */
+    DeviceEntity peekByToken(String token);
+
+    /**
+     * token 是否已被确认不存在（负缓存）
+     *
+     * @param token
+     * @return
+     */
+    boolean isUnknownToken(String token);
+
+    /**
+     * 在鉴权线程池中回查 token，结果写入缓存后回调；同一 token 的并发请求合并为一次查询
+     * 回调在鉴权线程上执行
+     *
+     * @param token
+     * @param callback first: 设备，不存在时为 null; second: 回查异常
+     * @return false 鉴权队列已满
+     */
+    boolean resolveByToken(String token, BiConsumer<DeviceEntity, Throwable> callback);
+
 }
\ No newline at end of file
@@ -29,6 +29,7 @@ import com.isahl.chess.pawn.endpoint.device.resource.model.MessageBody;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -42,6 +43,13 @@ public interface IMessageService
 
     List<MessageEntity> findAfterId(long id);
 
+    /**
+     * 游标检索，按 id 升序，以返回的最后一条 id 作为下一次的 id
+     */
+    List<MessageEntity> findAfterId(long id, int limit);
+
+    List<MessageEntity> findByTopic(String topic, LocalDateTime from, LocalDateTime to, long afterId, int limit) throws ZException;
+
     Optional<MessageEntity> findOneMsg(Specification<MessageEntity> specification);
 
     List<MessageEntity> findAllMsg(Specification<MessageEntity> specification, Pageable pageable);
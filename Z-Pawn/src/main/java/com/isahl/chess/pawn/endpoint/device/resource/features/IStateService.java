@@ -23,6 +23,7 @@
 
 package com.isahl.chess.pawn.endpoint.device.resource.features;
 
+import com.isahl.chess.bishop.protocol.mqtt.model.QttTopicTrie;
 import com.isahl.chess.pawn.endpoint.device.db.local.model.MsgStateEntity;
 import com.isahl.chess.pawn.endpoint.device.db.local.model.SessionEntity;
 import com.isahl.chess.pawn.endpoint.device.model.DeviceClient;
@@ -33,7 +34,6 @@ import com.isahl.chess.queen.io.core.features.model.session.IQoS;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Pattern;
 
 public interface IStateService
@@ -52,7 +52,7 @@ public interface IStateService
 
     boolean drop(long target, long msgId);
 
-    Map<Pattern, IThread.Subscribe> mappings();
+    QttTopicTrie topics();
 
     List<Pattern> filter(String filter);
 
@@ -39,18 +39,33 @@ import com.isahl.chess.pawn.endpoint.device.db.central.repository.IDeviceReposit
 import com.isahl.chess.pawn.endpoint.device.resource.features.IDeviceService;
 import com.isahl.chess.rook.storage.cache.config.EhcacheConfig;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import javax.cache.Cache;
 import javax.cache.CacheManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
@@ -69,6 +84,20 @@ public class DeviceService
     private final CryptoUtil        _CryptoUtil = new CryptoUtil();
     private final MixConfig         _MixConfig;
     private final IRaftConfig       _RaftConfig;
+    /*
+     * 未知 token → 负缓存失效时刻(nano)
+     */
+    private final Map<String, Long>                                       _UnknownTokens = new ConcurrentHashMap<>();
+    /*
+     * 正在回查的 token → 等待结果的回调
+     */
+    private final Map<String, List<BiConsumer<DeviceEntity, Throwable>>> _Resolving     = new ConcurrentHashMap<>();
+
+    private Cache<String, DeviceEntity> mTokenCache;
+    private Cache<Long, DeviceEntity>   mIdCache;
+    private ThreadPoolExecutor          mAuthExecutor;
+    private long                        mNegativeTtl;
+    private int                         mNegativeCapacity;
 
     @Autowired(required = false)
     public DeviceService(IDeviceRepository deviceRepository,
@@ -95,6 +124,35 @@ public class DeviceService
                                   Long.class,
                                   DeviceEntity.class,
                                   Duration.of(15, MINUTES));
+        mTokenCache = _CacheManager.getCache("device_token_cache", String.class, DeviceEntity.class);
+        mIdCache = _CacheManager.getCache("device_id_cache", Long.class, DeviceEntity.class);
+        Duration ttl = _MixConfig.getAuthNegativeTtl();
+        mNegativeTtl = (ttl == null || ttl.isNegative() || ttl.isZero() ? Duration.ofSeconds(30) : ttl).toNanos();
+        mNegativeCapacity = Math.max(1, _MixConfig.getAuthNegativeCapacity());
+        final int _Concurrency = Math.max(1, _MixConfig.getAuthConcurrency());
+        final AtomicInteger _Count = new AtomicInteger();
+        mAuthExecutor = new ThreadPoolExecutor(_Concurrency,
+                                               _Concurrency,
+                                               30,
+                                               TimeUnit.SECONDS,
+                                               new ArrayBlockingQueue<>(Math.max(1, _MixConfig.getAuthQueueSize())),
+                                               r->{
+                                                   Thread thread = new Thread(r, "DeviceAuth." + _Count.getAndIncrement());
+                                                   thread.setDaemon(true);
+                                                   return thread;
+                                               });
+        mAuthExecutor.allowCoreThreadTimeOut(true);
+        if(_MixConfig.getAuthWarmUp() > 0) {
+            mAuthExecutor.execute(this::warmUp);
+        }
+    }
+
+    @PreDestroy
+    public void dispose()
+    {
+        if(mAuthExecutor != null) {
+            mAuthExecutor.shutdownNow();
+        }
     }
 
     @CachePut(value = "device_token_cache",
@@ -102,7 +160,11 @@ public class DeviceService
               condition = "#result != null")
     public DeviceEntity saveDevice(DeviceEntity device)
     {
-        return _DeviceRepository.save(device);
+        DeviceEntity saved = _DeviceRepository.save(device);
+        if(saved != null && saved.getToken() != null) {
+            _UnknownTokens.remove(saved.getToken());
+        }
+        return saved;
     }
 
     @Override
@@ -215,4 +277,134 @@ public class DeviceService
     {
         return _DeviceRepository.findAllByDeviceIdIn(deviceIdList);
     }
+
+    @Override
+    public DeviceEntity peekByToken(String token)
+    {
+        return token == null || mTokenCache == null ? null : mTokenCache.get(token);
+    }
+
+    @Override
+    public boolean isUnknownToken(String token)
+    {
+        if(token == null) {return false;}
+        Long expire = _UnknownTokens.get(token);
+        if(expire == null) {return false;}
+        if(expire - System.nanoTime() > 0) {return true;}
+        _UnknownTokens.remove(token, expire);
+        return false;
+    }
+
+    @Override
+    public boolean resolveByToken(String token, BiConsumer<DeviceEntity, Throwable> callback)
+    {
+        if(token == null || callback == null) {return false;}
+        List<BiConsumer<DeviceEntity, Throwable>> waiters = new ArrayList<>(2);
+        waiters.add(callback);
+        if(_Resolving.putIfAbsent(token, waiters) == null) {
+            try {
+                mAuthExecutor.execute(()->resolve(token));
+            }
+            catch(RejectedExecutionException e) {
+                _Logger.warning("auth queue full, reject token: %s", token);
+                List<BiConsumer<DeviceEntity, Throwable>> joined = _Resolving.remove(token);
+                if(joined != null) {
+                    for(BiConsumer<DeviceEntity, Throwable> waiter : joined) {
+                        if(waiter != callback) {waiter.accept(null, e);}
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+        /*
+         * 合并到已在进行的回查；compute 与 resolve 中的 remove 对同一 key 互斥，
+         * 返回 null 说明回查刚好结束，结果已在缓存中，重新发起一次即可
+         */
+        return _Resolving.computeIfPresent(token, (k, joined)->{
+            joined.add(callback);
+            return joined;
+        }) != null || resolveByToken(token, callback);
+    }
+
+    private void resolve(String token)
+    {
+        DeviceEntity device = null;
+        Throwable error = null;
+        try {
+            device = _DeviceRepository.findByToken(token);
+            if(device == null) {
+                markUnknown(token);
+            }
+            else {
+                mTokenCache.put(token, device);
+                mIdCache.put(device.getId(), device);
+            }
+        }
+        catch(Throwable e) {
+            _Logger.warning("resolve token failed: %s", e, token);
+            error = e;
+        }
+        List<BiConsumer<DeviceEntity, Throwable>> waiters = _Resolving.remove(token);
+        if(waiters != null) {
+            for(BiConsumer<DeviceEntity, Throwable> waiter : waiters) {
+                try {
+                    waiter.accept(device, error);
+                }
+                catch(Throwable e) {
+                    _Logger.warning("auth callback error", e);
+                }
+            }
+        }
+    }
+
+    private void markUnknown(String token)
+    {
+        long now = System.nanoTime();
+        if(_UnknownTokens.size() >= mNegativeCapacity) {
+            _UnknownTokens.values()
+                          .removeIf(expire->expire - now <= 0);
+            /*
+             * 仍然满载时随机淘汰一项，保证本次结果一定能写入，避免回注 LINK 后再次回查
+             */
+            Iterator<String> it = _UnknownTokens.keySet()
+                                                .iterator();
+            while(_UnknownTokens.size() >= mNegativeCapacity && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        _UnknownTokens.put(token, now + mNegativeTtl);
+    }
+
+    private void warmUp()
+    {
+        final int _Limit = _MixConfig.getAuthWarmUp();
+        final int _Size = Math.min(_Limit, 1000);
+        int loaded = 0;
+        try {
+            for(int page = 0; loaded < _Limit; page++) {
+                List<DeviceEntity> devices = _DeviceRepository.findAll(PageRequest.of(page,
+                                                                                      _Size,
+                                                                                      Sort.by(Sort.Direction.DESC, "updatedAt")))
+                                                              .getContent();
+                Map<String, DeviceEntity> tokens = new HashMap<>(devices.size() << 1);
+                Map<Long, DeviceEntity> ids = new HashMap<>(devices.size() << 1);
+                for(DeviceEntity device : devices) {
+                    if(device.getToken() != null) {
+                        tokens.put(device.getToken(), device);
+                        ids.put(device.getId(), device);
+                    }
+                }
+                mTokenCache.putAll(tokens);
+                mIdCache.putAll(ids);
+                loaded += devices.size();
+                if(devices.size() < _Size) {break;}
+            }
+            _Logger.info("device cache warm up: %d", loaded);
+        }
+        catch(Throwable e) {
+            _Logger.warning("device cache warm up failed, loaded: %d", e, loaded);
+        }
+    }
 }
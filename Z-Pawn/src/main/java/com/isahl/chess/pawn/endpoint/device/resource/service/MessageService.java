@@ -23,17 +23,24 @@
 
 package com.isahl.chess.pawn.endpoint.device.resource.service;
 
+import com.isahl.chess.king.base.cron.ScheduleHandler;
+import com.isahl.chess.king.base.cron.TimeWheel;
 import com.isahl.chess.king.base.exception.ZException;
+import com.isahl.chess.king.base.features.IValid;
 import com.isahl.chess.king.base.log.Logger;
+import com.isahl.chess.king.base.util.RingQueue;
 import com.isahl.chess.knight.raft.config.IRaftConfig;
+import com.isahl.chess.pawn.endpoint.device.config.MixConfig;
 import com.isahl.chess.pawn.endpoint.device.db.central.model.MessageEntity;
 import com.isahl.chess.pawn.endpoint.device.db.central.model.MsgDeliveryStatus;
 import com.isahl.chess.pawn.endpoint.device.db.central.repository.IMessageRepository;
 import com.isahl.chess.pawn.endpoint.device.db.central.repository.IMsgDeliveryStatusRepository;
+import com.isahl.chess.pawn.endpoint.device.db.local.archive.MessageArchive;
 import com.isahl.chess.pawn.endpoint.device.resource.features.IMessageService;
 import com.isahl.chess.pawn.endpoint.device.resource.model.MessageBody;
 import com.isahl.chess.rook.storage.cache.config.EhcacheConfig;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Pageable;
@@ -41,10 +48,16 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
 import javax.cache.CacheManager;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.time.temporal.ChronoUnit.HOURS;
 
@@ -54,51 +67,192 @@ import static java.time.temporal.ChronoUnit.HOURS;
  */
 @Service
 public class MessageService
-        implements IMessageService
+        implements IMessageService,
+                   IValid
 {
     private final Logger _Logger = Logger.getLogger("endpoint.pawn." + getClass().getSimpleName());
 
+    private final static int FIND_LIMIT   = 1000;
+    private final static int MIRROR_BATCH = 512;
+    private final static int MIRROR_RETRY = 8;
+
     private final CacheManager                 _CacheManager;
     private final IMessageRepository           _MessageRepository;
     private final IMsgDeliveryStatusRepository _MsgDeliveryStatusRepository;
     private final IRaftConfig                  _RaftConfig;
+    private final MixConfig                    _MixConfig;
+    private final TimeWheel                    _TimeWheel;
+    /*
+     * 已归档、待镜像到中心库的消息
+     */
+    private final RingQueue<MessageEntity>     _Mirror;
+    private final AtomicLong                   _MirrorDropped = new AtomicLong();
+    /*
+     * 镜像失败的批次，下次调度优先重试
+     */
+    private final List<MessageEntity>          _MirrorRetry   = new ArrayList<>(MIRROR_BATCH);
+    private       int                          mMirrorAttempt;
+    /*
+     * 本地消息归档，历史与 retain 查询不再回查中心库
+     */
+    private       MessageArchive               mArchive;
 
     @Autowired(required = false)
     public MessageService(IRaftConfig raftConfig,
                           CacheManager cacheManager,
                           IMessageRepository messageRepository,
-                          IMsgDeliveryStatusRepository statusRepository)
+                          IMsgDeliveryStatusRepository statusRepository,
+                          MixConfig mixConfig,
+                          TimeWheel timeWheel)
     {
         _RaftConfig = raftConfig;
         _CacheManager = cacheManager;
         _MessageRepository = messageRepository;
         _MsgDeliveryStatusRepository = statusRepository;
+        _MixConfig = mixConfig;
+        _TimeWheel = timeWheel;
+        _Mirror = new RingQueue<>(mixConfig.getArchiveMirrorCapacity() > 0 ? mixConfig.getArchiveMirrorCapacity() : 1 << 16);
     }
 
     @PostConstruct
-    void init() throws ClassNotFoundException, InstantiationException, IllegalAccessException
+    void init() throws ClassNotFoundException, InstantiationException, IllegalAccessException, IOException
     {
         EhcacheConfig.createCache(_CacheManager,
                                   "msg_delivery_status_cache",
                                   String.class,
                                   MsgDeliveryStatus.class,
                                   Duration.of(4, HOURS));
+        String dir = _MixConfig.getArchiveDir();
+        Duration ttl = _MixConfig.getArchiveTtl();
+        mArchive = new MessageArchive(Path.of(dir == null ? "./archive" : dir), ttl == null ? Duration.ofDays(7) : ttl);
+        _TimeWheel.acquire(this, new ScheduleHandler<>(Duration.ofMinutes(5), true, MessageService::maintain));
+        if(_MixConfig.isArchiveMirror()) {
+            _TimeWheel.acquire(this, new ScheduleHandler<>(Duration.ofSeconds(1), true, MessageService::mirror));
+        }
+    }
+
+    @PreDestroy
+    void destroy()
+    {
+        try {
+            flushMirror();
+            mArchive.close();
+        }
+        catch(Throwable e) {
+            _Logger.warning(e);
+        }
+    }
+
+    private static void maintain(MessageService self)
+    {
+        try {
+            int expired = self.mArchive.maintain();
+            if(expired > 0) {self._Logger.info("archive expired %d partitions", expired);}
+        }
+        catch(IOException e) {
+            self._Logger.warning("archive maintain failed", e);
+        }
+    }
+
+    private static void mirror(MessageService self)
+    {
+        self.flushMirror();
+    }
+
+    private synchronized void flushMirror()
+    {
+        List<MessageEntity> batch = _MirrorRetry;
+        for(MessageEntity content; ; batch.clear(), mMirrorAttempt = 0) {
+            while(batch.size() < MIRROR_BATCH && (content = _Mirror.poll()) != null) {batch.add(content);}
+            if(batch.isEmpty()) {return;}
+            try {
+                _MessageRepository.saveAll(batch);
+            }
+            catch(Throwable e) {
+                if(++mMirrorAttempt < MIRROR_RETRY) {
+                    // 保留失败批次，下次调度时重试，避免在中心库故障期间空转
+                    _Logger.warning("mirror %d messages failed, attempt %d", e, batch.size(), mMirrorAttempt);
+                    return;
+                }
+                // 本地归档中已有完整记录，超过重试次数后放弃该批次镜像
+                _Logger.warning("mirror %d messages failed, give up after %d attempts", e, batch.size(), mMirrorAttempt);
+                mirrorDropped(batch.size());
+            }
+        }
+    }
+
+    private void mirrorDropped(int count)
+    {
+        long total = _MirrorDropped.addAndGet(count);
+        if(Long.highestOneBit(total) != Long.highestOneBit(total - count)) {
+            _Logger.warning("archive mirror dropped %d", total);
+        }
+    }
+
+    /**
+     * @return 待镜像到中心库的消息数（近似值），含等待重试的批次
+     */
+    public int getMirrorLag()
+    {
+        return _Mirror.size() + _MirrorRetry.size();
+    }
+
+    /**
+     * @return 因队列已满或重试耗尽而未镜像到中心库的消息数
+     */
+    public long getMirrorDropped()
+    {
+        return _MirrorDropped.get();
     }
 
     @Override
     public List<MessageBody> listByTopic(String topic, int limit) throws ZException
     {
-        return null;
+        try {
+            return mArchive.latest(topic, limit)
+                           .stream()
+                           .map(content->new MessageBody(content.getTopic(), content.getMessage()))
+                           .toList();
+        }
+        catch(IOException e) {
+            throw new ZException(e, "archive list topic " + topic + " failed");
+        }
     }
 
     @Override
     public List<MessageEntity> findAfterId(long id)
     {
-        return _MessageRepository.findAll((root, criteriaQuery, criteriaBuilder)->criteriaQuery.where(criteriaBuilder.greaterThan(
-                                                                                                       root.get("id"),
-                                                                                                       id))
-                                                                                               .getRestriction());
+        return findAfterId(id, FIND_LIMIT);
+    }
 
+    @Override
+    public List<MessageEntity> findAfterId(long id, int limit)
+    {
+        try {
+            return mArchive.scan(null, Long.MIN_VALUE, Long.MAX_VALUE, id, limit);
+        }
+        catch(IOException e) {
+            throw new ZException(e, "archive scan after " + id + " failed");
+        }
+    }
+
+    @Override
+    public List<MessageEntity> findByTopic(String topic, LocalDateTime from, LocalDateTime to, long afterId, int limit) throws ZException
+    {
+        try {
+            return mArchive.scan(topic,
+                                 from == null ? Long.MIN_VALUE : from.atZone(ZoneId.systemDefault())
+                                                                     .toInstant()
+                                                                     .toEpochMilli(),
+                                 to == null ? Long.MAX_VALUE : to.atZone(ZoneId.systemDefault())
+                                                                 .toInstant()
+                                                                 .toEpochMilli(),
+                                 afterId,
+                                 limit);
+        }
+        catch(IOException e) {
+            throw new ZException(e, "archive scan topic " + topic + " failed");
+        }
     }
 
     @Override
@@ -118,7 +272,7 @@ public class MessageService
     public void submit(MessageEntity post)
     {
         post.setMessageId(generateId());
-        _MessageRepository.save(post);
+        submitAll(List.of(post));
     }
 
     @Override
@@ -126,7 +280,19 @@ public class MessageService
     {
         if(contents == null || contents.isEmpty()) return;
         _Logger.debug("message service submit [%d]", contents.size());
-        _MessageRepository.saveAll(contents);
+        try {
+            mArchive.append(contents);
+        }
+        catch(IOException e) {
+            _Logger.warning("archive append %d messages failed", e, contents.size());
+        }
+        if(_MixConfig.isArchiveMirror()) {
+            int dropped = 0;
+            for(MessageEntity content : contents) {
+                if(!_Mirror.offer(content)) {dropped++;}
+            }
+            if(dropped > 0) {mirrorDropped(dropped);}
+        }
     }
 
     @Override
@@ -23,6 +23,7 @@
 
 package com.isahl.chess.pawn.endpoint.device.service;
 
+import com.isahl.chess.bishop.protocol.zchat.model.command.X1C_MultiExchange;
 import com.isahl.chess.bishop.protocol.zchat.model.command.X1F_Exchange;
 import com.isahl.chess.king.base.disruptor.components.Health;
 import com.isahl.chess.king.base.disruptor.features.debug.IHealth;
@@ -40,6 +41,7 @@ import com.isahl.chess.queen.io.core.features.model.pipe.IPipeService;
 import com.isahl.chess.queen.io.core.features.model.pipe.IPipeTransfer;
 import com.isahl.chess.queen.io.core.features.model.session.IExchanger;
 import com.isahl.chess.queen.io.core.features.model.session.IManager;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
 import com.isahl.chess.queen.io.core.features.model.session.ISession;
 
 import java.util.LinkedList;
@@ -104,6 +106,26 @@ public class LogicHandler<T extends IActivity & IExchanger & IClusterNode>
                                            .getSimpleName());
                 }
             }
+            else if(content.serial() == 0x1C) {
+                try {
+                    X1C_MultiExchange x1C = (X1C_MultiExchange) content;
+                    IManager manager = getExchanger();
+                    IProtocol body = x1C.deserializeSub(manager.findIoFactoryBySerial(x1C.factory()));
+                    for(int i = 0, count = x1C.count(); i < count; i++) {
+                        ISession ts = manager.findSessionByIndex(x1C.target(i));
+                        if(ts != null) {
+                            service.onExchange(body, ts, IQoS.Level.valueOf(x1C.targetLevel(i)), x1C.targetMsgId(i), results);
+                        }
+                    }
+                }
+                catch(Exception e) {
+                    _Logger.warning("on multi exchange,%s <- %s",
+                                    e,
+                                    content,
+                                    service.getClass()
+                                           .getSimpleName());
+                }
+            }
             else if(content.serial() == 0x1F) {
                 try {
                     X1F_Exchange x1F = (X1F_Exchange) content;
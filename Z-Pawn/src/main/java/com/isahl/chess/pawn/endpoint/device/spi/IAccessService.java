@@ -29,6 +29,7 @@ import com.isahl.chess.queen.io.core.features.cluster.IConsistency;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.session.IExchanger;
 import com.isahl.chess.queen.io.core.features.model.session.IManager;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
 import com.isahl.chess.queen.io.core.features.model.session.ISession;
 
 import java.util.List;
@@ -82,6 +83,20 @@ public interface IAccessService
 
     }
 
+    /**
+     * 批量 exchange 在本节点展开后的单个目标
+     *
+     * @param body    共享内容
+     * @param session 目标 session
+     * @param level   目标的 QoS
+     * @param msgId   level > 0 时目标 session 上的 msg-id
+     * @param load    待写出的结果
+     */
+    default void onExchange(IProtocol body, ISession session, IQoS.Level level, long msgId, List<ITriple> load)
+    {
+
+    }
+
     default IProtocol onClose(ISession session)
     {
         return null;
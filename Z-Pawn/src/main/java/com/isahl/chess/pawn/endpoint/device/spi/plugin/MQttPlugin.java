@@ -30,13 +30,16 @@ import com.isahl.chess.bishop.protocol.mqtt.ctrl.X11D_QttPingresp;
 import com.isahl.chess.bishop.protocol.mqtt.ctrl.X11E_QttDisconnect;
 import com.isahl.chess.bishop.protocol.mqtt.factory.QttFactory;
 import com.isahl.chess.bishop.protocol.mqtt.model.QttContext;
+import com.isahl.chess.bishop.protocol.mqtt.model.QttTopicTrie;
 import com.isahl.chess.bishop.protocol.zchat.model.ctrl.X0D_Error;
 import com.isahl.chess.king.base.features.IValid;
 import com.isahl.chess.king.base.features.model.ITriple;
 import com.isahl.chess.king.base.features.model.IoSerial;
 import com.isahl.chess.king.base.log.Logger;
+import com.isahl.chess.king.base.util.Pair;
 import com.isahl.chess.king.base.util.Triple;
 import com.isahl.chess.king.env.ZUID;
+import com.isahl.chess.knight.cluster.IClusterNode;
 import com.isahl.chess.pawn.endpoint.device.db.central.model.DeviceEntity;
 import com.isahl.chess.pawn.endpoint.device.db.central.model.MessageEntity;
 import com.isahl.chess.pawn.endpoint.device.db.local.model.MsgStateEntity;
@@ -56,12 +59,13 @@ import com.isahl.chess.queen.io.core.features.model.session.ISession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
+import static com.isahl.chess.king.base.disruptor.features.functions.OperateType.BIZ_LOCAL;
+import static com.isahl.chess.king.base.disruptor.features.functions.OperateType.LINK;
 import static com.isahl.chess.king.base.disruptor.features.functions.OperateType.NULL;
 import static com.isahl.chess.king.base.disruptor.features.functions.OperateType.SINGLE;
 import static com.isahl.chess.king.config.KingCode.SUCCESS;
@@ -122,6 +126,24 @@ public class MQttPlugin
         }
     }
 
+    @Override
+    public void onExchange(IProtocol body, ISession session, IQoS.Level level, long msgId, List<ITriple> load)
+    {
+        if(body.serial() == 0x113) {
+            X113_QttPublish n113 = ((X113_QttPublish) body).duplicate();
+            n113.target(session.index());
+            n113.setLevel(level);
+            if(level.getValue() > 0) {
+                n113.msgId(msgId);
+            }
+            n113.with(session);
+            onExchange(n113, load);
+        }
+        else {
+            _Logger.warning("unsupported message type: " + body);
+        }
+    }
+
     @Override
     public void onLogic(IExchanger exchanger, ISession session, IProtocol content, List<ITriple> load)
     {
@@ -216,8 +238,22 @@ public class MQttPlugin
                 long deviceId = ZUID.INVALID_PEER_ID;
                 if(x112.isOk()) {
                     _Logger.info("Login Client: %s", x111.getClientId());
-                    DeviceEntity device = _DeviceService.findByToken(x111.getClientId());
-                    if(device == null) {
+                    /*
+                     * LinkProcessor 上只查本地缓存；未命中时交由鉴权线程池回查存储，
+                     * 结果写入缓存后将 x111 重新投递到 LINK，再次进入此处完成登录
+                     */
+                    DeviceEntity device = _DeviceService.peekByToken(x111.getClientId());
+                    if(device == null && !_DeviceService.isUnknownToken(x111.getClientId())) {
+                        if(manager instanceof IClusterNode node &&
+                           _DeviceService.resolveByToken(x111.getClientId(),
+                                                         (found, error)->relink(node, session, x111, error)))
+                        {
+                            _Logger.debug("login pending: client[%s]", x111.getClientId());
+                            return null;
+                        }
+                        x112.rejectServerUnavailable();
+                    }
+                    else if(device == null) {
                         x112.rejectIdentifier();
                     }
                     //@formatter:off
@@ -276,6 +312,25 @@ public class MQttPlugin
         return null;
     }
 
+    private void relink(IClusterNode node, ISession session, X111_QttConnect x111, Throwable error)
+    {
+        if(session.isClosed()) {
+            _Logger.debug("login abandon, session closed; client[%s]", x111.getClientId());
+            return;
+        }
+        if(error == null) {
+            node.produce(LINK, Pair.of(x111, session), null);
+        }
+        else {
+            X112_QttConnack x112 = new X112_QttConnack();
+            x112.with(session);
+            x112.rejectServerUnavailable();
+            if(!node.send(session, BIZ_LOCAL, x112)) {
+                node.close(session, BIZ_LOCAL);
+            }
+        }
+    }
+
     @Override
     public List<ITriple> onConsistency(IManager manager, IConsistency backload, IoSerial consensusBody)
     {
@@ -328,7 +383,7 @@ public class MQttPlugin
                             _Logger.info("subscribe topic: %s", x118.getSubscribes());
                             _Logger.debug(" → origin[%#x] subscribe @[%#x], ack ", origin, client);
                             subscribes.forEach((topic, level)->{
-                                Topic t = new Topic(_QttTopicToRegex(topic), level, 0);
+                                Topic t = new Topic(QttTopicTrie.compile(topic), level, 0);
                                 Subscribe subscribe = subscribe(t, origin);
                                 if(subscribe != null) {
                                     //TODO 统计单指令多个Subscribe的情况
@@ -345,7 +400,7 @@ public class MQttPlugin
                         _Logger.info("subscribe topic:%s", x118.getSubscribes());
                         _Logger.debug("origin[%#x] subscribe @[%#x]", origin, client);
                         subscribes.forEach((topic, level)->{
-                            Topic t = new Topic(_QttTopicToRegex(topic), level, 0);
+                            Topic t = new Topic(QttTopicTrie.compile(topic), level, 0);
                             subscribe(t, origin);
                         });
                     }
@@ -359,7 +414,7 @@ public class MQttPlugin
                     x11B.msgId(x11A.msgId());
                     if(topics != null) {
                         _Logger.info("unsubscribe topic:%s", x11A.getTopics());
-                        topics.forEach(topic->unsubscribe(new Topic(_QttTopicToRegex(topic)), origin));
+                        topics.forEach(topic->unsubscribe(new Topic(QttTopicTrie.compile(topic)), origin));
                         _Logger.debug("origin[%#x] unsubscribe @[%#x]", origin, client);
                     }
                     if(os != null) {
@@ -418,46 +473,22 @@ public class MQttPlugin
     @Override
     public void retain(String topic, IProtocol content)
     {
-        if(_StateService.mappings()
-                        .values()
-                        .parallelStream()
-                        .filter(subscribe->subscribe.pattern()
-                                                    .asMatchPredicate()
-                                                    .test(topic))
-                        .peek(subscribe->subscribe.setRetain(content))
-                        .count() == 0)
-        {
-            Pattern pattern = _QttTopicToRegex(topic);
-            Subscribe subscribe = new Subscribe(pattern);
-            subscribe.setRetain(content);
-            _StateService.mappings()
-                         .put(pattern, subscribe);
-        }
+        _StateService.topics()
+                     .retain(topic, content);
     }
 
     @Override
     public List<Subscribe.Mapped> broker(String topic)
     {
-        return _StateService.mappings()
-                            .entrySet()
-                            .parallelStream()
-                            .filter(entry->entry.getKey()
-                                                .asMatchPredicate()
-                                                .test(topic))
-                            .map(Map.Entry::getValue)
-                            .flatMap(Subscribe::stream)
-                            .collect(Collectors.toList());
+        return _StateService.topics()
+                            .broker(topic);
     }
 
     public List<IThread.Topic> groupBy(long session)
     {
         _Logger.debug("group by :%#x", session);
-        return _StateService.mappings()
-                            .values()
-                            .parallelStream()
-                            .filter(subscribe->subscribe.contains(session))
-                            .map(subscribe->new IThread.Topic(subscribe.pattern(), subscribe.level(session), 0))
-                            .collect(Collectors.toList());
+        return _StateService.topics()
+                            .groupBy(session);
     }
 
     @Override
@@ -472,40 +503,13 @@ public class MQttPlugin
         _StateService.onUnsubscribe(topic, session);
     }
 
-    public static Pattern _QttTopicToRegex(String topic)
-    {
-        _Logger.debug("topic source: [%s]", topic);
-        topic = topic.replaceAll("\\++", "+");
-        topic = topic.replaceAll("#+", "#");
-        topic = topic.replaceAll("(/#)+", "/#");
-
-        if(Pattern.compile("#\\+|\\+#")
-                  .asPredicate()
-                  .test(topic))
-        {
-            throw new IllegalArgumentException("topic error " + topic);
-        }
-        if(!Pattern.compile("(/\\+)$")
-                   .asPredicate()
-                   .test(topic))
-        {
-            topic = topic.replaceAll("(\\+)$", "");
-        }
-        topic = topic.replaceAll("^\\+", "([^\\$/]+)");
-        topic = topic.replaceAll("(/\\+)$", "(/?[^/]*)");
-        topic = topic.replaceAll("/\\+", "/([^/]+)");
-        topic = topic.replaceAll("^#", "([^\\$]*)");
-        topic = topic.replaceAll("^/#", "(/.*)");
-        topic = topic.replaceAll("/#", "(/?.*)");
-        return Pattern.compile(topic);
-    }
-
     private void brokerTopic(IExchanger exchanger,
                              X113_QttPublish x113,
                              List<Subscribe.Mapped> mappedList,
                              List<ITriple> results)
     {
         _Logger.debug("broker[%s]→%s | %s", x113.topic(), mappedList, x113.toString());
+        List<IExchanger.Target> remotes = new ArrayList<>();
         mappedList.forEach(mapped->{
             long target = mapped.session();
             X113_QttPublish n113 = x113.duplicate();
@@ -528,10 +532,22 @@ public class MQttPlugin
                 results.add(Triple.of(n113, session, session.encoder()));
             }
             else {
-                exchanger.exchange(n113, target, QttFactory._Instance.serial(), results);
+                remotes.add(new IExchanger.Target(target, mapped.level(), n113.msgId()));
                 _Logger.debug("no local routing,cluster exchange %#x", mapped.session());
             }
         });
+        exchange(exchanger, x113, remotes, results);
+    }
+
+    /**
+     * 远端 target 合并为按节点的批量 exchange，body 不携带 level 与 msg-id
+     */
+    private void exchange(IExchanger exchanger, X113_QttPublish x113, List<IExchanger.Target> remotes, List<ITriple> results)
+    {
+        if(remotes.isEmpty()) {return;}
+        X113_QttPublish body = x113.duplicate();
+        body.setLevel(IQoS.Level.ALMOST_ONCE);
+        exchanger.exchange(body, remotes, QttFactory._Instance.serial(), results);
     }
 
     @Override
@@ -540,10 +556,12 @@ public class MQttPlugin
         _Logger.debug("service consume\n\t%s \n→ broker ", request);
         MessageEntity messageEntity = (MessageEntity) request;
         _MessageService.stateInit(messageEntity);
+        X113_QttPublish x113 = new X113_QttPublish().withTopic(messageEntity.getTopic());
+        x113.withSub(messageEntity.getMessage());
+        List<IExchanger.Target> remotes = new ArrayList<>();
         broker(messageEntity.getTopic()).forEach(mapped->{
             long target = mapped.session();
-            X113_QttPublish n113 = new X113_QttPublish().withTopic(messageEntity.getTopic());
-            n113.withSub(messageEntity.getMessage());
+            X113_QttPublish n113 = x113.duplicate();
             n113.target(target);
             if(mapped.level()
                      .getValue() > 0)
@@ -562,9 +580,10 @@ public class MQttPlugin
                 results.add(Triple.of(n113, session, session.encoder()));
             }
             else {
-                exchanger.exchange(n113, target, QttFactory._Instance.serial(), results);
+                remotes.add(new IExchanger.Target(target, mapped.level(), n113.msgId()));
                 _Logger.debug("no local routing, cluster exchange %#x", mapped.session());
             }
         });
+        exchange(exchanger, x113, remotes, results);
     }
 }
@@ -24,27 +24,44 @@
 package com.isahl.chess.pawn.endpoint.device.spi.plugin;
 
 import com.isahl.chess.bishop.protocol.mqtt.command.X113_QttPublish;
-import com.isahl.chess.king.base.cron.ScheduleHandler;
-import com.isahl.chess.king.base.cron.TimeWheel;
 import com.isahl.chess.king.base.cron.features.ICancelable;
 import com.isahl.chess.king.base.features.model.ITriple;
 import com.isahl.chess.king.base.features.model.IoSerial;
 import com.isahl.chess.king.base.log.Logger;
+import com.isahl.chess.king.base.util.RingQueue;
 import com.isahl.chess.king.env.ZUID;
 import com.isahl.chess.knight.raft.config.IRaftConfig;
+import com.isahl.chess.pawn.endpoint.device.config.MixConfig;
 import com.isahl.chess.pawn.endpoint.device.db.central.model.MessageEntity;
 import com.isahl.chess.pawn.endpoint.device.spi.IHandleHook;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.time.Duration;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.nio.file.StandardOpenOption.*;
 
 /**
+ * 待持久化的消息先进入有界 RingQueue，由独立线程在积压达到当前批量或超过 flush 周期时批量交给 ISubscribe；
+ * 批量按 onBatch 实测耗时做 AIMD 调整：低于目标一半且批次已满时翻倍，超过目标时减半。
+ * 队列满时按 Overflow 策略阻塞生产者、丢弃最旧消息或溢写到本地文件。
+ *
  * @author william.d.zk
  * @date 2021-08-07
  */
@@ -53,24 +70,81 @@ public class PersistentHook
         implements IHandleHook,
                    ICancelable
 {
-    private final static int BATCH_SIZE = 2;
+    private final Logger _Logger = Logger.getLogger("endpoint.pawn." + getClass().getSimpleName());
+
+    private final static int  BATCH_MIN  = 16;
+    private final static long BLOCK_PARK = TimeUnit.MICROSECONDS.toNanos(100);
+
+    public enum Overflow
+    {
+        /**
+         * 生产者等待直到队列有空位
+         */
+        BLOCK,
+        /**
+         * 丢弃最旧的消息
+         */
+        DROP_OLDEST,
+        /**
+         * 溢写到本地文件，队列排空后回读
+         */
+        SPILL
+    }
+
+    /**
+     * @param lag     队列与溢写文件中尚未交付的消息数
+     * @param latency 最近一批 onBatch 的耗时(ms)
+     */
+    public record Metrics(long lag,
+                          long dropped,
+                          long spilled,
+                          long blocked,
+                          int batch,
+                          double latency)
+    {}
+
+    private final List<ISubscribe>         _Subscribes;
+    private final RingQueue<MessageEntity> _Queue;
+    private final Overflow                 _Overflow;
+    private final int                      _BatchMax;
+    private final long                     _FlushNanos;
+    private final long                     _TargetNanos;
+    private final Spill                    _Spill;
+    private final Thread                   _Drainer;
+    private final AtomicLong               _Dropped = new AtomicLong();
+    private final AtomicLong               _Spilled = new AtomicLong();
+    private final AtomicLong               _Blocked = new AtomicLong();
 
-    private final TimeWheel        _TimeWheel;
-    private final Queue<IoSerial>  _MainQueue;
-    private final List<ISubscribe> _Subscribes;
+    private volatile int     vBatch;
+    private volatile long    vLatency;
+    private volatile boolean vParked;
+    private volatile boolean vRunning;
 
     @Autowired
-    public PersistentHook(IRaftConfig raftConfig, TimeWheel timeWheel, List<ISubscribe> subscribes)
+    public PersistentHook(IRaftConfig raftConfig, MixConfig mixConfig, List<ISubscribe> subscribes) throws IOException
     {
-        _TimeWheel = timeWheel;
         _Subscribes = subscribes;
-        _MainQueue = new ConcurrentLinkedQueue<>();
+        _Queue = new RingQueue<>(mixConfig.getPersistCapacity() > 0 ? mixConfig.getPersistCapacity() : 1 << 16);
+        _Overflow = mixConfig.getPersistOverflow() == null ? Overflow.SPILL : mixConfig.getPersistOverflow();
+        _BatchMax = Math.max(BATCH_MIN, Math.min(mixConfig.getPersistBatchMax(), _Queue.capacity()));
+        _FlushNanos = mixConfig.getPersistFlushInterval() == null ? TimeUnit.SECONDS.toNanos(1)
+                                                                  : mixConfig.getPersistFlushInterval()
+                                                                             .toNanos();
+        _TargetNanos = mixConfig.getPersistBatchLatency() == null ? TimeUnit.MILLISECONDS.toNanos(200)
+                                                                  : mixConfig.getPersistBatchLatency()
+                                                                             .toNanos();
+        String dir = mixConfig.getPersistSpillDir();
+        _Spill = _Overflow == Overflow.SPILL ? new Spill(Path.of(dir == null ? "./spill" : dir)) : null;
+        vBatch = BATCH_MIN;
+        _Drainer = new Thread(this::drain, "persistent-drainer");
+        _Drainer.setDaemon(true);
     }
 
     @PostConstruct
-    void startTimer()
+    void start()
     {
-        _TimeWheel.acquire(this, new ScheduleHandler<>(Duration.ofSeconds(5), true, this::batchPush));
+        vRunning = true;
+        _Drainer.start();
     }
 
     @Override
@@ -89,7 +163,7 @@ public class PersistentHook
                     //集群扩散消息不再向DB中提交
                     msgEntity.genSummary();
                     msgEntity.setOrigin(x113.session().index());
-                    _MainQueue.offer(msgEntity);
+                    offer(msgEntity);
                 }
             }
         }
@@ -103,36 +177,142 @@ public class PersistentHook
     {
         if(content instanceof MessageEntity msg) {
             msg.genSummary();
-            _MainQueue.offer(msg);
+            offer(msg);
         }
     }
 
-    private void batchPush(PersistentHook self)
+    private void offer(MessageEntity content)
     {
-        if(_MainQueue.isEmpty()) return;
-        List<IoSerial> cached = List.copyOf(_MainQueue);
-        if(cached.size() > BATCH_SIZE) {
-            for(ISubscribe subscribe : _Subscribes) {
-                subscribe.onBatch(cached);
+        // 溢写文件未排空时继续溢写，保持先后顺序
+        if(_Spill == null || _Spill.pending() == 0) {
+            if(_Queue.offer(content)) {
+                if(vParked && _Queue.size() >= vBatch) {LockSupport.unpark(_Drainer);}
+                return;
             }
-            for(int i = 0; i < cached.size(); i++) {
-                _MainQueue.poll();
+        }
+        LockSupport.unpark(_Drainer);
+        switch(_Overflow) {
+            case BLOCK -> {
+                _Blocked.incrementAndGet();
+                while(!_Queue.offer(content)) {
+                    if(!vRunning) {
+                        dropped(1);
+                        return;
+                    }
+                    LockSupport.parkNanos(this, BLOCK_PARK);
+                }
+            }
+            case DROP_OLDEST -> {
+                do {
+                    if(_Queue.poll() != null) {dropped(1);}
+                }
+                while(!_Queue.offer(content));
+            }
+            case SPILL -> {
+                try {
+                    _Spill.write(content);
+                    _Spilled.incrementAndGet();
+                }
+                catch(IOException e) {
+                    _Logger.warning("spill failed", e);
+                    dropped(1);
+                }
             }
         }
-        else {
-            for(int i = 0; i < cached.size(); i++) {
+    }
+
+    private void dropped(int count)
+    {
+        long total = _Dropped.addAndGet(count);
+        if(Long.highestOneBit(total) != Long.highestOneBit(total - count)) {
+            _Logger.warning("persistent queue overflow, dropped %d", total);
+        }
+    }
+
+    private void drain()
+    {
+        long last = System.nanoTime();
+        while(vRunning || !_Queue.isEmpty() || _Spill != null && _Spill.pending() > 0) {
+            int batch = vBatch;
+            long idle = System.nanoTime() - last;
+            if(vRunning && idle < _FlushNanos && _Queue.size() < batch && (_Spill == null || _Spill.pending() == 0)) {
+                vParked = true;
+                if(_Queue.size() < batch) {LockSupport.parkNanos(this, _FlushNanos - idle);}
+                vParked = false;
+                continue;
+            }
+            List<IoSerial> contents = new ArrayList<>(Math.min(batch, _Queue.size() + 1));
+            _Queue.drain(contents::add, batch);
+            if(contents.size() < batch && _Spill != null) {
+                try {
+                    _Spill.read(contents, batch - contents.size());
+                }
+                catch(IOException e) {
+                    _Logger.warning("spill read failed, discard", e);
+                    dropped(_Spill.reset());
+                }
+            }
+            last = System.nanoTime();
+            if(contents.isEmpty()) {continue;}
+            publish(contents);
+            long elapsed = System.nanoTime() - last;
+            vLatency = elapsed;
+            if(elapsed > _TargetNanos) {
+                vBatch = Math.max(BATCH_MIN, batch >> 1);
+            }
+            else if(elapsed < _TargetNanos >> 1 && contents.size() >= batch) {
+                vBatch = Math.min(_BatchMax, batch << 1);
+            }
+        }
+    }
+
+    private void publish(List<IoSerial> contents)
+    {
+        try {
+            if(contents.size() == 1) {
+                for(ISubscribe subscribe : _Subscribes) {
+                    subscribe.onMessage(contents.get(0));
+                }
+            }
+            else {
                 for(ISubscribe subscribe : _Subscribes) {
-                    subscribe.onMessage(_MainQueue.poll());
+                    subscribe.onBatch(contents);
                 }
             }
         }
+        catch(Throwable e) {
+            _Logger.warning("persistent batch [%d] failed", e, contents.size());
+        }
+    }
 
+    public Metrics metrics()
+    {
+        return new Metrics(_Queue.size() + (_Spill == null ? 0 : _Spill.pending()),
+                           _Dropped.get(),
+                           _Spilled.get(),
+                           _Blocked.get(),
+                           vBatch,
+                           vLatency / 1_000_000.0);
     }
 
+    @PreDestroy
     @Override
     public void cancel()
     {
-
+        if(!vRunning) {return;}
+        vRunning = false;
+        LockSupport.unpark(_Drainer);
+        try {
+            _Drainer.join(TimeUnit.SECONDS.toMillis(10));
+            if(_Spill != null) {_Spill.close();}
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+        }
+        catch(IOException e) {
+            _Logger.warning(e);
+        }
     }
 
     public interface ISubscribe
@@ -142,6 +322,118 @@ public class PersistentHook
         void onMessage(IoSerial content);
     }
 
+    /**
+     * 溢写文件，record: [length:4][net-at:8][origin:8][topic-length:2][topic][content]
+     * 进程重启后遗留的记录在队列排空后继续交付
+     */
+    private static class Spill
+            implements Closeable
+    {
+        private final FileChannel _Channel;
+
+        private          long mRead, mWrite;
+        private volatile int  vPending;
+
+        private Spill(Path directory) throws IOException
+        {
+            Files.createDirectories(directory);
+            _Channel = FileChannel.open(directory.resolve("persistent.spill"), CREATE, READ, WRITE);
+            ByteBuffer head = ByteBuffer.allocate(4);
+            long size = _Channel.size();
+            int pending = 0;
+            while(mWrite + 4 <= size) {
+                head.clear();
+                _Channel.read(head, mWrite);
+                int length = head.getInt(0);
+                if(length <= 0 || mWrite + 4 + length > size) {break;}
+                mWrite += 4 + length;
+                pending++;
+            }
+            _Channel.truncate(mWrite);
+            vPending = pending;
+        }
+
+        private int pending()
+        {
+            return vPending;
+        }
+
+        private synchronized void write(MessageEntity content) throws IOException
+        {
+            byte[] topic = content.getTopic()
+                                  .getBytes(StandardCharsets.UTF_8);
+            byte[] payload = content.payload();
+            int length = 18 + topic.length + (payload == null ? 0 : payload.length);
+            ByteBuffer buffer = ByteBuffer.allocate(4 + length)
+                                          .putInt(length)
+                                          .putLong(content.getNetAt()
+                                                          .atZone(ZoneId.systemDefault())
+                                                          .toInstant()
+                                                          .toEpochMilli())
+                                          .putLong(content.getOrigin())
+                                          .putShort((short) topic.length)
+                                          .put(topic);
+            if(payload != null) {buffer.put(payload);}
+            buffer.flip();
+            while(buffer.hasRemaining()) {mWrite += _Channel.write(buffer, mWrite);}
+            vPending++;
+        }
+
+        private synchronized void read(List<IoSerial> contents, int limit) throws IOException
+        {
+            ByteBuffer head = ByteBuffer.allocate(4);
+            for(; limit > 0 && mRead < mWrite; limit--) {
+                head.clear();
+                while(head.hasRemaining()) {_Channel.read(head, mRead + head.position());}
+                ByteBuffer record = ByteBuffer.allocate(head.getInt(0));
+                while(record.hasRemaining()) {_Channel.read(record, mRead + 4 + record.position());}
+                record.flip();
+                MessageEntity content = new MessageEntity();
+                content.setNetAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(record.getLong()), ZoneId.systemDefault()));
+                content.setOrigin(record.getLong());
+                byte[] topic = new byte[record.getShort() & 0xFFFF];
+                byte[] payload = new byte[record.get(topic)
+                                                .remaining()];
+                record.get(payload);
+                content.setTopic(new String(topic, StandardCharsets.UTF_8));
+                content.setMessage(payload);
+                content.genSummary();
+                contents.add(content);
+                mRead += 4 + record.capacity();
+                vPending--;
+            }
+            if(mRead == mWrite && mWrite > 0) {
+                _Channel.truncate(0);
+                mRead = mWrite = 0;
+            }
+        }
+
+        /**
+         * 丢弃全部溢写记录
+         *
+         * @return 丢弃的数量
+         */
+        private synchronized int reset()
+        {
+            int pending = vPending;
+            try {
+                _Channel.truncate(0);
+            }
+            catch(IOException e) {
+                // 之后的写入从头覆盖
+            }
+            mRead = mWrite = 0;
+            vPending = 0;
+            return pending;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            _Channel.close();
+        }
+    }
+
     @Override
     public boolean isExpect(IoSerial content)
     {
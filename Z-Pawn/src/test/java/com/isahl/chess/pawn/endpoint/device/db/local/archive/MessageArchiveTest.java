@@ -0,0 +1,145 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.pawn.endpoint.device.db.local.archive;
+
+import com.isahl.chess.pawn.endpoint.device.db.central.model.MessageEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageArchiveTest
+{
+    private final static long              HOUR  = TimeUnit.HOURS.toMillis(1);
+    private final static DateTimeFormatter _Name = DateTimeFormatter.ofPattern("yyyyMMddHH")
+                                                                    .withZone(ZoneOffset.UTC);
+
+    @Test
+    void topicAndCursor(@TempDir Path dir) throws IOException
+    {
+        try(MessageArchive archive = new MessageArchive(dir, Duration.ofDays(1))) {
+            List<MessageEntity> messages = new ArrayList<>();
+            for(long id = 1; id <= 20; id++) {
+                messages.add(message(id, (id & 1) == 0 ? "a" : "b", 1000 * id));
+            }
+            archive.append(messages);
+            assertEquals(List.of(20L, 18L, 16L), ids(archive.latest("a", 3)));
+            assertEquals(List.of(2L, 4L, 6L), ids(archive.scan("a", Long.MIN_VALUE, Long.MAX_VALUE, 0, 3)));
+            assertEquals(List.of(8L, 10L, 12L), ids(archive.scan("a", Long.MIN_VALUE, Long.MAX_VALUE, 6, 3)));
+            // net-at 区间 [5s, 9s]
+            assertEquals(List.of(5L, 6L, 7L, 8L, 9L), ids(archive.scan(null, 5000, 9000, 0, 100)));
+            assertTrue(archive.scan("c", Long.MIN_VALUE, Long.MAX_VALUE, 0, 10)
+                              .isEmpty());
+        }
+    }
+
+    @Test
+    void cursorAcrossPartitions(@TempDir Path dir) throws IOException
+    {
+        long hour = System.currentTimeMillis() / HOUR;
+        try(MessageArchive archive = new MessageArchive(dir, Duration.ofDays(1))) {
+            archive.append(List.of(message(10, "a", 0), message(11, "a", 0)));
+        }
+        // 较大的 id 落在较早的分区，较小的 id 随后写入当前分区
+        Files.move(segment(dir, hour), segment(dir, hour - 2));
+        try(MessageArchive archive = new MessageArchive(dir, Duration.ofDays(1))) {
+            archive.append(List.of(message(1, "a", 0), message(2, "a", 0), message(12, "a", 0)));
+            assertEquals(2, archive.partitions());
+            assertEquals(List.of(1L, 2L), ids(archive.scan("a", Long.MIN_VALUE, Long.MAX_VALUE, 0, 2)));
+            assertEquals(List.of(10L, 11L, 12L), ids(archive.scan("a", Long.MIN_VALUE, Long.MAX_VALUE, 2, 10)));
+            assertEquals(List.of(12L, 11L), ids(archive.latest("a", 2)));
+            // 压实较早的分区并落盘 .idx，重启后直接加载
+            assertEquals(0, archive.maintain());
+        }
+        assertTrue(Files.exists(dir.resolve(_Name.format(Instant.ofEpochMilli((hour - 2) * HOUR)) + ".idx")));
+        try(MessageArchive archive = new MessageArchive(dir, Duration.ofDays(1))) {
+            assertEquals(List.of(1L, 2L, 10L, 11L, 12L), ids(archive.scan("a", Long.MIN_VALUE, Long.MAX_VALUE, 0, 10)));
+        }
+    }
+
+    @Test
+    void recoverAndExpire(@TempDir Path dir) throws IOException
+    {
+        long hour = System.currentTimeMillis() / HOUR;
+        try(MessageArchive archive = new MessageArchive(dir, Duration.ofDays(1))) {
+            archive.append(List.of(message(1, "a", 0), message(2, "a", 0)));
+        }
+        Path segment = segment(dir, hour);
+        long complete = Files.size(segment);
+        try(RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // 只写了一半的记录
+            file.seek(complete);
+            file.writeInt(64);
+            file.writeInt(0);
+        }
+        try(MessageArchive archive = new MessageArchive(dir, Duration.ofDays(1))) {
+            assertEquals(complete, Files.size(segment));
+            archive.append(List.of(message(3, "a", 0)));
+            assertEquals(List.of(1L, 2L, 3L), ids(archive.scan("a", Long.MIN_VALUE, Long.MAX_VALUE, 0, 10)));
+        }
+        Files.move(segment, segment(dir, hour - 48));
+        try(MessageArchive archive = new MessageArchive(dir, Duration.ofDays(1))) {
+            assertEquals(1, archive.maintain());
+            assertEquals(0, archive.partitions());
+            assertFalse(Files.exists(segment(dir, hour - 48)));
+        }
+    }
+
+    private static Path segment(Path dir, long hour)
+    {
+        return dir.resolve(_Name.format(Instant.ofEpochMilli(hour * HOUR)) + ".seg");
+    }
+
+    private static MessageEntity message(long id, String topic, long at)
+    {
+        MessageEntity message = new MessageEntity();
+        message.setMessageId(id);
+        message.setOrigin(0x99);
+        message.setTopic(topic);
+        message.setMessage(new byte[]{ (byte) id });
+        message.setNetAt(at == 0 ? LocalDateTime.now() : LocalDateTime.ofInstant(Instant.ofEpochMilli(at), ZoneId.systemDefault()));
+        return message;
+    }
+
+    private static List<Long> ids(List<MessageEntity> messages)
+    {
+        return messages.stream()
+                       .map(MessageEntity::getMessageId)
+                       .toList();
+    }
+}
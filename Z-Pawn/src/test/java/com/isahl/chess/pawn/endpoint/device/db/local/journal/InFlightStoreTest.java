@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.pawn.endpoint.device.db.local.journal;
+
+import com.isahl.chess.pawn.endpoint.device.db.local.model.MsgStateEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static com.isahl.chess.pawn.endpoint.device.db.local.journal.InFlightStore.RECEIVED;
+import static com.isahl.chess.pawn.endpoint.device.db.local.journal.InFlightStore.SENDING;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InFlightStoreTest
+{
+    private final static Duration FLUSH = Duration.ofMillis(1);
+
+    @Test
+    void tornTail(@TempDir Path dir) throws IOException
+    {
+        try(InFlightStore store = new InFlightStore(dir, FLUSH)) {
+            for(long msgId = 1; msgId <= 3; msgId++) {
+                store.put(RECEIVED, 0x10, entity(0x10, 0x99, msgId));
+            }
+        }
+        Path journal = dir.resolve("in_flight.journal");
+        long complete = Files.size(journal);
+        try(RandomAccessFile file = new RandomAccessFile(journal.toFile(), "rw")) {
+            // 最后一条记录的 crc 损坏，其后追加一段只写了一半的记录
+            file.seek(complete - 1);
+            int b = file.read();
+            file.seek(complete - 1);
+            file.write(b ^ 0xFF);
+            file.seek(complete);
+            file.writeInt(64);
+            file.writeInt(0);
+            file.write(new byte[]{ 1, RECEIVED, 0, 0 });
+        }
+        try(InFlightStore store = new InFlightStore(dir, FLUSH)) {
+            assertEquals(2, store.size());
+            assertNotNull(store.get(RECEIVED, 0x10, 1));
+            assertNotNull(store.get(RECEIVED, 0x10, 2));
+            assertNull(store.get(RECEIVED, 0x10, 3));
+            assertTrue(Files.size(journal) < complete);
+            // 截断后的 journal 继续追加
+            store.put(RECEIVED, 0x10, entity(0x10, 0x99, 4));
+        }
+        try(InFlightStore store = new InFlightStore(dir, FLUSH)) {
+            assertEquals(3, store.size());
+            assertNotNull(store.get(RECEIVED, 0x10, 4));
+        }
+    }
+
+    @Test
+    void replayAfterCompaction(@TempDir Path dir) throws IOException
+    {
+        LocalDateTime created = LocalDateTime.now()
+                                             .truncatedTo(ChronoUnit.MILLIS);
+        try(InFlightStore store = new InFlightStore(dir, FLUSH)) {
+            for(long msgId = 1; msgId <= 100; msgId++) {
+                store.put(SENDING, msgId & 7, entity(0x99, msgId & 7, msgId));
+            }
+            for(long msgId = 1; msgId <= 100; msgId += 2) {
+                assertNotNull(store.remove(SENDING, msgId & 7, msgId));
+            }
+        }
+        Path journal = dir.resolve("in_flight.journal");
+        long appended = Files.size(journal);
+        // 启动时以内存快照重写 journal，只保留存活的 50 条
+        try(InFlightStore store = new InFlightStore(dir, FLUSH)) {
+            assertEquals(50, store.size());
+            assertTrue(Files.size(journal) < appended);
+            store.remove(SENDING, 2, 2);
+            MsgStateEntity entity = entity(0x99, 3, 101);
+            entity.setCreatedAt(created);
+            store.put(SENDING, 3, entity);
+        }
+        try(InFlightStore store = new InFlightStore(dir, FLUSH)) {
+            assertEquals(50, store.size());
+            for(long msgId = 1; msgId <= 100; msgId++) {
+                MsgStateEntity entity = store.get(SENDING, msgId & 7, msgId);
+                if((msgId & 1) == 1 || msgId == 2) {
+                    assertNull(entity);
+                }
+                else {
+                    assertNotNull(entity);
+                    assertEquals("z/" + msgId, entity.getTopic());
+                    assertArrayEquals(new byte[]{ (byte) msgId }, entity.getContent());
+                }
+            }
+            MsgStateEntity entity = store.get(SENDING, 3, 101);
+            assertEquals(0x99L, (long) entity.getOrigin());
+            assertEquals(3L, (long) entity.getTarget());
+            assertEquals(created, entity.getCreatedAt());
+        }
+    }
+
+    private MsgStateEntity entity(long origin, long target, long msgId)
+    {
+        MsgStateEntity entity = new MsgStateEntity();
+        entity.setOrigin(origin);
+        entity.setTarget(target);
+        entity.setMsgId(msgId);
+        entity.setTopic("z/" + msgId);
+        entity.setContent(new byte[]{ (byte) msgId });
+        entity.setCreatedAt(LocalDateTime.now());
+        return entity;
+    }
+}
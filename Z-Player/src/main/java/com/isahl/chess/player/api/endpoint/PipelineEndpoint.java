@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.isahl.chess.player.api.endpoint;
+
+import com.isahl.chess.king.base.disruptor.components.Telemetry;
+import com.isahl.chess.pawn.endpoint.device.DeviceNode;
+import com.isahl.chess.pawn.endpoint.device.spi.plugin.PersistentHook;
+import com.isahl.chess.queen.io.core.net.socket.SendBudget;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/pipeline 输出各 processor 的耗时分布、batch size 分布、吞吐、各 RingBuffer 剩余容量、持久化队列的积压与丢弃、session 待发积压的 slow-consumer 处理以及各监听地址的 accept 速率
+ * /actuator/pipeline/{stage} 输出单个 processor
+ *
+ * @author william.d.zk
+ */
+@Component
+@Endpoint(id = "pipeline")
+public class PipelineEndpoint
+{
+    private final DeviceNode     _DeviceNode;
+    private final PersistentHook _PersistentHook;
+
+    @Autowired
+    public PipelineEndpoint(DeviceNode deviceNode, PersistentHook persistentHook)
+    {
+        _DeviceNode = deviceNode;
+        _PersistentHook = persistentHook;
+    }
+
+    @ReadOperation
+    public Map<String, Object> pipeline()
+    {
+        Telemetry telemetry = _DeviceNode.getTelemetry();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("saturated", telemetry.saturated());
+        result.put("stages", telemetry.stages());
+        result.put("rings", telemetry.rings());
+        result.put("persistence", _PersistentHook.metrics());
+        result.put("send", SendBudget.global()
+                                     .metrics());
+        result.put("accept", _DeviceNode.getAcceptMetrics());
+        return result;
+    }
+
+    @ReadOperation
+    public Telemetry.Stage stage(
+            @Selector
+            String name)
+    {
+        return _DeviceNode.getTelemetry()
+                          .stages()
+                          .stream()
+                          .filter(stage->stage.name()
+                                              .equalsIgnoreCase(name))
+                          .findAny()
+                          .orElse(null);
+    }
+}
@@ -34,4 +34,20 @@ public interface IAioConfig
     int getSizePower(int type);
 
     ISocketConfig getSocketConfig(int type);
+
+    /**
+     * 节点内所有 session 待发字节总量的高水位，超出后暂停最热的发布者读取
+     */
+    default long getSendHighWaterInByte()
+    {
+        return 256L << 20;
+    }
+
+    /**
+     * 回落到低水位后恢复被暂停的读取
+     */
+    default long getSendLowWaterInByte()
+    {
+        return 192L << 20;
+    }
 }
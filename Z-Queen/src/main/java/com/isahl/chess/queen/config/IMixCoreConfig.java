@@ -23,6 +23,8 @@
 
 package com.isahl.chess.queen.config;
 
+import java.time.Duration;
+
 /**
  * 由于主Pipeline 使用了disruptor 的 RingBuffer
  * 所以有些参数直接使用 __Power 直接设定RingBuffer的 _SIZE
@@ -55,6 +57,38 @@ public interface IMixCoreConfig
      */
     int getLinkQueueSizePower();
 
+    /**
+     * zls 预生成 NTRU 密钥对的池容量
+     */
+    default int getKeyPoolSize()
+    {
+        return 64;
+    }
+
+    /**
+     * zls 密钥对生成线程数
+     */
+    default int getKeyGenerators()
+    {
+        return 1;
+    }
+
+    /**
+     * processor 运行统计是否默认开启
+     */
+    default boolean isHealthEnable()
+    {
+        return true;
+    }
+
+    /**
+     * processor 平均耗时超过该值时视为不健康
+     */
+    default Duration getHealthLatencyLimit()
+    {
+        return Duration.ofMillis(100);
+    }
+
     default int getPoolSize()
     {
         return 1 // io-dispatch
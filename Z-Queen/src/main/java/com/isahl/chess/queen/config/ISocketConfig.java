@@ -23,8 +23,17 @@
 
 package com.isahl.chess.queen.config;
 
+import com.isahl.chess.king.base.exception.ZException;
+import com.isahl.chess.queen.io.core.features.model.session.IOption;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
+
 import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.TrustManager;
+import java.security.KeyManagementException;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 
 /**
@@ -54,6 +63,57 @@ public interface ISocketConfig
         return 64;
     }
 
+    default long getSendQueueMaxInByte()
+    {
+        return 4L << 20;
+    }
+
+    /**
+     * QoS 0 合并或丢弃，QoS 1/2 溢出到磁盘，其余断开
+     */
+    default IOption.SlowConsumer getSlowConsumer(IQoS.Level level)
+    {
+        return switch(level) {
+            case ALMOST_ONCE -> IOption.SlowConsumer.COALESCE;
+            case AT_LEAST_ONCE, EXACTLY_ONCE -> IOption.SlowConsumer.SPILL;
+            default -> IOption.SlowConsumer.DISCONNECT;
+        };
+    }
+
+    default long getSpillMaxInByte()
+    {
+        return 64L << 20;
+    }
+
+    default Path getSpillDirectory()
+    {
+        return Path.of(System.getProperty("java.io.tmpdir"), "z-chess-spill");
+    }
+
+    /**
+     * 大于 0 时 packet buffer 直接以 ByteBuffer[] 提交给 channel，不再拷贝到 sending buffer
+     */
+    default int getGatherWriteMax()
+    {
+        return 0;
+    }
+
+    /**
+     * listen backlog，实际生效值受内核 net.core.somaxconn 限制
+     */
+    default int getAcceptBacklog()
+    {
+        return 1 << 10;
+    }
+
+    /**
+     * 以 SO_REUSEPORT 绑定的 acceptor 数量，0 表示与 CPU 核数一致
+     */
+    default int getAcceptors()
+    {
+        return 1;
+    }
+
     default int getRcvInByte()
     {
         return 65536;
@@ -93,6 +153,55 @@ public interface ISocketConfig
     {
     }
 
+    /**
+     * 启用的 TLS 协议版本，按需加入 TLSv1.3
+     */
+    default String[] getSslProtocols()
+    {
+        return new String[]{ "TLSv1.2" };
+    }
+
+    /**
+     * 服务端/客户端 session 缓存条目上限，0 表示不限
+     */
+    default int getSslSessionCacheSize()
+    {
+        return 20480;
+    }
+
+    default Duration getSslSessionTimeout()
+    {
+        return Duration.ofHours(24);
+    }
+
+    /**
+     * 按当前配置构建 SSLContext；session 缓存与 ticket 密钥都挂在 SSLContext 上，
+     * 同一配置下的所有连接必须共用同一个实例才能完成会话恢复
+     */
+    default SSLContext buildSslContext()
+    {
+        try {
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(getKeyManagers(), getTrustManagers(), null);
+            int timeout = (int) getSslSessionTimeout().getSeconds();
+            for(SSLSessionContext sessionContext : new SSLSessionContext[]{ sslContext.getServerSessionContext(),
+                                                                            sslContext.getClientSessionContext() })
+            {
+                sessionContext.setSessionCacheSize(getSslSessionCacheSize());
+                sessionContext.setSessionTimeout(timeout);
+            }
+            return sslContext;
+        }
+        catch(NoSuchAlgorithmException | KeyManagementException e) {
+            throw new ZException(e, "ssl context init failed");
+        }
+    }
+
+    /**
+     * 共享的 SSLContext，由 init() 构建一次
+     */
+    SSLContext getSslContext();
+
     int getSslPacketBufferSize();
 
     int getSslAppBufferSize();
@@ -64,6 +64,15 @@ public interface IClusterCustom<T extends IStorage>
      */
     List<ITriple> consistent(IManager manager, IoSerial request, long origin, int factory);
 
+    /**
+     * ClusterProcessor 完成一个批次的事件处理时调用
+     * consistent 在批次内暂存的提案于此统一提交
+     *
+     * @param manager session 管理器
+     * @return list of triple → publish (write,list)
+     */
+    List<ITriple> onBatch(IManager manager);
+
     /**
      * consensus-api-publisher → cluster.change(new-topology)
      *
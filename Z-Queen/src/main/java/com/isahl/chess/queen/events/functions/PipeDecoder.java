@@ -27,6 +27,8 @@ import com.isahl.chess.king.base.features.model.ITriple;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.pipe.IPipeDecoder;
 import com.isahl.chess.queen.io.core.features.model.session.ISession;
+import com.isahl.chess.queen.io.core.features.model.session.ISort;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 
 /**
  * @author william.d.zk
@@ -35,11 +37,23 @@ import com.isahl.chess.queen.io.core.features.model.session.ISession;
 public class PipeDecoder
         implements IPipeDecoder
 {
+    /*
+     * decoder 按 sort 共享，由多个 decode 线程调用；游标按线程持有。
+     * 返回的 ITriple 属于游标，DecodeHandler 在同一线程内完成转存
+     */
+    private final static ThreadLocal<PipeCursor> _Cursor = ThreadLocal.withInitial(PipeCursor::new);
+
+    private final ISort _Sort;
+
+    public PipeDecoder(ISort sort)
+    {
+        _Sort = sort;
+    }
 
     @Override
     public ITriple handle(IPacket input, ISession session)
     {
-        ITriple decoded = filterRead(input, session);
+        ITriple decoded = filterRead(input, session, _Sort.getPipeline(), _Cursor.get());
         /*
             一旦read出现异常将抛出到event-handler进行处理，
             无异常时才继续session.readNext()操作;
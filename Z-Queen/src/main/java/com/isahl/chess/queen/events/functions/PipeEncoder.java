@@ -28,7 +28,11 @@ import com.isahl.chess.king.base.log.Logger;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.pipe.IPipeEncoder;
+import com.isahl.chess.queen.io.core.features.model.routes.IRoutable;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
 import com.isahl.chess.queen.io.core.features.model.session.ISession;
+import com.isahl.chess.queen.io.core.features.model.session.ISort;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 
 /**
  * @author william.d.zk
@@ -38,20 +42,29 @@ public class PipeEncoder
         implements IPipeEncoder
 {
     private final Logger    _Logger = Logger.getLogger("io.queen.operator." + getClass().getSimpleName());
+    private final static ThreadLocal<PipeCursor> _Cursor = ThreadLocal.withInitial(PipeCursor::new);
+
     private final AioWriter _AioWriter;
+    private final ISort     _Sort;
 
-    public PipeEncoder(AioWriter aioWriter)
+    public PipeEncoder(AioWriter aioWriter, ISort sort)
     {
         _AioWriter = aioWriter;
+        _Sort = sort;
     }
 
     @Override
     public ITriple handle(IProtocol output, ISession session)
     {
-        IPacket send = protocolWrite(output, session);
+        IPacket send = protocolWrite(output, session, _Sort.getPipeline(), _Cursor.get());
         //write 错误将向event handler 抛出异常，并终止向session 执行写操作。
         if(send != null) {
             _Logger.debug("%s ", output);
+            if(output instanceof IQoS qos) {
+                send.priority(qos.priority())
+                    .level(qos.level());
+            }
+            if(output instanceof IRoutable routable) {send.coalesce(routable.coalesce());}
             session.write(send, _AioWriter);
         }
         return null;
@@ -41,8 +41,8 @@ import com.isahl.chess.queen.io.core.features.model.session.ISession;
 import com.isahl.chess.queen.io.core.features.model.session.zls.IEContext;
 import com.isahl.chess.queen.io.core.features.model.session.zls.IEncryptor;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static com.isahl.chess.king.base.disruptor.features.functions.OperateType.BATCH;
 import static com.isahl.chess.king.base.disruptor.features.functions.OperateType.SINGLE;
@@ -99,11 +99,15 @@ public class DecodeHandler
                                                      Pair.of(decoded.getFirst(), decoded.getSecond()),
                                                      session.getTransfer());
                         case BATCH -> {
+                            /*
+                             * decoded 由 decoder 线程游标持有，此处必须转存
+                             */
                             List<IProtocol> pList = decoded.getFirst();
-                            event.produce(BATCH,
-                                          pList.stream()
-                                               .map(p->Triple.of(p, session, session.getTransfer()))
-                                               .collect(Collectors.toList()));
+                            List<ITriple> batch = new ArrayList<>(pList.size());
+                            for(IProtocol p : pList) {
+                                batch.add(Triple.of(p, session, session.getTransfer()));
+                            }
+                            event.produce(BATCH, batch);
                         }
                     }
                 }
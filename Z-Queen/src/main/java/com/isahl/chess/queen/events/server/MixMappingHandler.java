@@ -69,6 +69,11 @@ public class MixMappingHandler<T extends IStorage>
     private final IClusterCustom<T>  _ClusterCustom;
     private final IHealth            _Health = new Health(-1);
 
+    /*
+     * 当前批次是否交由 _ClusterCustom 处理过事件
+     */
+    private boolean mClusterBatch;
+
     public MixMappingHandler(String mapper,
                              MixManager manager,
                              RingBuffer<QEvent> error,
@@ -205,6 +210,7 @@ public class MixMappingHandler<T extends IStorage>
                     ISession session = content.getSecond();
                     if(received != null && session != null) {
                         try {
+                            mClusterBatch = true;
                             ITriple result = doCustom(_ClusterCustom, _SessionManager, session, received);
                             /*
                              * doCustom 执行结果 snd 是需要反向投递到linker的内容
@@ -256,6 +262,7 @@ public class MixMappingHandler<T extends IStorage>
                     int factory = routing.getSecond();
                     try {
                         _Logger.debug("consistency request: %s", request);
+                        mClusterBatch = true;
                         publish(_Writer, _ClusterCustom.consistent(_SessionManager, request, origin, factory));
                     }
                     catch(Exception e) {
@@ -309,6 +316,21 @@ public class MixMappingHandler<T extends IStorage>
         }
     }
 
+    @Override
+    public void onBatchComplete(long end)
+    {
+        if(mClusterBatch) {
+            mClusterBatch = false;
+            try {
+                publish(_Writer, _ClusterCustom.onBatch(_SessionManager));
+            }
+            catch(Exception e) {
+                _Logger.warning("cluster batch submit error", e);
+            }
+        }
+        IPipeHandler.super.onBatchComplete(end);
+    }
+
     @Override
     public Logger _Logger()
     {
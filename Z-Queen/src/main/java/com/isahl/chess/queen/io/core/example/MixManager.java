@@ -23,6 +23,7 @@
 
 package com.isahl.chess.queen.io.core.example;
 
+import com.isahl.chess.king.base.disruptor.components.Telemetry;
 import com.isahl.chess.queen.config.IAioConfig;
 import com.isahl.chess.queen.db.model.IStorage;
 import com.isahl.chess.queen.events.cluster.IClusterCustom;
@@ -80,4 +81,9 @@ public abstract class MixManager
         return _ServerCore;
     }
 
+    public Telemetry getTelemetry()
+    {
+        return _ServerCore.getTelemetry();
+    }
+
 }
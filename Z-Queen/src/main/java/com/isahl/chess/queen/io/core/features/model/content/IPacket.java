@@ -23,8 +23,10 @@
 package com.isahl.chess.queen.io.core.features.model.content;
 
 import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.content.PooledByteBuf;
 import com.isahl.chess.king.base.features.model.IoFactory;
 import com.isahl.chess.king.base.features.model.IoSerial;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
 
 /**
  * @author William.d.zk
@@ -52,6 +54,38 @@ public interface IPacket
 
     ByteBuf getBuffer();
 
+    /**
+     * 发送优先级，取自编码前协议的 IQoS.priority()
+     */
+    int priority();
+
+    IPacket priority(int priority);
+
+    /**
+     * 编码前协议的 QoS 等级，决定待发队列超限时的处理方式
+     */
+    IQoS.Level level();
+
+    IPacket level(IQoS.Level level);
+
+    /**
+     * 同一 session 待发队列中相同 key 的 packet 可以只保留最新一个，null 表示不可合并
+     */
+    String coalesce();
+
+    IPacket coalesce(String key);
+
+    /**
+     * 发送完成、被放弃或已被外层 filter 转写后归还池化的 buffer
+     */
+    default void recycle()
+    {
+        if(getBuffer() instanceof PooledByteBuf pooled) {
+            pooled.clear();
+            pooled.release();
+        }
+    }
+
     enum Status
     {
         No_Send,
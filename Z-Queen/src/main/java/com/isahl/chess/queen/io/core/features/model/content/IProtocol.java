@@ -57,6 +57,12 @@ public interface IProtocol
 
     default void transfer() throws IOException {}
 
+    /**
+     * decode 时引用接收缓冲 slice 的内容在交出 decode 线程前转为独立副本，
+     * 此后接收缓冲可被复用
+     */
+    default void detach() {}
+
     default byte[] encoded() {return encode().array();}
 
     @Override
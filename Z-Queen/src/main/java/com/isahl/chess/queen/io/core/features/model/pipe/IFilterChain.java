@@ -23,6 +23,9 @@
 
 package com.isahl.chess.queen.io.core.features.model.pipe;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author William.d.zk
  */
@@ -71,4 +74,18 @@ public interface IFilterChain
     IPipeFilter getPipeFilter();
 
     String getName();
+
+    /**
+     * 将 chain 从 head 到 tail 展开为数组，遍历时不再沿链表回溯查找 head/tail
+     *
+     * @return head → tail
+     */
+    default IFilterChain[] compile()
+    {
+        List<IFilterChain> nodes = new ArrayList<>();
+        for(IFilterChain node = getChainHead(); node != null; node = node.getNext()) {
+            nodes.add(node);
+        }
+        return nodes.toArray(new IFilterChain[0]);
+    }
 }
@@ -26,18 +26,11 @@ package com.isahl.chess.queen.io.core.features.model.pipe;
 import com.isahl.chess.king.base.disruptor.features.functions.IBinaryOperator;
 import com.isahl.chess.king.base.exception.ZException;
 import com.isahl.chess.king.base.features.model.ITriple;
-import com.isahl.chess.king.base.util.Pair;
-import com.isahl.chess.king.base.util.Triple;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.session.IPContext;
 import com.isahl.chess.queen.io.core.features.model.session.ISession;
-
-import java.util.LinkedList;
-import java.util.List;
-
-import static com.isahl.chess.king.base.disruptor.features.functions.OperateType.BATCH;
-import static com.isahl.chess.king.base.disruptor.features.functions.OperateType.SINGLE;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 
 /**
  * @author William.d.zk
@@ -45,33 +38,36 @@ import static com.isahl.chess.king.base.disruptor.features.functions.OperateType
 public interface IPipeDecoder
         extends IBinaryOperator<IPacket, ISession, ITriple>
 {
-    default ITriple filterRead(IPacket input, ISession session)
+    /**
+     * @param pipeline 预先展开的 filter chain, head → tail
+     * @param cursor   当前线程复用的游标，返回结果由 cursor 持有
+     * @return first: IProtocol | List of IProtocol; second: session; third: SINGLE | BATCH
+     */
+    default ITriple filterRead(IPacket input, ISession session, IFilterChain[] pipeline, PipeCursor cursor)
     {
         IPContext context = session.getContext();
         if(context == null || input == null) {return null;}
-        final IFilterChain _Header = session.getFilterChain()
-                                            .getChainHead();
+        cursor.reset();
         IProtocol protocol = input;
         IPacket proxy = null;
-        ITriple result = null;
-        for(IFilterChain next = _Header; ; next = _Header, protocol = input, context = session.getContext()) {
+        for(; ; protocol = input, context = session.getContext()) {
             Chain:
             {
                 IFilter.ResultType resultType = IFilter.ResultType.IGNORE;
-                while(next != null) {
-                    IPipeFilter pipeFilter = next.getPipeFilter();
-                    Pair<IFilter.ResultType, IPContext> peekResult = pipeFilter.pipePeek(context, protocol);
-                    resultType = peekResult.getFirst();
-                    context = peekResult.getSecond();
+                for(IFilterChain node : pipeline) {
+                    IPipeFilter pipeFilter = node.getPipeFilter();
+                    pipeFilter.pipePeek(context, protocol, cursor);
+                    resultType = cursor.resultType();
+                    context = cursor.context();
                     switch(resultType) {
-                        case ERROR -> throw new ZException("error input: %s ; filter: %s ", protocol, next.getName());
+                        case ERROR -> throw new ZException("error input: %s ; filter: %s ", protocol, node.getName());
                         case NEED_DATA -> {
-                            if(result != null) {
+                            if(cursor.hasResult()) {
                                 /*
                                   协议层已经完成处理，返回所有已处理完毕的
                                   IControl 对象。
                                  */
-                                return result;
+                                return cursor.result(session);
                             }
                             else if(proxy != null) {
                                 /*
@@ -89,18 +85,8 @@ public interface IPipeDecoder
                             IProtocol cmd = pipeFilter.pipeDecode(context, protocol);
                             if(cmd != null) {
                                 cmd.with(session);
-                                if(result == null) {
-                                    result = Triple.of(cmd, session, SINGLE);
-                                }
-                                else if(result.getThird() == SINGLE) {
-                                    IProtocol previous = result.getFirst();
-                                    List<IProtocol> pushList = new LinkedList<>(List.of(previous, cmd));
-                                    result = Triple.of(pushList, session, BATCH);
-                                }
-                                else {
-                                    List<IProtocol> pushList = result.getFirst();
-                                    pushList.add(cmd);
-                                }
+                                cmd.detach();
+                                cursor.push(cmd);
                             }
                             break Chain;
                         }
@@ -109,7 +95,6 @@ public interface IPipeDecoder
                         }
                         case IGNORE -> {}
                     }
-                    next = next.getNext();
                 }
                 if(resultType == IFilter.ResultType.IGNORE) {
                     throw new ZException("no filter handle input: %s ", protocol);
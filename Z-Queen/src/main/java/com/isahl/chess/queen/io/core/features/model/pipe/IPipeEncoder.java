@@ -26,11 +26,11 @@ package com.isahl.chess.queen.io.core.features.model.pipe;
 import com.isahl.chess.king.base.disruptor.features.functions.IBinaryOperator;
 import com.isahl.chess.king.base.exception.ZException;
 import com.isahl.chess.king.base.features.model.ITriple;
-import com.isahl.chess.king.base.util.Pair;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.session.IPContext;
 import com.isahl.chess.queen.io.core.features.model.session.ISession;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 import com.isahl.chess.queen.io.core.net.socket.AioPacket;
 
 /**
@@ -39,22 +39,25 @@ import com.isahl.chess.queen.io.core.net.socket.AioPacket;
 public interface IPipeEncoder
         extends IBinaryOperator<IProtocol, ISession, ITriple>
 {
-    default IPacket protocolWrite(IProtocol output, ISession session)
+    /**
+     * @param pipeline 预先展开的 filter chain, head → tail，由 tail 向 head 逆序处理
+     * @param cursor   当前线程复用的游标
+     */
+    default IPacket protocolWrite(IProtocol output, ISession session, IFilterChain[] pipeline, PipeCursor cursor)
     {
         IPContext context = session.getContext();
         if(context == null || output == null) {return null;}
-        IFilterChain previous = session.getFilterChain()
-                                       .getChainTail();
         IProtocol protocol = output;
         CHAIN:
         {
             IFilter.ResultType resultType = IFilter.ResultType.IGNORE;
-            while(previous != null) {
+            for(int i = pipeline.length - 1; i >= 0; i--) {
+                IFilterChain previous = pipeline[i];
                 context = session.getContext();// 每次都要还原为最外层的context
                 IPipeFilter pipeFilter = previous.getPipeFilter();
-                Pair<IFilter.ResultType, IPContext> seekResult = pipeFilter.pipeSeek(context, protocol);
-                resultType = seekResult.getFirst();
-                context = seekResult.getSecond();
+                pipeFilter.pipeSeek(context, protocol, cursor);
+                resultType = cursor.resultType();
+                context = cursor.context();
                 switch(resultType) {
                     case ERROR:
                         throw new ZException("error output: %s ; filter: %s", protocol, previous.getName());
@@ -70,7 +73,6 @@ public interface IPipeEncoder
                     case IGNORE:
                         break;
                 }
-                previous = previous.getPrevious();
             }
             if(resultType == IFilter.ResultType.IGNORE && protocol._super() != IProtocol.IO_QUEEN_PACKET_SERIAL) {
                 throw new ZException("no filter handle output: %s ", protocol);
@@ -23,18 +23,26 @@
 
 package com.isahl.chess.queen.io.core.features.model.pipe;
 
-import com.isahl.chess.king.base.util.Pair;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
 import com.isahl.chess.queen.io.core.features.model.session.IPContext;
+import com.isahl.chess.queen.io.core.model.PipeCursor;
 
 /**
  * @author william.d.zk
  */
 public interface IPipeFilter
 {
-    <O extends IProtocol> Pair<IFilter.ResultType, IPContext> pipeSeek(IPContext context, O output);
+    /**
+     * @param cursor 当前线程复用的游标，结果类型与实际处理的 context 写入其中
+     * @return cursor
+     */
+    <O extends IProtocol> PipeCursor pipeSeek(IPContext context, O output, PipeCursor cursor);
 
-    <I extends IProtocol> Pair<IFilter.ResultType, IPContext> pipePeek(IPContext context, I input);
+    /**
+     * @param cursor 当前线程复用的游标，结果类型与实际处理的 context 写入其中
+     * @return cursor
+     */
+    <I extends IProtocol> PipeCursor pipePeek(IPContext context, I input, PipeCursor cursor);
 
     <O extends IProtocol, I extends IProtocol> I pipeEncode(IPContext context, O output);
 
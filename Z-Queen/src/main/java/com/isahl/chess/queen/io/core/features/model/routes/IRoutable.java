@@ -27,4 +27,12 @@ public interface IRoutable
         extends IDeliver
 {
     String topic();
+
+    /**
+     * 发送积压时相同 key 只需送达最新一条，如 retained 消息；null 表示不可合并
+     */
+    default String coalesce()
+    {
+        return null;
+    }
 }
\ No newline at end of file
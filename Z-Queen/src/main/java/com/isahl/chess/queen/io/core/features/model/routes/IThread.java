@@ -127,6 +127,11 @@ public interface IThread
 
         public Pattern pattern() {return mPattern;}
 
+        /**
+         * @return 订阅时的原始 topic filter
+         */
+        public String filter() {return mPattern.pattern();}
+
         public IQoS.Level level() {return mLevel;}
 
         public int alias() {return mAlias;}
@@ -155,12 +160,31 @@ public interface IThread
             int pl = input.vLength();
             if(pl > 0) {
                 String pattern = input.readUTF(pl);
-                mPattern = Pattern.compile(pattern);
+                // 通配由 topic 索引处理，pattern 仅承载 filter 字面量
+                mPattern = Pattern.compile(legacy(pattern), Pattern.LITERAL);
             }
             remain -= 6 + vSizeOf(pl);
             return remain;
         }
 
+        /**
+         * 旧版本以正则形式持久化 filter（'+' → ([^/]+)，'#' → (/?.*) 等），
+         * 解码时还原为 MQTT topic filter；非旧格式原样返回
+         *
+         * @param pattern 持久化的 pattern
+         * @return topic filter
+         */
+        public static String legacy(String pattern)
+        {
+            if(pattern.indexOf('(') < 0) {return pattern;}
+            return pattern.replace("([^$/]+)", "+")
+                          .replace("([^$]*)", "#")
+                          .replace("(/?[^/]*)", "/+")
+                          .replace("/([^/]+)", "/+")
+                          .replace("(/.*)", "/#")
+                          .replace("(/?.*)", "/#");
+        }
+
         @Override
         public ByteBuf suffix(ByteBuf output)
         {
@@ -187,14 +211,16 @@ public interface IThread
             Topic topic = (Topic) o;
 
             if(mAlias != topic.mAlias) return false;
-            if(!mPattern.equals(topic.mPattern)) return false;
+            if(!mPattern.pattern()
+                        .equals(topic.mPattern.pattern())) return false;
             return mLevel == topic.mLevel;
         }
 
         @Override
         public int hashCode()
         {
-            int result = mPattern.hashCode();
+            int result = mPattern.pattern()
+                                 .hashCode();
             result = 31 * result + mLevel.hashCode();
             result = 31 * result + mAlias;
             return result;
@@ -32,4 +32,22 @@ public interface IExchanger
         extends IManager
 {
     void exchange(IProtocol body, long target, int factory, List<ITriple> load);
+
+    /**
+     * 同一 body 投递到多个远端 target，按 target 所在节点的 session 合并，
+     * 每个节点只传输一次 body
+     *
+     * @param body    共享内容，level 与 msg-id 由 target 决定
+     * @param targets 远端 target 列表
+     * @param factory body 的 factory serial
+     * @param load    待写出的结果
+     */
+    void exchange(IProtocol body, List<Target> targets, int factory, List<ITriple> load);
+
+    /**
+     * @param index 目标 session index
+     * @param level 目标订阅的 QoS
+     * @param msgId level > 0 时为目标 session 上的 msg-id
+     */
+    record Target(long index, IQoS.Level level, long msgId) {}
 }
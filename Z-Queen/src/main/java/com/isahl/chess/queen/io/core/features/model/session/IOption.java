@@ -22,6 +22,7 @@
  */
 package com.isahl.chess.queen.io.core.features.model.session;
 
+import java.nio.file.Path;
 import java.time.Duration;
 
 /**
@@ -35,6 +36,10 @@ public interface IOption
     int INC_RECV_SIZE   = 1 << 12;
     int INC_SEND_SIZE   = 1 << 12;
     int INC_QUEUE_SIZE  = 64;
+    /*
+     * 不小于此长度且位于堆外的 packet buffer 以 gathering write 直接发送，更小的拷贝合并到 sending buffer
+     */
+    int GATHER_MIN      = 1 << 12;
 
     int getSnfByte();
 
@@ -42,6 +47,25 @@ public interface IOption
 
     int getSendQueueMax();
 
+    /**
+     * 单个 session 待发队列的字节上限，与 getSendQueueMax 任一超出即按 slow-consumer 策略处理
+     */
+    long getSendQueueMaxInByte();
+
+    SlowConsumer getSlowConsumer(IQoS.Level level);
+
+    /**
+     * 单个 session 溢出到磁盘的字节上限，超出后断开
+     */
+    long getSpillMaxInByte();
+
+    Path getSpillDirectory();
+
+    /**
+     * gathering write 一次提交的 packet 数上限，0 表示拷贝到 sending buffer 后发送
+     */
+    int getGatherWriteMax();
+
     int getReadTimeOutInSecond();
 
     int getWriteTimeOutInSecond();
@@ -49,4 +73,27 @@ public interface IOption
     boolean isKeepAlive();
 
     Duration getConnectTimeout();
+
+    /**
+     * 待发队列超限时对新 packet 采取的动作
+     */
+    enum SlowConsumer
+    {
+        /**
+         * 丢弃
+         */
+        DROP,
+        /**
+         * 替换队列中相同 coalesce key 的旧 packet，无 key 时丢弃
+         */
+        COALESCE,
+        /**
+         * 写入 session 的磁盘队列，队列回落后按序重新入队
+         */
+        SPILL,
+        /**
+         * 关闭 session
+         */
+        DISCONNECT
+    }
 }
@@ -44,6 +44,15 @@ public interface IPContext
         return false;
     }
 
+    /**
+     * 出站字节流是否依赖编码顺序(TLS record 序号、流加密的密钥流等)，
+     * 为 true 时 session 不能按优先级重排已编码的 packet
+     */
+    default boolean isOutOrdered()
+    {
+        return false;
+    }
+
     default void promotionOut()
     {
     }
@@ -78,6 +78,11 @@ public interface ISort
 
     IFilterChain getFilterChain();
 
+    /**
+     * @return 预先展开的 filter chain，head → tail
+     */
+    IFilterChain[] getPipeline();
+
     SessionIgnore getIgnore();
 
     String getProtocol();
@@ -26,6 +26,7 @@ package com.isahl.chess.queen.io.core.features.model.session.ssl;
 import com.isahl.chess.queen.io.core.features.model.channels.INetworkOption;
 
 import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 
 /**
@@ -50,6 +51,13 @@ public interface ISslOption
         return false;
     }
 
+    default String[] getSslProtocols()
+    {
+        return new String[]{ "TLSv1.2" };
+    }
+
+    SSLContext getSslContext();
+
     int getSslPacketSize();
 
     int getSslAppSize();
@@ -23,6 +23,7 @@
 package com.isahl.chess.queen.io.core.features.model.session.zls;
 
 import com.isahl.chess.king.base.crypt.features.ISymmetric;
+import com.isahl.chess.king.base.crypt.util.CipherSuite;
 
 /**
  * @author William.d.zk
@@ -94,6 +95,20 @@ public interface IEContext
         return null;
     }
 
+    default CipherSuite getCipherSuite()
+    {
+        return CipherSuite.RC4;
+    }
+
+    /**
+     * 协商结果在下一次换钥时生效
+     *
+     * @param initiator 本端是否发起了 X01，用于区分 AEAD 两个方向的 nonce
+     */
+    default void setCipherSuite(CipherSuite suite, boolean initiator)
+    {
+    }
+
     default int getPubKeyId()
     {
         return -2;
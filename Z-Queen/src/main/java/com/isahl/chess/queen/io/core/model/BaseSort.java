@@ -26,6 +26,7 @@ package com.isahl.chess.queen.io.core.model;
 import com.isahl.chess.king.base.features.model.IoFactory;
 import com.isahl.chess.queen.events.functions.*;
 import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
+import com.isahl.chess.queen.io.core.features.model.pipe.IFilterChain;
 import com.isahl.chess.queen.io.core.features.model.pipe.IPipeDecoder;
 import com.isahl.chess.queen.io.core.features.model.pipe.IPipeEncoder;
 import com.isahl.chess.queen.io.core.features.model.session.ICloser;
@@ -39,14 +40,19 @@ public abstract class BaseSort<C extends IPContext>
     private final AioWriter            _AioWriter     = new AioWriter();
     private final ICloser              _CloseOperator = new Closer();
     private final ISessionFailed       _ErrorOperator = new SessionFailed();
-    private final IPipeEncoder         _Encoder       = new PipeEncoder(_AioWriter);
-    private final IPipeDecoder         _Decoder       = new PipeDecoder();
+    private final IPipeEncoder         _Encoder       = new PipeEncoder(_AioWriter, this);
+    private final IPipeDecoder         _Decoder       = new PipeDecoder(this);
     private final SessionIgnore        _Ignore        = new SessionIgnore();
     private final Mode                 _Mode;
     private final Type                 _Type;
     private final String               _Protocol;
     private final IoFactory<IProtocol> _Factory;
 
+    /*
+     * 代理类 sort 在构造时才完成 chain 链接，首次使用时再展开
+     */
+    private volatile IFilterChain[] vPipeline;
+
     protected BaseSort(Mode mode, Type type, String protocol)
     {
         _Mode = mode;
@@ -87,6 +93,16 @@ public abstract class BaseSort<C extends IPContext>
         return _Decoder;
     }
 
+    @Override
+    public IFilterChain[] getPipeline()
+    {
+        IFilterChain[] pipeline = vPipeline;
+        if(pipeline == null) {
+            vPipeline = pipeline = getFilterChain().compile();
+        }
+        return pipeline;
+    }
+
     @Override
     public ICloser getCloser()
     {
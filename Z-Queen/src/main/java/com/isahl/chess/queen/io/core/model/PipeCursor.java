@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2022. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.queen.io.core.model;
+
+import com.isahl.chess.king.base.disruptor.features.functions.OperateType;
+import com.isahl.chess.king.base.features.model.ITriple;
+import com.isahl.chess.king.base.util.Triple;
+import com.isahl.chess.queen.io.core.features.model.content.IProtocol;
+import com.isahl.chess.queen.io.core.features.model.pipe.IFilter;
+import com.isahl.chess.queen.io.core.features.model.session.IPContext;
+import com.isahl.chess.queen.io.core.features.model.session.ISession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.isahl.chess.king.base.disruptor.features.functions.OperateType.BATCH;
+import static com.isahl.chess.king.base.disruptor.features.functions.OperateType.SINGLE;
+
+/**
+ * filter chain 遍历游标，由 decoder/encoder 线程各自持有并复用。
+ * 取代每层 filter 返回的 Pair 以及 decode 结果的 Triple/List，
+ * 遍历过程中不再产生临时对象。
+ * <p>
+ * result 返回的 ITriple 与 batch 列表在同一线程下一次遍历时即被覆盖，
+ * 调用方须在此之前完成转存。
+ *
+ * @author william.d.zk
+ */
+public final class PipeCursor
+{
+    private final List<IProtocol>                        _Batch  = new ArrayList<>(8);
+    private final Triple<Object, ISession, OperateType> _Result = new Triple<>();
+
+    private IFilter.ResultType mResultType;
+    private IPContext          mContext;
+
+    public PipeCursor of(IFilter.ResultType resultType, IPContext context)
+    {
+        mResultType = resultType;
+        mContext = context;
+        return this;
+    }
+
+    public IFilter.ResultType resultType()
+    {
+        return mResultType;
+    }
+
+    public IPContext context()
+    {
+        return mContext;
+    }
+
+    public PipeCursor reset()
+    {
+        mResultType = null;
+        mContext = null;
+        _Batch.clear();
+        _Result.setFirst(null);
+        _Result.setSecond(null);
+        _Result.setThird(null);
+        return this;
+    }
+
+    public void push(IProtocol decoded)
+    {
+        _Batch.add(decoded);
+    }
+
+    public boolean hasResult()
+    {
+        return !_Batch.isEmpty();
+    }
+
+    /**
+     * @return first: IProtocol | List of IProtocol; second: session; third: SINGLE | BATCH
+     */
+    public ITriple result(ISession session)
+    {
+        if(_Batch.isEmpty()) {return null;}
+        if(_Batch.size() == 1) {
+            _Result.setFirst(_Batch.get(0));
+            _Result.setThird(SINGLE);
+        }
+        else {
+            _Result.setFirst(_Batch);
+            _Result.setThird(BATCH);
+        }
+        _Result.setSecond(session);
+        return _Result;
+    }
+}
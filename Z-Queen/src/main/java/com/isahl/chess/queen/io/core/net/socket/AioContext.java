@@ -23,18 +23,23 @@
 package com.isahl.chess.queen.io.core.net.socket;
 
 import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.content.ByteBufPool;
+import com.isahl.chess.king.base.content.PooledByteBuf;
 import com.isahl.chess.queen.io.core.features.model.session.IContext;
 import com.isahl.chess.queen.io.core.features.model.session.IOption;
 
 /**
+ * 收发缓冲从 ByteBufPool 租用堆外空间，option 中的 rcv/snf 为上限；
+ * 空闲 session 仅持有最小 size class 的读缓冲，不持有写缓冲
+ *
  * @author William.d.zk
  */
 public abstract class AioContext<O extends IOption>
         implements IContext
 {
 
-    private final ByteBuf _WrBuffer;
-    private final ByteBuf _RvBuffer;
+    private final PooledByteBuf _WrBuffer;
+    private final PooledByteBuf _RvBuffer;
 
     private long mClientStartTime;
     private long mServerArrivedTime;
@@ -43,8 +48,8 @@ public abstract class AioContext<O extends IOption>
 
     protected AioContext(O option)
     {
-        _RvBuffer = ByteBuf.allocate(option.getRcvByte());
-        _WrBuffer = ByteBuf.allocate(option.getSnfByte());
+        _RvBuffer = new PooledByteBuf(ByteBufPool.global(), 1 << ByteBufPool.MIN_SHIFT, option.getRcvByte());
+        _WrBuffer = new PooledByteBuf(ByteBufPool.global(), 1 << ByteBufPool.MIN_SHIFT, option.getSnfByte());
     }
 
     @Override
@@ -24,14 +24,17 @@ package com.isahl.chess.queen.io.core.net.socket;
 
 import com.isahl.chess.queen.config.ISocketConfig;
 import com.isahl.chess.queen.io.core.features.model.session.ICreator;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
 import com.isahl.chess.queen.io.core.features.model.session.ssl.ISslOption;
 
 import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import java.io.IOException;
 import java.net.StandardSocketOptions;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.NetworkChannel;
+import java.nio.file.Path;
 import java.time.Duration;
 
 /**
@@ -67,6 +70,36 @@ public abstract class AioCreator
         return _Config.getSendQueueMax();
     }
 
+    @Override
+    public long getSendQueueMaxInByte()
+    {
+        return _Config.getSendQueueMaxInByte();
+    }
+
+    @Override
+    public SlowConsumer getSlowConsumer(IQoS.Level level)
+    {
+        return _Config.getSlowConsumer(level);
+    }
+
+    @Override
+    public long getSpillMaxInByte()
+    {
+        return _Config.getSpillMaxInByte();
+    }
+
+    @Override
+    public Path getSpillDirectory()
+    {
+        return _Config.getSpillDirectory();
+    }
+
+    @Override
+    public int getGatherWriteMax()
+    {
+        return _Config.getGatherWriteMax();
+    }
+
     @Override
     public int getReadTimeOutInSecond()
     {
@@ -123,6 +156,18 @@ public abstract class AioCreator
         return _Config.isClientAuth();
     }
 
+    @Override
+    public String[] getSslProtocols()
+    {
+        return _Config.getSslProtocols();
+    }
+
+    @Override
+    public SSLContext getSslContext()
+    {
+        return _Config.getSslContext();
+    }
+
     @Override
     public int getSslPacketSize()
     {
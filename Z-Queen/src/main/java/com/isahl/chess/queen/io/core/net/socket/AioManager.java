@@ -24,6 +24,9 @@ package com.isahl.chess.queen.io.core.net.socket;
 
 import com.isahl.chess.king.base.features.model.IoFactory;
 import com.isahl.chess.king.base.log.Logger;
+import com.isahl.chess.king.base.util.LongHashMap;
+import com.isahl.chess.king.base.util.LongHashSet;
+import com.isahl.chess.king.base.util.LongLongHashMap;
 import com.isahl.chess.king.env.ZUID;
 import com.isahl.chess.queen.config.IAioConfig;
 import com.isahl.chess.queen.config.ISocketConfig;
@@ -39,6 +42,9 @@ import java.util.*;
  * 在简单场景中 client端存在大量的存储空间浪费。
  * 单一的多对多client 是不存在local cluster server 这三个子域的
  * 不过可以通过覆盖ISocketConfig 的方案削减空间占用。
+ * index 均为 long，映射使用开放寻址的 LongHashMap，避免装箱与 Entry 节点；
+ * route 维护 prefix → index 的反向索引，dropPrefix 只清理该 prefix 下的 index。
+ * logic、link、cluster 线程会并发读写这些映射，LongHashMap 内部以写锁互斥、读乐观校验保证可见性。
  *
  * @author William.d.zk
  */
@@ -47,11 +53,12 @@ public abstract class AioManager
 {
     protected final Logger _Logger = Logger.getLogger("io.queen." + getClass().getSimpleName());
 
-    private final Map<Long, ISession>[]              _Index2SessionMaps;
-    private final Map<Long, Set<ISession>>[]         _Prefix2SessionMaps;
+    private final LongHashMap<ISession>[]            _Index2SessionMaps;
+    private final LongHashMap<Set<ISession>>[]       _Prefix2SessionMaps;
     private final Set<ISession>[]                    _SessionsSets;
     private final IAioConfig                         _AioConfig;
-    private final Map<Long, Long>                    _Index2RouteMap;
+    private final LongLongHashMap                    _Index2RouteMap;
+    private final LongHashMap<LongHashSet>           _Prefix2RouteMap;
     private final Map<Integer, IoFactory<IProtocol>> _FactoryMap;
 
     public ISocketConfig getSocketConfig(int type)
@@ -64,34 +71,55 @@ public abstract class AioManager
     {
         final int _TYPE_COUNT = ZUID.MAX_TYPE + 1;
         _AioConfig = config;
-        _Index2SessionMaps = new Map[_TYPE_COUNT];
-        _Prefix2SessionMaps = new Map[_TYPE_COUNT];
+        _Index2SessionMaps = new LongHashMap[_TYPE_COUNT];
+        _Prefix2SessionMaps = new LongHashMap[_TYPE_COUNT];
         _SessionsSets = new Set[_TYPE_COUNT];
-        _Index2RouteMap = new HashMap<>(23);
+        _Index2RouteMap = new LongLongHashMap(23, NULL_INDEX);
+        _Prefix2RouteMap = new LongHashMap<>(23);
         _FactoryMap = new HashMap<>();
+        SendBudget.global()
+                  .watermark(config.getSendHighWaterInByte(), config.getSendLowWaterInByte());
         Arrays.setAll(_SessionsSets, slot->_AioConfig.isDomainActive(slot) ? new HashSet<>(1 << getConfigPower(slot)) : null);
-        Arrays.setAll(_Index2SessionMaps, slot->_AioConfig.isDomainActive(slot) ? new HashMap<>(1 << getConfigPower(slot)) : null);
-        Arrays.setAll(_Prefix2SessionMaps, slot->_AioConfig.isDomainActive(slot) ? new HashMap<>(23) : null);
+        Arrays.setAll(_Index2SessionMaps, slot->_AioConfig.isDomainActive(slot) ? new LongHashMap<>(1 << getConfigPower(slot)) : null);
+        Arrays.setAll(_Prefix2SessionMaps, slot->_AioConfig.isDomainActive(slot) ? new LongHashMap<>(23) : null);
     }
 
     @Override
     public void route(long index, long prefix)
     {
-        Map<Long, Set<ISession>> prefix2SessionMap = _Prefix2SessionMaps[getSlot(prefix)];
+        LongHashMap<Set<ISession>> prefix2SessionMap = _Prefix2SessionMaps[getSlot(prefix)];
         Set<ISession> sessions = prefix2SessionMap.get(prefix);
-        if(sessions != null) {
-            _Index2RouteMap.putIfAbsent(index, prefix);
+        if(sessions != null && !_Index2RouteMap.containsKey(index)) {
+            _Index2RouteMap.put(index, prefix);
+            LongHashSet routes = _Prefix2RouteMap.get(prefix);
+            if(routes == null) {
+                _Prefix2RouteMap.put(prefix, routes = new LongHashSet(16));
+            }
+            routes.add(index);
+        }
+    }
+
+    private void unroute(long index)
+    {
+        long prefix = _Index2RouteMap.remove(index);
+        if(prefix != NULL_INDEX) {
+            LongHashSet routes = _Prefix2RouteMap.get(prefix);
+            if(routes != null && routes.remove(index) && routes.isEmpty()) {
+                _Prefix2RouteMap.remove(prefix);
+            }
         }
     }
 
     @Override
     public void dropPrefix(long prefix)
     {
-        Map<Long, Set<ISession>> prefix2SessionMap = _Prefix2SessionMaps[getSlot(prefix)];
-        Optional.of(prefix2SessionMap.remove(prefix))
+        LongHashMap<Set<ISession>> prefix2SessionMap = _Prefix2SessionMaps[getSlot(prefix)];
+        Optional.ofNullable(prefix2SessionMap.remove(prefix))
                 .ifPresent(Set::clear);
-        _Index2RouteMap.entrySet()
-                       .removeIf(entry->entry.getValue() == prefix);
+        LongHashSet routes = _Prefix2RouteMap.remove(prefix);
+        if(routes != null) {
+            routes.forEach(_Index2RouteMap::remove);
+        }
     }
 
     protected int getConfigPower(int slot)
@@ -132,7 +160,7 @@ public abstract class AioManager
             if(session.isMultiBind() && session.bindIndex() != null) {
                 for(long i : session.bindIndex()) {
                     if(_Index2SessionMaps[slot].remove(i, session)) {
-                        _Index2RouteMap.remove(i);
+                        unroute(i);
                     }
                 }
             }
@@ -202,11 +230,14 @@ public abstract class AioManager
         ISession oldSession = mapSession(_NewIdx, session);
         if(prefixArray != null) {
             int slot = getSlot(_NewIdx);
-            Map<Long, Set<ISession>> prefix2SessionMap = _Prefix2SessionMaps[slot];
+            LongHashMap<Set<ISession>> prefix2SessionMap = _Prefix2SessionMaps[slot];
             for(long prefix : prefixArray) {
                 if(getSlot(prefix) == slot) {
-                    prefix2SessionMap.computeIfAbsent(prefix, k->new TreeSet<>())
-                                     .add(session);
+                    Set<ISession> sessions = prefix2SessionMap.get(prefix);
+                    if(sessions == null) {
+                        prefix2SessionMap.put(prefix, sessions = new TreeSet<>());
+                    }
+                    sessions.add(session);
                     session.bindPrefix(prefix);
                 }
             }
@@ -217,9 +248,9 @@ public abstract class AioManager
     @Override
     public void cleanSessionWithPrefix(ISession session, long prefix)
     {
-        Map<Long, Set<ISession>> prefix2SessionMap = _Prefix2SessionMaps[getSlot(prefix)];
+        LongHashMap<Set<ISession>> prefix2SessionMap = _Prefix2SessionMaps[getSlot(prefix)];
         // prefix2SessionMap 一定非NULL
-        Optional.of(prefix2SessionMap.get(prefix))
+        Optional.ofNullable(prefix2SessionMap.get(prefix))
                 .ifPresent(set->set.remove(session));
     }
 
@@ -237,7 +268,7 @@ public abstract class AioManager
         }
         else {
             //remote peer manage
-            _Index2RouteMap.remove(index);
+            unroute(index);
         }
         return session;
     }
@@ -251,8 +282,8 @@ public abstract class AioManager
     @Override
     public ISession findSessionOverIndex(long index)
     {
-        Long prefix = _Index2RouteMap.get(index);
-        return prefix != null ? fairLoadSessionByPrefix(prefix) : null;
+        long prefix = _Index2RouteMap.get(index);
+        return prefix != NULL_INDEX ? fairLoadSessionByPrefix(prefix) : null;
     }
 
     @Override
@@ -27,8 +27,10 @@ import com.isahl.chess.board.base.ISerial;
 import com.isahl.chess.king.base.content.ByteBuf;
 import com.isahl.chess.king.base.exception.ZException;
 import com.isahl.chess.queen.io.core.features.model.content.IPacket;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
 
 import static com.isahl.chess.king.base.content.ByteBuf.vSizeOf;
+import static com.isahl.chess.queen.io.core.features.model.session.IQoS.QOS_PRIORITY_08_IMMEDIATE_MESSAGE;
 
 /**
  * @author William.d.zk
@@ -38,10 +40,13 @@ public class AioPacket
         implements IPacket
 {
 
-    private Status  mStatus = Status.No_Send;
+    private Status  mStatus   = Status.No_Send;
     private int     mRightIdempotentBit;
     private int     mLeftIdempotentBit;
-    private ByteBuf mBuffer;
+    private int        mPriority = QOS_PRIORITY_08_IMMEDIATE_MESSAGE;
+    private IQoS.Level mLevel    = IQoS.Level.AT_LEAST_ONCE;
+    private String     mCoalesce;
+    private ByteBuf    mBuffer;
 
     public AioPacket(int size)
     {
@@ -59,6 +64,45 @@ public class AioPacket
         return mBuffer;
     }
 
+    @Override
+    public int priority()
+    {
+        return mPriority;
+    }
+
+    @Override
+    public IPacket priority(int priority)
+    {
+        mPriority = priority;
+        return this;
+    }
+
+    @Override
+    public IQoS.Level level()
+    {
+        return mLevel;
+    }
+
+    @Override
+    public IPacket level(IQoS.Level level)
+    {
+        mLevel = level;
+        return this;
+    }
+
+    @Override
+    public String coalesce()
+    {
+        return mCoalesce;
+    }
+
+    @Override
+    public IPacket coalesce(String key)
+    {
+        mCoalesce = key;
+        return this;
+    }
+
     @Override
     public boolean isSending()
     {
@@ -23,6 +23,7 @@
 package com.isahl.chess.queen.io.core.net.socket;
 
 import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.king.base.content.PooledByteBuf;
 import com.isahl.chess.king.base.features.model.IoFactory;
 import com.isahl.chess.king.base.log.Logger;
 import com.isahl.chess.king.base.util.ArrayUtil;
@@ -40,8 +41,14 @@ import com.isahl.chess.queen.io.core.net.socket.features.IAioSort;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.*;
-import java.util.LinkedList;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -51,16 +58,31 @@ import static com.isahl.chess.king.base.cron.features.ITask.*;
 import static com.isahl.chess.king.base.util.IoUtil.longArrayToHex;
 import static com.isahl.chess.queen.io.core.features.model.session.IManager.INVALID_INDEX;
 import static com.isahl.chess.queen.io.core.features.model.session.IManager.NULL_INDEX;
+import static com.isahl.chess.queen.io.core.features.model.session.IQoS.*;
 
 /**
+ * 待发 packet 按 IQoS.priority 分为 4 级队列：
+ * 0 控制(00~02)，1 集群交换与元数据(03~06)，2 消息与确认(07~11)，3 推送与内部指令(12~15)；
+ * 出队取最高级的非空队列，低级队列每被越过 AGING 次即获得一次出队，避免饥饿。
+ * 已部分写入 sending buffer 的 packet 固定在队首直到写完，保证字节流完整；
+ * context.isOutOrdered() 时(TLS、ZLS 密文)packet 只进入 0 级，保持编码顺序。
+ * 非控制级 packet 超出数量或字节上限时按 QoS 等级执行 slow-consumer 策略(丢弃/合并/溢出到磁盘/断开)，
+ * 溢出的 packet 在队列回落到上限一半后按序重新入队。
+ * option.getGatherWriteMax() > 0 时，堆外且不小于 GATHER_MIN 的 packet buffer 不再拷贝，
+ * 与 sending buffer 一起以 gathering write 提交；sending buffer 中的字节总在 _InFlight 之前，
+ * 已提交未写完的 packet 保留在 _InFlight 中，下次 write 从首个未写完的位置继续。
+ *
  * @author William.d.zk
  */
 public class AioSession<C extends IPContext>
-        extends LinkedList<IPacket>
+        extends AbstractQueue<IPacket>
         implements ISession
 {
     private final Logger _Logger = Logger.getLogger("io.queen.session." + getClass().getSimpleName());
 
+    public final static int CLASS_COUNT = 4;
+    private final static int AGING      = 8;
+
     /*--------------------------------------------------------------------------------------------------------------*/
     private final int                       _ReadTimeOutInSecond;
     private final int                       _WriteTimeOutInSecond;
@@ -73,9 +95,23 @@ public class AioSession<C extends IPContext>
     private final int           _HashCode;
     private final IDismiss      _DismissCallback;
     private final int           _QueueSizeMax;
+    private final long          _QueueBytesMax;
+    private final IOption       _Option;
+    private final SendBudget    _Budget = SendBudget.global();
+    private final SpillQueue    _Spill;
+    private final boolean       _Linked;
+    private final int           _GatherMax;
+
+    private final ArrayDeque<IPacket>                _InFlight;
+    private final ByteBuffer[]                       _Gather;
+    private final CompletionHandler<Long, ISession>  _Gathered;
     private final IAioSort<C>   _Sort;
     private final AtomicInteger _State = new AtomicInteger(SESSION_CREATED);
     private final boolean       _MultiBind;
+    private final boolean       _Ordered;
+
+    private final ArrayDeque<IPacket>[] _Classes;
+    private final int[]                 _Skips = new int[CLASS_COUNT];
     /*----------------------------------------------------------------------------------------------------------------*/
 
     /*----------------------------------------------------------------------------------------------------------------*/
@@ -88,12 +124,24 @@ public class AioSession<C extends IPContext>
     /* reader */
     private CompletionHandler<Integer, ISession> mReader;
     private IPipeTransfer                        mTransfer;
+    /*
+     * 已部分写入 sending buffer 的 packet
+     */
+    private IPacket                              mPartial;
+    private int                                  mSize;
+    private long                                 mBytes;
+    /*
+     * SendBudget 当前过载周期内的入站字节
+     */
+    private long                                 mInbound;
+    private long                                 mEpoch;
+    private CompletionHandler<Integer, ISession> mWriter;
 
     @Override
     public String toString()
     {
         return String.format(
-                "@%#x %s->%s index:%#x valid:%s state:%s wait_to_write[%d] queue_size[%d],wait_to_handle[%d]",
+                "@%#x %s->%s index:%#x valid:%s state:%s wait_to_write[%d] queue_size[%d]%s queue_bytes[%d] spill[%d] in_flight[%d],wait_to_handle[%d]",
                 _HashCode,
                 _LocalAddress,
                 _RemoteAddress,
@@ -103,6 +151,10 @@ public class AioSession<C extends IPContext>
                 _Context.getWrBuffer()
                         .readableBytes(),
                 size(),
+                Arrays.toString(getQueueDepth()),
+                mBytes,
+                _Spill.size(),
+                _InFlight.size(),
                 _Context.getRvBuffer()
                         .readableBytes());
     }
@@ -128,8 +180,39 @@ public class AioSession<C extends IPContext>
         _ReadTimeOutInSecond = option.getReadTimeOutInSecond();
         _WriteTimeOutInSecond = option.getWriteTimeOutInSecond();
         _QueueSizeMax = option.getSendQueueMax();
+        _QueueBytesMax = option.getSendQueueMaxInByte();
+        _Option = option;
+        _Spill = new SpillQueue(option.getSpillDirectory(),
+                                String.format("%x-%x.spill", _HashCode, System.nanoTime()),
+                                option.getSpillMaxInByte());
         _Sort = sort;
+        _Linked = sort.getMode() == ISort.Mode.LINK;
+        _GatherMax = Math.max(0, option.getGatherWriteMax());
+        _InFlight = new ArrayDeque<>(Math.max(1, _GatherMax));
+        _Gather = new ByteBuffer[_GatherMax + 1];
+        _Gathered = new CompletionHandler<>()
+        {
+            @Override
+            public void completed(Long result, ISession session)
+            {
+                // 单次提交不超过 _GatherMax 个 packet，写出字节数不会超出 int
+                mWriter.completed(result.intValue(), session);
+            }
+
+            @Override
+            public void failed(Throwable exc, ISession session)
+            {
+                mWriter.failed(exc, session);
+            }
+        };
         _Context = sort.newContext(option);
+        _Ordered = _Context.isOutOrdered();
+        @SuppressWarnings("unchecked")
+        ArrayDeque<IPacket>[] classes = new ArrayDeque[CLASS_COUNT];
+        for(int i = 0; i < CLASS_COUNT; i++) {
+            classes[i] = new ArrayDeque<>();
+        }
+        _Classes = classes;
         //------------------------------------------------------------
         option.configChannel(channel);
         mIndex = sort.getType()
@@ -174,6 +257,9 @@ public class AioSession<C extends IPContext>
         if(isClosed()) {return;}
         advanceState(_State, SESSION_CLOSE, CAPACITY);
         if(_Channel != null) {_Channel.close();}
+        // 未完成的系统 IO 可能仍引用缓冲，不归还池
+        if(_Context.getRvBuffer() instanceof PooledByteBuf rv) {rv.drop();}
+        if(_Context.getWrBuffer() instanceof PooledByteBuf wr) {wr.drop();}
     }
 
     @Override
@@ -276,6 +362,11 @@ public class AioSession<C extends IPContext>
     {
         if(isClosed()) {return;}
         mReader = readHandler;
+        if(_Linked && _Budget.isOverloaded() && _Budget.isHot(mEpoch == _Budget.epoch() ? mInbound : 0)) {
+            // 节点待发积压，暂停最热的发布者，回落到低水位后由 SendBudget 恢复
+            _Budget.pause(this);
+            return;
+        }
         _Channel.read(_Context.getRvBuffer()
                               .discardOnHalf()
                               .toWriteBuffer(), _ReadTimeOutInSecond, TimeUnit.SECONDS, this, readHandler);
@@ -287,9 +378,23 @@ public class AioSession<C extends IPContext>
         readNext(mReader);
     }
 
+    void resumeRead()
+    {
+        if(isClosed()) {return;}
+        _Channel.read(_Context.getRvBuffer()
+                              .discardOnHalf()
+                              .toWriteBuffer(), _ReadTimeOutInSecond, TimeUnit.SECONDS, this, mReader);
+    }
+
     @Override
     public final ByteBuf read(int length)
     {
+        long epoch = _Budget.epoch();
+        if(mEpoch != epoch) {
+            mEpoch = epoch;
+            mInbound = 0;
+        }
+        mInbound += length;
         return _Context.getRvBuffer()
                        .seek(length);
     }
@@ -342,24 +447,26 @@ public class AioSession<C extends IPContext>
     {
         if(isClosed()) {return WRITE_STATUS.CLOSED;}
         ps.waitSend();
-        if(size() > _QueueSizeMax) {throw new RejectedExecutionException();}
-        if(stateLessThan(_State.get(), SESSION_FLUSHED)) {
+        // 控制级不受队列上限约束，积压时 PINGRESP/CONNACK 等仍可入队
+        if((_Ordered || classOf(ps) > 0) && (isOverflow(ps) || !_Spill.isEmpty())) {
+            if(!overflow(ps)) {return WRITE_STATUS.IGNORE;}
+        }
+        else if(isEmpty() && _InFlight.isEmpty() && !isGather(ps) && stateLessThan(_State.get(), SESSION_FLUSHED)) {
             // mSending 未托管给系统
-            if(isEmpty()) {
-                switch(writePacket(ps)) {
-                    case IGNORE -> {
-                        return WRITE_STATUS.IGNORE;
-                    }
-                    case UNFINISHED -> offer(ps.send());// mSending 空间不足
-                    case IN_SENDING -> ps.sent();
+            switch(writePacket(ps)) {
+                case IGNORE -> {
+                    return WRITE_STATUS.IGNORE;
                 }
+                case UNFINISHED -> pin(ps.send());// mSending 空间不足
+                case IN_SENDING -> sent(ps);
             }
-            else {offer(ps);}
+        }
+        else {offer(ps);}
+        if(stateLessThan(_State.get(), SESSION_FLUSHED)) {
             writeBuffed2Sending();
             flush(handler);
         }
         else {
-            offer(ps);
             _Logger.debug("aio event delay, session buffed packets %d", size());
         }
         return isEmpty() ? WRITE_STATUS.UNFINISHED : WRITE_STATUS.IN_SENDING;
@@ -370,15 +477,22 @@ public class AioSession<C extends IPContext>
                                   CompletionHandler<Integer, ISession> handler) throws WritePendingException, NotYetConnectedException, ShutdownChannelGroupException, RejectedExecutionException
     {
         if(isClosed()) {return WRITE_STATUS.CLOSED;}
-        ByteBuf sending = _Context.getWrBuffer()
-                                  .skip(wroteCnt);
-        if(!sending.isReadable()) {
-            if(isEmpty()) {
+        ByteBuf sending = _Context.getWrBuffer();
+        // gathering write 时 sending buffer 在前，剩余字节属于 _InFlight
+        int copied = Math.min(wroteCnt, sending.readableBytes());
+        sending.skip(copied);
+        gathered(wroteCnt - copied);
+        if(!sending.isReadable() && _InFlight.isEmpty()) {
+            if(isEmpty() && _Spill.isEmpty()) {
                 recedeState(_State, SESSION_IDLE, CAPACITY);
+                // 发送完毕，归还写缓冲
+                if(sending instanceof PooledByteBuf pooled) {pooled.release();}
                 return WRITE_STATUS.IGNORE;
             }
             recedeState(_State, SESSION_PENDING, CAPACITY);
         }
+        // 部分写出，余下的部分需要再次 flush
+        else {recedeState(_State, SESSION_SENDING, CAPACITY);}
         writeBuffed2Sending();
         flush(handler);
         return WRITE_STATUS.FLUSHED;
@@ -387,31 +501,40 @@ public class AioSession<C extends IPContext>
     private void writeBuffed2Sending()
     {
         /*
-         * 将待发的 packet 都写到 sending buffer 中，充满 sending buffer，
-         * 不会出现无限循环，writePacket 中执行 remove 操作，由于都是在相同的线程中
+         * 按优先级将待发的 packet 写到 sending buffer 中，充满 sending buffer，
+         * 未写完的 packet 固定为 mPartial，下一次从它继续；由于都是在相同的线程中
          * 不存在线程安全问题
          */
         _Logger.debug("session buffed packets %d", size());
+        replay();
         IPacket fps;
         Loop:
-        do {
-            fps = peek();
-            if(Objects.nonNull(fps)) {
+        while((fps = poll()) != null) {
+            if(_InFlight.isEmpty() && !isGather(fps)) {
                 switch(writePacket(fps)) {
                     case UNFINISHED -> {
-                        fps.send();
+                        pin(fps.send());
                         break Loop;
                     }//mSending fill full
-                    case IN_SENDING -> fps.sent();
+                    // 没有待写字节，与写完的 packet 一样完成并回收
+                    case IN_SENDING, IGNORE -> sent(fps);
                     default -> {}
                 }
             }
+            // 一旦有 packet 进入 _InFlight，后续 packet 都排在其后，保持字节流顺序
+            else if(_InFlight.size() < _GatherMax) {
+                if(bytesOf(fps) > 0) {_InFlight.offer(fps.send());}
+                else {sent(fps);}
+            }
+            else {
+                pin(fps);
+                break;
+            }
         }
-        while(Objects.nonNull(fps));
         //mSending 被填满，或者缓冲队列中没有待发数据
         _Logger.debug("session remain buffed %d", size());
         if(_Context.getWrBuffer()
-                   .isReadable())
+                   .isReadable() || !_InFlight.isEmpty())
         {advanceState(_State, SESSION_SENDING, CAPACITY);}
     }
 
@@ -427,21 +550,302 @@ public class AioSession<C extends IPContext>
                         .discard();
                 return WRITE_STATUS.UNFINISHED;
             }
-            else {
-                remove(ps);
-                return WRITE_STATUS.IN_SENDING;
+            return WRITE_STATUS.IN_SENDING;
+        }
+        return WRITE_STATUS.IGNORE;
+    }
+
+    /**
+     * 按写出字节数依次推进 _InFlight 中 packet 的读位置，写完的 packet 移出
+     */
+    private void gathered(int wroteCnt)
+    {
+        int remain = wroteCnt;
+        IPacket ps;
+        while(remain > 0 && (ps = _InFlight.peek()) != null) {
+            ByteBuf buf = ps.getBuffer();
+            int n = Math.min(remain, buf.readableBytes());
+            buf.skip(n);
+            remain -= n;
+            if(!buf.isReadable()) {sent(_InFlight.poll());}
+        }
+        Arrays.fill(_Gather, null);
+    }
+
+    private boolean isGather(IPacket ps)
+    {
+        return _GatherMax > 0 && bytesOf(ps) >= IOption.GATHER_MIN && ps.getBuffer()
+                                                                .isDirect();
+    }
+
+    private void sent(IPacket ps)
+    {
+        ps.sent();
+        ps.recycle();
+    }
+
+    private boolean isOverflow(IPacket ps)
+    {
+        return size() > _QueueSizeMax || mBytes > 0 && mBytes + bytesOf(ps) > _QueueBytesMax;
+    }
+
+    /**
+     * @return false packet 被丢弃
+     * @throws RejectedExecutionException 策略为断开或磁盘队列已满
+     */
+    private boolean overflow(IPacket ps) throws RejectedExecutionException
+    {
+        // 磁盘队列未清空时，未超限的 packet 也排在其后，保持同级顺序
+        if(!isOverflow(ps)) {return spill(ps);}
+        IQoS.Level level = ps.level() == null ? IQoS.Level.AT_LEAST_ONCE : ps.level();
+        return switch(_Option.getSlowConsumer(level)) {
+            // 有序 session 的 packet 已消耗加密序列，不能丢弃或替换，只能溢出
+            case COALESCE -> _Ordered ? spill(ps) : coalesce(ps) || drop(ps);
+            case DROP -> _Ordered ? spill(ps) : drop(ps);
+            case SPILL -> spill(ps);
+            case DISCONNECT -> {
+                _Budget.onDisconnect();
+                throw new RejectedExecutionException("slow consumer " + this);
+            }
+        };
+    }
+
+    private boolean drop(IPacket ps)
+    {
+        ps.setAbandon();
+        ps.recycle();
+        _Budget.onDrop();
+        return false;
+    }
+
+    private boolean coalesce(IPacket ps)
+    {
+        String key = ps.coalesce();
+        if(key == null) {return false;}
+        for(Iterator<IPacket> it = _Classes[classOf(ps)].iterator(); it.hasNext(); ) {
+            IPacket exist = it.next();
+            if(key.equals(exist.coalesce())) {
+                it.remove();
+                mSize--;
+                release(exist);
+                exist.setAbandon();
+                exist.recycle();
+                offer(ps);
+                _Budget.onCoalesce();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean spill(IPacket ps)
+    {
+        try {
+            if(_Spill.offer(ps)) {
+                ps.recycle();
+                _Budget.onSpill();
+                return true;
+            }
+            _Logger.warning("spill full, %s", this);
+        }
+        catch(IOException e) {
+            _Logger.warning("spill failed, %s", e, this);
+        }
+        _Budget.onDisconnect();
+        throw new RejectedExecutionException("spill rejected " + this);
+    }
+
+    /**
+     * 队列回落到上限一半以下时，将磁盘队列中的 packet 按序取回
+     */
+    private void replay() throws RejectedExecutionException
+    {
+        try {
+            while(!_Spill.isEmpty() && mBytes << 1 <= _QueueBytesMax && size() << 1 <= _QueueSizeMax) {
+                offer(_Spill.poll());
+                _Budget.onReplay();
             }
         }
+        catch(IOException e) {
+            _Logger.warning("spill replay failed, %s", e, this);
+            _Budget.onDisconnect();
+            throw new RejectedExecutionException("spill replay failed " + this);
+        }
+    }
+
+    private static int bytesOf(IPacket ps)
+    {
+        ByteBuf buf = ps.getBuffer();
+        return buf == null ? 0 : buf.readableBytes();
+    }
+
+    private void reserve(IPacket ps)
+    {
+        int bytes = bytesOf(ps);
+        mBytes += bytes;
+        _Budget.reserve(bytes);
+    }
+
+    private void release(IPacket ps)
+    {
+        int bytes = bytesOf(ps);
+        mBytes -= bytes;
+        _Budget.release(bytes);
+    }
+
+    private int classOf(IPacket ps)
+    {
+        if(_Ordered) {return 0;}
+        int priority = ps.priority();
+        if(priority <= QOS_PRIORITY_02_MQ_CONTROL) {return 0;}
+        if(priority <= QOS_PRIORITY_06_META_CREATE) {return 1;}
+        if(priority <= QOS_PRIORITY_11_MQ_MODIFY) {return 2;}
+        return 3;
+    }
+
+    private void pin(IPacket ps)
+    {
+        mPartial = ps;
+        mSize++;
+        reserve(ps);
+    }
+
+    /**
+     * @param aging 是否计入越过次数；peek 不改变状态
+     */
+    private ArrayDeque<IPacket> select(boolean aging)
+    {
+        ArrayDeque<IPacket> top = null;
+        for(int i = 0; i < CLASS_COUNT; i++) {
+            if(_Classes[i].isEmpty()) {continue;}
+            if(top == null) {
+                top = _Classes[i];
+                if(aging) {_Skips[i] = 0;}
+            }
+            else if(aging && ++_Skips[i] >= AGING) {
+                _Skips[i] = 0;
+                return _Classes[i];
+            }
+        }
+        return top;
+    }
+
+    @Override
+    public boolean offer(IPacket ps)
+    {
+        _Classes[classOf(Objects.requireNonNull(ps))].offer(ps);
+        mSize++;
+        reserve(ps);
+        return true;
+    }
+
+    @Override
+    public IPacket poll()
+    {
+        IPacket ps = mPartial;
+        if(ps != null) {
+            mPartial = null;
+        }
         else {
-            remove(ps);
-            return WRITE_STATUS.IGNORE;
+            ArrayDeque<IPacket> queue = select(true);
+            if(queue == null) {return null;}
+            ps = queue.poll();
         }
+        mSize--;
+        release(ps);
+        return ps;
+    }
+
+    @Override
+    public IPacket peek()
+    {
+        if(mPartial != null) {return mPartial;}
+        ArrayDeque<IPacket> queue = select(false);
+        return queue == null ? null : queue.peek();
+    }
+
+    @Override
+    public int size()
+    {
+        return mSize;
+    }
+
+    @Override
+    public void clear()
+    {
+        if(mPartial != null) {
+            mPartial.recycle();
+            mPartial = null;
+        }
+        for(ArrayDeque<IPacket> queue : _Classes) {
+            queue.forEach(IPacket::recycle);
+            queue.clear();
+        }
+        mSize = 0;
+        // 已提交给系统的 buffer 可能仍在写出，不归还池
+        for(IPacket ps : _InFlight) {
+            if(ps.getBuffer() instanceof PooledByteBuf pooled) {pooled.drop();}
+        }
+        _InFlight.clear();
+        _Budget.release(mBytes);
+        mBytes = 0;
+        try {
+            _Spill.close();
+        }
+        catch(IOException e) {
+            _Logger.warning("spill close failed, %s", e, this);
+        }
+    }
+
+    /**
+     * 快照，不支持 remove
+     */
+    @Override
+    public Iterator<IPacket> iterator()
+    {
+        List<IPacket> snapshot = new ArrayList<>(mSize);
+        if(mPartial != null) {snapshot.add(mPartial);}
+        for(ArrayDeque<IPacket> queue : _Classes) {
+            snapshot.addAll(queue);
+        }
+        return snapshot.iterator();
+    }
+
+    /**
+     * 各优先级待发 packet 数量，已部分写出的 packet 计入其所属级别
+     */
+    public int[] getQueueDepth()
+    {
+        int[] depth = new int[CLASS_COUNT];
+        for(int i = 0; i < CLASS_COUNT; i++) {
+            depth[i] = _Classes[i].size();
+        }
+        if(mPartial != null) {depth[classOf(mPartial)]++;}
+        return depth;
     }
 
     private void flush(CompletionHandler<Integer, ISession> handler) throws WritePendingException, NotYetConnectedException, ShutdownChannelGroupException
     {
-        if(stateLessThan(_State.get(), SESSION_FLUSHED) && _Context.getWrBuffer()
-                                                                   .isReadable())
+        if(!stateLessThan(_State.get(), SESSION_FLUSHED)) {return;}
+        if(!_InFlight.isEmpty()) {
+            int count = 0;
+            if(_Context.getWrBuffer()
+                       .isReadable())
+            {
+                _Gather[count++] = _Context.getWrBuffer()
+                                           .toReadBuffer();
+            }
+            for(IPacket ps : _InFlight) {
+                _Gather[count++] = ps.getBuffer()
+                                     .toReadBuffer();
+            }
+            _Logger.debug("gathering flush [%d] | %s", count, this);
+            mWriter = handler;
+            _Channel.write(_Gather, 0, count, _WriteTimeOutInSecond, TimeUnit.SECONDS, this, _Gathered);
+            advanceState(_State, SESSION_FLUSHED, CAPACITY);
+        }
+        else if(_Context.getWrBuffer()
+                        .isReadable())
         {
             _Logger.debug("flush expect[%d] | %s",
                           _Context.getWrBuffer()
@@ -24,7 +24,9 @@
 package com.isahl.chess.queen.io.core.net.socket;
 
 import com.isahl.chess.king.base.disruptor.features.functions.IBinaryOperator;
+import com.isahl.chess.king.base.disruptor.features.functions.OperateType;
 import com.isahl.chess.king.base.features.model.ITriple;
+import com.isahl.chess.king.base.log.Logger;
 import com.isahl.chess.queen.config.ISocketConfig;
 import com.isahl.chess.queen.events.functions.AcceptFailed;
 import com.isahl.chess.queen.events.functions.SocketConnected;
@@ -37,44 +39,172 @@ import java.net.StandardSocketOptions;
 import java.nio.channels.AsynchronousChannelGroup;
 import java.nio.channels.AsynchronousServerSocketChannel;
 import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * 同一地址以 SO_REUSEPORT 绑定多个 acceptor，由内核在各 listen socket 间分发新连接，
+ * 各 acceptor 各自保持一个 pending accept，完成回调分散到 channel-group 的线程上。
+ * 平台不支持 SO_REUSEPORT 时退化为单个 acceptor。
+ *
  * @author william.d.zk
  */
 public abstract class BaseAioServer
         extends AioCreator
         implements IAioServer
 {
+    private final static long WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+    private final    Logger            _Logger          = Logger.getLogger("io.queen.server." + BaseAioServer.class.getSimpleName());
     private final    AcceptFailed      _AcceptFailed    = new AcceptFailed();
     private final    SocketConnected   _SocketConnected = new SocketConnected();
     private final    InetSocketAddress _LocalBind;
+    private final    int               _Backlog;
+    private final    int               _AcceptorCount;
     private volatile boolean           vValid;
 
     protected BaseAioServer(String serverHost, int serverPort, ISocketConfig socketConfig)
     {
         super(socketConfig);
         _LocalBind = new InetSocketAddress(serverHost, serverPort);
+        _Backlog = socketConfig.getAcceptBacklog();
+        _AcceptorCount = socketConfig.getAcceptors() > 0 ? socketConfig.getAcceptors()
+                                                         : Runtime.getRuntime()
+                                                                  .availableProcessors();
     }
 
-    private AsynchronousServerSocketChannel mServerChannel;
+    private Acceptor[] mAcceptors = new Acceptor[0];
 
     @Override
     public void bindAddress(InetSocketAddress address, AsynchronousChannelGroup channelGroup) throws IOException
     {
-        mServerChannel = AsynchronousServerSocketChannel.open(channelGroup);
-        mServerChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
-        mServerChannel.bind(address, 1 << 6);
+        AsynchronousServerSocketChannel first = AsynchronousServerSocketChannel.open(channelGroup);
+        boolean reusePort = _AcceptorCount > 1 && first.supportedOptions()
+                                                       .contains(StandardSocketOptions.SO_REUSEPORT);
+        if(_AcceptorCount > 1 && !reusePort) {
+            _Logger.warning("SO_REUSEPORT unsupported, %s accept with single channel", address);
+        }
+        Acceptor[] acceptors = new Acceptor[reusePort ? _AcceptorCount : 1];
+        acceptors[0] = new Acceptor(bind(first, address, reusePort));
+        // port 为 0 时其余 acceptor 须绑定到第一个实际分配的端口
+        InetSocketAddress bound = (InetSocketAddress) first.getLocalAddress();
+        try {
+            for(int i = 1; i < acceptors.length; i++) {
+                acceptors[i] = new Acceptor(bind(AsynchronousServerSocketChannel.open(channelGroup), bound, true));
+            }
+        }
+        catch(IOException e) {
+            for(Acceptor acceptor : acceptors) {
+                if(acceptor != null) {acceptor._Channel.close();}
+            }
+            throw e;
+        }
+        mAcceptors = acceptors;
+        _Logger.info("%s bind %d acceptor, backlog %d", bound, acceptors.length, _Backlog);
+    }
+
+    private AsynchronousServerSocketChannel bind(AsynchronousServerSocketChannel channel,
+                                                 InetSocketAddress address,
+                                                 boolean reusePort) throws IOException
+    {
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        if(reusePort) {channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);}
+        return channel.bind(address, _Backlog);
     }
 
     @Override
     public void pendingAccept()
     {
-        if(mServerChannel != null && mServerChannel.isOpen()) {
-            mServerChannel.accept(this, this);
-            vValid = true;
+        for(Acceptor acceptor : mAcceptors) {
+            acceptor.pending();
         }
     }
 
+    public Metrics metrics()
+    {
+        long accepted = 0, failed = 0, rate = 0;
+        for(Acceptor acceptor : mAcceptors) {
+            accepted += acceptor.vAccepted;
+            failed += acceptor.vFailed;
+            rate += acceptor.rate();
+        }
+        return new Metrics(_LocalBind.toString(), mAcceptors.length, _Backlog, accepted, failed, rate);
+    }
+
+    /**
+     * 每个 acceptor 同时只有一个 pending accept，回调串行，计数无需同步
+     */
+    private class Acceptor
+            implements CompletionHandler<AsynchronousSocketChannel, IAioServer>
+    {
+        private final AsynchronousServerSocketChannel _Channel;
+
+        private volatile long vAccepted;
+        private volatile long vFailed;
+        private volatile long vRate;
+        private volatile long vWindowStart;
+        private          long mWindowAccepted;
+
+        private Acceptor(AsynchronousServerSocketChannel channel)
+        {
+            _Channel = channel;
+        }
+
+        private void pending()
+        {
+            if(_Channel.isOpen()) {
+                _Channel.accept(BaseAioServer.this, this);
+                vValid = true;
+            }
+        }
+
+        private long rate()
+        {
+            // 两个窗口内没有新的连接，视为空闲
+            return System.nanoTime() - vWindowStart > WINDOW << 1 ? 0 : vRate;
+        }
+
+        @Override
+        public void completed(AsynchronousSocketChannel channel, IAioServer server)
+        {
+            long accepted = vAccepted + 1;
+            vAccepted = accepted;
+            long now = System.nanoTime();
+            if(vWindowStart == 0) {
+                mWindowAccepted = accepted - 1;
+                vWindowStart = now;
+            }
+            else if(now - vWindowStart >= WINDOW) {
+                vRate = (accepted - mWindowAccepted) * WINDOW / (now - vWindowStart);
+                mWindowAccepted = accepted;
+                vWindowStart = now;
+            }
+            AioWorker worker = (AioWorker) Thread.currentThread();
+            worker.publishConnected(server.getConnectedOperator(), server, OperateType.ACCEPTED, channel);
+            pending();
+        }
+
+        @Override
+        public void failed(Throwable exc, IAioServer server)
+        {
+            vFailed++;
+            AioWorker worker = (AioWorker) Thread.currentThread();
+            worker.publishAcceptError(server.getErrorOperator(), exc, server);
+            pending();
+        }
+    }
+
+    /**
+     * @param acceptRate 最近一个窗口内每秒建立的连接数
+     */
+    public record Metrics(String address,
+                          int acceptors,
+                          int backlog,
+                          long accepted,
+                          long failed,
+                          long acceptRate)
+    {}
+
     @Override
     public InetSocketAddress getRemoteAddress()
     {
@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.queen.io.core.net.socket;
+
+import com.isahl.chess.king.base.log.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 节点级待发字节预算与 slow-consumer 处理计数。
+ * 所有 session 的待发字节总量超过高水位后进入过载，过载期间入站最多的 LINK session
+ * 在 readNext 时暂停读取，总量回落到低水位后统一恢复。
+ *
+ * @author william.d.zk
+ */
+public class SendBudget
+{
+    private final static Logger     _Logger = Logger.getLogger("io.queen.session." + SendBudget.class.getSimpleName());
+    private final static SendBudget _Global = new SendBudget(256L << 20, 192L << 20);
+
+    private final AtomicLong           _Queued       = new AtomicLong();
+    private final AtomicLong           _Peak         = new AtomicLong();
+    private final AtomicBoolean        _Overloaded   = new AtomicBoolean();
+    private final Queue<AioSession<?>> _Paused       = new ConcurrentLinkedQueue<>();
+    private final LongAdder            _Dropped      = new LongAdder();
+    private final LongAdder            _Coalesced    = new LongAdder();
+    private final LongAdder            _Spilled      = new LongAdder();
+    private final LongAdder            _Replayed     = new LongAdder();
+    private final LongAdder            _Disconnected = new LongAdder();
+    private final LongAdder            _Pauses       = new LongAdder();
+
+    private volatile long vHighWater;
+    private volatile long vLowWater;
+    /*
+     * 每次进入过载 +1，session 以此重置入站计数
+     */
+    private volatile long vEpoch;
+
+    public static SendBudget global()
+    {
+        return _Global;
+    }
+
+    public SendBudget(long highWater, long lowWater)
+    {
+        watermark(highWater, lowWater);
+    }
+
+    public void watermark(long highWater, long lowWater)
+    {
+        if(highWater <= 0 || lowWater < 0 || lowWater > highWater) {
+            throw new IllegalArgumentException(String.format("watermark high:%d low:%d", highWater, lowWater));
+        }
+        vHighWater = highWater;
+        vLowWater = lowWater;
+    }
+
+    void reserve(long bytes)
+    {
+        if(_Queued.addAndGet(bytes) > vHighWater && _Overloaded.compareAndSet(false, true)) {
+            _Peak.set(0);
+            vEpoch++;
+            _Logger.warning("send budget overloaded, queued %d > %d", _Queued.get(), vHighWater);
+        }
+    }
+
+    void release(long bytes)
+    {
+        if(_Queued.addAndGet(-bytes) <= vLowWater && _Overloaded.compareAndSet(true, false)) {
+            _Logger.info("send budget recovered, queued %d <= %d", _Queued.get(), vLowWater);
+            resume();
+        }
+    }
+
+    public boolean isOverloaded()
+    {
+        return _Overloaded.get();
+    }
+
+    long epoch()
+    {
+        return vEpoch;
+    }
+
+    /**
+     * @param inbound session 在本次过载期间的入站字节
+     * @return 达到当前峰值的一半即视为最热的发布者之一
+     */
+    boolean isHot(long inbound)
+    {
+        return inbound > 0 && inbound << 1 >= _Peak.accumulateAndGet(inbound, Math::max);
+    }
+
+    void pause(AioSession<?> session)
+    {
+        _Paused.offer(session);
+        _Pauses.increment();
+        // 入队前恰好回落时不会再有 release 触发恢复
+        if(!isOverloaded()) {resume();}
+    }
+
+    private void resume()
+    {
+        AioSession<?> session;
+        while((session = _Paused.poll()) != null) {
+            try {
+                session.resumeRead();
+            }
+            catch(Exception e) {
+                _Logger.warning("resume read failed %s", e, session);
+            }
+        }
+    }
+
+    void onDrop()
+    {
+        _Dropped.increment();
+    }
+
+    void onCoalesce()
+    {
+        _Coalesced.increment();
+    }
+
+    void onSpill()
+    {
+        _Spilled.increment();
+    }
+
+    void onReplay()
+    {
+        _Replayed.increment();
+    }
+
+    void onDisconnect()
+    {
+        _Disconnected.increment();
+    }
+
+    public Metrics metrics()
+    {
+        return new Metrics(_Queued.get(),
+                           vHighWater,
+                           vLowWater,
+                           isOverloaded(),
+                           _Paused.size(),
+                           _Pauses.sum(),
+                           _Dropped.sum(),
+                           _Coalesced.sum(),
+                           _Spilled.sum(),
+                           _Replayed.sum(),
+                           _Disconnected.sum());
+    }
+
+    /**
+     * @param queued  所有 session 待发队列中的字节
+     * @param paused  当前暂停读取的 session 数
+     * @param pauses  累计暂停次数
+     * @param spilled 写入磁盘队列的 packet 数
+     * @param replayed 从磁盘队列重新入队的 packet 数
+     */
+    public record Metrics(long queued,
+                          long highWater,
+                          long lowWater,
+                          boolean overloaded,
+                          int paused,
+                          long pauses,
+                          long dropped,
+                          long coalesced,
+                          long spilled,
+                          long replayed,
+                          long disconnected)
+    {}
+}
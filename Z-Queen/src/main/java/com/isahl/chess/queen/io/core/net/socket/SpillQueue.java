@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.queen.io.core.net.socket;
+
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.queen.io.core.features.model.content.IPacket;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * session 级磁盘 FIFO，保存已编码的待发 packet。
+ * record: [priority:4][level:1][length:4][bytes]，文件在首次写入时创建，读空后截断，关闭时删除。
+ *
+ * @author william.d.zk
+ */
+final class SpillQueue
+        implements Closeable
+{
+    private final static int HEADER = 9;
+
+    private final Path       _Directory;
+    private final String     _Name;
+    private final long       _Capacity;
+    private final ByteBuffer _Header = ByteBuffer.allocate(HEADER);
+
+    private FileChannel mChannel;
+    private long        mHead;
+    private long        mTail;
+    private int         mCount;
+
+    SpillQueue(Path directory, String name, long capacity)
+    {
+        _Directory = directory;
+        _Name = name;
+        _Capacity = capacity;
+    }
+
+    /**
+     * @return false 超出容量
+     */
+    boolean offer(IPacket ps) throws IOException
+    {
+        ByteBuf buf = ps.getBuffer();
+        int length = buf.readableBytes();
+        if(mTail - mHead + HEADER + length > _Capacity) {return false;}
+        if(mChannel == null) {
+            Files.createDirectories(_Directory);
+            mChannel = FileChannel.open(_Directory.resolve(_Name), CREATE, TRUNCATE_EXISTING, READ, WRITE, DELETE_ON_CLOSE);
+        }
+        IQoS.Level level = ps.level();
+        _Header.clear()
+               .putInt(ps.priority())
+               .put((byte) (level == null ? IQoS.Level.AT_LEAST_ONCE : level).getValue())
+               .putInt(length)
+               .flip();
+        mTail += write(_Header, mTail);
+        mTail += write(buf.toReadBuffer(), mTail);
+        mCount++;
+        return true;
+    }
+
+    IPacket poll() throws IOException
+    {
+        if(mCount == 0) {return null;}
+        read(_Header.clear(), mHead);
+        _Header.flip();
+        int priority = _Header.getInt();
+        IQoS.Level level = IQoS.Level.valueOf(_Header.get() & 0xFF);
+        byte[] bytes = new byte[_Header.getInt()];
+        read(ByteBuffer.wrap(bytes), mHead + HEADER);
+        mHead += HEADER + bytes.length;
+        if(--mCount == 0) {
+            mHead = mTail = 0;
+            mChannel.truncate(0);
+        }
+        return new AioPacket(ByteBuf.wrap(bytes)).priority(priority)
+                                                 .level(level);
+    }
+
+    boolean isEmpty()
+    {
+        return mCount == 0;
+    }
+
+    int size()
+    {
+        return mCount;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        mHead = mTail = 0;
+        mCount = 0;
+        if(mChannel != null) {
+            mChannel.close();
+            mChannel = null;
+        }
+    }
+
+    private int write(ByteBuffer src, long position) throws IOException
+    {
+        int length = src.remaining();
+        while(src.hasRemaining()) {
+            position += mChannel.write(src, position);
+        }
+        return length;
+    }
+
+    private void read(ByteBuffer dst, long position) throws IOException
+    {
+        while(dst.hasRemaining()) {
+            int read = mChannel.read(dst, position);
+            if(read < 0) {throw new IOException("spill truncated: " + _Name);}
+            position += read;
+        }
+    }
+}
@@ -23,6 +23,8 @@
 
 package com.isahl.chess.queen.io.core.tasks;
 
+import com.isahl.chess.king.base.disruptor.components.Health;
+import com.isahl.chess.king.base.disruptor.components.Telemetry;
 import com.isahl.chess.king.base.disruptor.components.Z1Processor;
 import com.isahl.chess.king.base.disruptor.components.Z2Processor;
 import com.isahl.chess.king.base.disruptor.features.functions.OperateType;
@@ -90,6 +92,11 @@ public class ServerCore
      */
     private final RingBuffer<QEvent> _LocalLogicEvent;
 
+    /**
+     * 链路外部异步处理（如设备鉴权）完成后重新投递回 LinkProcessor 的入口
+     */
+    private final RingBuffer<QEvent> _LinkLocalEvent;
+
     /**
      * 用于选举功能的处理pipeline，用于local timer 和 cluster segment log 处理结果向集群中其他节点发送
      * 选举结果都在 cluster processor 中统一由集群处理逻辑执行。
@@ -105,6 +112,7 @@ public class ServerCore
     private final RingBuffer<QEvent>                        _NotifyEvent;
     private final ConcurrentLinkedQueue<RingBuffer<QEvent>> _AioCacheConcurrentQueue;
     private final ConcurrentLinkedQueue<RingBuffer<QEvent>> _ClusterCacheConcurrentQueue;
+    private final Telemetry                                 _Telemetry = new Telemetry();
 
     private final ThreadFactory _WorkerThreadFactory = new ThreadFactory()
     {
@@ -152,6 +160,7 @@ public class ServerCore
     private final ReentrantLock _ConsensusLock    = new ReentrantLock();
     private final ReentrantLock _ConsensusApiLock = new ReentrantLock();
     private final ReentrantLock _LocalLogicLock   = new ReentrantLock();
+    private final ReentrantLock _LinkLocalLock    = new ReentrantLock();
 
     private AsynchronousChannelGroup mServiceChannelGroup;
     private AsynchronousChannelGroup mClusterChannelGroup;
@@ -165,6 +174,8 @@ public class ServerCore
               TimeUnit.SECONDS,
               new LinkedBlockingQueue<>(),
               _ThreadFactory);
+        // 各 processor 的 Health 在 build 时创建，须先于 build 设定
+        Health.configure(config.isHealthEnable(), config.getHealthLatencyLimit());
         _LogicCount = 1 << config.getLogicCountPower();
         _DecoderCount = 1 << config.getDecoderCountPower();
         _EncoderCount = 1 << config.getEncoderCountPower();
@@ -203,11 +214,26 @@ public class ServerCore
         _BizLocalCloseEvent = createPipelineLite(_CloserQueueSize);
         _BizLocalSendEvent = createPipelineLite(_LocalQueueSize);
         _LinkWriteEvent = createPipelineYield(_LinkQueueSize << 1);
+        _LinkLocalEvent = createPipelineLite(_LinkQueueSize);
 
         _ConsensusEvent = createPipelineYield(_ClusterQueueSize);
         _ConsensusApiEvent = createPipelineLite(_ClusterQueueSize);
         _ClusterEvent = createPipelineYield(_ClusterQueueSize);
         _NotifyEvent = createPipelineYield(_ClusterQueueSize);
+
+        _Telemetry.ring("AioProducerEvents", _AioProducerEvents)
+                  .ring("LocalLogicEvent", _LocalLogicEvent)
+                  .ring("ClusterLocalCloseEvent", _ClusterLocalCloseEvent)
+                  .ring("ClusterLocalSendEvent", _ClusterLocalSendEvent)
+                  .ring("ClusterWriteEvent", _ClusterWriteEvent)
+                  .ring("BizLocalCloseEvent", _BizLocalCloseEvent)
+                  .ring("BizLocalSendEvent", _BizLocalSendEvent)
+                  .ring("LinkWriteEvent", _LinkWriteEvent)
+                  .ring("LinkLocalEvent", _LinkLocalEvent)
+                  .ring("ConsensusEvent", _ConsensusEvent)
+                  .ring("ConsensusApiEvent", _ConsensusApiEvent)
+                  .ring("ClusterEvent", _ClusterEvent)
+                  .ring("NotifyEvent", _NotifyEvent);
     }
 
     /* @formatter:off
@@ -287,10 +313,12 @@ public class ServerCore
         final RingBuffer<QEvent> _LinkDecoded = createPipelineLite(_LinkQueueSize);
         final RingBuffer<QEvent>[] _LinkEvents = new RingBuffer[]{ _LinkIoEvent,
                                                                    _LinkDecoded,
-                                                                   _NotifyEvent };
+                                                                   _NotifyEvent,
+                                                                   _LinkLocalEvent };
         final SequenceBarrier[] _LinkBarriers = new SequenceBarrier[]{ _LinkIoEvent.newBarrier(),
                                                                        _LinkDecoded.newBarrier(),
-                                                                       _NotifyEvent.newBarrier() };
+                                                                       _NotifyEvent.newBarrier(),
+                                                                       _LinkLocalEvent.newBarrier() };
         final Z2Processor<QEvent> _LinkProcessor = new Z2Processor<>(_LinkEvents,
                                                                      _LinkBarriers,
                                                                      new MixMappingHandler<>("LINK",
@@ -418,6 +446,31 @@ public class ServerCore
             _EncodedEvents[i].addGatingSequences(_EncodedProcessor.setGating()
                                                                   .getSequences()[i]);
         }
+        /* 观测 */
+        _Telemetry.ring("WroteEvent", _WroteEvent)
+                  .ring("LinkIoEvent", _LinkIoEvent)
+                  .ring("ClusterIoEvent", _ClusterIoEvent)
+                  .ring("ErrorEvents", _ErrorEvents)
+                  .ring("ReadEvents", _ReadEvents)
+                  .ring("LinkDecoded", _LinkDecoded)
+                  .ring("ClusterDecoded", _ClusterDecoded)
+                  .ring("LogicEvents", _LogicEvents)
+                  .ring("WriteEvents", _WriteEvents);
+        _Telemetry.stage("IoDispatcher", _IoDispatcher.getHealth());
+        for(int i = 0; i < _DecoderCount; i++) {
+            _Telemetry.stage("DecodeProcessor#" + i, _DecodeProcessors[i].getHealth());
+        }
+        _Telemetry.stage("DecodedDispatcher", _DecodedDispatcher.getHealth())
+                  .stage("LinkProcessor", _LinkProcessor.getHealth())
+                  .stage("ClusterProcessor", _ClusterProcessor.getHealth());
+        for(int i = 0; i < _LogicCount; i++) {
+            _Telemetry.stage("LogicProcessor#" + i, _LogicProcessors[i].getHealth());
+        }
+        _Telemetry.stage("WriteDispatcher", _WriteDispatcher.getHealth());
+        for(int i = 0; i < _EncoderCount; i++) {
+            _Telemetry.stage("EncodeProcessor#" + i, _EncodeProcessors[i].getHealth());
+        }
+        _Telemetry.stage("EncodedProcessor", _EncodedProcessor.getHealth());
         /*-------------------------------------------------------------------------------------------------------------------------------------*/
         /* 所有Io事件 都通过这个 Dispatcher 向其他的领域处理器进行分发 */
         submit(_IoDispatcher);
@@ -435,6 +488,14 @@ public class ServerCore
         _Logger.info("%s =>>>>>>>>>>> start", getClass().getSimpleName());
     }
 
+    /**
+     * @return 各 processor 的耗时/吞吐统计与各 RingBuffer 剩余容量
+     */
+    public Telemetry getTelemetry()
+    {
+        return _Telemetry;
+    }
+
     @Override
     public AsynchronousChannelGroup getServiceChannelGroup() throws IOException
     {
@@ -473,6 +534,7 @@ public class ServerCore
             case SERVICE -> _LocalLogicLock;
             case CLUSTER_TOPOLOGY, CONSISTENT_SERVICE -> _ConsensusApiLock;
             case CLUSTER_TIMER -> _ConsensusLock;
+            case LINK -> _LinkLocalLock;
             default -> throw new IllegalArgumentException(String.format("error type:%s", type));
         };
     }
@@ -486,6 +548,7 @@ public class ServerCore
             case SERVICE -> _LocalLogicEvent;
             case CLUSTER_TOPOLOGY, CONSISTENT_SERVICE -> _ConsensusApiEvent;
             case CLUSTER_TIMER -> _ConsensusEvent;
+            case LINK -> _LinkLocalEvent;
             default -> throw new IllegalArgumentException(String.format("get publisher type error:%s ", type.name()));
         };
     }
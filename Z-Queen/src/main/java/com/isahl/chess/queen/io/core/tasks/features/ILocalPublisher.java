@@ -76,6 +76,32 @@ public interface ILocalPublisher
         return false;
     }
 
+    /**
+     * 与 publish 不同，此处阻塞等待锁，保证异步处理的结果一定能回到 pipeline
+     */
+    default <T, U, R> void produce(OperateType type, IPair content, IBinaryOperator<T, U, R> next)
+    {
+        if(content == null || content.isEmpty() || type == null) {
+            return;
+        }
+        RingBuffer<QEvent> producer = selectPublisher(type);
+        ReentrantLock lock = selectLock(type);
+        lock.lock();
+        try {
+            long sequence = producer.next();
+            try {
+                QEvent event = producer.get(sequence);
+                event.produce(type, content, next);
+            }
+            finally {
+                producer.publish(sequence);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
     default <T, U, R> void close(OperateType type, IPair content, IBinaryOperator<T, U, R> next)
     {
         if(content == null || content.isEmpty() || type == null) {
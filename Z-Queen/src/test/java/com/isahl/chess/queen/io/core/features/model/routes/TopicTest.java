@@ -0,0 +1,69 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016~2021. Z-Chess
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.isahl.chess.queen.io.core.features.model.routes;
+
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TopicTest
+{
+    /*
+     * 旧版本 _QttTopicToRegex 的输出 → 原始 filter
+     */
+    private final Map<String, String> _Legacy = Map.of("a/b", "a/b",
+                                                       "([^$/]+)/b", "+/b",
+                                                       "([^$]*)", "#",
+                                                       "(/.*)", "/#",
+                                                       "a(/?.*)", "a/#",
+                                                       "a(/?[^/]*)", "a/+",
+                                                       "a/([^/]+)/c", "a/+/c",
+                                                       "([^$/]+)/([^/]+)(/?.*)", "+/+/#",
+                                                       "$SYS(/?[^/]*)", "$SYS/+");
+
+    @Test
+    void legacy()
+    {
+        _Legacy.forEach((stored, filter)->assertEquals(filter, IThread.Topic.legacy(stored)));
+        assertEquals("a/+/#", IThread.Topic.legacy("a/+/#"));
+    }
+
+    @Test
+    void decodeLegacy()
+    {
+        _Legacy.forEach((stored, filter)->{
+            IThread.Topic topic = new IThread.Topic(Pattern.compile(stored), IQoS.Level.AT_LEAST_ONCE, 3);
+            IThread.Topic decoded = new IThread.Topic(ByteBuf.wrap(topic.encode()
+                                                                        .array()));
+            assertEquals(filter, decoded.filter());
+            assertEquals(IQoS.Level.AT_LEAST_ONCE, decoded.level());
+            assertEquals(3, decoded.alias());
+        });
+    }
+}
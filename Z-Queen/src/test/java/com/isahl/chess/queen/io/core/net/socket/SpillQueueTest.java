@@ -0,0 +1,59 @@
+package com.isahl.chess.queen.io.core.net.socket;
+
+import com.isahl.chess.king.base.content.ByteBuf;
+import com.isahl.chess.queen.io.core.features.model.content.IPacket;
+import com.isahl.chess.queen.io.core.features.model.session.IQoS;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author william.d.zk
+ */
+class SpillQueueTest
+{
+    @TempDir
+    Path dir;
+
+    private static IPacket packet(String content, int priority, IQoS.Level level)
+    {
+        return new AioPacket(ByteBuf.wrap(content.getBytes(StandardCharsets.UTF_8))).priority(priority)
+                                                                                     .level(level);
+    }
+
+    @Test
+    public void fifo() throws Exception
+    {
+        try(SpillQueue spill = new SpillQueue(dir, "fifo.spill", 1 << 20)) {
+            for(int i = 0; i < 100; i++) {
+                assertTrue(spill.offer(packet("message-" + i, 4 << (i % 16), IQoS.Level.valueOf(i % 3))));
+            }
+            assertEquals(100, spill.size());
+            for(int i = 0; i < 100; i++) {
+                IPacket ps = spill.poll();
+                assertEquals("message-" + i, new String(ps.getBuffer()
+                                                          .peekAll(), StandardCharsets.UTF_8));
+                assertEquals(4 << (i % 16), ps.priority());
+                assertEquals(IQoS.Level.valueOf(i % 3), ps.level());
+            }
+            assertTrue(spill.isEmpty());
+            assertNull(spill.poll());
+        }
+    }
+
+    @Test
+    public void capacity() throws Exception
+    {
+        try(SpillQueue spill = new SpillQueue(dir, "capacity.spill", 64)) {
+            assertTrue(spill.offer(packet("0123456789012345678901234567890123456789", 4, IQoS.Level.AT_LEAST_ONCE)));
+            assertFalse(spill.offer(packet("0123456789012345678901234567890123456789", 4, IQoS.Level.AT_LEAST_ONCE)));
+            spill.poll();
+            // 读空后截断，容量重新可用
+            assertTrue(spill.offer(packet("0123456789012345678901234567890123456789", 4, IQoS.Level.AT_LEAST_ONCE)));
+        }
+    }
+}